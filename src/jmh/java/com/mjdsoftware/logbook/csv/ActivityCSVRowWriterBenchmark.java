@@ -0,0 +1,140 @@
+package com.mjdsoftware.logbook.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a chunk of export rows through CSVPrinter, as exports used to, with writing them
+ * through ActivityCSVRowWriter. Rows go to a null writer so only encoding is measured. Run with the
+ * gc profiler, as main does, to compare allocation per row as well as throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivityCSVRowWriterBenchmark {
+
+    private ActivityExportRow[] rows;
+
+    private Writer writer;
+
+    //Constants
+    private static final int ROW_COUNT = 1000;
+
+    /**
+     * Set up a chunk of rows mixing activity subclasses and details that do and do not need quoting
+     */
+    @Setup
+    public void setUp() {
+
+        this.rows = new ActivityExportRow[ROW_COUNT];
+        for (int i = 0; i < ROW_COUNT; i++) {
+
+            this.rows[i] = new ActivityExportRow(Long.valueOf(i),
+                                                 "ROWING",
+                                                 1.5,
+                                                 "HOURS",
+                                                 (i % 10 == 0) ? "Intervals, 8 x 500m \"hard\"" : "Steady state",
+                                                 (i % 3 == 0) ? 0.0 : 16000.0,
+                                                 (i % 3 == 0) ? null : "METERS",
+                                                 (i % 2 == 0) ? 185.0 : 0.0,
+                                                 (i % 2 == 0) ? 1240.0 : 0.0,
+                                                 (i % 2 == 0) ? 142.0 : 0.0,
+                                                 Calendar.getInstance());
+        }
+        this.writer = Writer.nullWriter();
+
+    }
+
+    /**
+     * Write the chunk through CSVPrinter
+     * @throws IOException
+     */
+    @Benchmark
+    public void csvPrinter() throws IOException {
+
+        CSVPrinter tempPrinter;
+
+        tempPrinter = new CSVPrinter(this.writer, CSVFormat.DEFAULT);
+        for (ActivityExportRow r : this.rows) {
+
+            tempPrinter.printRecord(asObjectValues(r));
+        }
+        tempPrinter.flush();
+
+    }
+
+    /**
+     * Write the chunk through ActivityCSVRowWriter
+     * @throws IOException
+     */
+    @Benchmark
+    public void activityCSVRowWriter() throws IOException {
+
+        ActivityCSVRowWriter tempRowWriter;
+
+        tempRowWriter = new ActivityCSVRowWriter(this.writer);
+        for (ActivityExportRow r : this.rows) {
+
+            tempRowWriter.writeRow(r);
+        }
+        tempRowWriter.flush();
+
+    }
+
+    /**
+     * Answer the exported values of aRow, in the order of the export columns, as CSVPrinter takes them
+     * @param aRow ActivityExportRow
+     * @return Object[]
+     */
+    private static Object[] asObjectValues(ActivityExportRow aRow) {
+
+        Object[] tempResult = new Object[ActivityExportColumns.NAMES.length];
+
+        tempResult[0] = aRow.getId();
+        tempResult[1] = aRow.getActivityType();
+        tempResult[2] = aRow.getDuration();
+        tempResult[3] = aRow.getDurationUnits();
+        tempResult[4] = aRow.getActivityDetails();
+        tempResult[5] = aRow.getDistance();
+        tempResult[6] = aRow.getDistanceUnits();
+        tempResult[7] = aRow.getAverageWatts();
+        tempResult[8] = aRow.getTotalCalories();
+        tempResult[9] = aRow.getAverageHeartRate();
+
+        return tempResult;
+
+    }
+
+    /**
+     * Run me with the gc profiler
+     * @param args String[]
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+
+        Options tempOptions;
+
+        tempOptions = new OptionsBuilder()
+                            .include(ActivityCSVRowWriterBenchmark.class.getSimpleName())
+                            .addProfiler(GCProfiler.class)
+                            .build();
+
+        new Runner(tempOptions).run();
+
+    }
+
+}
@@ -1,13 +1,18 @@
 package com.mjdsoftware.logbook.api;
 
+import com.mjdsoftware.logbook.csv.StreamingActivityExporter;
 import com.mjdsoftware.logbook.domain.entities.Activity;
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
 import com.mjdsoftware.logbook.domain.entities.Logbook;
 import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
 import com.mjdsoftware.logbook.domain.entities.User;
 import com.mjdsoftware.logbook.dto.*;
 import com.mjdsoftware.logbook.exception.LogbookNotFoundException;
+import com.mjdsoftware.logbook.export.ExportDownload;
+import com.mjdsoftware.logbook.export.ExportJob;
 import com.mjdsoftware.logbook.exception.UserNotFoundException;
 import com.mjdsoftware.logbook.service.ActivityService;
+import com.mjdsoftware.logbook.service.ExportJobService;
 import com.mjdsoftware.logbook.service.LogbookEntryService;
 import com.mjdsoftware.logbook.service.LogbookService;
 import com.mjdsoftware.logbook.service.UserService;
@@ -22,17 +27,26 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 @Tag(name="LogbookController", description="This REST controller provides an interface for managing" +
@@ -54,10 +68,19 @@ public class LogbookController {
     @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
     private UserService userService;
 
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportJobService exportJobService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LogbookRequestContext logbookRequestContext;
+
     //Constants
     public static final String STRENGTH_TRAINING_ACTIVITY_NOT_FOUND_MESSAGE = "Strength training activity - Logbook or LogbookEntry were not found to create an activity";
     public static final String UNMONITORED_AEROBIC_ACTIVITY_NOT_FOUND_MESSAGE = "UnMonitored aerobic activity - Logbook or LogbookEntry were not found to create an activity";
     public static final String MONITORED_AEROBIC_ACTIVITY_NOT_FOUND_MESSAGE = "Monitored aerobic activity - Logbook or LogbookEntry were not found to create an activity";
+    public static final String STREAMED_EXPORT_BASENAME = "activities";
+    public static final String EXPORT_CHECKPOINT_HEADER = "X-Export-Checkpoint";
+    private static final String STREAM_RELEASE_INTERCEPTOR_KEY = "logbook.export.stream.release";
 
 
     /**
@@ -76,18 +99,24 @@ public class LogbookController {
      * @param aLogbookEntryService LogbookEntryService
      * @param anActivityService ActivityService
      * @param aUserService UserService
+     * @param anExportJobService ExportJobService
+     * @param aLogbookRequestContext LogbookRequestContext
      */
     @Autowired
     public LogbookController(LogbookService aLogbookService,
                              LogbookEntryService aLogbookEntryService,
                              ActivityService anActivityService,
-                             UserService aUserService) {
+                             UserService aUserService,
+                             ExportJobService anExportJobService,
+                             LogbookRequestContext aLogbookRequestContext) {
 
         super();
         this.setLogbookService(aLogbookService);
         this.setLogbookEntryService(aLogbookEntryService);
         this.setActivityService(anActivityService);
         this.setUserService(aUserService);
+        this.setExportJobService(anExportJobService);
+        this.setLogbookRequestContext(aLogbookRequestContext);
 
     }
 
@@ -545,27 +574,19 @@ public class LogbookController {
                                                             ActivityDTO anActivityDTO,
                                                             String aNotFoundMessage) {
         Activity        tempResult = null;
-        Logbook         tempLogbook = null;
-        LogbookEntry    tempEntry = null;
-
-        tempLogbook = this.getLogbookService().findLogbookById(logbookId);
-        if (tempLogbook != null) {
-
-            tempEntry = this.getLogbookEntryService().findLogbookEntryById(logbookEntryId);
-            if (tempEntry != null) {
-
-                tempResult =
-                        this.getActivityService().createActivity(tempLogbook, tempEntry, anActivityDTO);
+        LogbookEntry    tempEntry;
 
+        //The entry is resolved with its logbook, so neither is loaded again
+        tempEntry = this.getLogbookRequestContext().findLogbookEntry(logbookId, logbookEntryId);
+        if (tempEntry != null) {
 
-            }
+            tempResult =
+                    this.getActivityService().createActivity(tempEntry.getLogbook(), tempEntry, anActivityDTO);
 
         }
+        else {
 
-        //Log message if we didn't create anything -- TBD this should probably be an error
-        if (tempLogbook == null ||
-                tempEntry == null) {
-
+            //Log message if we didn't create anything -- TBD this should probably be an error
             getLogger().info(aNotFoundMessage);
         }
 
@@ -757,27 +778,19 @@ public class LogbookController {
                                                             String aNotFoundMessage) {
 
         Activity        tempResult = null;
-        Logbook         tempLogbook = null;
-        LogbookEntry    tempEntry = null;
+        LogbookEntry    tempEntry;
 
-        tempLogbook = this.getLogbookService().findLogbookById(logbookId);
-        if (tempLogbook != null) {
-
-            tempEntry = this.getLogbookEntryService().findLogbookEntryById(logbookEntryId);
-            if (tempEntry != null) {
+        //The entry is resolved with its logbook, so neither is loaded again
+        tempEntry = this.getLogbookRequestContext().findLogbookEntry(logbookId, logbookEntryId);
+        if (tempEntry != null) {
 
-                tempResult =
-                        this.getActivityService().modifyActivity(tempLogbook, tempEntry, anActivityDTO);
-
-
-            }
+            tempResult =
+                    this.getActivityService().modifyActivity(tempEntry.getLogbook(), tempEntry, anActivityDTO);
 
         }
+        else {
 
-        //Log message if we didn't modify anything -- TBD this should probably be an error
-        if (tempLogbook == null ||
-                tempEntry == null) {
-
+            //Log message if we didn't modify anything -- TBD this should probably be an error
             getLogger().info(aNotFoundMessage);
         }
 
@@ -811,26 +824,18 @@ public class LogbookController {
                                                                        @PathVariable Long logbookEntryId) {
 
         List<Activity>        tempResults = new ArrayList<Activity>();
-        Logbook               tempLogbook = null;
-        LogbookEntry          tempEntry = null;
-
-        tempLogbook = this.getLogbookService().findLogbookById(logbookId);
-        if (tempLogbook != null) {
+        LogbookEntry          tempEntry;
 
-            tempEntry = this.getLogbookEntryService().findLogbookEntryById(logbookEntryId);
-            if (tempEntry != null) {
+        tempEntry = this.getLogbookRequestContext().findLogbookEntry(logbookId, logbookEntryId);
+        if (tempEntry != null) {
 
-                tempResults =
-                        this.getActivityService().findActivitiesForLogbookEntry(tempEntry);
-
-            }
+            tempResults =
+                    this.getActivityService().findActivitiesForLogbookEntry(tempEntry);
 
         }
+        else {
 
-        //Log message if we didn't create anything -- TBD this should probably be an error
-        if (tempLogbook == null ||
-                tempEntry == null) {
-
+            //Log message if we didn't create anything -- TBD this should probably be an error
             getLogger().info("Logbook or LogbookEntry were not found to create an activity");
         }
 
@@ -952,35 +957,391 @@ public class LogbookController {
     }
 
     /**
-     * Export activities defined by anActivityExportRequest
+     * Export activities defined by anActivityExportRequest. Answer the export job, which can be polled
+     * for progress until it is done.
      * @param logbookId Long
      * @param anActivityExportRequest
-     *
+     * @return ResponseEntity
      */
     @Operation(summary = "Export activities for logbookId based on anActivityExportRequest",
-            description = "Export activities for logbookId based on anActivityExportRequest")
+            description = "Export activities for logbookId based on anActivityExportRequest. The export runs" +
+                    " asynchronously; the answered export job can be polled for its status and progress. Its" +
+                    " nextCheckpointToken can be given as the checkpointToken of a later request to export only" +
+                    " activities changed or deleted since. The format defaults to CSV; NDJSON and COLUMNAR" +
+                    " binary are also written. Criteria narrow the activities exported by activity types," +
+                    " discriminators, distance and duration; an activityType must be one of the criteria" +
+                    " activity types. The export filename is taken within the export directory, and" +
+                    " export files are deleted once they expire.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
                     description = "Success"),
             @ApiResponse(responseCode = "400",
                     description = "General client error"),
+            @ApiResponse(responseCode = "429",
+                    description = "Too many exports in progress; retry after the Retry-After header seconds"),
+            @ApiResponse(responseCode = "507",
+                    description = "Export would exceed the export disk quota"),
             @ApiResponse(responseCode = "500",
                     description = "General server error")
     })
     @PostMapping("logbook/{logbookId}/activities")
     @PreAuthorize("@methodSecurityService.isAccessAllowedForLogbook(#authentication, #servletRequest, #token, #logbookId)")
-    public void
+    public ResponseEntity<ExportJobDTO>
     exportActivities(Authentication authentication,
                                      HttpServletRequest servletRequest,
                                      @AuthenticationPrincipal Jwt token,
                                      @PathVariable Long logbookId,
                                      @Valid @RequestBody ActivityExportRequest anActivityExportRequest) {
 
+        ExportJob tempJob;
+
         this.validateDates(anActivityExportRequest);
-        this.getActivityService()
-            .exportActivitiesToFileAsynchronously(logbookId, anActivityExportRequest);
+        this.validateActivityTypes(anActivityExportRequest);
+        tempJob = this.getActivityService()
+                      .exportActivitiesToFileAsynchronously(logbookId, anActivityExportRequest);
+
+        return new ResponseEntity<>(tempJob.asValueObject(),
+                                    HttpStatus.OK);
+    }
+
+    /**
+     * Stream activities for logbookId between startTimeEpoch and endTimeEpoch straight to the response in
+     * format, csv by default
+     * @param logbookId Long
+     * @param startTimeEpoch long
+     * @param endTimeEpoch long
+     * @param activityType ActivityType
+     * @param checkpoint String
+     * @param format ActivityExportFormat
+     * @param criteria ActivitySearchCriteria further narrowing the activities streamed
+     * @return ResponseEntity
+     */
+    @Operation(summary = "Stream activities for logbookId",
+            description = "Stream activities for logbookId between startTimeEpoch and endTimeEpoch, optionally of one" +
+                    " activityType and any further search criteria, straight to the response as csv, or in the given" +
+                    " format. Nothing is written on" +
+                    " the server. Given a checkpoint, only activities changed since it are streamed, followed by" +
+                    " tombstones for those deleted since, with a trailing deleted column. The " + EXPORT_CHECKPOINT_HEADER + " response" +
+                    " header holds the checkpoint for the next delta export.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Success"),
+            @ApiResponse(responseCode = "400",
+                    description = "General client error"),
+            @ApiResponse(responseCode = "429",
+                    description = "Too many exports in progress; retry after the Retry-After header seconds"),
+            @ApiResponse(responseCode = "500",
+                    description = "General server error")
+    })
+    @GetMapping("logbook/{logbookId}/activities/export")
+    @PreAuthorize("@methodSecurityService.isAccessAllowedForLogbook(#authentication, #servletRequest, #token, #logbookId)")
+    public ResponseEntity<StreamingResponseBody>
+    streamActivities(Authentication authentication,
+                     HttpServletRequest servletRequest,
+                     @AuthenticationPrincipal Jwt token,
+                     @PathVariable Long logbookId,
+                     @RequestParam long startTimeEpoch,
+                     @RequestParam long endTimeEpoch,
+                     @RequestParam(required = false) ActivityType activityType,
+                     @RequestParam(required = false) String checkpoint,
+                     @RequestParam(required = false) ActivityExportFormat format,
+                     @ParameterObject ActivitySearchCriteria criteria) {
+
+        ActivityExportRequest           tempRequest;
+        StreamingActivityExporter       tempExporter;
+        StreamingResponseBody           tempBody;
+
+        tempRequest = new ActivityExportRequest(startTimeEpoch,
+                                                endTimeEpoch,
+                                                activityType,
+                                                STREAMED_EXPORT_BASENAME);
+        tempRequest.setCheckpointToken(checkpoint);
+        tempRequest.setFormat(format);
+        tempRequest.setCriteria(criteria);
+        tempRequest.setExportFilename(STREAMED_EXPORT_BASENAME + tempRequest.getFormatOrDefault().getFileExtension());
+        this.validateDates(tempRequest);
+        this.validateActivityTypes(tempRequest);
+
+        tempExporter = this.getActivityService().createStreamingExporter(logbookId, tempRequest);
+        tempBody = (anOutputStream) -> tempExporter.writeTo(anOutputStream);
+
+        //A stream that times out or is rejected before it is written must still be released
+        WebAsyncUtils.getAsyncManager(servletRequest)
+                     .registerCallableInterceptor(STREAM_RELEASE_INTERCEPTOR_KEY, new CallableProcessingInterceptor() {
+
+                         @Override
+                         public <T> void afterCompletion(NativeWebRequest aRequest, Callable<T> aTask) {
+                             tempExporter.release();
+                         }
+
+                     });
+
+        //No content length is set, so the response is sent with chunked transfer encoding
+        return ResponseEntity.ok()
+                             .contentType(MediaType.parseMediaType(tempRequest.getFormatOrDefault().getMediaType()))
+                             .header(HttpHeaders.CONTENT_DISPOSITION,
+                                     ContentDisposition.attachment()
+                                                       .filename(tempRequest.getExportFilename())
+                                                       .build()
+                                                       .toString())
+                             .header(EXPORT_CHECKPOINT_HEADER, tempExporter.getNextCheckpointToken())
+                             .body(tempBody);
+
+    }
+
+    /**
+     * Find all export jobs for a logbook
+     * @param logbookId Long
+     * @return ResponseEntity
+     */
+    @Operation(summary = "Find all export jobs for a logbook",
+            description = "Find all export jobs for a logbook that are running or finished recently, most recent first.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Success"),
+            @ApiResponse(responseCode = "400",
+                    description = "General client error"),
+            @ApiResponse(responseCode = "500",
+                    description = "General server error")
+    })
+    @GetMapping("logbook/{logbookId}/activities/exports")
+    @PreAuthorize("@methodSecurityService.isAccessAllowedForLogbook(#authentication, #servletRequest, #token, #logbookId)")
+    public ResponseEntity<List<ExportJobDTO>> findExportJobs(Authentication authentication,
+                                                             HttpServletRequest servletRequest,
+                                                             @AuthenticationPrincipal Jwt token,
+                                                             @PathVariable Long logbookId) {
+
+        List<ExportJob> tempJobs;
+
+        tempJobs = this.getExportJobService().findJobsForLogbook(logbookId);
+
+        return new ResponseEntity<>(this.asExportJobValueObjects(tempJobs),
+                                    HttpStatus.OK);
+
+    }
+
+    /**
+     * Find an export job for a logbook
+     * @param logbookId Long
+     * @param exportJobId String
+     * @return ResponseEntity
+     */
+    @Operation(summary = "Find an export job for a logbook",
+            description = "Find an export job for a logbook, including its status, rows written, throughput" +
+                    " and estimated seconds remaining.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Success"),
+            @ApiResponse(responseCode = "400",
+                    description = "General client error"),
+            @ApiResponse(responseCode = "404",
+                    description = "Export job not found"),
+            @ApiResponse(responseCode = "500",
+                    description = "General server error")
+    })
+    @GetMapping("logbook/{logbookId}/activities/exports/{exportJobId}")
+    @PreAuthorize("@methodSecurityService.isAccessAllowedForLogbook(#authentication, #servletRequest, #token, #logbookId)")
+    public ResponseEntity<ExportJobDTO> findExportJob(Authentication authentication,
+                                                      HttpServletRequest servletRequest,
+                                                      @AuthenticationPrincipal Jwt token,
+                                                      @PathVariable Long logbookId,
+                                                      @PathVariable String exportJobId) {
+
+        ExportJob tempJob;
+
+        tempJob = this.getExportJobService().findJobForLogbook(logbookId, exportJobId);
+
+        return new ResponseEntity<>(tempJob.asValueObject(),
+                                    HttpStatus.OK);
+
+    }
+
+    /**
+     * Cancel an export job for a logbook
+     * @param logbookId Long
+     * @param exportJobId String
+     * @return ResponseEntity
+     */
+    @Operation(summary = "Cancel an export job for a logbook",
+            description = "Cancel an export job for a logbook. A running export stops after the chunk it is" +
+                    " currently writing. Cancelling a finished export has no effect.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Success"),
+            @ApiResponse(responseCode = "400",
+                    description = "General client error"),
+            @ApiResponse(responseCode = "404",
+                    description = "Export job not found"),
+            @ApiResponse(responseCode = "500",
+                    description = "General server error")
+    })
+    @DeleteMapping("logbook/{logbookId}/activities/exports/{exportJobId}")
+    @PreAuthorize("@methodSecurityService.isAccessAllowedForLogbook(#authentication, #servletRequest, #token, #logbookId)")
+    public ResponseEntity<ExportJobDTO> cancelExportJob(Authentication authentication,
+                                                        HttpServletRequest servletRequest,
+                                                        @AuthenticationPrincipal Jwt token,
+                                                        @PathVariable Long logbookId,
+                                                        @PathVariable String exportJobId) {
+
+        ExportJob tempJob;
+
+        tempJob = this.getExportJobService().cancelJob(logbookId, exportJobId);
+
+        return new ResponseEntity<>(tempJob.asValueObject(),
+                                    HttpStatus.OK);
+
+    }
+
+    /**
+     * Download the file of a finished export job for a logbook, or the single byte range asked for
+     * @param logbookId Long
+     * @param exportJobId String
+     * @param requestHeaders HttpHeaders
+     * @return ResponseEntity
+     */
+    @Operation(summary = "Download the file of a finished export job for a logbook",
+            description = "Download the file of a finished export job for a logbook. A single Range of bytes can be" +
+                    " asked for to resume an interrupted download, with If-Range holding the ETag of the file" +
+                    " already partly downloaded. The ETag is strong and derived from the export job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Success"),
+            @ApiResponse(responseCode = "206",
+                    description = "The requested range of the file"),
+            @ApiResponse(responseCode = "304",
+                    description = "The file matches the If-None-Match ETag"),
+            @ApiResponse(responseCode = "400",
+                    description = "General client error, including an export job that is not done"),
+            @ApiResponse(responseCode = "404",
+                    description = "Export job not found"),
+            @ApiResponse(responseCode = "416",
+                    description = "The requested range is outside the file"),
+            @ApiResponse(responseCode = "500",
+                    description = "General server error")
+    })
+    @GetMapping("logbook/{logbookId}/activities/exports/{exportJobId}/file")
+    @PreAuthorize("@methodSecurityService.isAccessAllowedForLogbook(#authentication, #servletRequest, #token, #logbookId)")
+    public ResponseEntity<StreamingResponseBody> downloadExportFile(Authentication authentication,
+                                                                    HttpServletRequest servletRequest,
+                                                                    @AuthenticationPrincipal Jwt token,
+                                                                    @PathVariable Long logbookId,
+                                                                    @PathVariable String exportJobId,
+                                                                    @RequestHeader HttpHeaders requestHeaders) {
+
+        ExportDownload                          tempDownload;
+        ResponseEntity<StreamingResponseBody>   tempResult;
+
+        tempDownload = ExportDownload.of(this.getExportJobService().findJobForLogbook(logbookId, exportJobId),
+                                         requestHeaders);
+
+        if (tempDownload.isNotModified()) {
+
+            tempResult = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                       .eTag(tempDownload.getETag())
+                                       .build();
+        }
+        else if (tempDownload.isRangeNotSatisfiable()) {
+
+            tempResult = ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                                       .header(HttpHeaders.CONTENT_RANGE, tempDownload.getContentRange())
+                                       .build();
+        }
+        else {
+
+            tempResult = this.createDownloadResponse(tempDownload, servletRequest);
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the response sending aDownload, which the container sends itself when it can use sendfile
+     * @param aDownload ExportDownload
+     * @param aServletRequest HttpServletRequest
+     * @return ResponseEntity
+     */
+    private ResponseEntity<StreamingResponseBody> createDownloadResponse(ExportDownload aDownload,
+                                                                         HttpServletRequest aServletRequest) {
+
+        ResponseEntity.BodyBuilder              tempBuilder;
+        ResponseEntity<StreamingResponseBody>   tempResult;
+
+        tempBuilder = ResponseEntity.status(aDownload.isPartial() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                                    .eTag(aDownload.getETag())
+                                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                                    .contentType(aDownload.getMediaType())
+                                    .contentLength(aDownload.getContentLength())
+                                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                                            ContentDisposition.attachment()
+                                                              .filename(aDownload.getFile().getName())
+                                                              .build()
+                                                              .toString());
+        if (aDownload.isPartial()) {
+            tempBuilder.header(HttpHeaders.CONTENT_RANGE, aDownload.getContentRange());
+        }
+
+        if (aDownload.sendWithSendfile(aServletRequest)) {
+            tempResult = tempBuilder.build();
+        }
+        else {
+            tempResult = tempBuilder.body((anOutputStream) -> aDownload.transferTo(anOutputStream));
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Resume an interrupted export job for a logbook from its last saved chunk
+     * @param logbookId Long
+     * @param exportJobId String
+     * @return ResponseEntity
+     */
+    @Operation(summary = "Resume an interrupted export job for a logbook",
+            description = "Resume an uncompressed, chunked export job for a logbook that failed or was interrupted" +
+                    " by a restart. The export file is truncated to the last chunk saved and the export carries on" +
+                    " from there. Interrupted exports are also resumed automatically on startup.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Success"),
+            @ApiResponse(responseCode = "400",
+                    description = "General client error"),
+            @ApiResponse(responseCode = "404",
+                    description = "No resumable export job found"),
+            @ApiResponse(responseCode = "429",
+                    description = "Too many exports in progress; retry after the Retry-After header seconds"),
+            @ApiResponse(responseCode = "500",
+                    description = "General server error")
+    })
+    @PostMapping("logbook/{logbookId}/activities/exports/{exportJobId}/resume")
+    @PreAuthorize("@methodSecurityService.isAccessAllowedForLogbook(#authentication, #servletRequest, #token, #logbookId)")
+    public ResponseEntity<ExportJobDTO> resumeExportJob(Authentication authentication,
+                                                        HttpServletRequest servletRequest,
+                                                        @AuthenticationPrincipal Jwt token,
+                                                        @PathVariable Long logbookId,
+                                                        @PathVariable String exportJobId) {
+
+        ExportJob tempJob;
+
+        tempJob = this.getActivityService().resumeExport(logbookId, exportJobId);
+
+        return new ResponseEntity<>(tempJob.asValueObject(),
+                                    HttpStatus.OK);
+
+    }
+
+    /**
+     * Answer anExportJobs as value objects
+     * @param anExportJobs List
+     * @return List
+     */
+    private List<ExportJobDTO> asExportJobValueObjects(List<ExportJob> anExportJobs) {
+
+        return anExportJobs.stream()
+                           .map((aJob)->aJob.asValueObject())
+                           .collect(Collectors.toList());
 
-        //TODO = Return -- May need some sort of message here
     }
 
     /**
@@ -996,5 +1357,18 @@ public class LogbookController {
 
     }
 
+    /**
+     * Validate that the activity type of aRequest is one of those of its criteria
+     * @param aRequest ActivityExportRequest
+     */
+    private void validateActivityTypes(ActivityExportRequest aRequest) {
+
+        if (!aRequest.isActivityTypeWithinCriteria()) {
+
+            throw new IllegalArgumentException("Export activity type is not one of its criteria activity types");
+        }
+
+    }
+
 
 }
@@ -0,0 +1,71 @@
+package com.mjdsoftware.logbook.api;
+
+import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
+import com.mjdsoftware.logbook.service.LogbookEntryService;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The logbook entries a request addresses, each loaded at most once per request and handed to whichever
+ * handler asks for it. An entry is loaded together with its logbook, and is only answered once it has
+ * been confirmed to belong to the logbook in the request path. Ownership of that logbook has already
+ * been checked by the handler's @PreAuthorize.
+ */
+@Component
+@RequestScope
+public class LogbookRequestContext {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LogbookEntryService logbookEntryService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Map<Long, LogbookEntry> logbookEntries;
+
+    /**
+     * Answer an instance that loads through aLogbookEntryService
+     * @param aLogbookEntryService LogbookEntryService
+     */
+    @Autowired
+    public LogbookRequestContext(LogbookEntryService aLogbookEntryService) {
+
+        super();
+        this.setLogbookEntryService(aLogbookEntryService);
+        this.setLogbookEntries(new HashMap<>());
+
+    }
+
+    /**
+     * Answer the logbook entry for aLogbookEntryId, with its logbook, or null if there is none. Throws
+     * IllegalArgumentException if the entry does not belong to the logbook for aLogbookId.
+     * @param aLogbookId Long
+     * @param aLogbookEntryId Long
+     * @return LogbookEntry
+     */
+    public LogbookEntry findLogbookEntry(Long aLogbookId, Long aLogbookEntryId) {
+
+        LogbookEntry tempResult;
+
+        if (!this.getLogbookEntries().containsKey(aLogbookEntryId)) {
+
+            this.getLogbookEntries().put(aLogbookEntryId,
+                                         this.getLogbookEntryService().findLogbookEntryWithLogbook(aLogbookEntryId));
+        }
+
+        tempResult = this.getLogbookEntries().get(aLogbookEntryId);
+        if (tempResult != null && !tempResult.getLogbook().getId().equals(aLogbookId)) {
+
+            throw new IllegalArgumentException("Logbook and LogbookEntry do not correspond");
+        }
+
+        return tempResult;
+
+    }
+
+}
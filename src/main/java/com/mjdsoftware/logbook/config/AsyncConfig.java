@@ -1,5 +1,9 @@
 package com.mjdsoftware.logbook.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -12,6 +16,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -20,6 +26,10 @@ public class AsyncConfig {
     @Getter(value= AccessLevel.PRIVATE)  @Setter(value= AccessLevel.PRIVATE)
     private LogbookApplicationProperties properties;
 
+    //Constants
+    private static final String EXPORT_EXECUTOR_METRICS_NAME = "exportExecutor";
+    private static final String EXPORT_REJECTED_METRIC = "logbook.export.rejected";
+
     /**
      * Answer an instance of me with properties
      * @param aProperties LogbookApplicationProperties
@@ -44,6 +54,80 @@ public class AsyncConfig {
 
     }
 
+    /**
+     * Answer the bounded executor that reads and renders the date partitions of parallel exports.
+     * Each thread holds a database connection while it reads a chunk, so it should be sized against
+     * both the available cores and the connection pool.
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportPartitionExecutor() {
+
+        ThreadPoolTaskExecutor tempExecutor = new ThreadPoolTaskExecutor();
+
+        tempExecutor.setCorePoolSize(this.getExportPartitionThreads());
+        tempExecutor.setMaxPoolSize(this.getExportPartitionThreads());
+        tempExecutor.setQueueCapacity(this.getProperties().getExportPartitionQueueCapacity());
+        tempExecutor.setThreadNamePrefix("Logbook Export Partition-");
+        tempExecutor.initialize();
+
+        return tempExecutor;
+
+    }
+
+    /**
+     * Answer the bounded executor that runs whole exports. At most exportMaxConcurrent exports run at
+     * once and at most exportQueueCapacity wait; any more are rejected rather than queued without limit,
+     * so a burst of exports cannot starve interactive requests of threads or database connections.
+     * Active and queued exports, and rejections, are published to aMeterRegistry.
+     * @param aMeterRegistry MeterRegistry
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportExecutor(MeterRegistry aMeterRegistry) {
+
+        ThreadPoolTaskExecutor      tempExecutor = new ThreadPoolTaskExecutor();
+        Counter                     tempRejectedCounter;
+        RejectedExecutionHandler    tempRejectionPolicy;
+
+        tempRejectedCounter = Counter.builder(EXPORT_REJECTED_METRIC)
+                                     .description("Exports rejected because the export executor was full")
+                                     .register(aMeterRegistry);
+        tempRejectionPolicy = new ThreadPoolExecutor.AbortPolicy();
+
+        tempExecutor.setCorePoolSize(this.getProperties().getExportMaxConcurrent());
+        tempExecutor.setMaxPoolSize(this.getProperties().getExportMaxConcurrent());
+        tempExecutor.setQueueCapacity(this.getProperties().getExportQueueCapacity());
+        tempExecutor.setThreadNamePrefix("Logbook Export-");
+        tempExecutor.setRejectedExecutionHandler((aRunnable, aPool) -> {
+
+            tempRejectedCounter.increment();
+            tempRejectionPolicy.rejectedExecution(aRunnable, aPool);
+
+        });
+        tempExecutor.initialize();
+
+        new ExecutorServiceMetrics(tempExecutor.getThreadPoolExecutor(),
+                                   EXPORT_EXECUTOR_METRICS_NAME,
+                                   Tags.empty()).bindTo(aMeterRegistry);
+
+        return tempExecutor;
+
+    }
+
+    /**
+     * Answer the number of export partition threads, defaulting to the available cores
+     * @return int
+     */
+    private int getExportPartitionThreads() {
+
+        Integer tempResult;
+
+        tempResult = this.getProperties().getExportPartitionThreads();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : Runtime.getRuntime().availableProcessors();
+    }
+
 
     /**
      * Setup SecurityContext so that the Authentication can be inherited by
@@ -55,4 +55,79 @@ public class LogbookApplicationProperties {
     @Getter @Setter
     private Integer threadPoolQueueCapacity;
 
+    @Getter @Setter
+    private Integer exportChunkSize;
+
+    @Getter @Setter
+    private Integer exportJobRetentionMinutes;
+
+    @Getter @Setter
+    private Integer exportPartitionThreads;
+
+    @Getter @Setter
+    private Integer exportPartitionQueueCapacity;
+
+    @Getter @Setter
+    private Integer exportPartitionMinimumDays;
+
+    @Getter @Setter
+    private Integer exportStreamFlushRows;
+
+    @Getter @Setter
+    private Integer exportMaxConcurrent;
+
+    @Getter @Setter
+    private Integer exportQueueCapacity;
+
+    @Getter @Setter
+    private Integer exportRetryAfterSeconds;
+
+    @Getter @Setter
+    private Integer exportDeltaLookbackSeconds;
+
+    @Getter @Setter
+    private String exportResumeDirectory;
+
+    @Getter @Setter
+    private String exportCacheDirectory;
+
+    @Getter @Setter
+    private Integer exportCacheMaxMegabytes;
+
+    @Getter @Setter
+    private Integer exportCacheTtlMinutes;
+
+    @Getter @Setter
+    private String exportDirectory;
+
+    @Getter @Setter
+    private Integer exportFileTtlMinutes;
+
+    @Getter @Setter
+    private Integer exportJanitorIntervalSeconds;
+
+    @Getter @Setter
+    private Integer exportQuotaMegabytes;
+
+    @Getter @Setter
+    private Integer exportUserQuotaMegabytes;
+
+    @Getter @Setter
+    private Integer exportEstimatedBytesPerRow;
+
+    @Getter @Setter
+    private Integer authorizationCacheMaxEntries;
+
+    @Getter @Setter
+    private Integer authorizationCacheTtlSeconds;
+
+    @Getter @Setter
+    private Integer verifiedJwtCacheMaxEntries;
+
+    @Getter @Setter
+    private Integer verifiedJwtCacheTtlSeconds;
+
+    @Getter @Setter
+    private Integer adminTokenRefreshMarginSeconds;
+
 }
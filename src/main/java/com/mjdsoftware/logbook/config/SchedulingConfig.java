@@ -0,0 +1,12 @@
+package com.mjdsoftware.logbook.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs background housekeeping, such as expiring export files and finished export jobs, on the scheduler Spring Boot provides
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
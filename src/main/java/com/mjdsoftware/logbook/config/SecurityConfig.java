@@ -1,7 +1,9 @@
 package com.mjdsoftware.logbook.config;
 
 
+import com.mjdsoftware.logbook.security.CachingJwtDecoder;
 import com.mjdsoftware.logbook.security.JwtAuthConverter;
+import com.mjdsoftware.logbook.security.VerifiedJwtCache;
 import lombok.AccessLevel;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
@@ -30,6 +33,15 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthConverter jwtAuthConverter;
 
+    @Getter(AccessLevel.PRIVATE)
+    @Autowired
+    private VerifiedJwtCache verifiedJwtCache;
+
+    //The decoder Spring Boot configures from the jwk set uri, wrapped below so tokens are verified once
+    @Getter(AccessLevel.PRIVATE)
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
     @Bean
     public SecurityFilterChain configure(HttpSecurity http) throws Exception {
 
@@ -62,6 +74,9 @@ public class SecurityConfig {
                         .and()
                         .oauth2ResourceServer()
                         .jwt()
+                        .decoder(new CachingJwtDecoder(this.getJwtDecoder(),
+                                                       this.getVerifiedJwtCache(),
+                                                       this.getJwtAuthConverter()))
                         .jwtAuthenticationConverter(this.getJwtAuthConverter());
 
 
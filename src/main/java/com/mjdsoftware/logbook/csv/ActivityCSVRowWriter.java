@@ -0,0 +1,271 @@
+package com.mjdsoftware.logbook.csv;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes activity export rows as csv without per row allocation. Each row is encoded into a reusable
+ * buffer, numbers are appended as primitives and only the free text activity details column is ever
+ * examined for quoting, since the other columns are numbers or enum names that never need it. Output
+ * follows the same RFC 4180 conventions as CSVFormat.DEFAULT.
+ */
+public class ActivityCSVRowWriter implements ActivityExportWriter {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Writer writer;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private StringBuilder row;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private char[] buffer;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private boolean deltaFormat;
+
+    //Constants
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final String RECORD_SEPARATOR = "\r\n";
+    private static final int INITIAL_ROW_CAPACITY = 256;
+
+    /**
+     * Answer an instance writing rows to aWriter
+     * @param aWriter Writer
+     */
+    public ActivityCSVRowWriter(Writer aWriter) {
+
+        this(aWriter, false);
+    }
+
+    /**
+     * Answer an instance writing rows to aWriter. In delta format every row ends with a deleted
+     * column, and tombstones are written with only their id.
+     * @param aWriter Writer
+     * @param aDeltaFormat boolean
+     */
+    public ActivityCSVRowWriter(Writer aWriter, boolean aDeltaFormat) {
+
+        super();
+        this.setWriter(aWriter);
+        this.setDeltaFormat(aDeltaFormat);
+        this.setRow(new StringBuilder(INITIAL_ROW_CAPACITY));
+        this.setBuffer(new char[INITIAL_ROW_CAPACITY]);
+
+    }
+
+    /**
+     * Write the column header row
+     * @throws IOException
+     */
+    @Override
+    public void writeHeader() throws IOException {
+
+        StringBuilder tempRow;
+
+        tempRow = this.getRow();
+        tempRow.setLength(0);
+
+        for (int i = 0; i < ActivityExportColumns.NAMES.length; i++) {
+
+            if (i > 0) {
+                tempRow.append(DELIMITER);
+            }
+            tempRow.append(ActivityExportColumns.NAMES[i]);
+
+        }
+        if (this.isDeltaFormat()) {
+            tempRow.append(DELIMITER).append(ActivityExportColumns.DELETED);
+        }
+
+        this.writeRowBuffer();
+
+    }
+
+    /**
+     * Write aRow as one csv record
+     * @param aRow ActivityExportRow
+     * @throws IOException
+     */
+    @Override
+    public void writeRow(ActivityExportRow aRow) throws IOException {
+
+        StringBuilder tempRow;
+
+        tempRow = this.getRow();
+        tempRow.setLength(0);
+
+        if (aRow.getId() != null) {
+            tempRow.append(aRow.getId().longValue());
+        }
+
+        if (aRow.isDeleted()) {
+            this.appendTombstoneColumns();
+        }
+        else {
+            this.appendValueColumns(aRow);
+        }
+
+        if (this.isDeltaFormat()) {
+            tempRow.append(DELIMITER).append(aRow.isDeleted());
+        }
+
+        this.writeRowBuffer();
+
+    }
+
+    /**
+     * Append the columns following the id of aRow
+     * @param aRow ActivityExportRow
+     */
+    private void appendValueColumns(ActivityExportRow aRow) {
+
+        StringBuilder tempRow;
+
+        tempRow = this.getRow();
+        tempRow.append(DELIMITER);
+        this.appendName(aRow.getActivityType());
+        tempRow.append(DELIMITER).append(aRow.getDuration()).append(DELIMITER);
+        this.appendName(aRow.getDurationUnits());
+        tempRow.append(DELIMITER);
+        this.appendText(aRow.getActivityDetails());
+        tempRow.append(DELIMITER).append(aRow.getDistance()).append(DELIMITER);
+        this.appendName(aRow.getDistanceUnits());
+        tempRow.append(DELIMITER).append(aRow.getAverageWatts())
+               .append(DELIMITER).append(aRow.getTotalCalories())
+               .append(DELIMITER).append(aRow.getAverageHeartRate());
+
+    }
+
+    /**
+     * Append empty columns following the id of a tombstone, whose values are gone
+     */
+    private void appendTombstoneColumns() {
+
+        for (int i = 1; i < ActivityExportColumns.NAMES.length; i++) {
+
+            this.getRow().append(DELIMITER);
+        }
+
+    }
+
+    /**
+     * Append aName, an enum name that never needs quoting, or nothing if it is null
+     * @param aName String
+     */
+    private void appendName(String aName) {
+
+        if (aName != null) {
+            this.getRow().append(aName);
+        }
+    }
+
+    /**
+     * Append aText, free text, quoting it only when it holds a delimiter, quote or line break, or
+     * has leading or trailing white space that a reader could otherwise trim
+     * @param aText String
+     */
+    private void appendText(String aText) {
+
+        StringBuilder   tempRow;
+        char            tempChar;
+
+        if (aText != null) {
+
+            tempRow = this.getRow();
+            if (this.requiresQuotes(aText)) {
+
+                tempRow.append(QUOTE);
+                for (int i = 0; i < aText.length(); i++) {
+
+                    tempChar = aText.charAt(i);
+                    if (tempChar == QUOTE) {
+                        tempRow.append(QUOTE);
+                    }
+                    tempRow.append(tempChar);
+
+                }
+                tempRow.append(QUOTE);
+
+            }
+            else {
+                tempRow.append(aText);
+            }
+
+        }
+
+    }
+
+    /**
+     * Answer whether aText must be quoted
+     * @param aText String
+     * @return boolean
+     */
+    private boolean requiresQuotes(String aText) {
+
+        boolean tempResult = false;
+        char    tempChar;
+
+        if (!aText.isEmpty()) {
+
+            tempResult = aText.charAt(0) <= ' ' || aText.charAt(aText.length() - 1) <= ' ';
+            for (int i = 0; !tempResult && i < aText.length(); i++) {
+
+                tempChar = aText.charAt(i);
+                tempResult = tempChar == DELIMITER || tempChar == QUOTE || tempChar == '\r' || tempChar == '\n';
+
+            }
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Write my row buffer, followed by the record separator, to my writer
+     * @throws IOException
+     */
+    private void writeRowBuffer() throws IOException {
+
+        StringBuilder   tempRow;
+        int             tempLength;
+
+        tempRow = this.getRow();
+        tempRow.append(RECORD_SEPARATOR);
+        tempLength = tempRow.length();
+
+        if (this.getBuffer().length < tempLength) {
+            this.setBuffer(new char[Math.max(tempLength, this.getBuffer().length * 2)]);
+        }
+
+        tempRow.getChars(0, tempLength, this.getBuffer(), 0);
+        this.getWriter().write(this.getBuffer(), 0, tempLength);
+
+    }
+
+    /**
+     * Flush my writer
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+
+        this.getWriter().flush();
+    }
+
+    /**
+     * Close my writer
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        this.getWriter().close();
+    }
+
+}
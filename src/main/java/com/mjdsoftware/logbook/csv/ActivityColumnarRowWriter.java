@@ -0,0 +1,349 @@
+package com.mjdsoftware.logbook.csv;
+
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import com.mjdsoftware.logbook.domain.entities.DistanceUnits;
+import com.mjdsoftware.logbook.domain.entities.DurationUnits;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes activity export rows in a compact columnar binary format, so analytics jobs can load an
+ * export into typed columns without parsing text. Rows are buffered into primitive arrays and written
+ * a row group at a time, each column of the group contiguous. All values are big endian, as written
+ * by DataOutputStream.
+ *
+ * The header is the magic bytes LBXC, a format version byte and a flags byte whose lowest bit marks a
+ * delta export. It is followed by the column count and, for each column, its name (modified utf-8 as
+ * written by writeUTF) and type byte, then by the dictionary of every dictionary column in column
+ * order: an entry count and the entry names, a value's code being its position.
+ *
+ * Each row group is a row count followed by every column's values for that many rows: int64 and
+ * float64 columns as 8 bytes per row, dictionary columns as one code byte per row with -1 for null,
+ * string columns as an int byte length (-1 for null) and utf-8 bytes per row, and boolean columns as one
+ * byte per row. Row groups run to the end of the file; there is no trailer, so files written without
+ * a header can be appended to one that has one. Tombstones are written with only their id, zero and
+ * null values, and deleted set.
+ */
+public class ActivityColumnarRowWriter implements ActivityExportWriter {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private DataOutputStream output;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private boolean deltaFormat;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private int rowCount;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private long[] ids;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private byte[] activityTypes;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private double[] durations;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private byte[] durationUnits;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private String[] activityDetails;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private double[] distances;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private byte[] distanceUnits;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private double[] averageWatts;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private double[] totalCalories;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private double[] averageHeartRates;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private boolean[] deleted;
+
+    //Constants
+    public static final byte[] MAGIC = {'L', 'B', 'X', 'C'};
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte DELTA_FLAG = 0x01;
+    public static final byte INT64_TYPE = 1;
+    public static final byte FLOAT64_TYPE = 2;
+    public static final byte DICTIONARY_TYPE = 3;
+    public static final byte STRING_TYPE = 4;
+    public static final byte BOOLEAN_TYPE = 5;
+    public static final int ROW_GROUP_SIZE = 4096;
+    private static final byte NULL_CODE = -1;
+    private static final int NULL_LENGTH = -1;
+    private static final byte[] COLUMN_TYPES = {INT64_TYPE, DICTIONARY_TYPE, FLOAT64_TYPE, DICTIONARY_TYPE,
+                                                STRING_TYPE, FLOAT64_TYPE, DICTIONARY_TYPE, FLOAT64_TYPE,
+                                                FLOAT64_TYPE, FLOAT64_TYPE};
+    private static final Map<String, Byte> ACTIVITY_TYPE_CODES = codesFor(ActivityType.values());
+    private static final Map<String, Byte> DURATION_UNITS_CODES = codesFor(DurationUnits.values());
+    private static final Map<String, Byte> DISTANCE_UNITS_CODES = codesFor(DistanceUnits.values());
+
+    /**
+     * Answer an instance writing rows to anOutputStream. In delta format every row has a deleted column.
+     * @param anOutputStream OutputStream
+     * @param aDeltaFormat boolean
+     */
+    public ActivityColumnarRowWriter(OutputStream anOutputStream, boolean aDeltaFormat) {
+
+        super();
+        this.setOutput(new DataOutputStream(anOutputStream));
+        this.setDeltaFormat(aDeltaFormat);
+        this.setIds(new long[ROW_GROUP_SIZE]);
+        this.setActivityTypes(new byte[ROW_GROUP_SIZE]);
+        this.setDurations(new double[ROW_GROUP_SIZE]);
+        this.setDurationUnits(new byte[ROW_GROUP_SIZE]);
+        this.setActivityDetails(new String[ROW_GROUP_SIZE]);
+        this.setDistances(new double[ROW_GROUP_SIZE]);
+        this.setDistanceUnits(new byte[ROW_GROUP_SIZE]);
+        this.setAverageWatts(new double[ROW_GROUP_SIZE]);
+        this.setTotalCalories(new double[ROW_GROUP_SIZE]);
+        this.setAverageHeartRates(new double[ROW_GROUP_SIZE]);
+        this.setDeleted(new boolean[ROW_GROUP_SIZE]);
+
+    }
+
+    /**
+     * Answer the dictionary codes of aValues, by name, in declaration order
+     * @param aValues Enum[]
+     * @return Map
+     */
+    private static Map<String, Byte> codesFor(Enum<?>[] aValues) {
+
+        Map<String, Byte> tempResult = new HashMap<>();
+
+        for (Enum<?> e : aValues) {
+            tempResult.put(e.name(), (byte)e.ordinal());
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Write the file header: magic, version, flags, column descriptions and dictionaries
+     * @throws IOException
+     */
+    @Override
+    public void writeHeader() throws IOException {
+
+        DataOutputStream tempOutput;
+
+        tempOutput = this.getOutput();
+        tempOutput.write(MAGIC);
+        tempOutput.writeByte(FORMAT_VERSION);
+        tempOutput.writeByte(this.isDeltaFormat() ? DELTA_FLAG : 0);
+
+        tempOutput.writeByte(ActivityExportColumns.NAMES.length + (this.isDeltaFormat() ? 1 : 0));
+        for (int i = 0; i < ActivityExportColumns.NAMES.length; i++) {
+
+            tempOutput.writeUTF(ActivityExportColumns.NAMES[i]);
+            tempOutput.writeByte(COLUMN_TYPES[i]);
+
+        }
+        if (this.isDeltaFormat()) {
+
+            tempOutput.writeUTF(ActivityExportColumns.DELETED);
+            tempOutput.writeByte(BOOLEAN_TYPE);
+
+        }
+
+        this.writeDictionary(ActivityType.values());
+        this.writeDictionary(DurationUnits.values());
+        this.writeDictionary(DistanceUnits.values());
+
+    }
+
+    /**
+     * Write the dictionary of aValues, whose codes are their ordinals
+     * @param aValues Enum[]
+     * @throws IOException
+     */
+    private void writeDictionary(Enum<?>[] aValues) throws IOException {
+
+        this.getOutput().writeByte(aValues.length);
+        for (Enum<?> e : aValues) {
+            this.getOutput().writeUTF(e.name());
+        }
+
+    }
+
+    /**
+     * Buffer aRow, writing my row group once it is full
+     * @param aRow ActivityExportRow
+     * @throws IOException
+     */
+    @Override
+    public void writeRow(ActivityExportRow aRow) throws IOException {
+
+        int tempIndex;
+
+        tempIndex = this.getRowCount();
+        this.getIds()[tempIndex] = (aRow.getId() != null) ? aRow.getId().longValue() : 0L;
+        this.getActivityTypes()[tempIndex] = this.codeOf(ACTIVITY_TYPE_CODES, aRow.getActivityType());
+        this.getDurations()[tempIndex] = aRow.getDuration();
+        this.getDurationUnits()[tempIndex] = this.codeOf(DURATION_UNITS_CODES, aRow.getDurationUnits());
+        this.getActivityDetails()[tempIndex] = aRow.getActivityDetails();
+        this.getDistances()[tempIndex] = aRow.getDistance();
+        this.getDistanceUnits()[tempIndex] = this.codeOf(DISTANCE_UNITS_CODES, aRow.getDistanceUnits());
+        this.getAverageWatts()[tempIndex] = aRow.getAverageWatts();
+        this.getTotalCalories()[tempIndex] = aRow.getTotalCalories();
+        this.getAverageHeartRates()[tempIndex] = aRow.getAverageHeartRate();
+        this.getDeleted()[tempIndex] = aRow.isDeleted();
+        this.setRowCount(tempIndex + 1);
+
+        if (this.getRowCount() == ROW_GROUP_SIZE) {
+            this.writeRowGroup();
+        }
+
+    }
+
+    /**
+     * Answer the code of aName in aCodes, or the null code if aName is null. Throws
+     * IllegalArgumentException if aName is not in the dictionary.
+     * @param aCodes Map
+     * @param aName String
+     * @return byte
+     */
+    private byte codeOf(Map<String, Byte> aCodes, String aName) {
+
+        Byte tempResult = NULL_CODE;
+
+        if (aName != null) {
+
+            tempResult = aCodes.get(aName);
+            if (tempResult == null) {
+                throw new IllegalArgumentException("No dictionary code for " + aName);
+            }
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Write my buffered rows as one row group, if there are any, and empty my buffers
+     * @throws IOException
+     */
+    private void writeRowGroup() throws IOException {
+
+        DataOutputStream    tempOutput;
+        int                 tempCount;
+
+        tempCount = this.getRowCount();
+        if (tempCount > 0) {
+
+            tempOutput = this.getOutput();
+            tempOutput.writeInt(tempCount);
+
+            for (int i = 0; i < tempCount; i++) {
+                tempOutput.writeLong(this.getIds()[i]);
+            }
+            tempOutput.write(this.getActivityTypes(), 0, tempCount);
+            this.writeDoubles(this.getDurations(), tempCount);
+            tempOutput.write(this.getDurationUnits(), 0, tempCount);
+            this.writeStrings(this.getActivityDetails(), tempCount);
+            this.writeDoubles(this.getDistances(), tempCount);
+            tempOutput.write(this.getDistanceUnits(), 0, tempCount);
+            this.writeDoubles(this.getAverageWatts(), tempCount);
+            this.writeDoubles(this.getTotalCalories(), tempCount);
+            this.writeDoubles(this.getAverageHeartRates(), tempCount);
+
+            if (this.isDeltaFormat()) {
+
+                for (int i = 0; i < tempCount; i++) {
+                    tempOutput.writeBoolean(this.getDeleted()[i]);
+                }
+            }
+
+            //Let go of the details, which are the only objects held
+            Arrays.fill(this.getActivityDetails(), 0, tempCount, null);
+            this.setRowCount(0);
+
+        }
+
+    }
+
+    /**
+     * Write the first aCount values of aColumn
+     * @param aColumn double[]
+     * @param aCount int
+     * @throws IOException
+     */
+    private void writeDoubles(double[] aColumn, int aCount) throws IOException {
+
+        for (int i = 0; i < aCount; i++) {
+            this.getOutput().writeDouble(aColumn[i]);
+        }
+    }
+
+    /**
+     * Write the first aCount values of aColumn, each as its utf-8 length and bytes
+     * @param aColumn String[]
+     * @param aCount int
+     * @throws IOException
+     */
+    private void writeStrings(String[] aColumn, int aCount) throws IOException {
+
+        byte[] tempBytes;
+
+        for (int i = 0; i < aCount; i++) {
+
+            if (aColumn[i] != null) {
+
+                tempBytes = aColumn[i].getBytes(StandardCharsets.UTF_8);
+                this.getOutput().writeInt(tempBytes.length);
+                this.getOutput().write(tempBytes);
+
+            }
+            else {
+                this.getOutput().writeInt(NULL_LENGTH);
+            }
+
+        }
+
+    }
+
+    /**
+     * Write my buffered rows as a row group, so my output ends at a row boundary, and flush it
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+
+        this.writeRowGroup();
+        this.getOutput().flush();
+
+    }
+
+    /**
+     * Write my buffered rows and close my output
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        this.writeRowGroup();
+        this.getOutput().close();
+
+    }
+
+}
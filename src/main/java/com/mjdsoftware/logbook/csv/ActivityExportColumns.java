@@ -0,0 +1,36 @@
+package com.mjdsoftware.logbook.csv;
+
+/**
+ * The names of the exported activity columns, in export order. Every export format names its
+ * columns from here.
+ */
+public final class ActivityExportColumns {
+
+    //Constants
+    public static final String ID = "id";
+    public static final String ACTIVITY_TYPE = "activityType";
+    public static final String DURATION = "duration";
+    public static final String DURATION_UNITS = "durationUnits";
+    public static final String ACTIVITY_DETAILS = "activityDetails";
+    public static final String DISTANCE = "distance";
+    public static final String DISTANCE_UNITS = "distanceUnits";
+    public static final String AVERAGE_WATTS = "averageWatts";
+    public static final String TOTAL_CALORIES = "totalCalories";
+    public static final String AVERAGE_HEART_RATE = "averageHeartRate";
+
+    //Only written by delta exports, after the other columns
+    public static final String DELETED = "deleted";
+
+    public static final String[] NAMES = {ID, ACTIVITY_TYPE, DURATION, DURATION_UNITS, ACTIVITY_DETAILS,
+                                          DISTANCE, DISTANCE_UNITS, AVERAGE_WATTS, TOTAL_CALORIES,
+                                          AVERAGE_HEART_RATE};
+
+    /**
+     * Answer an instance. I only hold constants.
+     */
+    private ActivityExportColumns() {
+
+        super();
+    }
+
+}
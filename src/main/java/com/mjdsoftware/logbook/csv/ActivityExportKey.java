@@ -0,0 +1,49 @@
+package com.mjdsoftware.logbook.csv;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Calendar;
+
+/**
+ * Keyset position of an activity export. Exports are ordered by (activity_date, id), so the
+ * last tuple written is all that is needed to seek to the next chunk without an OFFSET.
+ */
+@ToString
+public class ActivityExportKey {
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Calendar activityDate;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Long id;
+
+    //Constants
+    private static final Long BEFORE_FIRST_ID = Long.valueOf(0L);
+
+    /**
+     * Answer an instance on anActivityDate and anId
+     * @param anActivityDate Calendar
+     * @param anId Long
+     */
+    public ActivityExportKey(Calendar anActivityDate, Long anId) {
+
+        super();
+        this.setActivityDate(anActivityDate);
+        this.setId(anId);
+
+    }
+
+    /**
+     * Answer a key positioned before the first activity on or after aStartDate
+     * @param aStartDate Calendar
+     * @return ActivityExportKey
+     */
+    public static ActivityExportKey startingAt(Calendar aStartDate) {
+
+        return new ActivityExportKey(aStartDate, BEFORE_FIRST_ID);
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.mjdsoftware.logbook.csv;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+ * One exported activity, read as a flat projection of exactly the exported columns rather than as a
+ * hydrated Activity entity, so an export never touches the persistence context or the entity's eager
+ * associations.
+ */
+@ToString
+public class ActivityExportRow {
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Long id;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String activityType;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private double duration;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String durationUnits;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String activityDetails;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private double distance;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String distanceUnits;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private double averageWatts;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private double totalCalories;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private double averageHeartRate;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Calendar activityDate;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private boolean deleted;
+
+    //Constants - positions of my columns in an export row query
+    private static final int ID_COLUMN = 0;
+    private static final int ACTIVITY_TYPE_COLUMN = 1;
+    private static final int DURATION_COLUMN = 2;
+    private static final int DURATION_UNITS_COLUMN = 3;
+    private static final int ACTIVITY_DETAILS_COLUMN = 4;
+    private static final int DISTANCE_COLUMN = 5;
+    private static final int DISTANCE_UNITS_COLUMN = 6;
+    private static final int AVERAGE_WATTS_COLUMN = 7;
+    private static final int TOTAL_CALORIES_COLUMN = 8;
+    private static final int AVERAGE_HEART_RATE_COLUMN = 9;
+    private static final int ACTIVITY_DATE_COLUMN = 10;
+
+    /**
+     * Answer an instance with all of my values
+     * @param anId Long
+     * @param anActivityType String
+     * @param aDuration double
+     * @param aDurationUnits String
+     * @param anActivityDetails String
+     * @param aDistance double
+     * @param aDistanceUnits String
+     * @param anAverageWatts double
+     * @param aTotalCalories double
+     * @param anAverageHeartRate double
+     * @param anActivityDate Calendar
+     */
+    public ActivityExportRow(Long anId,
+                             String anActivityType,
+                             double aDuration,
+                             String aDurationUnits,
+                             String anActivityDetails,
+                             double aDistance,
+                             String aDistanceUnits,
+                             double anAverageWatts,
+                             double aTotalCalories,
+                             double anAverageHeartRate,
+                             Calendar anActivityDate) {
+
+        super();
+        this.setId(anId);
+        this.setActivityType(anActivityType);
+        this.setDuration(aDuration);
+        this.setDurationUnits(aDurationUnits);
+        this.setActivityDetails(anActivityDetails);
+        this.setDistance(aDistance);
+        this.setDistanceUnits(aDistanceUnits);
+        this.setAverageWatts(anAverageWatts);
+        this.setTotalCalories(aTotalCalories);
+        this.setAverageHeartRate(anAverageHeartRate);
+        this.setActivityDate(anActivityDate);
+
+    }
+
+    /**
+     * Answer an instance from aColumns, one row of an export row query
+     * @param aColumns Object[]
+     * @return ActivityExportRow
+     */
+    public static ActivityExportRow fromColumns(Object[] aColumns) {
+
+        return new ActivityExportRow(asLong(aColumns[ID_COLUMN]),
+                                     (String)aColumns[ACTIVITY_TYPE_COLUMN],
+                                     asDouble(aColumns[DURATION_COLUMN]),
+                                     (String)aColumns[DURATION_UNITS_COLUMN],
+                                     (String)aColumns[ACTIVITY_DETAILS_COLUMN],
+                                     asDouble(aColumns[DISTANCE_COLUMN]),
+                                     (String)aColumns[DISTANCE_UNITS_COLUMN],
+                                     asDouble(aColumns[AVERAGE_WATTS_COLUMN]),
+                                     asDouble(aColumns[TOTAL_CALORIES_COLUMN]),
+                                     asDouble(aColumns[AVERAGE_HEART_RATE_COLUMN]),
+                                     asCalendar(aColumns[ACTIVITY_DATE_COLUMN]));
+    }
+
+    /**
+     * Answer a tombstone for anActivityId, which has been deleted. Only its id is known.
+     * @param anActivityId Long
+     * @return ActivityExportRow
+     */
+    public static ActivityExportRow tombstone(Long anActivityId) {
+
+        ActivityExportRow tempResult;
+
+        tempResult = new ActivityExportRow(anActivityId,
+                                           null,
+                                           0.0,
+                                           null,
+                                           null,
+                                           0.0,
+                                           null,
+                                           0.0,
+                                           0.0,
+                                           0.0,
+                                           null);
+        tempResult.setDeleted(true);
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer aValue, a numeric column, as a long
+     * @param aValue Object
+     * @return Long
+     */
+    private static Long asLong(Object aValue) {
+
+        return (aValue != null) ? Long.valueOf(((Number)aValue).longValue()) : null;
+    }
+
+    /**
+     * Answer aValue, a numeric column, as a double, treating null as zero
+     * @param aValue Object
+     * @return double
+     */
+    private static double asDouble(Object aValue) {
+
+        return (aValue != null) ? ((Number)aValue).doubleValue() : 0.0;
+    }
+
+    /**
+     * Answer aValue, a timestamp column, as a calendar
+     * @param aValue Object
+     * @return Calendar
+     */
+    private static Calendar asCalendar(Object aValue) {
+
+        Calendar tempResult = null;
+
+        if (aValue instanceof Date) {
+
+            tempResult = Calendar.getInstance();
+            tempResult.setTime((Date)aValue);
+
+        }
+        else if (aValue instanceof LocalDateTime) {
+
+            tempResult = GregorianCalendar.from(((LocalDateTime)aValue).atZone(ZoneId.systemDefault()));
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer my keyset position within an export
+     * @return ActivityExportKey
+     */
+    public ActivityExportKey asExportKey() {
+
+        return new ActivityExportKey(this.getActivityDate(), this.getId());
+    }
+
+}
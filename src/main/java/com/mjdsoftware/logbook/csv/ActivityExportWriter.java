@@ -0,0 +1,31 @@
+package com.mjdsoftware.logbook.csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes exported activity rows in one export format. Implementations are created by
+ * ActivityExportWriters for the format an export request asks for, and own the buffering of the
+ * stream they write to.
+ *
+ * Output must be concatenable: rows written without a header, as for parallel segments or a resumed
+ * export, can be appended after a header written by another writer of the same format. A flush must
+ * leave the stream at a row boundary, since resume points are taken just after one.
+ */
+public interface ActivityExportWriter extends Closeable, Flushable {
+
+    /**
+     * Write whatever precedes the first row, such as column names
+     * @throws IOException
+     */
+    public void writeHeader() throws IOException;
+
+    /**
+     * Write aRow. Tombstones, written only by delta exports, carry just their id.
+     * @param aRow ActivityExportRow
+     * @throws IOException
+     */
+    public void writeRow(ActivityExportRow aRow) throws IOException;
+
+}
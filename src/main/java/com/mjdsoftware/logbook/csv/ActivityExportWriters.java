@@ -0,0 +1,65 @@
+package com.mjdsoftware.logbook.csv;
+
+import com.mjdsoftware.logbook.dto.ActivityExportFormat;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Creates the ActivityExportWriter for an export format
+ */
+public final class ActivityExportWriters {
+
+    /**
+     * Answer an instance. I only create writers.
+     */
+    private ActivityExportWriters() {
+
+        super();
+    }
+
+    /**
+     * Answer a writer of aFormat onto anOutputStream, which it buffers and closes when it is closed.
+     * In delta format every row also says whether it is a tombstone.
+     * @param aFormat ActivityExportFormat, null for csv
+     * @param anOutputStream OutputStream
+     * @param aDeltaFormat boolean
+     * @return ActivityExportWriter
+     */
+    public static ActivityExportWriter create(ActivityExportFormat aFormat,
+                                              OutputStream anOutputStream,
+                                              boolean aDeltaFormat) {
+
+        ActivityExportWriter tempResult;
+
+        switch ((aFormat != null) ? aFormat : ActivityExportFormat.CSV) {
+
+            case NDJSON:
+                tempResult = new ActivityNDJSONRowWriter(asBufferedWriter(anOutputStream), aDeltaFormat);
+                break;
+            case COLUMNAR:
+                tempResult = new ActivityColumnarRowWriter(
+                                    new BufferedOutputStream(anOutputStream, ExportOutput.BUFFER_SIZE),
+                                    aDeltaFormat);
+                break;
+            default:
+                tempResult = new ActivityCSVRowWriter(asBufferedWriter(anOutputStream), aDeltaFormat);
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer a buffered utf-8 writer onto anOutputStream
+     * @param anOutputStream OutputStream
+     * @return Writer
+     */
+    private static Writer asBufferedWriter(OutputStream anOutputStream) {
+
+        return new BufferedWriter(new OutputStreamWriter(anOutputStream, StandardCharsets.UTF_8),
+                                  ExportOutput.BUFFER_SIZE);
+    }
+
+}
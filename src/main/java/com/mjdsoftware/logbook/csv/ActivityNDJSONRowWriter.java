@@ -0,0 +1,181 @@
+package com.mjdsoftware.logbook.csv;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes activity export rows as newline delimited json, one object per row, straight through a
+ * streaming json generator rather than by binding rows to a mapper. Field names are encoded once and
+ * shared by every row. There is no header; tombstones are written with only their id and deleted flag.
+ */
+public class ActivityNDJSONRowWriter implements ActivityExportWriter {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private JsonGenerator generator;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private boolean deltaFormat;
+
+    //Constants
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final char RECORD_SEPARATOR = '\n';
+    private static final SerializableString ID = new SerializedString(ActivityExportColumns.ID);
+    private static final SerializableString ACTIVITY_TYPE = new SerializedString(ActivityExportColumns.ACTIVITY_TYPE);
+    private static final SerializableString DURATION = new SerializedString(ActivityExportColumns.DURATION);
+    private static final SerializableString DURATION_UNITS = new SerializedString(ActivityExportColumns.DURATION_UNITS);
+    private static final SerializableString ACTIVITY_DETAILS = new SerializedString(ActivityExportColumns.ACTIVITY_DETAILS);
+    private static final SerializableString DISTANCE = new SerializedString(ActivityExportColumns.DISTANCE);
+    private static final SerializableString DISTANCE_UNITS = new SerializedString(ActivityExportColumns.DISTANCE_UNITS);
+    private static final SerializableString AVERAGE_WATTS = new SerializedString(ActivityExportColumns.AVERAGE_WATTS);
+    private static final SerializableString TOTAL_CALORIES = new SerializedString(ActivityExportColumns.TOTAL_CALORIES);
+    private static final SerializableString AVERAGE_HEART_RATE = new SerializedString(ActivityExportColumns.AVERAGE_HEART_RATE);
+    private static final SerializableString DELETED = new SerializedString(ActivityExportColumns.DELETED);
+
+    /**
+     * Answer an instance writing rows to aWriter. In delta format every row has a deleted field.
+     * @param aWriter Writer
+     * @param aDeltaFormat boolean
+     * @throws UncheckedIOException if a generator cannot be created on aWriter
+     */
+    public ActivityNDJSONRowWriter(Writer aWriter, boolean aDeltaFormat) {
+
+        super();
+        try {
+            this.setGenerator(JSON_FACTORY.createGenerator(aWriter));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        //Rows are separated by new lines rather than the default space
+        this.getGenerator().setRootValueSeparator(null);
+        this.setDeltaFormat(aDeltaFormat);
+
+    }
+
+    /**
+     * Write nothing, since every row names its own fields
+     */
+    @Override
+    public void writeHeader() {
+
+        //Nothing precedes the first row
+    }
+
+    /**
+     * Write aRow as one json object on its own line
+     * @param aRow ActivityExportRow
+     * @throws IOException
+     */
+    @Override
+    public void writeRow(ActivityExportRow aRow) throws IOException {
+
+        JsonGenerator tempGenerator;
+
+        tempGenerator = this.getGenerator();
+        tempGenerator.writeStartObject();
+
+        tempGenerator.writeFieldName(ID);
+        if (aRow.getId() != null) {
+            tempGenerator.writeNumber(aRow.getId().longValue());
+        }
+        else {
+            tempGenerator.writeNull();
+        }
+
+        if (!aRow.isDeleted()) {
+            this.writeValueFields(aRow);
+        }
+
+        if (this.isDeltaFormat()) {
+
+            tempGenerator.writeFieldName(DELETED);
+            tempGenerator.writeBoolean(aRow.isDeleted());
+
+        }
+
+        tempGenerator.writeEndObject();
+        tempGenerator.writeRaw(RECORD_SEPARATOR);
+
+    }
+
+    /**
+     * Write the fields following the id of aRow
+     * @param aRow ActivityExportRow
+     * @throws IOException
+     */
+    private void writeValueFields(ActivityExportRow aRow) throws IOException {
+
+        this.writeStringField(ACTIVITY_TYPE, aRow.getActivityType());
+        this.writeDoubleField(DURATION, aRow.getDuration());
+        this.writeStringField(DURATION_UNITS, aRow.getDurationUnits());
+        this.writeStringField(ACTIVITY_DETAILS, aRow.getActivityDetails());
+        this.writeDoubleField(DISTANCE, aRow.getDistance());
+        this.writeStringField(DISTANCE_UNITS, aRow.getDistanceUnits());
+        this.writeDoubleField(AVERAGE_WATTS, aRow.getAverageWatts());
+        this.writeDoubleField(TOTAL_CALORIES, aRow.getTotalCalories());
+        this.writeDoubleField(AVERAGE_HEART_RATE, aRow.getAverageHeartRate());
+
+    }
+
+    /**
+     * Write aValue, or null, as the field aName
+     * @param aName SerializableString
+     * @param aValue String
+     * @throws IOException
+     */
+    private void writeStringField(SerializableString aName, String aValue) throws IOException {
+
+        this.getGenerator().writeFieldName(aName);
+        if (aValue != null) {
+            this.getGenerator().writeString(aValue);
+        }
+        else {
+            this.getGenerator().writeNull();
+        }
+
+    }
+
+    /**
+     * Write aValue as the field aName
+     * @param aName SerializableString
+     * @param aValue double
+     * @throws IOException
+     */
+    private void writeDoubleField(SerializableString aName, double aValue) throws IOException {
+
+        this.getGenerator().writeFieldName(aName);
+        this.getGenerator().writeNumber(aValue);
+
+    }
+
+    /**
+     * Flush my generator and the writer beneath it
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+
+        this.getGenerator().flush();
+    }
+
+    /**
+     * Close my generator and the writer beneath it
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        this.getGenerator().close();
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.mjdsoftware.logbook.csv;
+
+import java.io.IOException;
+
+/**
+ * Receives activities one at a time as they are read from a cursor
+ */
+@FunctionalInterface
+public interface ActivityRowHandler {
+
+    /**
+     * Handle aRow. Answer false to stop reading further rows.
+     * @param aRow ActivityExportRow
+     * @return boolean
+     * @throws IOException
+     */
+    public boolean handle(ActivityExportRow aRow) throws IOException;
+
+}
@@ -0,0 +1,559 @@
+package com.mjdsoftware.logbook.csv;
+
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.dto.ExportResumePointDTO;
+import com.mjdsoftware.logbook.export.ExportJob;
+import com.mjdsoftware.logbook.export.ExportResumePointStore;
+import com.mjdsoftware.logbook.service.ActivityService;
+import com.mjdsoftware.logbook.utils.FileUtilities;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+@Slf4j
+public class ChunkableActivityFileExporter  {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private File exportFile;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Long logbookId;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityExportRequest exportRequest;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private int chunkSize;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityExportKey lastKeyWritten;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityService activityService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private FileUtilities fileUtilities;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportJob exportJob;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Executor exportExecutor;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportResumePointStore resumePointStore;
+
+    /**
+     * Answer my logger
+     *
+     * @return org.slf4j.Logger
+     */
+    private static Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Answer an instance that exports in chunks of aChunkSize activities, seeking from the last
+     * (activity_date, id) written rather than paging by offset
+     * @param anExportFile File
+     * @param logbookId Long
+     * @param exportRequest ActivityExportRequest
+     * @param aChunkSize int
+     * @param activityService ActivityService
+     * @param aFileUtilities FileUtilities
+     * @param anExportJob ExportJob that tracks my progress
+     * @param anExportExecutor Executor my asynchronous exports run on
+     * @param aResumePointStore ExportResumePointStore my chunked progress is saved to, or null if my
+     *                          export cannot be resumed
+     */
+    public ChunkableActivityFileExporter(File anExportFile,
+                                         Long logbookId,
+                                         ActivityExportRequest exportRequest,
+                                         int aChunkSize,
+                                         ActivityService activityService,
+                                         FileUtilities aFileUtilities,
+                                         ExportJob anExportJob,
+                                         Executor anExportExecutor,
+                                         ExportResumePointStore aResumePointStore) {
+
+        this.setExportFile(anExportFile);
+        this.setLogbookId(logbookId);
+        this.setExportRequest(exportRequest);
+        this.setChunkSize(aChunkSize);
+        this.setActivityService(activityService);
+        this.setFileUtilities(aFileUtilities);
+        this.setExportJob(anExportJob);
+        this.setExportExecutor(anExportExecutor);
+        this.setResumePointStore(aResumePointStore);
+
+    }
+
+    /**
+     * Write data asynchronously
+     * @param aData ActivityExportRow[]
+     */
+    public void writeFileAsynchronously(ActivityExportRow[] aData) {
+
+        this.saveQueuedResumePoint();
+        this.runAsynchronouslyAsJob(() -> this.writeDataToFile(aData));
+
+    }
+
+    /**
+     * Write data asynchronously, continuing an interrupted export from aResumePoint
+     * @param aResumePoint ExportResumePointDTO
+     */
+    public void resumeFileAsynchronously(ExportResumePointDTO aResumePoint) {
+
+        this.runAsynchronouslyAsJob(() -> this.writeDataToFileFrom(aResumePoint));
+
+    }
+
+    /**
+     * Write data asynchronously, reading every activity from a single cursor rather than by chunks
+     */
+    public void writeFileFromCursorAsynchronously() {
+
+        this.runAsynchronouslyAsJob(this::writeDataFromCursorToFile);
+
+    }
+
+    /**
+     * Run aWork on my export executor, moving my export job through its states as it goes. Throws
+     * TaskRejectedException, before my job is started, if the executor has no room for it.
+     * @param aWork ExportWork
+     */
+    private void runAsynchronouslyAsJob(ExportWork aWork) {
+
+        CompletableFuture.runAsync(() -> {
+
+            try {
+
+                //A job cancelled while queued is never started, nor resumed
+                if (this.getExportJob().markRunning()) {
+
+                    aWork.write();
+                    this.getExportJob().markFinished();
+
+                }
+                else {
+                    this.deleteResumePoint();
+                }
+
+            }
+            catch (Exception e) {
+
+                getLogger().error("Failed to export activities successfully for export job "
+                                    + this.getExportJob().getId(), e);
+                this.getExportJob().markFailed(e);
+                this.markResumePointFailed();
+
+            }
+
+        }, this.getExportExecutor());
+
+    }
+
+    /**
+     * Write every activity read from the activity service cursor to my export file
+     * @throws IOException
+     */
+    private void writeDataFromCursorToFile() throws IOException {
+
+        ExportOutput                tempOutput = null;
+        ActivityExportWriter        tempRowWriter = null;
+        final ActivityExportWriter  tempCursorRowWriter;
+
+        try {
+
+            tempOutput = this.createExportOutput();
+            tempRowWriter = this.createRowWriterWithColumnNames(tempOutput);
+            tempCursorRowWriter = tempRowWriter;
+
+            this.getActivityService()
+                    .exportActivitiesFromCursor(this.getLogbookId(),
+                                                this.getExportRequest(),
+                                                r -> {
+                                                    tempCursorRowWriter.writeRow(r);
+                                                    this.getExportJob().addRowsWritten(1);
+                                                    return !this.getExportJob().isCancelRequested();
+                                                });
+
+            tempRowWriter.close();
+            this.recordBytesWritten(tempOutput);
+
+        }
+        finally {
+
+            this.getFileUtilities().silentlyClose(tempRowWriter);
+            this.getFileUtilities().silentlyClose(tempOutput);
+
+        }
+
+    }
+
+    /**
+     * Write aData, followed by every remaining chunk, to my export file
+     * @param aData ActivityExportRow[] the first chunk
+     * @throws IOException
+     */
+    private void writeDataToFile(ActivityExportRow[] aData) throws IOException {
+
+        ExportOutput            tempOutput = null;
+        ActivityExportWriter    tempRowWriter = null;
+
+        try {
+
+            tempOutput = this.createExportOutput();
+            tempRowWriter = this.createRowWriterWithColumnNames(tempOutput);
+
+            this.writeChunksToRowWriter(aData, tempRowWriter, tempOutput);
+
+            tempRowWriter.close();
+            this.recordBytesWritten(tempOutput);
+            this.deleteResumePoint();
+
+        }
+        finally {
+
+            this.getFileUtilities().silentlyClose(tempRowWriter);
+            this.getFileUtilities().silentlyClose(tempOutput);
+
+        }
+
+
+    }
+
+    /**
+     * Truncate my export file back to the last chunk recorded by aResumePoint and write every chunk
+     * after it
+     * @param aResumePoint ExportResumePointDTO
+     * @throws IOException
+     */
+    private void writeDataToFileFrom(ExportResumePointDTO aResumePoint) throws IOException {
+
+        ExportOutput            tempOutput = null;
+        ActivityExportWriter    tempRowWriter = null;
+        Calendar                tempLastActivityDate;
+        List<ActivityExportRow> tempRows;
+
+        try {
+
+            tempOutput = new ExportOutput(this.getExportFile(), aResumePoint.getByteOffset());
+            this.getExportJob().addRowsWritten(aResumePoint.getRowsWritten());
+
+            //An export interrupted while queued has written nothing, not even its header
+            if (aResumePoint.getLastId() == null) {
+
+                tempRowWriter = this.createRowWriterWithColumnNames(tempOutput);
+                this.setLastKeyWritten(null);
+
+            }
+            else {
+
+                tempRowWriter = this.createRowWriter(tempOutput);
+                tempLastActivityDate = Calendar.getInstance();
+                tempLastActivityDate.setTimeInMillis(aResumePoint.getLastActivityDateMillis());
+                this.setLastKeyWritten(new ActivityExportKey(tempLastActivityDate, aResumePoint.getLastId()));
+
+            }
+
+            tempRows =
+                    this.getActivityService()
+                            .findNextActivityRows(this.getLogbookId(),
+                                                  this.getExportRequest(),
+                                                  this.getLastKeyWritten(),
+                                                  this.getChunkSize());
+            this.writeChunksToRowWriter(tempRows.toArray(new ActivityExportRow[tempRows.size()]),
+                                        tempRowWriter,
+                                        tempOutput);
+
+            tempRowWriter.close();
+            this.recordBytesWritten(tempOutput);
+            this.deleteResumePoint();
+
+        }
+        finally {
+
+            this.getFileUtilities().silentlyClose(tempRowWriter);
+            this.getFileUtilities().silentlyClose(tempOutput);
+
+        }
+
+    }
+
+    /**
+     * Synchronously write every activity of my export request to my export file without a header,
+     * so the file can be concatenated with the segments for neighbouring date ranges
+     * @throws IOException
+     */
+    public void writeSegment() throws IOException {
+
+        ExportOutput            tempOutput = null;
+        ActivityExportWriter    tempRowWriter = null;
+        List<ActivityExportRow> tempRows;
+
+        try {
+
+            //Segments stay uncompressed; the merged file is encoded as a whole
+            tempOutput = new ExportOutput(this.getExportFile());
+            tempRowWriter = this.createRowWriter(tempOutput);
+
+            tempRows =
+                    this.getActivityService()
+                            .findNextActivityRows(this.getLogbookId(),
+                                                  this.getExportRequest(),
+                                                  null,
+                                                  this.getChunkSize());
+            this.writeChunksToRowWriter(tempRows.toArray(new ActivityExportRow[tempRows.size()]),
+                                        tempRowWriter,
+                                        null);
+
+            //Closing writes out the last buffered rows, so a failure here has to fail the partition
+            tempRowWriter.close();
+
+        }
+        finally {
+
+            this.getFileUtilities().silentlyClose(tempRowWriter);
+            this.getFileUtilities().silentlyClose(tempOutput);
+
+        }
+
+    }
+
+    /**
+     * Write aData, followed by every remaining chunk, to aRowWriter. If I am resumable, a resume point
+     * is saved once each chunk has been flushed to aResumableOutput.
+     * @param aData ActivityExportRow[] the first chunk
+     * @param aRowWriter ActivityExportWriter
+     * @param aResumableOutput ExportOutput aRowWriter writes to, or null if no resume points are saved
+     * @throws IOException
+     */
+    private void writeChunksToRowWriter(ActivityExportRow[] aData,
+                                        ActivityExportWriter aRowWriter,
+                                        ExportOutput aResumableOutput) throws IOException {
+
+        ActivityExportRow[]   tempArray;
+
+        tempArray = aData;
+        while (tempArray != null &&
+                    tempArray.length > 0 &&
+                        !this.getExportJob().isCancelRequested()) {
+
+            //Write data to file
+            this.writeArrayToRowWriter(tempArray, aRowWriter);
+            this.getExportJob().addRowsWritten(tempArray.length);
+            if (aResumableOutput != null && this.isResumable()) {
+
+                this.saveResumePoint(tempArray[tempArray.length - 1], aRowWriter, aResumableOutput);
+            }
+
+            //Get next chunk of activities if any remaining
+            tempArray = this.findNextActivitiesIfRemaining(tempArray);
+
+        }
+
+    }
+
+    /**
+     * Write array to row writer
+     * @param anArray ActivityExportRow[]
+     * @param aRowWriter ActivityExportWriter
+     * @throws IOException
+     */
+    private void writeArrayToRowWriter(ActivityExportRow[] anArray,
+                                       ActivityExportWriter aRowWriter) throws IOException {
+
+        for (ActivityExportRow r : anArray) {
+
+            aRowWriter.writeRow(r);
+
+        }
+
+    }
+
+    /**
+     * Answer whether my progress is saved so my export can be resumed
+     * @return boolean
+     */
+    private boolean isResumable() {
+
+        return this.getResumePointStore() != null;
+    }
+
+    /**
+     * Flush aRowWriter and save a resume point just after aLastRow, whose chunk it has written to anOutput
+     * @param aLastRow ActivityExportRow
+     * @param aRowWriter ActivityExportWriter
+     * @param anOutput ExportOutput
+     * @throws IOException
+     */
+    private void saveResumePoint(ActivityExportRow aLastRow,
+                                 ActivityExportWriter aRowWriter,
+                                 ExportOutput anOutput) throws IOException {
+
+        aRowWriter.flush();
+        this.getResumePointStore()
+                .save(new ExportResumePointDTO(this.getExportJob().getId(),
+                                               this.getLogbookId(),
+                                               this.getExportFile().getAbsolutePath(),
+                                               this.getExportRequest(),
+                                               aLastRow.getActivityDate().getTimeInMillis(),
+                                               aLastRow.getId(),
+                                               anOutput.getBytesWritten(),
+                                               this.getExportJob().getRowsWritten(),
+                                               false));
+
+    }
+
+    /**
+     * Save a resume point from the start of my export, so an export still queued when the application
+     * stops is resumed too
+     */
+    private void saveQueuedResumePoint() {
+
+        if (this.isResumable()) {
+
+            try {
+
+                this.getResumePointStore()
+                        .save(new ExportResumePointDTO(this.getExportJob().getId(),
+                                                       this.getLogbookId(),
+                                                       this.getExportFile().getAbsolutePath(),
+                                                       this.getExportRequest(),
+                                                       0L,
+                                                       null,
+                                                       0L,
+                                                       0L,
+                                                       false));
+            }
+            catch (IOException e) {
+                getLogger().warn("Cannot save resume point for queued export job " + this.getExportJob().getId(), e);
+            }
+
+        }
+
+    }
+
+    /**
+     * Mark my resume point as that of a failed export, which is only resumed on request
+     */
+    private void markResumePointFailed() {
+
+        if (this.isResumable()) {
+            this.getResumePointStore().markFailed(this.getExportJob().getId());
+        }
+    }
+
+    /**
+     * Delete my resume point once my export no longer needs resuming
+     */
+    private void deleteResumePoint() {
+
+        if (this.isResumable()) {
+            this.getResumePointStore().delete(this.getExportJob().getId());
+        }
+    }
+
+    /**
+     * Answer output onto my export file, compressed as my export request asks
+     * @return ExportOutput
+     * @throws IOException
+     */
+    private ExportOutput createExportOutput() throws IOException {
+
+        return new ExportOutput(this.getExportFile(),
+                                this.getExportRequest().getCompression(),
+                                this.getExportRequest().getCompressionLevelOrDefault());
+    }
+
+    /**
+     * Record the compressed and uncompressed sizes of aClosedOutput on my export job
+     * @param aClosedOutput ExportOutput
+     */
+    private void recordBytesWritten(ExportOutput aClosedOutput) {
+
+        this.getExportJob().recordBytesWritten(aClosedOutput.getBytesWritten(),
+                                               aClosedOutput.getUncompressedBytesWritten());
+    }
+
+    /**
+     * Answer a new row writer onto anOutput, in the format my export request asks for
+     * @param anOutput ExportOutput
+     * @return ActivityExportWriter
+     */
+    private ActivityExportWriter createRowWriter(ExportOutput anOutput) {
+
+        return ActivityExportWriters.create(this.getExportRequest().getFormat(),
+                                            anOutput.getOutputStream(),
+                                            this.getExportRequest().isDeltaExport());
+    }
+
+    /**
+     * Answer a new row writer onto anOutput that has written its header
+     * @param anOutput ExportOutput
+     * @return ActivityExportWriter
+     * @throws IOException
+     */
+    private ActivityExportWriter createRowWriterWithColumnNames(ExportOutput anOutput) throws IOException {
+
+        ActivityExportWriter tempResult;
+
+        tempResult = this.createRowWriter(anOutput);
+        tempResult.writeHeader();
+
+        return tempResult;
+
+    }
+
+
+    /**
+     * Find the chunk of activities following aPreviousChunk. A short chunk means the keyset
+     * has been exhausted, so no further query is made.
+     * @param aPreviousChunk ActivityExportRow[]
+     * @return ActivityExportRow[]
+     */
+    private ActivityExportRow[] findNextActivitiesIfRemaining(ActivityExportRow[] aPreviousChunk) {
+
+        ActivityExportRow[]       tempArray = null;
+        List<ActivityExportRow> tempRows;
+
+        if (aPreviousChunk.length >= this.getChunkSize()) {
+
+            this.setLastKeyWritten(aPreviousChunk[aPreviousChunk.length - 1].asExportKey());
+            tempRows =
+                    this.getActivityService()
+                            .findNextActivityRows(this.getLogbookId(),
+                                                  this.getExportRequest(),
+                                                  this.getLastKeyWritten(),
+                                                  this.getChunkSize());
+            tempArray =
+                    tempRows.toArray(new ActivityExportRow[tempRows.size()]);
+
+        }
+
+        return tempArray;
+
+    }
+
+
+    /**
+     * Export work run on behalf of my export job
+     */
+    @FunctionalInterface
+    private interface ExportWork {
+
+        void write() throws IOException;
+
+    }
+
+}
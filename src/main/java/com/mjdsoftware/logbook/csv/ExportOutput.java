@@ -0,0 +1,238 @@
+package com.mjdsoftware.logbook.csv;
+
+import com.mjdsoftware.logbook.dto.ActivityExportCompression;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Buffered byte output onto an export file, optionally passed through a streaming gzip or deflate
+ * encoder, for an ActivityExportWriter to write to. Keeps count of the bytes written before encoding,
+ * so that both the compressed and uncompressed size of an export are known once it is closed.
+ */
+public class ExportOutput implements Closeable {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private File exportFile;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityExportCompression compression;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private FileOutputStream fileStream;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private CountingOutputStream uncompressedStream;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private long bytesTransferred;
+
+    //Constants
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Answer an instance writing to anExportFile, replacing anything already in it
+     * @param anExportFile File
+     * @param aCompression ActivityExportCompression, null for none
+     * @param aCompressionLevel int 0 through 9, ignored when not compressing
+     * @throws IOException
+     */
+    public ExportOutput(File anExportFile,
+                        ActivityExportCompression aCompression,
+                        int aCompressionLevel) throws IOException {
+
+        super();
+        this.setExportFile(anExportFile);
+        this.setCompression((aCompression != null) ? aCompression : ActivityExportCompression.NONE);
+        this.setFileStream(new FileOutputStream(anExportFile));
+        this.initializeOutput(aCompressionLevel);
+
+    }
+
+    /**
+     * Answer an uncompressed instance that continues anExportFile from aResumeOffset, discarding
+     * anything written after it
+     * @param anExportFile File
+     * @param aResumeOffset long
+     * @throws IOException
+     */
+    public ExportOutput(File anExportFile, long aResumeOffset) throws IOException {
+
+        super();
+        this.setExportFile(anExportFile);
+        this.setCompression(ActivityExportCompression.NONE);
+
+        //Opened for append, so writes follow the truncated end
+        this.setFileStream(new FileOutputStream(anExportFile, true));
+        this.getFileStream().getChannel().truncate(aResumeOffset);
+        this.initializeOutput(Deflater.DEFAULT_COMPRESSION);
+
+        //What was kept counts towards my uncompressed size as if I had written it
+        this.setBytesTransferred(aResumeOffset);
+
+    }
+
+    /**
+     * Answer an uncompressed instance writing to anExportFile
+     * @param anExportFile File
+     * @throws IOException
+     */
+    public ExportOutput(File anExportFile) throws IOException {
+
+        this(anExportFile, ActivityExportCompression.NONE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Set up my output, encoding at aCompressionLevel onto my file stream
+     * @param aCompressionLevel int
+     * @throws IOException
+     */
+    private void initializeOutput(int aCompressionLevel) throws IOException {
+
+        this.setUncompressedStream(
+                new CountingOutputStream(this.createEncodingStream(aCompressionLevel)));
+    }
+
+    /**
+     * Answer the stream to write export rows to, before encoding. Closing it closes me.
+     * @return OutputStream
+     */
+    public OutputStream getOutputStream() {
+
+        return this.getUncompressedStream();
+    }
+
+    /**
+     * Answer the stream that encodes onto my file stream
+     * @param aCompressionLevel int
+     * @return OutputStream
+     * @throws IOException
+     */
+    private OutputStream createEncodingStream(int aCompressionLevel) throws IOException {
+
+        OutputStream    tempResult;
+        OutputStream    tempBuffered;
+
+        tempBuffered = new BufferedOutputStream(this.getFileStream(), BUFFER_SIZE);
+
+        switch (this.getCompression()) {
+
+            case GZIP:
+                tempResult = new LevelledGZIPOutputStream(tempBuffered, aCompressionLevel);
+                break;
+            case DEFLATE:
+                tempResult = new DeflaterOutputStream(tempBuffered, new Deflater(aCompressionLevel), BUFFER_SIZE);
+                break;
+            default:
+                tempResult = tempBuffered;
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Append the contents of aFile after everything flushed to my output stream so far. Uncompressed
+     * output is copied channel to channel; compressed output has to pass through the encoder.
+     * @param aFile File
+     * @throws IOException
+     */
+    public void appendFile(File aFile) throws IOException {
+
+        long    tempPosition = 0;
+        long    tempSize;
+
+        this.getUncompressedStream().flush();
+
+        if (this.isCompressed()) {
+
+            Files.copy(aFile.toPath(), this.getUncompressedStream());
+        }
+        else {
+
+            try (FileChannel tempIn = FileChannel.open(aFile.toPath(), StandardOpenOption.READ)) {
+
+                tempSize = tempIn.size();
+                while (tempPosition < tempSize) {
+
+                    tempPosition += tempIn.transferTo(tempPosition,
+                                                      tempSize - tempPosition,
+                                                      this.getFileStream().getChannel());
+                }
+
+            }
+            this.setBytesTransferred(this.getBytesTransferred() + tempSize);
+
+        }
+
+    }
+
+    /**
+     * Answer whether I am encoding my output
+     * @return boolean
+     */
+    public boolean isCompressed() {
+
+        return this.getCompression() != ActivityExportCompression.NONE;
+    }
+
+    /**
+     * Answer the number of bytes written before encoding
+     * @return long
+     */
+    public long getUncompressedBytesWritten() {
+
+        return this.getUncompressedStream().getByteCount() + this.getBytesTransferred();
+    }
+
+    /**
+     * Answer the number of bytes in my file. Only final once I have been closed, or flushed if I am
+     * not compressed.
+     * @return long
+     */
+    public long getBytesWritten() {
+
+        return this.getExportFile().length();
+    }
+
+    /**
+     * Close my output stream, finishing any encoding, and with it my file
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        this.getUncompressedStream().close();
+    }
+
+    /**
+     * Gzip stream whose deflater runs at a given level rather than the default
+     */
+    private static class LevelledGZIPOutputStream extends GZIPOutputStream {
+
+        /**
+         * Answer an instance encoding onto anOut at aCompressionLevel
+         * @param anOut OutputStream
+         * @param aCompressionLevel int
+         * @throws IOException
+         */
+        public LevelledGZIPOutputStream(OutputStream anOut, int aCompressionLevel) throws IOException {
+
+            super(anOut, BUFFER_SIZE);
+            this.def.setLevel(aCompressionLevel);
+
+        }
+
+    }
+
+}
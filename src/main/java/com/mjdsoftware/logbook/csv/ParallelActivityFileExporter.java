@@ -0,0 +1,290 @@
+package com.mjdsoftware.logbook.csv;
+
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.export.ExportJob;
+import com.mjdsoftware.logbook.service.ActivityService;
+import com.mjdsoftware.logbook.utils.FileUtilities;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Exports activities by splitting the requested date range into partitions. Each partition is read
+ * and rendered to its own uncompressed segment file on a bounded executor, and the segments are appended
+ * to the export file in date order as they complete, so the result is identical to a sequential export.
+ */
+@Slf4j
+public class ParallelActivityFileExporter {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private File exportFile;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Long logbookId;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityExportRequest exportRequest;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private List<ActivityExportRequest> partitions;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private int chunkSize;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityService activityService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private FileUtilities fileUtilities;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportJob exportJob;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Executor exportExecutor;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Executor partitionExecutor;
+
+    //Constants
+    private static final String SEGMENT_SUFFIX = ".part";
+
+    /**
+     * Answer my logger
+     *
+     * @return org.slf4j.Logger
+     */
+    private static Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Answer an instance that exports aPartitions, in order, to anExportFile
+     * @param anExportFile File
+     * @param aLogbookId Long
+     * @param anExportRequest ActivityExportRequest
+     * @param aPartitions List of anExportRequest split into date order
+     * @param aChunkSize int
+     * @param anActivityService ActivityService
+     * @param aFileUtilities FileUtilities
+     * @param anExportJob ExportJob that tracks my progress
+     * @param anExportExecutor Executor my export is coordinated on
+     * @param aPartitionExecutor Executor the partitions are rendered on
+     */
+    public ParallelActivityFileExporter(File anExportFile,
+                                        Long aLogbookId,
+                                        ActivityExportRequest anExportRequest,
+                                        List<ActivityExportRequest> aPartitions,
+                                        int aChunkSize,
+                                        ActivityService anActivityService,
+                                        FileUtilities aFileUtilities,
+                                        ExportJob anExportJob,
+                                        Executor anExportExecutor,
+                                        Executor aPartitionExecutor) {
+
+        this.setExportFile(anExportFile);
+        this.setLogbookId(aLogbookId);
+        this.setExportRequest(anExportRequest);
+        this.setPartitions(aPartitions);
+        this.setChunkSize(aChunkSize);
+        this.setActivityService(anActivityService);
+        this.setFileUtilities(aFileUtilities);
+        this.setExportJob(anExportJob);
+        this.setExportExecutor(anExportExecutor);
+        this.setPartitionExecutor(aPartitionExecutor);
+
+    }
+
+    /**
+     * Write data asynchronously. Coordination runs on the export executor rather than the partition
+     * executor, so a full partition pool can never wait on itself. Throws TaskRejectedException, before
+     * my job is started, if the export executor has no room for it.
+     */
+    public void writeFileAsynchronously() {
+
+        CompletableFuture.runAsync(() -> {
+
+            try {
+
+                //A job cancelled while queued is never started
+                if (this.getExportJob().markRunning()) {
+
+                    this.writeDataToFile();
+                    this.getExportJob().markFinished();
+
+                }
+
+            }
+            catch (Exception e) {
+
+                getLogger().error("Failed to export activities successfully for export job "
+                                    + this.getExportJob().getId(), e);
+                this.getExportJob().markFailed(e);
+            }
+
+        }, this.getExportExecutor());
+
+    }
+
+    /**
+     * Render every partition to its segment file in parallel, appending each to my export file in
+     * order as soon as it and all the ones before it are done
+     * @throws IOException
+     */
+    private void writeDataToFile() throws IOException {
+
+        List<File>                      tempSegments;
+        List<CompletableFuture<Void>>   tempFutures = new ArrayList<>();
+        ExportOutput                    tempOutput = null;
+        ActivityExportWriter            tempRowWriter = null;
+
+        tempSegments = this.createSegmentFiles();
+        try {
+
+            //Partitions submitted before one is rejected are still in tempFutures, so are stopped below
+            this.submitPartitions(tempSegments, tempFutures);
+            tempOutput = new ExportOutput(this.getExportFile(),
+                                          this.getExportRequest().getCompression(),
+                                          this.getExportRequest().getCompressionLevelOrDefault());
+            tempRowWriter = ActivityExportWriters.create(this.getExportRequest().getFormat(),
+                                                         tempOutput.getOutputStream(),
+                                                         false);
+            tempRowWriter.writeHeader();
+
+            //Segments are appended beneath my row writer, so its header has to reach my output first
+            tempRowWriter.flush();
+
+            for (int i = 0; i < tempSegments.size(); i++) {
+
+                this.awaitPartition(tempFutures.get(i));
+                if (!this.getExportJob().isCancelRequested()) {
+
+                    tempOutput.appendFile(tempSegments.get(i));
+                }
+
+            }
+
+            tempRowWriter.close();
+            this.getExportJob().recordBytesWritten(tempOutput.getBytesWritten(),
+                                                   tempOutput.getUncompressedBytesWritten());
+
+        }
+        catch (IOException | RuntimeException e) {
+
+            //Stop the remaining partitions rather than let them finish work that will be thrown away
+            this.getExportJob().requestCancel();
+            throw e;
+
+        }
+        finally {
+
+            this.getFileUtilities().silentlyClose(tempRowWriter);
+            this.getFileUtilities().silentlyClose(tempOutput);
+
+            //Segments can only be removed once nothing is still writing them
+            CompletableFuture.allOf(tempFutures.toArray(new CompletableFuture[tempFutures.size()]))
+                             .exceptionally(e -> null)
+                             .join();
+            for (File f: tempSegments) {
+                this.getFileUtilities().deleteFileAtPath(f.getAbsolutePath());
+            }
+
+        }
+
+    }
+
+    /**
+     * Answer one segment file per partition, beside my export file
+     * @return List
+     */
+    private List<File> createSegmentFiles() {
+
+        List<File> tempResult = new ArrayList<>();
+
+        for (int i = 0; i < this.getPartitions().size(); i++) {
+
+            tempResult.add(new File(this.getExportFile().getAbsolutePath() + SEGMENT_SUFFIX + i));
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Submit each partition to be rendered to its segment of aSegments, adding its future to aFutures
+     * in partition order as it is submitted
+     * @param aSegments List
+     * @param aFutures List
+     */
+    private void submitPartitions(List<File> aSegments, List<CompletableFuture<Void>> aFutures) {
+
+        ChunkableActivityFileExporter tempExporter;
+
+        for (int i = 0; i < aSegments.size(); i++) {
+
+            tempExporter = new ChunkableActivityFileExporter(aSegments.get(i),
+                                                             this.getLogbookId(),
+                                                             this.getPartitions().get(i),
+                                                             this.getChunkSize(),
+                                                             this.getActivityService(),
+                                                             this.getFileUtilities(),
+                                                             this.getExportJob(),
+                                                             this.getExportExecutor(),
+                                                             null);
+            aFutures.add(this.submitPartition(tempExporter));
+
+        }
+
+    }
+
+    /**
+     * Submit anExporter to render its segment on my partition executor
+     * @param anExporter ChunkableActivityFileExporter
+     * @return CompletableFuture
+     */
+    private CompletableFuture<Void> submitPartition(ChunkableActivityFileExporter anExporter) {
+
+        return CompletableFuture.runAsync(() -> {
+
+            try {
+                anExporter.writeSegment();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+        }, this.getPartitionExecutor());
+
+    }
+
+    /**
+     * Wait for aFuture, rethrowing whatever failed it
+     * @param aFuture CompletableFuture
+     * @throws IOException
+     */
+    private void awaitPartition(CompletableFuture<Void> aFuture) throws IOException {
+
+        try {
+            aFuture.join();
+        }
+        catch (CompletionException e) {
+
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException)e.getCause()).getCause();
+            }
+            throw e;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.mjdsoftware.logbook.csv;
+
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.service.ActivityService;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes activities straight from the export cursor onto an output stream, such as an HTTP response,
+ * without an intermediate file, in the format of the export request. Rows are flushed in fixed size batches; because each row is only read
+ * from the cursor once the one before it has been written, a slow reader holds back the cursor rather
+ * than letting rows pile up in memory.
+ */
+public class StreamingActivityExporter {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Long logbookId;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityExportRequest exportRequest;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String nextCheckpointToken;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private int flushRows;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityService activityService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Runnable releaser;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private AtomicBoolean released;
+
+    /**
+     * Answer an instance that streams activities of aLogbookId described by anExportRequest
+     * @param aLogbookId Long
+     * @param anExportRequest ActivityExportRequest
+     * @param aNextCheckpointToken String the checkpoint a later delta export can start from
+     * @param aFlushRows int rows written between flushes
+     * @param anActivityService ActivityService
+     */
+    public StreamingActivityExporter(Long aLogbookId,
+                                     ActivityExportRequest anExportRequest,
+                                     String aNextCheckpointToken,
+                                     int aFlushRows,
+                                     ActivityService anActivityService) {
+
+        this(aLogbookId, anExportRequest, aNextCheckpointToken, aFlushRows, anActivityService, () -> {});
+    }
+
+    /**
+     * Answer an instance that streams activities of aLogbookId described by anExportRequest, running
+     * aReleaser once when it is done with its cursor
+     * @param aLogbookId Long
+     * @param anExportRequest ActivityExportRequest
+     * @param aNextCheckpointToken String the checkpoint a later delta export can start from
+     * @param aFlushRows int rows written between flushes
+     * @param anActivityService ActivityService
+     * @param aReleaser Runnable releasing what admitted the stream
+     */
+    public StreamingActivityExporter(Long aLogbookId,
+                                     ActivityExportRequest anExportRequest,
+                                     String aNextCheckpointToken,
+                                     int aFlushRows,
+                                     ActivityService anActivityService,
+                                     Runnable aReleaser) {
+
+        this.setLogbookId(aLogbookId);
+        this.setExportRequest(anExportRequest);
+        this.setNextCheckpointToken(aNextCheckpointToken);
+        this.setFlushRows(aFlushRows);
+        this.setActivityService(anActivityService);
+        this.setReleaser(aReleaser);
+        this.setReleased(new AtomicBoolean());
+
+    }
+
+    /**
+     * Write my activities to anOutputStream, which is flushed but left open. Answer the number of rows
+     * written. I am released once written, whether or not writing succeeded.
+     * @param anOutputStream OutputStream
+     * @return long
+     * @throws IOException
+     */
+    public long writeTo(OutputStream anOutputStream) throws IOException {
+
+        ActivityExportWriter    tempRowWriter;
+        long                    tempResult;
+
+        try {
+
+            tempRowWriter = ActivityExportWriters.create(this.getExportRequest().getFormat(),
+                                                         anOutputStream,
+                                                         this.getExportRequest().isDeltaExport());
+            tempRowWriter.writeHeader();
+
+            tempResult =
+                    this.getActivityService()
+                            .exportActivitiesFromCursor(this.getLogbookId(),
+                                                        this.getExportRequest(),
+                                                        new FlushingRowHandler(tempRowWriter, this.getFlushRows()));
+            tempRowWriter.flush();
+
+        }
+        finally {
+            this.release();
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Release what admitted me, once only, so a stream that is never written can be released too
+     */
+    public void release() {
+
+        if (this.getReleased().compareAndSet(false, true)) {
+            this.getReleaser().run();
+        }
+
+    }
+
+    /**
+     * Writes each row handed to it, flushing every so many rows so the client receives a steady stream
+     */
+    private static class FlushingRowHandler implements ActivityRowHandler {
+
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private ActivityExportWriter rowWriter;
+
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private int flushRows;
+
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private int rowsSinceFlush;
+
+        /**
+         * Answer an instance writing to aRowWriter and flushing every aFlushRows rows
+         * @param aRowWriter ActivityExportWriter
+         * @param aFlushRows int
+         */
+        public FlushingRowHandler(ActivityExportWriter aRowWriter, int aFlushRows) {
+
+            this.setRowWriter(aRowWriter);
+            this.setFlushRows(aFlushRows);
+
+        }
+
+        /**
+         * Write aRow, flushing if a batch is complete
+         * @param aRow ActivityExportRow
+         * @return boolean
+         * @throws IOException
+         */
+        @Override
+        public boolean handle(ActivityExportRow aRow) throws IOException {
+
+            this.getRowWriter().writeRow(aRow);
+
+            this.setRowsSinceFlush(this.getRowsSinceFlush() + 1);
+            if (this.getRowsSinceFlush() >= this.getFlushRows()) {
+
+                this.getRowWriter().flush();
+                this.setRowsSinceFlush(0);
+
+            }
+
+            return true;
+
+        }
+
+    }
+
+}
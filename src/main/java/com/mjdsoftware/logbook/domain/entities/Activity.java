@@ -5,9 +5,12 @@ import com.mjdsoftware.logbook.dto.ActivityDTO;
 import com.mjdsoftware.logbook.dto.CommentDTO;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -16,8 +19,10 @@ import java.util.stream.Collectors;
 @DiscriminatorColumn(name="activity_discriminator",
                      discriminatorType = DiscriminatorType.STRING)
 @Table(name = "activities")
-@ToString(exclude="logbookEntry")
-@EqualsAndHashCode
+@NamedEntityGraph(name = Activity.LIST_GRAPH,
+                  attributeNodes = {@NamedAttributeNode("activityDetails"),
+                                    @NamedAttributeNode("comments")})
+@ToString(exclude={"logbookEntry", "comments"})
 public abstract class Activity {
 
     @Getter
@@ -60,14 +65,17 @@ public abstract class Activity {
     private ActivityDetails activityDetails;
 
     @Getter @Setter(AccessLevel.PRIVATE)
-    @OneToMany(fetch=FetchType.EAGER,
+    @OneToMany(fetch=FetchType.LAZY,
                cascade=CascadeType.ALL,
                orphanRemoval = true)
+    @BatchSize(size=LogbookEntry.BATCH_SIZE)
     @JoinTable(name="activity_comments",
                joinColumns = @JoinColumn(name="activity_id", referencedColumnName="id"),
                inverseJoinColumns = @JoinColumn(name="comment_id", referencedColumnName = "id"))
     private List<Comment> comments;
 
+    //Constants
+    public static final String LIST_GRAPH = "Activity.list";
 
     /**
      * Answer a default instance
@@ -216,4 +224,26 @@ public abstract class Activity {
 
     }
 
+    /**
+     * Compare by identity, as my collections are lazy and must not be loaded to compare me
+     * @param o Object
+     * @return boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        Activity activity = (Activity) o;
+        return getId() != null && Objects.equals(getId(), activity.getId());
+    }
+
+    /**
+     * Answer a hash code that is stable across my persistent lifecycle
+     * @return int
+     */
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
 }
@@ -6,14 +6,19 @@ import com.mjdsoftware.logbook.dto.CommentDTO;
 import com.mjdsoftware.logbook.dto.LogbookEntryDTO;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Entity
 @Table(name = "logbook_entries")
-@ToString(exclude="logbook")
-@EqualsAndHashCode
+@NamedEntityGraph(name = LogbookEntry.DETAIL_GRAPH,
+                  attributeNodes = @NamedAttributeNode(value = "activities", subgraph = "activities"),
+                  subgraphs = @NamedSubgraph(name = "activities",
+                                             attributeNodes = @NamedAttributeNode("activityDetails")))
+@ToString(exclude={"logbook", "activities", "comments"})
 public class LogbookEntry {
 
     @Getter
@@ -39,19 +44,24 @@ public class LogbookEntry {
     private Logbook logbook;
 
     @Getter @Setter(AccessLevel.PRIVATE)
-    @OneToMany(fetch=FetchType.EAGER,
+    @OneToMany(fetch=FetchType.LAZY,
                mappedBy="logbookEntry")
+    @BatchSize(size=BATCH_SIZE)
     private List<Activity> activities;
 
     @Getter @Setter(AccessLevel.PRIVATE)
-    @OneToMany(fetch=FetchType.EAGER,
+    @OneToMany(fetch=FetchType.LAZY,
                cascade=CascadeType.ALL,
                orphanRemoval = true)
+    @BatchSize(size=BATCH_SIZE)
     @JoinTable(name="log_entry_comments",
                joinColumns = @JoinColumn(name="log_entry_id", referencedColumnName="id"),
                inverseJoinColumns = @JoinColumn(name="comment_id", referencedColumnName = "id"))
     private List<Comment> comments;
 
+    //Constants
+    public static final String DETAIL_GRAPH = "LogbookEntry.detail";
+    public static final int BATCH_SIZE = 100;
 
     /**
      * Answer a default instance
@@ -86,13 +96,19 @@ public class LogbookEntry {
     }
 
     /**
-     * Add anActivity to me
+     * Add anActivity to me, making me its logbook entry. The activity owns the association, so it is
+     * what the caller must save. If my activities have not been loaded, as when I was resolved with
+     * only my logbook, they are left unloaded rather than read just to be added to, and anActivity is
+     * among them the next time they are read.
      * @param anActivity Activity
      */
     public void addActivity(Activity anActivity) {
 
-        this.getActivities().add(anActivity);
+        if (Hibernate.isInitialized(this.getActivities())) {
+            this.getActivities().add(anActivity);
+        }
         anActivity.setLogbookEntry(this);
+
     }
 
     /**
@@ -206,4 +222,26 @@ public class LogbookEntry {
 
     }
 
+    /**
+     * Compare by identity, as my collections are lazy and must not be loaded to compare me
+     * @param o Object
+     * @return boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        LogbookEntry entry = (LogbookEntry) o;
+        return getId() != null && Objects.equals(getId(), entry.getId());
+    }
+
+    /**
+     * Answer a hash code that is stable across my persistent lifecycle
+     * @return int
+     */
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
 }
@@ -4,15 +4,18 @@ import com.mjdsoftware.logbook.dto.LogbookDTO;
 import com.mjdsoftware.logbook.dto.UserDTO;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Entity
 @Table(name = "users")
-@ToString()
-@EqualsAndHashCode
+@NamedEntityGraph(name = User.LOGBOOKS_GRAPH,
+                  attributeNodes = @NamedAttributeNode("logbooks"))
+@ToString(exclude="logbooks")
 public class User {
 
     @Id
@@ -26,7 +29,7 @@ public class User {
     private String username;
 
     @Getter @Setter(AccessLevel.PRIVATE)
-    @OneToMany(fetch=FetchType.EAGER,
+    @OneToMany(fetch=FetchType.LAZY,
                 mappedBy="user")
     private List<Logbook> logbooks;
 
@@ -35,6 +38,9 @@ public class User {
     @Getter @Setter(AccessLevel.PRIVATE)
     private long version;
 
+    //Constants
+    public static final String LOGBOOKS_GRAPH = "User.logbooks";
+
     /**
      * Answer a default instance
      */
@@ -100,4 +106,26 @@ public class User {
 
     }
 
+    /**
+     * Compare by identity, as my collections are lazy and must not be loaded to compare me
+     * @param o Object
+     * @return boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        User user = (User) o;
+        return getId() != null && Objects.equals(getId(), user.getId());
+    }
+
+    /**
+     * Answer a hash code that is stable across my persistent lifecycle
+     * @return int
+     */
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
 }
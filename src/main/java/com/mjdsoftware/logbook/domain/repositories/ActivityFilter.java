@@ -0,0 +1,306 @@
+package com.mjdsoftware.logbook.domain.repositories;
+
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Composable filter over activities, rendered as predicates of a single native statement so that every
+ * criterion is applied by the database. Count, chunk, cursor and tombstone queries all render the same
+ * filter, so they always agree on which activities they are about.
+ *
+ * Only the criteria that are set are rendered. Unset criteria are left out of the statement rather than
+ * bound as nulls, because predicates such as (:type is null or act.activity_type = :type) keep the
+ * planner from using an index on the column. The logbook and date range are rendered first, matching the
+ * leading columns of the (logbook_id, activity_date, id) index on activities, so counts, chunks and
+ * cursors are range scans of that one index.
+ */
+@ToString
+public class ActivityFilter {
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Long logbookId;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Calendar startDate;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Calendar endDate;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Set<ActivityType> activityTypes;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Set<String> activityDiscriminators;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Double minDistance;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Double maxDistance;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Double minDuration;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Double maxDuration;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Long changedSinceMillis;
+
+    //Constants
+    public static final Set<String> ACTIVITY_DISCRIMINATORS = Set.of("MON_AEROBIC", "UNMON_AEROBIC", "STRENGTH");
+
+    /**
+     * Answer an instance matching every activity of aLogbookId
+     * @param aLogbookId Long
+     */
+    private ActivityFilter(Long aLogbookId) {
+
+        super();
+        this.setLogbookId(aLogbookId);
+        this.setActivityTypes(EnumSet.noneOf(ActivityType.class));
+        this.setActivityDiscriminators(new LinkedHashSet<>());
+
+    }
+
+    /**
+     * Answer a filter matching every activity of aLogbookId
+     * @param aLogbookId Long
+     * @return ActivityFilter
+     */
+    public static ActivityFilter forLogbook(@NonNull Long aLogbookId) {
+
+        return new ActivityFilter(aLogbookId);
+    }
+
+    /**
+     * Limit me to activities dated aStartDate through anEndDate inclusive. Answer me.
+     * @param aStartDate Calendar
+     * @param anEndDate Calendar
+     * @return ActivityFilter
+     */
+    public ActivityFilter between(Calendar aStartDate, Calendar anEndDate) {
+
+        this.setStartDate(aStartDate);
+        this.setEndDate(anEndDate);
+
+        return this;
+
+    }
+
+    /**
+     * Limit me to activities of any of anActivityTypes, ignoring nulls. Answer me.
+     * @param anActivityTypes Collection, none to leave me unlimited by type
+     * @return ActivityFilter
+     */
+    public ActivityFilter ofTypes(Collection<ActivityType> anActivityTypes) {
+
+        if (anActivityTypes != null) {
+
+            anActivityTypes.stream()
+                           .filter(t -> t != null)
+                           .forEach(t -> this.getActivityTypes().add(t));
+        }
+
+        return this;
+
+    }
+
+    /**
+     * Limit me to activities stored under any of aDiscriminators. Answer me. Throws
+     * IllegalArgumentException for a discriminator not in ACTIVITY_DISCRIMINATORS.
+     * @param aDiscriminators Collection, none to leave me unlimited by discriminator
+     * @return ActivityFilter
+     */
+    public ActivityFilter ofDiscriminators(Collection<String> aDiscriminators) {
+
+        if (aDiscriminators != null) {
+
+            for (String d : aDiscriminators) {
+
+                if (!ACTIVITY_DISCRIMINATORS.contains(d)) {
+                    throw new IllegalArgumentException("Unknown activity discriminator " + d);
+                }
+                this.getActivityDiscriminators().add(d);
+
+            }
+
+        }
+
+        return this;
+
+    }
+
+    /**
+     * Limit me to activities with a distance of aMinDistance through aMaxDistance. Either end may be null
+     * to leave it open. Answer me.
+     * @param aMinDistance Double
+     * @param aMaxDistance Double
+     * @return ActivityFilter
+     */
+    public ActivityFilter withDistanceBetween(Double aMinDistance, Double aMaxDistance) {
+
+        this.setMinDistance(aMinDistance);
+        this.setMaxDistance(aMaxDistance);
+
+        return this;
+
+    }
+
+    /**
+     * Limit me to activities with a duration of aMinDuration through aMaxDuration. Either end may be null
+     * to leave it open. Answer me.
+     * @param aMinDuration Double
+     * @param aMaxDuration Double
+     * @return ActivityFilter
+     */
+    public ActivityFilter withDurationBetween(Double aMinDuration, Double aMaxDuration) {
+
+        this.setMinDuration(aMinDuration);
+        this.setMaxDuration(aMaxDuration);
+
+        return this;
+
+    }
+
+    /**
+     * Limit me to activities created, changed or deleted at or after aChangedSinceMillis, database epoch
+     * millis. Answer me.
+     * @param aChangedSinceMillis Long null to leave me unlimited by change time
+     * @return ActivityFilter
+     */
+    public ActivityFilter changedSince(Long aChangedSinceMillis) {
+
+        this.setChangedSinceMillis(aChangedSinceMillis);
+
+        return this;
+
+    }
+
+    /**
+     * Answer my predicates over activities aliased act, adding the values they bind to aParameters
+     * @param aParameters Map
+     * @return String
+     */
+    String asActivityPredicates(Map<String, Object> aParameters) {
+
+        StringBuilder tempResult = new StringBuilder();
+
+        this.appendRequired(tempResult, aParameters, "act.logbook_id = :logbookId", "logbookId", this.getLogbookId());
+        this.appendIfSet(tempResult, aParameters, "act.activity_date >= :startDate", "startDate", this.getStartDate());
+        this.appendIfSet(tempResult, aParameters, "act.activity_date <= :endDate", "endDate", this.getEndDate());
+        this.appendIfSet(tempResult, aParameters, "act.activity_type in (:activityTypes)", "activityTypes", this.getActivityTypeNames());
+        this.appendIfSet(tempResult, aParameters, "act.activity_discriminator in (:discriminators)", "discriminators", this.getDiscriminatorList());
+        this.appendIfSet(tempResult, aParameters, "act.distance >= :minDistance", "minDistance", this.getMinDistance());
+        this.appendIfSet(tempResult, aParameters, "act.distance <= :maxDistance", "maxDistance", this.getMaxDistance());
+        this.appendIfSet(tempResult, aParameters, "act.duration >= :minDuration", "minDuration", this.getMinDuration());
+        this.appendIfSet(tempResult, aParameters, "act.duration <= :maxDuration", "maxDuration", this.getMaxDuration());
+        this.appendIfSet(tempResult, aParameters, "act.updated_at >= to_timestamp(:changedSinceMillis / 1000.0)",
+                         "changedSinceMillis", this.getChangedSinceMillis());
+
+        return tempResult.toString();
+
+    }
+
+    /**
+     * Answer my predicates over activity tombstones aliased tomb, adding the values they bind to
+     * aParameters. Tombstones only record the logbook, date and type of what was deleted, so those are
+     * the only criteria applied to them. Throws IllegalStateException unless I am limited by change time.
+     * @param aParameters Map
+     * @return String
+     */
+    String asTombstonePredicates(Map<String, Object> aParameters) {
+
+        StringBuilder tempResult = new StringBuilder();
+
+        if (this.getChangedSinceMillis() == null) {
+            throw new IllegalStateException("Deleted activities can only be found since a change time");
+        }
+
+        this.appendRequired(tempResult, aParameters, "tomb.logbook_id = :logbookId", "logbookId", this.getLogbookId());
+        this.appendIfSet(tempResult, aParameters, "tomb.activity_date >= :startDate", "startDate", this.getStartDate());
+        this.appendIfSet(tempResult, aParameters, "tomb.activity_date <= :endDate", "endDate", this.getEndDate());
+        this.appendIfSet(tempResult, aParameters, "tomb.activity_type in (:activityTypes)", "activityTypes", this.getActivityTypeNames());
+        this.appendRequired(tempResult, aParameters, "tomb.deleted_at >= to_timestamp(:changedSinceMillis / 1000.0)",
+                            "changedSinceMillis", this.getChangedSinceMillis());
+
+        return tempResult.toString();
+
+    }
+
+    /**
+     * Append aPredicate to aPredicates, binding aValue to aName in aParameters
+     * @param aPredicates StringBuilder
+     * @param aParameters Map
+     * @param aPredicate String
+     * @param aName String
+     * @param aValue Object
+     */
+    private void appendRequired(StringBuilder aPredicates,
+                                Map<String, Object> aParameters,
+                                String aPredicate,
+                                String aName,
+                                Object aValue) {
+
+        if (aPredicates.length() > 0) {
+            aPredicates.append(" and ");
+        }
+        aPredicates.append(aPredicate);
+        aParameters.put(aName, aValue);
+
+    }
+
+    /**
+     * Append aPredicate to aPredicates, binding aValue to aName in aParameters, unless aValue is null or
+     * an empty list
+     * @param aPredicates StringBuilder
+     * @param aParameters Map
+     * @param aPredicate String
+     * @param aName String
+     * @param aValue Object
+     */
+    private void appendIfSet(StringBuilder aPredicates,
+                             Map<String, Object> aParameters,
+                             String aPredicate,
+                             String aName,
+                             Object aValue) {
+
+        if (aValue != null && !(aValue instanceof Collection && ((Collection<?>)aValue).isEmpty())) {
+            this.appendRequired(aPredicates, aParameters, aPredicate, aName, aValue);
+        }
+
+    }
+
+    /**
+     * Answer the names my activity types are stored under
+     * @return List
+     */
+    private List<String> getActivityTypeNames() {
+
+        return this.getActivityTypes().stream().map(ActivityType::name).collect(Collectors.toList());
+    }
+
+    /**
+     * Answer my activity discriminators as a list to bind
+     * @return List
+     */
+    private List<String> getDiscriminatorList() {
+
+        return new ArrayList<>(this.getActivityDiscriminators());
+    }
+
+}
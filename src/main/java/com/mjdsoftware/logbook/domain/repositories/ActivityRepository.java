@@ -1,87 +1,66 @@
 package com.mjdsoftware.logbook.domain.repositories;
 
 import com.mjdsoftware.logbook.domain.entities.Activity;
-import com.mjdsoftware.logbook.domain.entities.ActivityType;
 import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.util.Calendar;
 import java.util.List;
 
-public interface ActivityRepository extends JpaRepository<Activity, Long> {
+/**
+ * Activities, and their export rows. Queries that filter activities are assembled from an ActivityFilter,
+ * see ActivityRepositoryCustom.
+ */
+public interface ActivityRepository extends JpaRepository<Activity, Long>, ActivityRepositoryCustom {
+
+    //Constants
+    public static final String EXPORT_FETCH_SIZE = "1000";
+
+    //Export rows hold exactly the exported columns, in ActivityExportRow column order. Columns that only
+    //some activity subclasses map are blanked for the others, matching what the entities would answer.
+    public static final String EXPORT_ROW_COLUMNS =
+            "act.id, act.activity_type, act.duration, act.duration_units, det.details, " +
+            "case when act.activity_discriminator in ('MON_AEROBIC', 'UNMON_AEROBIC') then act.distance else 0 end, " +
+            "case when act.activity_discriminator in ('MON_AEROBIC', 'UNMON_AEROBIC') then act.distance_units end, " +
+            "case when act.activity_discriminator = 'MON_AEROBIC' then act.avg_watts else 0 end, " +
+            "case when act.activity_discriminator = 'MON_AEROBIC' then act.total_calories else 0 end, " +
+            "case when act.activity_discriminator = 'MON_AEROBIC' then act.avg_heart_rate else 0 end, " +
+            "act.activity_date ";
+    //Activities carry the logbook and date of their entry, so no join to logbook_entries is needed
+    public static final String EXPORT_ROW_TABLES =
+            "activities act left outer join activity_details det on act.activity_details_id = det.id ";
 
 
     /**
-     * Find all activities for logbookEntry
+     * Find all activities for logbookEntry, with their details and comments
      * @param logbookEntry LogbookEntry
      * @return List
      */
+    @EntityGraph(value = Activity.LIST_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
     public List<Activity> findActivitiesByLogbookEntry(LogbookEntry logbookEntry);
 
     /**
-     * Find all activities within a date range for a given logbookId
-     * @param startDate Date
-     * @param endDate Date
-     * @param logbookId Long
-     * @param aPageable Pageable
-     * @return List
-     */
-    @Query("select act from Activity act join act.logbookEntry lgbkent join lgbkent.logbook lgbk where lgbk.id = :logbookId and " +
-            "lgbkent.activityDate between :startDate and :endDate  order by lgbkent.activityDate asc")
-    public List<Activity> findAllActivities(@Param("startDate") Calendar startDate,
-                                            @Param("endDate") Calendar endDate,
-                                            @Param("logbookId") Long logbookId,
-                                            Pageable aPageable);
-
-    /**
-     * Answer the count of activiies for logbookId between starDate and endDate
+     * Answer a marker that changes whenever an activity of logbookId is created, changed or deleted: its
+     * activity count with the latest change and deletion times
      * @param logbookId Long
-     * @param startDate Calendar
-     * @param endDate Calendar
-     * @return Long
+     * @return String
      */
-    @Query(value="select count(*) FROM activities act inner join logbook_entries lgbkent on act.log_entry_id = lgbkent.id " +
-            "inner join logbooks lgbk on lgbkent.logbook_id = lgbk.id where lgbk.id = ?1 and " +
-            "lgbkent.activity_date >= ?2 and  lgbkent.activity_date <= ?3", nativeQuery=true)
-    public Long getCountByLogbookIdAndDates(Long logbookId,
-                                            Calendar startDate,
-                                            Calendar endDate);
+    @Query(value = "select concat(count(act.id), ':', " +
+            "coalesce(cast(extract(epoch from max(act.updated_at)) * 1000 as bigint), 0), ':', " +
+            "(select coalesce(cast(extract(epoch from max(tomb.deleted_at)) * 1000 as bigint), 0) " +
+            "from activity_tombstones tomb where tomb.logbook_id = :logbookId)) " +
+            "from activities act where act.logbook_id = :logbookId", nativeQuery = true)
+    public String findExportVersionMarker(@Param("logbookId") Long logbookId);
 
     /**
-     * Find all activities within a date range for a given logbookId
-     * @param startDate Date
-     * @param endDate Date
-     * @param logbookId Long
-     * @param aPageable Pageable
-     * @return List
-     */
-    @Query("select act from Activity act join act.logbookEntry lgbkent join lgbkent.logbook lgbk where lgbk.id = :logbookId and " +
-            "act.activityType = :activityType and " +
-            "lgbkent.activityDate between :startDate and :endDate  order by lgbkent.activityDate asc")
-    public List<Activity> findAllActivities(@Param("startDate") Calendar startDate,
-                                            @Param("endDate") Calendar endDate,
-                                            @Param("logbookId") Long logbookId,
-                                            ActivityType activityType,
-                                            Pageable aPageable);
-
-    /**
-     * Answer the count of activiies for logbookId between starDate and endDate
-     * @param logbookId Long
-     * @param startDate Calendar
-     * @param endDate Calendar
+     * Answer the database clock as epoch millis. Checkpoints are taken from the same clock that stamps
+     * changed rows, so they are not skewed by the application server clock.
      * @return Long
      */
-    @Query(value="select count(*) FROM activities act inner join logbook_entries lgbkent on act.log_entry_id = lgbkent.id " +
-            "inner join logbooks lgbk on lgbkent.logbook_id = lgbk.id where lgbk.id = ?1 and " +
-            "act.activity_type = ?2 and " +
-            "lgbkent.activity_date >= ?3 and  lgbkent.activity_date <= ?4", nativeQuery=true)
-    public Long getCountByLogbookIdAndDates(Long logbookId,
-                                            String activityType,
-                                            Calendar startDate,
-                                            Calendar endDate);
+    @Query(value = "select cast(extract(epoch from now()) * 1000 as bigint)", nativeQuery = true)
+    public Long findDatabaseEpochMillis();
 
 
 }
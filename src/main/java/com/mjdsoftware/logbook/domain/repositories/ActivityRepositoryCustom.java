@@ -0,0 +1,51 @@
+package com.mjdsoftware.logbook.domain.repositories;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Activity queries assembled from an ActivityFilter. Each answers a single native statement with every
+ * criterion of the filter pushed down to the database.
+ */
+public interface ActivityRepositoryCustom {
+
+    /**
+     * Answer the number of activities matching aFilter
+     * @param aFilter ActivityFilter
+     * @return long
+     */
+    public long countActivities(ActivityFilter aFilter);
+
+    /**
+     * Find the next chunk of at most aChunkSize export rows matching aFilter, positioned after the keyset
+     * (aLastActivityDate, aLastId). Seeking on the sort key keeps the cost of each chunk flat regardless
+     * of how deep into the export we are, unlike OFFSET paging. Rows are flat projections of the exported
+     * columns, see ActivityRepository.EXPORT_ROW_COLUMNS.
+     * @param aFilter ActivityFilter
+     * @param aLastActivityDate Calendar
+     * @param aLastId Long
+     * @param aChunkSize int
+     * @return List
+     */
+    public List<Object[]> findActivityRowsAfterKey(ActivityFilter aFilter,
+                                                   Calendar aLastActivityDate,
+                                                   Long aLastId,
+                                                   int aChunkSize);
+
+    /**
+     * Stream every export row matching aFilter through a server side cursor. Must be consumed inside a
+     * transaction and closed when done.
+     * @param aFilter ActivityFilter
+     * @return Stream
+     */
+    public Stream<Object[]> streamActivityRows(ActivityFilter aFilter);
+
+    /**
+     * Find the ids of deleted activities matching aFilter, which must be limited by change time
+     * @param aFilter ActivityFilter
+     * @return List
+     */
+    public List<Long> findDeletedActivityIds(ActivityFilter aFilter);
+
+}
@@ -0,0 +1,218 @@
+package com.mjdsoftware.logbook.domain.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Renders ActivityFilters into native statements over the export row projection
+ */
+public class ActivityRepositoryCustomImpl implements ActivityRepositoryCustom {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private EntityManager entityManager;
+
+    //Constants
+    private static final String COUNT_TABLES = "activities act ";
+    private static final String EXPORT_ROW_AFTER_KEY =
+            "(act.activity_date > :lastActivityDate or " +
+            "(act.activity_date = :lastActivityDate and act.id > :lastId)) ";
+    private static final String EXPORT_ROW_ORDER = "order by act.activity_date asc, act.id asc ";
+
+    /**
+     * Answer an instance querying through anEntityManager
+     * @param anEntityManager EntityManager
+     */
+    @Autowired
+    public ActivityRepositoryCustomImpl(EntityManager anEntityManager) {
+
+        super();
+        this.setEntityManager(anEntityManager);
+
+    }
+
+    /**
+     * Answer the number of activities matching aFilter
+     * @param aFilter ActivityFilter
+     * @return long
+     */
+    @Override
+    public long countActivities(ActivityFilter aFilter) {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        String              tempSql;
+
+        tempSql = countSql(aFilter, tempParameters);
+
+        return ((Number)this.createQuery(tempSql, tempParameters).getSingleResult()).longValue();
+
+    }
+
+    /**
+     * Find the next chunk of at most aChunkSize export rows matching aFilter, positioned after the keyset
+     * (aLastActivityDate, aLastId)
+     * @param aFilter ActivityFilter
+     * @param aLastActivityDate Calendar
+     * @param aLastId Long
+     * @param aChunkSize int
+     * @return List
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findActivityRowsAfterKey(ActivityFilter aFilter,
+                                                   Calendar aLastActivityDate,
+                                                   Long aLastId,
+                                                   int aChunkSize) {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        String              tempSql;
+
+        tempSql = rowsAfterKeySql(aFilter, aLastActivityDate, aLastId, aChunkSize, tempParameters);
+
+        return this.createQuery(tempSql, tempParameters).getResultList();
+
+    }
+
+    /**
+     * Stream every export row matching aFilter through a server side cursor
+     * @param aFilter ActivityFilter
+     * @return Stream
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<Object[]> streamActivityRows(ActivityFilter aFilter) {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        String              tempSql;
+
+        tempSql = rowsSql(aFilter, tempParameters);
+
+        return this.createQuery(tempSql, tempParameters)
+                   .setHint(HibernateHints.HINT_FETCH_SIZE, Integer.valueOf(ActivityRepository.EXPORT_FETCH_SIZE))
+                   .setHint(HibernateHints.HINT_CACHEABLE, false)
+                   .getResultStream();
+
+    }
+
+    /**
+     * Find the ids of deleted activities matching aFilter
+     * @param aFilter ActivityFilter
+     * @return List
+     */
+    @Override
+    public List<Long> findDeletedActivityIds(ActivityFilter aFilter) {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        String              tempSql;
+
+        tempSql = deletedIdsSql(aFilter, tempParameters);
+
+        return ((List<?>)this.createQuery(tempSql, tempParameters).getResultList())
+                        .stream()
+                        .map(id -> ((Number)id).longValue())
+                        .collect(Collectors.toList());
+
+    }
+
+    /**
+     * Answer the statement counting activities matching aFilter, adding the values it binds to aParameters
+     * @param aFilter ActivityFilter
+     * @param aParameters Map
+     * @return String
+     */
+    static String countSql(ActivityFilter aFilter, Map<String, Object> aParameters) {
+
+        return "select count(*) from " + COUNT_TABLES +
+               "where " + aFilter.asActivityPredicates(aParameters);
+    }
+
+    /**
+     * Answer the statement selecting the next chunk of export rows matching aFilter after the keyset
+     * (aLastActivityDate, aLastId), adding the values it binds to aParameters
+     * @param aFilter ActivityFilter
+     * @param aLastActivityDate Calendar
+     * @param aLastId Long
+     * @param aChunkSize int
+     * @param aParameters Map
+     * @return String
+     */
+    static String rowsAfterKeySql(ActivityFilter aFilter,
+                                  Calendar aLastActivityDate,
+                                  Long aLastId,
+                                  int aChunkSize,
+                                  Map<String, Object> aParameters) {
+
+        String tempResult;
+
+        tempResult = "select " + ActivityRepository.EXPORT_ROW_COLUMNS +
+                     "from " + ActivityRepository.EXPORT_ROW_TABLES +
+                     "where " + aFilter.asActivityPredicates(aParameters) + " and " +
+                     EXPORT_ROW_AFTER_KEY +
+                     EXPORT_ROW_ORDER +
+                     "limit :chunkSize";
+        aParameters.put("lastActivityDate", aLastActivityDate);
+        aParameters.put("lastId", aLastId);
+        aParameters.put("chunkSize", aChunkSize);
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the statement selecting every export row matching aFilter, adding the values it binds to
+     * aParameters
+     * @param aFilter ActivityFilter
+     * @param aParameters Map
+     * @return String
+     */
+    static String rowsSql(ActivityFilter aFilter, Map<String, Object> aParameters) {
+
+        return "select " + ActivityRepository.EXPORT_ROW_COLUMNS +
+               "from " + ActivityRepository.EXPORT_ROW_TABLES +
+               "where " + aFilter.asActivityPredicates(aParameters) + " " +
+               EXPORT_ROW_ORDER;
+    }
+
+    /**
+     * Answer the statement selecting the ids of deleted activities matching aFilter, adding the values it
+     * binds to aParameters
+     * @param aFilter ActivityFilter
+     * @param aParameters Map
+     * @return String
+     */
+    static String deletedIdsSql(ActivityFilter aFilter, Map<String, Object> aParameters) {
+
+        return "select tomb.activity_id from activity_tombstones tomb " +
+               "where " + aFilter.asTombstonePredicates(aParameters) + " " +
+               "order by tomb.activity_id asc";
+    }
+
+    /**
+     * Answer a native query of aSql with aParameters bound
+     * @param aSql String
+     * @param aParameters Map
+     * @return Query
+     */
+    private Query createQuery(String aSql, Map<String, Object> aParameters) {
+
+        Query tempResult;
+
+        tempResult = this.getEntityManager().createNativeQuery(aSql);
+        aParameters.forEach(tempResult::setParameter);
+
+        return tempResult;
+
+    }
+
+}
@@ -4,23 +4,56 @@ import com.mjdsoftware.logbook.domain.entities.Logbook;
 import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
 import com.mjdsoftware.logbook.dto.LogbookEntryDTO;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface LogbookEntryRepository extends JpaRepository<LogbookEntry, Long> {
 
     /**
-     * Find the logbook entries for aLogbook. There could be many, so best to page through them.
+     * Find the ids of the logbook entries for aLogbook. There could be many, so best to page through them.
+     * The page is taken over ids alone so that the entries can then be fetched with their activities
+     * without paging over a collection fetch.
      * @param aLogbook Logbook
      * @param pageable pageable
      * @return List
      */
-    public List<LogbookEntry> findByLogbook(Logbook aLogbook,
-                                            Pageable pageable);
+    @Query("select ent.id from LogbookEntry ent where ent.logbook = :logbook")
+    public List<Long> findIdsByLogbook(@Param("logbook") Logbook aLogbook,
+                                       Pageable pageable);
+
+    /**
+     * Find the logbook entries for ids, with their activities and activity details, in sort order
+     * @param ids Collection
+     * @param sort Sort
+     * @return List
+     */
+    @EntityGraph(value = LogbookEntry.DETAIL_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    public List<LogbookEntry> findByIdIn(Collection<Long> ids, Sort sort);
+
+    /**
+     * Find the logbook entry for id, with its activities and activity details
+     * @param id Long
+     * @return Optional
+     */
+    @EntityGraph(value = LogbookEntry.DETAIL_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    @Query("select ent from LogbookEntry ent where ent.id = :id")
+    public Optional<LogbookEntry> findDetailById(@Param("id") Long id);
+
+    /**
+     * Find the logbook entry for id with its logbook and the logbook's user, but none of its collections
+     * @param id Long
+     * @return Optional
+     */
+    @Query("select ent from LogbookEntry ent join fetch ent.logbook lgbk join fetch lgbk.user where ent.id = :id")
+    public Optional<LogbookEntry> findWithLogbookById(@Param("id") Long id);
 
     /**
      * Find all lite logbook entries for aLogbook
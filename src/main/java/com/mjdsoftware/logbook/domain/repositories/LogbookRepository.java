@@ -4,6 +4,8 @@ import com.mjdsoftware.logbook.domain.entities.Logbook;
 import com.mjdsoftware.logbook.dto.LogbookEntryDTO;
 import lombok.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -17,4 +19,22 @@ public interface LogbookRepository extends JpaRepository<Logbook, Long> {
      */
     public Logbook findByName(String aName);
 
+    /**
+     * Answer the id of the user owning the logbook with logbookId, without loading either
+     * @param logbookId Long
+     * @return Long
+     */
+    @Query("select lgbk.user.id from Logbook lgbk where lgbk.id = :logbookId")
+    public Long findUserIdById(@Param("logbookId") Long logbookId);
+
+    /**
+     * Answer the username of the user owning the logbook with logbookId, or null if there is none. Both
+     * tables are read from covering indexes, so the lookup neither visits their rows nor loads any entity.
+     * @param logbookId Long
+     * @return String
+     */
+    @Query(value = "select usr.user_name from logbooks lgbk join users usr on usr.id = lgbk.user_id " +
+            "where lgbk.id = :logbookId", nativeQuery = true)
+    public String findOwnerUsernameById(@Param("logbookId") Long logbookId);
+
 }
@@ -1,15 +1,52 @@
 package com.mjdsoftware.logbook.domain.repositories;
 
 import com.mjdsoftware.logbook.domain.entities.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Users are always answered with their logbooks, which are fetched in the same statement
+ */
 public interface UserRepository extends JpaRepository<User, Long> {
 
     /**
-     * Answer a user by username
+     * Answer a user, with logbooks, by id
+     * @param id Long
+     * @return Optional
+     */
+    @Override
+    @EntityGraph(value = User.LOGBOOKS_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    public Optional<User> findById(Long id);
+
+    /**
+     * Answer a user, with logbooks, by username
      * @param username String
      * @return User
      */
+    @EntityGraph(value = User.LOGBOOKS_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
     public User findByUsername(String username);
 
+    /**
+     * Answer the username of the user with id, or null if there is none, without loading it
+     * @param id Long
+     * @return String
+     */
+    @Query("select usr.username from User usr where usr.id = :id")
+    public String findUsernameById(@Param("id") Long id);
+
+    /**
+     * Answer all users, with logbooks, in sort order
+     * @param sort Sort
+     * @return List
+     */
+    @Override
+    @EntityGraph(value = User.LOGBOOKS_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    public List<User> findAll(Sort sort);
+
 }
@@ -0,0 +1,20 @@
+package com.mjdsoftware.logbook.dto;
+
+public enum ActivityExportCompression {
+
+    /**
+     * Write plain text
+     */
+    NONE,
+
+    /**
+     * Write a gzip stream, readable by gunzip and most HTTP clients
+     */
+    GZIP,
+
+    /**
+     * Write a zlib wrapped deflate stream
+     */
+    DEFLATE
+
+}
@@ -0,0 +1,41 @@
+package com.mjdsoftware.logbook.dto;
+
+import lombok.Getter;
+
+public enum ActivityExportFormat {
+
+    /**
+     * Write comma separated values with a header row
+     */
+    CSV("text/csv", ".csv"),
+
+    /**
+     * Write one json object per line
+     */
+    NDJSON("application/x-ndjson", ".ndjson"),
+
+    /**
+     * Write compact binary row groups, one column at a time, with enum columns dictionary encoded and
+     * numeric columns as primitive doubles
+     */
+    COLUMNAR("application/octet-stream", ".lbxc");
+
+    @Getter
+    private final String mediaType;
+
+    @Getter
+    private final String fileExtension;
+
+    /**
+     * Answer a format served as aMediaType and named with aFileExtension
+     * @param aMediaType String
+     * @param aFileExtension String
+     */
+    ActivityExportFormat(String aMediaType, String aFileExtension) {
+
+        this.mediaType = aMediaType;
+        this.fileExtension = aFileExtension;
+
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.mjdsoftware.logbook.dto;
+
+public enum ActivityExportMode {
+
+    /**
+     * Read activities in keyset chunks, each in its own short transaction
+     */
+    CHUNKED,
+
+    /**
+     * Read all activities through one server side cursor in a single read only, repeatable read
+     * transaction, so the export is a consistent snapshot
+     */
+    CURSOR,
+
+    /**
+     * Split the date range into partitions that are read and rendered in parallel, then merged
+     * into one file in activity date order
+     */
+    PARALLEL
+
+}
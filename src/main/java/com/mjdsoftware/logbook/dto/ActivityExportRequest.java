@@ -3,12 +3,17 @@ package com.mjdsoftware.logbook.dto;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.zip.Deflater;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Data
@@ -24,6 +29,189 @@ public class ActivityExportRequest {
     @NotNull
     private String exportFilename;
 
+    private ActivityExportMode exportMode;
+
+    private ActivityExportCompression compression;
+
+    @Min(Deflater.DEFAULT_COMPRESSION)
+    @Max(Deflater.BEST_COMPRESSION)
+    private Integer compressionLevel;
+
+    private String checkpointToken;
+
+    private ActivityExportFormat format;
+
+    private ActivitySearchCriteria criteria;
+
+    /**
+     * Answer an instance for an uncompressed, chunked csv export
+     * @param aStartTimeEpoch long
+     * @param anEndTimeEpoch long
+     * @param anActivityType ActivityType
+     * @param anExportFilename String
+     */
+    public ActivityExportRequest(long aStartTimeEpoch,
+                                 long anEndTimeEpoch,
+                                 ActivityType anActivityType,
+                                 String anExportFilename) {
+
+        this(aStartTimeEpoch,
+             anEndTimeEpoch,
+             anActivityType,
+             anExportFilename,
+             ActivityExportMode.CHUNKED,
+             ActivityExportCompression.NONE,
+             null,
+             null,
+             ActivityExportFormat.CSV,
+             null);
+    }
+
+    /**
+     * Answer whether I should be exported through a single cursor
+     * @return boolean
+     */
+    @JsonIgnore
+    public boolean isCursorMode() {
+
+        return this.getExportMode() == ActivityExportMode.CURSOR;
+    }
+
+    /**
+     * Answer whether I should export only what changed since my checkpoint token. Delta exports are
+     * always read through a single cursor.
+     * @return boolean
+     */
+    @JsonIgnore
+    public boolean isDeltaExport() {
+
+        return this.getCheckpointToken() != null;
+    }
+
+    /**
+     * Answer whether I should be exported in parallel date partitions
+     * @return boolean
+     */
+    @JsonIgnore
+    public boolean isParallelMode() {
+
+        return this.getExportMode() == ActivityExportMode.PARALLEL;
+    }
+
+    /**
+     * Answer my format, or csv if none was given
+     * @return ActivityExportFormat
+     */
+    @JsonIgnore
+    public ActivityExportFormat getFormatOrDefault() {
+
+        return (this.getFormat() != null) ? this.getFormat() : ActivityExportFormat.CSV;
+    }
+
+    /**
+     * Answer my compression level, or the deflater default if none was given
+     * @return int
+     */
+    @JsonIgnore
+    public int getCompressionLevelOrDefault() {
+
+        return (this.getCompressionLevel() != null) ? this.getCompressionLevel() : Deflater.DEFAULT_COMPRESSION;
+    }
+
+    /**
+     * Answer my date range split into at most aMaxPartitions contiguous, non overlapping requests in
+     * date order, none of them spanning less than aMinimumPartitionMillis unless I do
+     * @param aMaxPartitions int
+     * @param aMinimumPartitionMillis long
+     * @return List
+     */
+    public List<ActivityExportRequest> asDatePartitions(int aMaxPartitions, long aMinimumPartitionMillis) {
+
+        List<ActivityExportRequest> tempResult = new ArrayList<>();
+        long                        tempSpan;
+        long                        tempPartitionCount;
+        long                        tempPartitionMillis;
+        long                        tempStart;
+        long                        tempEnd;
+
+        tempSpan = this.getEndTimeEpoch() - this.getStartTimeEpoch();
+        tempPartitionCount = Math.max(1L, Math.min(aMaxPartitions, tempSpan / Math.max(1L, aMinimumPartitionMillis)));
+        tempPartitionMillis = tempSpan / tempPartitionCount;
+
+        //Date ranges are inclusive at both ends, so each partition ends just before the next starts
+        tempStart = this.getStartTimeEpoch();
+        for (int i = 1; i <= tempPartitionCount; i++) {
+
+            tempEnd = (i == tempPartitionCount) ? this.getEndTimeEpoch() : tempStart + tempPartitionMillis - 1;
+            tempResult.add(this.copyForDateRange(tempStart, tempEnd));
+            tempStart = tempEnd + 1;
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer a copy of me limited to aStartTimeEpoch through anEndTimeEpoch
+     * @param aStartTimeEpoch long
+     * @param anEndTimeEpoch long
+     * @return ActivityExportRequest
+     */
+    private ActivityExportRequest copyForDateRange(long aStartTimeEpoch, long anEndTimeEpoch) {
+
+        return new ActivityExportRequest(aStartTimeEpoch,
+                                         anEndTimeEpoch,
+                                         this.getActivityType(),
+                                         this.getExportFilename(),
+                                         this.getExportMode(),
+                                         this.getCompression(),
+                                         this.getCompressionLevel(),
+                                         this.getCheckpointToken(),
+                                         this.getFormat(),
+                                         this.getCriteria());
+    }
+
+
+    /**
+     * Answer whether my activity type, if any, is one of those of my criteria, if they name any. A
+     * request outside its own criteria would export nothing.
+     * @return boolean
+     */
+    @JsonIgnore
+    public boolean isActivityTypeWithinCriteria() {
+
+        List<ActivityType> tempCriteriaTypes;
+
+        tempCriteriaTypes = (this.getCriteria() != null) ? this.getCriteria().getActivityTypes() : null;
+
+        return this.getActivityType() == null ||
+               tempCriteriaTypes == null ||
+               tempCriteriaTypes.isEmpty() ||
+               tempCriteriaTypes.contains(this.getActivityType());
+
+    }
+
+    /**
+     * Answer the activity types I export, none to export every type. My activity type and those of my
+     * criteria must all hold, so my activity type alone is exported when I have one.
+     * @return List
+     */
+    @JsonIgnore
+    public List<ActivityType> getExportedActivityTypes() {
+
+        List<ActivityType> tempResult = new ArrayList<>();
+
+        if (this.getActivityType() != null) {
+            tempResult.add(this.getActivityType());
+        }
+        else if (this.getCriteria() != null && this.getCriteria().getActivityTypes() != null) {
+            tempResult.addAll(this.getCriteria().getActivityTypes());
+        }
+
+        return tempResult;
+
+    }
 
     /**
      * Answer whether start and end dates are valid
@@ -0,0 +1,32 @@
+package com.mjdsoftware.logbook.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Narrows the activities an export reads beyond its date range. Every criterion is optional and all
+ * given criteria must hold. Distances and durations are compared in the units each activity was
+ * recorded in.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivitySearchCriteria {
+
+    private List<ActivityType> activityTypes;
+
+    private List<String> activityDiscriminators;
+
+    private Double minDistance;
+    private Double maxDistance;
+
+    private Double minDuration;
+    private Double maxDuration;
+
+}
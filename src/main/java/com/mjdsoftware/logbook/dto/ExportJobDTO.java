@@ -0,0 +1,33 @@
+package com.mjdsoftware.logbook.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.mjdsoftware.logbook.export.ExportJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExportJobDTO {
+
+    private String id;
+    private Long logbookId;
+    private String exportFilename;
+    private ExportJobStatus status;
+    private long rowsWritten;
+    private long estimatedTotalRows;
+    private double rowsPerSecond;
+    private Long estimatedSecondsRemaining;
+    private long bytesWritten;
+    private long uncompressedBytesWritten;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String failureMessage;
+    private String nextCheckpointToken;
+
+}
@@ -0,0 +1,30 @@
+package com.mjdsoftware.logbook.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The last good state of a chunked export, saved when it is queued and after each chunk is flushed. An
+ * interrupted export truncates its file back to byteOffset and carries on after (lastActivityDateMillis,
+ * lastId), or from the start if lastId is null. A failed export is only resumed on request, never on
+ * startup.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExportResumePointDTO {
+
+    private String exportJobId;
+    private Long logbookId;
+    private String exportFilePath;
+    private ActivityExportRequest exportRequest;
+    private long lastActivityDateMillis;
+    private Long lastId;
+    private long byteOffset;
+    private long rowsWritten;
+    private boolean failed;
+
+}
@@ -20,6 +20,9 @@ public enum ErrorCode {
     //Application specific exceptions
     LOGBOOK_NOT_FOUND,
     USER_ALREADY_EXISTS,
-    USER_NOT_FOUND
+    USER_NOT_FOUND,
+    EXPORT_JOB_NOT_FOUND,
+    EXPORT_CAPACITY_EXCEEDED,
+    EXPORT_QUOTA_EXCEEDED
 
 }
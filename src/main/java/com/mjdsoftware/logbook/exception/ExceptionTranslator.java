@@ -192,6 +192,86 @@ public class ExceptionTranslator extends ResponseEntityExceptionHandler {
     }
 
 
+    /**
+     * Handle user exceptions
+     * @param anException Exception
+     * @param aRequest WebRequest
+     * @return RequestEntity
+     */
+    @ExceptionHandler(value = {ExportJobNotFoundException.class})
+    public ResponseEntity<Object> handleExportJobNotFoundException(ExportJobNotFoundException anException,
+                                                                   WebRequest aRequest) {
+
+        Object[] tempArgs = {anException.getExportJobId()};
+        String tempMsg =
+                this.getLocalizedMessageForExceptions(ERROR_CODE_PREFIX + ErrorCode.EXPORT_JOB_NOT_FOUND.name(),
+                                                      tempArgs);
+        getLogger().error("Export job not found exception: " + tempMsg,
+                          anException);
+
+
+        return this.handleError(anException,
+                                aRequest,
+                                HttpStatus.NOT_FOUND,
+                                tempMsg);
+
+    }
+
+
+    /**
+     * Handle exports rejected because the export executor is full. Answer too many requests,
+     * telling the client when to retry.
+     * @param anException Exception
+     * @param aRequest WebRequest
+     * @return RequestEntity
+     */
+    @ExceptionHandler(value = {ExportCapacityExceededException.class})
+    public ResponseEntity<Object> handleExportCapacityExceededException(ExportCapacityExceededException anException,
+                                                                        WebRequest aRequest) {
+
+        Object[]    tempArgs = {anException.getRetryAfterSeconds()};
+        HttpHeaders tempHeaders = new HttpHeaders();
+        String      tempMsg =
+                this.getLocalizedMessageForExceptions(ERROR_CODE_PREFIX + ErrorCode.EXPORT_CAPACITY_EXCEEDED.name(),
+                                                      tempArgs);
+        getLogger().warn("Export capacity exceeded: " + tempMsg);
+
+        tempHeaders.set(HttpHeaders.RETRY_AFTER, String.valueOf(anException.getRetryAfterSeconds()));
+
+        return this.handleError(anException,
+                                aRequest,
+                                HttpStatus.TOO_MANY_REQUESTS,
+                                tempMsg,
+                                tempHeaders);
+
+    }
+
+
+    /**
+     * Handle exports rejected because they would not fit in the export space left to their user.
+     * Answer insufficient storage.
+     * @param anException Exception
+     * @param aRequest WebRequest
+     * @return RequestEntity
+     */
+    @ExceptionHandler(value = {ExportQuotaExceededException.class})
+    public ResponseEntity<Object> handleExportQuotaExceededException(ExportQuotaExceededException anException,
+                                                                     WebRequest aRequest) {
+
+        Object[]    tempArgs = {anException.getProjectedBytes(), anException.getAvailableBytes()};
+        String      tempMsg =
+                this.getLocalizedMessageForExceptions(ERROR_CODE_PREFIX + ErrorCode.EXPORT_QUOTA_EXCEEDED.name(),
+                                                      tempArgs);
+        getLogger().warn("Export quota exceeded: " + tempMsg);
+
+        return this.handleError(anException,
+                                aRequest,
+                                HttpStatus.INSUFFICIENT_STORAGE,
+                                tempMsg);
+
+    }
+
+
     /**
      * Handle user exceptions
      * @param anException Exception
@@ -261,9 +341,30 @@ public class ExceptionTranslator extends ResponseEntityExceptionHandler {
                                                HttpStatusCode aStatus,
                                                String aMessage) {
 
+        return this.handleError(anException,
+                                aRequest,
+                                aStatus,
+                                aMessage,
+                                new HttpHeaders());
+    }
+
+    /**
+     * Handle error, answering aHeaders with the response
+     * @param anException Exception
+     * @param aRequest WebRequest
+     * @param aStatus HttpStatus
+     * @param aMessage String
+     * @param aHeaders HttpHeaders
+     */
+    private ResponseEntity<Object> handleError(Exception anException,
+                                               WebRequest aRequest,
+                                               HttpStatusCode aStatus,
+                                               String aMessage,
+                                               HttpHeaders aHeaders) {
+
         return this.handleExceptionInternal(anException,
                                             new ErrorMessage(aStatus, aMessage),
-                                            new HttpHeaders(),
+                                            aHeaders,
                                             aStatus,
                                             aRequest);
     }
@@ -0,0 +1,25 @@
+package com.mjdsoftware.logbook.exception;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+public class ExportCapacityExceededException extends RuntimeException {
+
+    @Getter(AccessLevel.PUBLIC) @Setter(AccessLevel.PRIVATE)
+    private int retryAfterSeconds;
+
+    /**
+     * Answer an exception when the export executor cannot admit another export. Clients
+     * should retry after aRetryAfterSeconds.
+     * @param aRetryAfterSeconds int
+     * @param aCause Throwable the rejection
+     */
+    public ExportCapacityExceededException(int aRetryAfterSeconds, Throwable aCause) {
+
+        super(aCause);
+        this.setRetryAfterSeconds(aRetryAfterSeconds);
+
+    }
+
+}
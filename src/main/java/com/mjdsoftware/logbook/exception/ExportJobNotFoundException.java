@@ -0,0 +1,23 @@
+package com.mjdsoftware.logbook.exception;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+public class ExportJobNotFoundException extends RuntimeException {
+
+    @Getter(AccessLevel.PUBLIC) @Setter(AccessLevel.PRIVATE)
+    private String exportJobId;
+
+    /**
+     * Answer an exception when not finding an export job for anExportJobId
+     * @param anExportJobId String
+     */
+    public ExportJobNotFoundException(String anExportJobId) {
+
+        super();
+        this.setExportJobId(anExportJobId);
+
+    }
+
+}
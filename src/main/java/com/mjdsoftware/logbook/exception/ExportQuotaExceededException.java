@@ -0,0 +1,30 @@
+package com.mjdsoftware.logbook.exception;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+public class ExportQuotaExceededException extends RuntimeException {
+
+    @Getter(AccessLevel.PUBLIC) @Setter(AccessLevel.PRIVATE)
+    private long projectedBytes;
+
+    @Getter(AccessLevel.PUBLIC) @Setter(AccessLevel.PRIVATE)
+    private long availableBytes;
+
+    /**
+     * Answer an exception when an export projected to need aProjectedBytes does not fit in the
+     * anAvailableBytes of export space left to it
+     * @param aProjectedBytes long
+     * @param anAvailableBytes long
+     */
+    public ExportQuotaExceededException(long aProjectedBytes, long anAvailableBytes) {
+
+        super("Export projected at " + aProjectedBytes + " bytes exceeds the " + anAvailableBytes +
+                " bytes of export space available");
+        this.setProjectedBytes(aProjectedBytes);
+        this.setAvailableBytes(anAvailableBytes);
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.mjdsoftware.logbook.export;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * A completed export file held by the export result cache, along with what its job reported, so a
+ * repeat of the same request can be answered without running it again.
+ */
+@ToString
+public class CachedExport {
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String fingerprint;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Path cachedFile;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private long sizeInBytes;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private long rowsWritten;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private long uncompressedBytesWritten;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String nextCheckpointToken;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Instant cachedAt;
+
+    /**
+     * Answer an instance for aCachedFile, the result of anExportJob, cached under aFingerprint
+     * @param aFingerprint String
+     * @param aCachedFile Path
+     * @param anExportJob ExportJob
+     */
+    public CachedExport(String aFingerprint,
+                        Path aCachedFile,
+                        ExportJob anExportJob) {
+
+        super();
+        this.setFingerprint(aFingerprint);
+        this.setCachedFile(aCachedFile);
+        this.setSizeInBytes(anExportJob.getBytesWritten());
+        this.setRowsWritten(anExportJob.getRowsWritten());
+        this.setUncompressedBytesWritten(anExportJob.getUncompressedBytesWritten());
+        this.setNextCheckpointToken(anExportJob.getNextCheckpointToken());
+        this.setCachedAt(Instant.now());
+
+    }
+
+    /**
+     * Record my result on anExportJob, as if it had written me
+     * @param anExportJob ExportJob
+     */
+    public void recordResultOn(ExportJob anExportJob) {
+
+        anExportJob.setEstimatedTotalRows(this.getRowsWritten());
+        anExportJob.addRowsWritten(this.getRowsWritten());
+        anExportJob.recordBytesWritten(this.getSizeInBytes(), this.getUncompressedBytesWritten());
+        anExportJob.setNextCheckpointToken(this.getNextCheckpointToken());
+
+    }
+
+    /**
+     * Answer whether I was cached before aCutoff
+     * @param aCutoff Instant
+     * @return boolean
+     */
+    public boolean isCachedBefore(Instant aCutoff) {
+
+        return this.getCachedAt().isBefore(aCutoff);
+    }
+
+}
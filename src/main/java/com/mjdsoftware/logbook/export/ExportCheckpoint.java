@@ -0,0 +1,85 @@
+package com.mjdsoftware.logbook.export;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * A point in database time from which a later export answers only the activities created, changed or
+ * deleted since. Clients hold it as an opaque token handed back by each export.
+ */
+@ToString
+public class ExportCheckpoint {
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private long epochMillis;
+
+    //Constants
+    private static final String TOKEN_VERSION_PREFIX = "v1:";
+
+    /**
+     * Answer an instance at anEpochMillis, database time
+     * @param anEpochMillis long
+     */
+    public ExportCheckpoint(long anEpochMillis) {
+
+        super();
+        this.setEpochMillis(anEpochMillis);
+
+    }
+
+    /**
+     * Answer the checkpoint held by aToken. Throws IllegalArgumentException if aToken was not
+     * answered by asToken.
+     * @param aToken String
+     * @return ExportCheckpoint
+     */
+    public static ExportCheckpoint fromToken(String aToken) {
+
+        String tempDecoded;
+
+        try {
+
+            tempDecoded = new String(Base64.getUrlDecoder().decode(aToken), StandardCharsets.UTF_8);
+            if (!tempDecoded.startsWith(TOKEN_VERSION_PREFIX)) {
+                throw new IllegalArgumentException("Unrecognized export checkpoint " + aToken);
+            }
+
+            return new ExportCheckpoint(Long.parseLong(tempDecoded.substring(TOKEN_VERSION_PREFIX.length())));
+
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unrecognized export checkpoint " + aToken, e);
+        }
+
+    }
+
+    /**
+     * Answer me as an opaque token
+     * @return String
+     */
+    public String asToken() {
+
+        return Base64.getUrlEncoder()
+                     .withoutPadding()
+                     .encodeToString((TOKEN_VERSION_PREFIX + this.getEpochMillis()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Answer the epoch millis from which changes should be read, reaching aLookbackMillis before me.
+     * Rows are stamped with the start time of the transaction that wrote them, so a transaction still
+     * open when I was taken can commit rows stamped before me; looking back re-exports rather than
+     * loses them.
+     * @param aLookbackMillis long
+     * @return long
+     */
+    public long getChangedSinceMillis(long aLookbackMillis) {
+
+        return this.getEpochMillis() - aLookbackMillis;
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.mjdsoftware.logbook.export;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * The part of a finished export file a download request asks for. A single byte range is honoured when
+ * it still applies to the file, identified by a strong ETag derived from the export job; otherwise the
+ * whole file is sent. Requests for several ranges are answered with the whole file, as RFC 9110 allows.
+ *
+ * The file is handed to the servlet container to send with sendfile where it supports it, so it moves
+ * from disk to the socket without passing through the heap; elsewhere it is transferred channel to
+ * channel.
+ */
+@ToString
+public class ExportDownload {
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private File file;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String eTag;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private long fileLength;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private long start;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private long end;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private boolean partial;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private boolean notModified;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private boolean rangeNotSatisfiable;
+
+    //Constants - request attributes through which tomcat sends a file with sendfile once the servlet returns
+    private static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+    private static final String ANY_ETAG = "*";
+
+    /**
+     * Answer an instance on the whole of aFile
+     * @param aFile File
+     * @param anETag String
+     */
+    private ExportDownload(File aFile, String anETag) {
+
+        super();
+        this.setFile(aFile);
+        this.setETag(anETag);
+        this.setFileLength(aFile.length());
+        this.setStart(0);
+        this.setEnd(this.getFileLength() - 1);
+
+    }
+
+    /**
+     * Answer the download of the file of anExportJob asked for by aRequestHeaders
+     * @param anExportJob ExportJob
+     * @param aRequestHeaders HttpHeaders
+     * @return ExportDownload
+     * @throws IllegalStateException if anExportJob is not done or its file is gone
+     */
+    public static ExportDownload of(ExportJob anExportJob, HttpHeaders aRequestHeaders) {
+
+        ExportDownload  tempResult;
+        File            tempFile;
+
+        if (anExportJob.getStatus() != ExportJobStatus.DONE) {
+            throw new IllegalStateException("Export job " + anExportJob.getId() + " is " + anExportJob.getStatus());
+        }
+
+        tempFile = new File(anExportJob.getExportFilename());
+        if (!tempFile.isFile()) {
+            throw new IllegalStateException("Export file for export job " + anExportJob.getId() + " no longer exists");
+        }
+
+        tempResult = new ExportDownload(tempFile, eTagOf(anExportJob));
+        if (tempResult.isMatchedBy(aRequestHeaders.getIfNoneMatch())) {
+            tempResult.setNotModified(true);
+        }
+        else if (tempResult.isRangeApplicable(aRequestHeaders)) {
+            tempResult.applyRange(aRequestHeaders.getFirst(HttpHeaders.RANGE));
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the strong ETag of the file of anExportJob. A job writes its file once, so its id and
+     * finish time, with the size written, identify the content.
+     * @param anExportJob ExportJob
+     * @return String
+     */
+    private static String eTagOf(ExportJob anExportJob) {
+
+        return "\"" + anExportJob.getId() +
+                "-" + anExportJob.getFinishedAt().toEpochMilli() +
+                "-" + anExportJob.getBytesWritten() + "\"";
+    }
+
+    /**
+     * Answer whether anETags, from If-None-Match, include mine
+     * @param anETags List
+     * @return boolean
+     */
+    private boolean isMatchedBy(List<String> anETags) {
+
+        return anETags.contains(ANY_ETAG) || anETags.contains(this.getETag());
+    }
+
+    /**
+     * Answer whether aRequestHeaders ask for a range that still applies: there is a Range header and
+     * no If-Range, or an If-Range holding my ETag
+     * @param aRequestHeaders HttpHeaders
+     * @return boolean
+     */
+    private boolean isRangeApplicable(HttpHeaders aRequestHeaders) {
+
+        String tempIfRange;
+
+        tempIfRange = aRequestHeaders.getFirst(HttpHeaders.IF_RANGE);
+
+        return aRequestHeaders.containsKey(HttpHeaders.RANGE) &&
+                    (tempIfRange == null || tempIfRange.equals(this.getETag()));
+    }
+
+    /**
+     * Limit me to aRangeHeader if it holds a single byte range. Ranges that cannot be parsed are ignored.
+     * @param aRangeHeader String
+     */
+    private void applyRange(String aRangeHeader) {
+
+        List<HttpRange> tempRanges = List.of();
+
+        try {
+            tempRanges = HttpRange.parseRanges(aRangeHeader);
+        }
+        catch (IllegalArgumentException e) {
+            //Serve the whole file
+        }
+
+        if (tempRanges.size() == 1) {
+
+            try {
+
+                this.setStart(tempRanges.get(0).getRangeStart(this.getFileLength()));
+                this.setEnd(tempRanges.get(0).getRangeEnd(this.getFileLength()));
+                this.setPartial(true);
+
+            }
+            catch (IllegalArgumentException e) {
+                this.setRangeNotSatisfiable(true);
+            }
+
+        }
+
+    }
+
+    /**
+     * Answer the number of bytes I send
+     * @return long
+     */
+    public long getContentLength() {
+
+        return this.getEnd() - this.getStart() + 1;
+    }
+
+    /**
+     * Answer my Content-Range header value
+     * @return String
+     */
+    public String getContentRange() {
+
+        return this.isRangeNotSatisfiable()
+                ? "bytes */" + this.getFileLength()
+                : "bytes " + this.getStart() + "-" + this.getEnd() + "/" + this.getFileLength();
+    }
+
+    /**
+     * Answer my media type, guessed from my file name
+     * @return MediaType
+     */
+    public MediaType getMediaType() {
+
+        return MediaTypeFactory.getMediaType(this.getFile().getName())
+                               .orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    /**
+     * Hand me to the servlet container serving aRequest to send with sendfile, if it can. Answer
+     * whether it will, in which case no body should be written.
+     * @param aRequest HttpServletRequest
+     * @return boolean
+     */
+    public boolean sendWithSendfile(HttpServletRequest aRequest) {
+
+        boolean tempResult;
+
+        tempResult = Boolean.TRUE.equals(aRequest.getAttribute(SENDFILE_SUPPORTED_ATTRIBUTE)) &&
+                        this.getContentLength() > 0;
+        if (tempResult) {
+
+            aRequest.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, this.getFile().getAbsolutePath());
+            aRequest.setAttribute(SENDFILE_START_ATTRIBUTE, Long.valueOf(this.getStart()));
+
+            //The end is exclusive
+            aRequest.setAttribute(SENDFILE_END_ATTRIBUTE, Long.valueOf(this.getEnd() + 1));
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Transfer my bytes to anOutputStream, channel to channel
+     * @param anOutputStream OutputStream
+     * @throws IOException
+     */
+    public void transferTo(OutputStream anOutputStream) throws IOException {
+
+        long                tempPosition;
+        long                tempEnd;
+        long                tempTransferred;
+        WritableByteChannel tempOut;
+
+        tempPosition = this.getStart();
+        tempEnd = this.getEnd() + 1;
+        tempOut = Channels.newChannel(anOutputStream);
+        try (FileChannel tempIn = FileChannel.open(this.getFile().toPath(), StandardOpenOption.READ)) {
+
+            while (tempPosition < tempEnd) {
+
+                tempTransferred = tempIn.transferTo(tempPosition, tempEnd - tempPosition, tempOut);
+                if (tempTransferred == 0 && tempPosition >= tempIn.size()) {
+                    throw new EOFException("Export file " + this.getFile() + " was truncated while being sent");
+                }
+                tempPosition += tempTransferred;
+
+            }
+
+        }
+        anOutputStream.flush();
+
+    }
+
+}
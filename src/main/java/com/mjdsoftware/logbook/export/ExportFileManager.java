@@ -0,0 +1,426 @@
+package com.mjdsoftware.logbook.export;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.exception.ExportQuotaExceededException;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps export files within the export directory and the export directory within its disk budget.
+ * Export files are indexed with the user they were written for, so that an export can be rejected
+ * before it starts when its size, projected from the number of rows it will write, would take its user
+ * or the directory as a whole over quota, or would not fit on the disk. A janitor deletes export files
+ * that have not been written to for longer than their time to live.
+ *
+ * Each user's export files are kept in a directory of their own, so one user cannot overwrite another's.
+ * The index is held in memory. Space reserved for an export is held until its export has finished and
+ * its file is recorded, however long it is queued, and the janitor never deletes a file being written.
+ * Files found in the directory on startup belong to the user whose directory they are in, and so count
+ * against that user's quota as well as the global one. Space reserved but not yet written is taken off
+ * the free disk space, so exports admitted together cannot between them promise more than is free.
+ * The resume point and result cache directories, which may sit inside the export directory, are left
+ * alone.
+ */
+@Component
+@Slf4j
+public class ExportFileManager {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Path directory;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private List<Path> excludedDirectories;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private long maxBytes;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private long maxBytesPerUser;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Duration timeToLive;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private long estimatedBytesPerRow;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Map<Path, ExportFile> files;
+
+    //Constants
+    public static final int DEFAULT_EXPORT_QUOTA_MEGABYTES = 10240;
+    public static final int DEFAULT_EXPORT_USER_QUOTA_MEGABYTES = 2048;
+    public static final int DEFAULT_EXPORT_FILE_TTL_MINUTES = 1440;
+    public static final int DEFAULT_EXPORT_ESTIMATED_BYTES_PER_ROW = 160;
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+    private static final String USER_DIRECTORY_PREFIX = "user-";
+    private static final String UNOWNED_DIRECTORY = "unowned";
+
+    /**
+     * Answer my logger
+     *
+     * @return org.slf4j.Logger
+     */
+    private static Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Answer an instance configured by aProperties
+     * @param aProperties LogbookApplicationProperties
+     */
+    @Autowired
+    public ExportFileManager(LogbookApplicationProperties aProperties) {
+
+        super();
+        this.setDirectory(Paths.get(aProperties.getExportDirectory()).toAbsolutePath().normalize());
+        this.setExcludedDirectories(
+                Stream.of(aProperties.getExportResumeDirectory(), aProperties.getExportCacheDirectory())
+                      .filter(Objects::nonNull)
+                      .map(d -> Paths.get(d).toAbsolutePath().normalize())
+                      .collect(Collectors.toList()));
+        this.setMaxBytes(this.valueOrDefault(aProperties.getExportQuotaMegabytes(),
+                                             DEFAULT_EXPORT_QUOTA_MEGABYTES) * BYTES_PER_MEGABYTE);
+        this.setMaxBytesPerUser(this.valueOrDefault(aProperties.getExportUserQuotaMegabytes(),
+                                                    DEFAULT_EXPORT_USER_QUOTA_MEGABYTES) * BYTES_PER_MEGABYTE);
+        this.setTimeToLive(Duration.ofMinutes(this.valueOrDefault(aProperties.getExportFileTtlMinutes(),
+                                                                  DEFAULT_EXPORT_FILE_TTL_MINUTES)));
+        this.setEstimatedBytesPerRow(this.valueOrDefault(aProperties.getExportEstimatedBytesPerRow(),
+                                                         DEFAULT_EXPORT_ESTIMATED_BYTES_PER_ROW));
+        this.setFiles(new HashMap<>());
+
+    }
+
+    /**
+     * Create my directory if need be and index the export files already in it
+     * @throws IOException
+     */
+    @PostConstruct
+    public synchronized void indexExistingFiles() throws IOException {
+
+        Files.createDirectories(this.getDirectory());
+        this.removeExpiredFiles();
+
+    }
+
+    /**
+     * Answer the export file aFilename names for aUserId, creating the directory of aUserId if need be.
+     * A relative name is taken within that directory; an absolute one must already be there. Throws
+     * IllegalArgumentException for any other name.
+     * @param aUserId Long null if the export belongs to no user
+     * @param aFilename String
+     * @return Path
+     */
+    public Path resolve(Long aUserId, String aFilename) {
+
+        Path tempDirectory;
+        Path tempResult;
+
+        tempDirectory = this.getDirectoryFor(aUserId);
+        tempResult = tempDirectory.resolve(aFilename).normalize();
+        if (!tempResult.startsWith(tempDirectory) ||
+                tempResult.equals(tempDirectory) ||
+                    this.isExcluded(tempResult)) {
+
+            throw new IllegalArgumentException("Export files must be within " + tempDirectory);
+        }
+
+        try {
+            Files.createDirectories(tempResult.getParent());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot create export directory " + tempResult.getParent(), e);
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the directory the export files of aUserId are kept in
+     * @param aUserId Long null if the export belongs to no user
+     * @return Path
+     */
+    private Path getDirectoryFor(Long aUserId) {
+
+        return this.getDirectory()
+                   .resolve((aUserId != null) ? USER_DIRECTORY_PREFIX + aUserId : UNOWNED_DIRECTORY);
+    }
+
+    /**
+     * Reserve room in my directory for aFile, an export for aUserId of about anEstimatedRows rows, until
+     * it is recorded as written. Anything already indexed at aFile is about to be overwritten, so does
+     * not count against the reservation, but stays indexed if the reservation is refused.
+     * @param aUserId Long null if the export belongs to no user
+     * @param aFile Path
+     * @param anEstimatedRows long
+     * @throws ExportQuotaExceededException if the projected size does not fit
+     */
+    public synchronized void reserve(Long aUserId, Path aFile, long anEstimatedRows) {
+
+        long tempProjectedBytes;
+        long tempAvailableBytes;
+
+        tempProjectedBytes = anEstimatedRows * this.getEstimatedBytesPerRow();
+        tempAvailableBytes = Math.min(this.getMaxBytes() - this.getTotalBytes(null, aFile),
+                                      this.getUsableSpace() - this.getReservedBytes(aFile));
+        if (aUserId != null) {
+            tempAvailableBytes = Math.min(tempAvailableBytes,
+                                          this.getMaxBytesPerUser() - this.getTotalBytes(aUserId, aFile));
+        }
+
+        if (tempProjectedBytes > tempAvailableBytes) {
+            throw new ExportQuotaExceededException(tempProjectedBytes, Math.max(0L, tempAvailableBytes));
+        }
+
+        this.getFiles().put(aFile, new ExportFile(aUserId, tempProjectedBytes, true));
+
+    }
+
+    /**
+     * Record the size of aFile, written for aUserId, now that nothing is writing it, replacing whatever
+     * was reserved for it
+     * @param aUserId Long
+     * @param aFile Path
+     */
+    public synchronized void recordWritten(Long aUserId, Path aFile) {
+
+        try {
+
+            if (Files.isRegularFile(aFile)) {
+                this.getFiles().put(aFile, new ExportFile(aUserId, Files.size(aFile), false));
+            }
+            else {
+                this.getFiles().remove(aFile);
+            }
+
+        }
+        catch (IOException e) {
+            getLogger().warn("Cannot read size of export file " + aFile, e);
+        }
+
+    }
+
+    /**
+     * Delete export files not written to for longer than their time to live, index any not yet
+     * indexed, and forget recorded ones that are gone. Reservations are kept until they are recorded,
+     * since their exports may not have created their files yet.
+     */
+    @Scheduled(fixedDelayString = "${app.exportJanitorIntervalSeconds}",
+               initialDelayString = "${app.exportJanitorIntervalSeconds}",
+               timeUnit = TimeUnit.SECONDS)
+    public synchronized void removeExpiredFiles() {
+
+        FileTime    tempCutoff;
+        List<Path>  tempFound;
+
+        tempCutoff = FileTime.from(Instant.now().minus(this.getTimeToLive()));
+        try (Stream<Path> tempPaths = Files.walk(this.getDirectory())) {
+
+            tempFound = tempPaths.filter(p -> Files.isRegularFile(p) && !this.isExcluded(p))
+                                 .collect(Collectors.toList());
+        }
+        catch (IOException e) {
+
+            getLogger().warn("Cannot list export directory " + this.getDirectory(), e);
+            tempFound = List.of();
+
+        }
+
+        this.getFiles().entrySet().removeIf(e -> !e.getValue().isReservation() && !Files.exists(e.getKey()));
+        for (Path p : tempFound) {
+            this.removeOrIndex(p, tempCutoff);
+        }
+
+    }
+
+    /**
+     * Delete aFile if it was last written before aCutoff and is not reserved for an export, otherwise
+     * index it if it is not already. A resumed export may reserve a file last written long ago.
+     * @param aFile Path
+     * @param aCutoff FileTime
+     */
+    private void removeOrIndex(Path aFile, FileTime aCutoff) {
+
+        ExportFile  tempIndexed;
+        boolean     tempReserved;
+
+        tempIndexed = this.getFiles().get(aFile);
+        tempReserved = tempIndexed != null && tempIndexed.isReservation();
+        try {
+
+            if (!tempReserved && Files.getLastModifiedTime(aFile).compareTo(aCutoff) < 0) {
+
+                Files.deleteIfExists(aFile);
+                this.getFiles().remove(aFile);
+                getLogger().info("Deleted expired export file {}", aFile);
+
+            }
+            else if (tempIndexed == null) {
+                this.getFiles().put(aFile, new ExportFile(this.getUserIdOf(aFile), Files.size(aFile), false));
+            }
+
+        }
+        catch (IOException e) {
+            getLogger().warn("Cannot expire export file " + aFile, e);
+        }
+
+    }
+
+    /**
+     * Answer the user whose directory aFile is in, or null if it is in no user's directory
+     * @param aFile Path
+     * @return Long
+     */
+    private Long getUserIdOf(Path aFile) {
+
+        Path    tempRelative;
+        String  tempDirectoryName;
+        Long    tempResult = null;
+
+        tempRelative = this.getDirectory().relativize(aFile);
+        tempDirectoryName = tempRelative.getName(0).toString();
+        if (tempRelative.getNameCount() > 1 && tempDirectoryName.startsWith(USER_DIRECTORY_PREFIX)) {
+
+            try {
+                tempResult = Long.valueOf(tempDirectoryName.substring(USER_DIRECTORY_PREFIX.length()));
+            }
+            catch (NumberFormatException e) {
+                getLogger().warn("Export file {} is in no user's directory", aFile);
+            }
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer whether aPath is within a directory I leave alone
+     * @param aPath Path
+     * @return boolean
+     */
+    private boolean isExcluded(Path aPath) {
+
+        return this.getExcludedDirectories().stream().anyMatch(aPath::startsWith);
+    }
+
+    /**
+     * Answer the bytes indexed for aUserId, or for everyone if aUserId is null, other than those of
+     * anExcludedFile
+     * @param aUserId Long
+     * @param anExcludedFile Path
+     * @return long
+     */
+    private long getTotalBytes(Long aUserId, Path anExcludedFile) {
+
+        return this.getFiles().entrySet()
+                              .stream()
+                              .filter(e -> !e.getKey().equals(anExcludedFile))
+                              .map(Map.Entry::getValue)
+                              .filter(f -> aUserId == null || aUserId.equals(f.getUserId()))
+                              .mapToLong(ExportFile::getSizeInBytes)
+                              .sum();
+    }
+
+    /**
+     * Answer the bytes reserved for exports not yet recorded as written, other than those of
+     * anExcludedFile
+     * @param anExcludedFile Path
+     * @return long
+     */
+    private long getReservedBytes(Path anExcludedFile) {
+
+        return this.getFiles().entrySet()
+                              .stream()
+                              .filter(e -> e.getValue().isReservation() && !e.getKey().equals(anExcludedFile))
+                              .mapToLong(e -> e.getValue().getSizeInBytes())
+                              .sum();
+    }
+
+    /**
+     * Answer the bytes still free on the disk holding my directory
+     * @return long
+     */
+    private long getUsableSpace() {
+
+        long tempResult = Long.MAX_VALUE;
+
+        try {
+            tempResult = Files.getFileStore(this.getDirectory()).getUsableSpace();
+        }
+        catch (IOException e) {
+            getLogger().warn("Cannot read free space of export directory " + this.getDirectory(), e);
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer aValue, or aDefault if it is not set
+     * @param aValue Integer
+     * @param aDefault int
+     * @return long
+     */
+    private long valueOrDefault(Integer aValue, int aDefault) {
+
+        return (aValue != null) ? aValue : aDefault;
+    }
+
+    /**
+     * The user an indexed export file was written for and its size, or the size reserved for it until
+     * its export has finished writing it
+     */
+    @ToString
+    private static class ExportFile {
+
+        @Getter @Setter(AccessLevel.PRIVATE)
+        private Long userId;
+
+        @Getter @Setter(AccessLevel.PRIVATE)
+        private long sizeInBytes;
+
+        @Getter @Setter(AccessLevel.PRIVATE)
+        private boolean reservation;
+
+        /**
+         * Answer an instance of aSizeInBytes for aUserId, reserved rather than written if aReservation
+         * @param aUserId Long
+         * @param aSizeInBytes long
+         * @param aReservation boolean
+         */
+        public ExportFile(Long aUserId, long aSizeInBytes, boolean aReservation) {
+
+            this.setUserId(aUserId);
+            this.setSizeInBytes(aSizeInBytes);
+            this.setReservation(aReservation);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,333 @@
+package com.mjdsoftware.logbook.export;
+
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.dto.ExportJobDTO;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tracks a single asynchronous export from the time it is requested until it is done, has failed,
+ * or has been cancelled. Progress counters are updated by the exporting thread and read by
+ * pollers, so state changes are synchronized and counters are atomic.
+ */
+@ToString
+public class ExportJob {
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String id;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Long logbookId;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private String exportFilename;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private volatile ExportJobStatus status;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private AtomicLong rowsWrittenCounter;
+
+    @Getter @Setter
+    private volatile long estimatedTotalRows;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private volatile long bytesWritten;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private volatile long uncompressedBytesWritten;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private Instant createdAt;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private volatile Instant startedAt;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private volatile Instant finishedAt;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private volatile String failureMessage;
+
+    @Getter @Setter(AccessLevel.PRIVATE)
+    private volatile boolean cancelRequested;
+
+    @Getter @Setter
+    private volatile String nextCheckpointToken;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private CompletableFuture<ExportJob> completion;
+
+
+    /**
+     * Answer a queued job for exporting activities of aLogbookId described by aRequest
+     * @param aLogbookId Long
+     * @param aRequest ActivityExportRequest
+     */
+    public ExportJob(Long aLogbookId, ActivityExportRequest aRequest) {
+
+        this(UUID.randomUUID().toString(), aLogbookId, aRequest);
+    }
+
+    /**
+     * Answer a queued job identified by anId, such as an interrupted job being resumed, for exporting
+     * activities of aLogbookId described by aRequest
+     * @param anId String
+     * @param aLogbookId Long
+     * @param aRequest ActivityExportRequest
+     */
+    public ExportJob(String anId, Long aLogbookId, ActivityExportRequest aRequest) {
+
+        super();
+        this.setId(anId);
+        this.setLogbookId(aLogbookId);
+        this.setExportFilename(aRequest.getExportFilename());
+        this.setStatus(ExportJobStatus.QUEUED);
+        this.setRowsWrittenCounter(new AtomicLong());
+        this.setCreatedAt(Instant.now());
+        this.setCompletion(new CompletableFuture<>());
+
+    }
+
+    /**
+     * Move to running. Answer false if I was cancelled while queued, in which case no work should be done.
+     * @return boolean
+     */
+    public synchronized boolean markRunning() {
+
+        boolean tempResult = false;
+
+        if (this.getStatus() == ExportJobStatus.QUEUED) {
+
+            this.setStartedAt(Instant.now());
+            this.setStatus(ExportJobStatus.RUNNING);
+            tempResult = true;
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Move to done, or to cancelled if a cancel was requested while I was running
+     */
+    public synchronized void markFinished() {
+
+        if (!this.isFinished()) {
+
+            this.setStatus(this.isCancelRequested() ? ExportJobStatus.CANCELLED : ExportJobStatus.DONE);
+            this.setFinishedAt(Instant.now());
+            this.getCompletion().complete(this);
+
+        }
+
+    }
+
+    /**
+     * Move to failed because of aThrowable
+     * @param aThrowable Throwable
+     */
+    public synchronized void markFailed(Throwable aThrowable) {
+
+        if (!this.isFinished()) {
+
+            this.setFailureMessage(aThrowable.getMessage());
+            this.setStatus(ExportJobStatus.FAILED);
+            this.setFinishedAt(Instant.now());
+            this.getCompletion().complete(this);
+
+        }
+
+    }
+
+    /**
+     * Request cancellation. A queued job is cancelled immediately; a running job stops after the
+     * chunk it is currently writing. Answer false if I had already finished.
+     * @return boolean
+     */
+    public synchronized boolean requestCancel() {
+
+        boolean tempResult = false;
+
+        if (!this.isFinished()) {
+
+            this.setCancelRequested(true);
+            if (this.getStatus() == ExportJobStatus.QUEUED) {
+                this.markFinished();
+            }
+            tempResult = true;
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Hand me to anAction once I have finished, in whatever state. If I already have, anAction runs
+     * at once on the calling thread; otherwise it runs on the thread that finishes me.
+     * @param anAction Consumer
+     */
+    public void whenFinished(Consumer<ExportJob> anAction) {
+
+        this.getCompletion().thenAccept(anAction);
+    }
+
+    /**
+     * Add aCount to my rows written
+     * @param aCount long
+     */
+    public void addRowsWritten(long aCount) {
+
+        this.getRowsWrittenCounter().addAndGet(aCount);
+    }
+
+    /**
+     * Record the size of my export file as aBytesWritten, from anUncompressedBytesWritten bytes of output
+     * @param aBytesWritten long
+     * @param anUncompressedBytesWritten long
+     */
+    public void recordBytesWritten(long aBytesWritten, long anUncompressedBytesWritten) {
+
+        this.setUncompressedBytesWritten(anUncompressedBytesWritten);
+        this.setBytesWritten(aBytesWritten);
+
+    }
+
+    /**
+     * Answer my rows written so far
+     * @return long
+     */
+    public long getRowsWritten() {
+
+        return this.getRowsWrittenCounter().get();
+    }
+
+    /**
+     * Answer whether I have reached a terminal state
+     * @return boolean
+     */
+    public boolean isFinished() {
+
+        return this.getStatus() == ExportJobStatus.DONE ||
+                this.getStatus() == ExportJobStatus.FAILED ||
+                    this.getStatus() == ExportJobStatus.CANCELLED;
+    }
+
+    /**
+     * Answer my average throughput since I started running
+     * @return double
+     */
+    public double getRowsPerSecond() {
+
+        double  tempResult = 0.0;
+        long    tempElapsedMillis;
+
+        tempElapsedMillis = this.getElapsedMillis();
+        if (tempElapsedMillis > 0) {
+
+            tempResult = (this.getRowsWritten() * 1000.0) / tempElapsedMillis;
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the estimated seconds until I am done, or null if that cannot be estimated yet
+     * @return Long
+     */
+    public Long getEstimatedSecondsRemaining() {
+
+        Long    tempResult = null;
+        double  tempRate;
+        long    tempRemainingRows;
+
+        if (this.isFinished()) {
+
+            tempResult = Long.valueOf(0L);
+        }
+        else {
+
+            tempRate = this.getRowsPerSecond();
+            if (tempRate > 0.0) {
+
+                tempRemainingRows = Math.max(0L, this.getEstimatedTotalRows() - this.getRowsWritten());
+                tempResult = Long.valueOf((long)Math.ceil(tempRemainingRows / tempRate));
+
+            }
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer milliseconds spent running, up to now or to when I finished
+     * @return long
+     */
+    private long getElapsedMillis() {
+
+        long    tempResult = 0L;
+        Instant tempStart;
+        Instant tempEnd;
+
+        tempStart = this.getStartedAt();
+        if (tempStart != null) {
+
+            tempEnd = (this.getFinishedAt() != null) ? this.getFinishedAt() : Instant.now();
+            tempResult = Duration.between(tempStart, tempEnd).toMillis();
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the name of my export file without its directory, which clients are not shown
+     * @return String
+     */
+    private String getExportFilenameWithoutDirectory() {
+
+        return (this.getExportFilename() != null)
+                    ? Path.of(this.getExportFilename()).getFileName().toString()
+                    : null;
+    }
+
+    /**
+     * Answer myself as a value object
+     * @return ExportJobDTO
+     */
+    public ExportJobDTO asValueObject() {
+
+        return new ExportJobDTO(this.getId(),
+                                this.getLogbookId(),
+                                this.getExportFilenameWithoutDirectory(),
+                                this.getStatus(),
+                                this.getRowsWritten(),
+                                this.getEstimatedTotalRows(),
+                                this.getRowsPerSecond(),
+                                this.getEstimatedSecondsRemaining(),
+                                this.getBytesWritten(),
+                                this.getUncompressedBytesWritten(),
+                                this.getCreatedAt(),
+                                this.getStartedAt(),
+                                this.getFinishedAt(),
+                                this.getFailureMessage(),
+                                this.getNextCheckpointToken());
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.mjdsoftware.logbook.export;
+
+public enum ExportJobStatus {
+
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED
+
+}
@@ -0,0 +1,353 @@
+package com.mjdsoftware.logbook.export;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Completed export files, keyed by a fingerprint of the request that produced them and of the state of
+ * the logbook they were read from. A repeated request is answered by hard linking the cached file to
+ * the new export file, falling back to a copy. Each cached file is itself a hard link in the cache
+ * directory, so deleting a client's export file does not lose it. Entries expire after a time to live
+ * and the least recently used are evicted to keep the cache within its disk budget.
+ */
+@Component
+@Slf4j
+public class ExportResultCache {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Path directory;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private long maxBytes;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Duration timeToLive;
+
+    //Access ordered, so iteration starts at the least recently used entry
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LinkedHashMap<String, CachedExport> entries;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private long totalBytes;
+
+    //Constants
+    public static final int DEFAULT_EXPORT_CACHE_MAX_MEGABYTES = 1024;
+    public static final int DEFAULT_EXPORT_CACHE_TTL_MINUTES = 30;
+    private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+    private static final String FINGERPRINT_SEPARATOR = "|";
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+    /**
+     * Answer my logger
+     *
+     * @return org.slf4j.Logger
+     */
+    private static Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Answer an instance configured by aProperties
+     * @param aProperties LogbookApplicationProperties
+     */
+    @Autowired
+    public ExportResultCache(LogbookApplicationProperties aProperties) {
+
+        super();
+        this.setDirectory(Paths.get(aProperties.getExportCacheDirectory()));
+        this.setMaxBytes(this.getMaxMegabytes(aProperties) * BYTES_PER_MEGABYTE);
+        this.setTimeToLive(Duration.ofMinutes(this.getTimeToLiveMinutes(aProperties)));
+        this.setEntries(new LinkedHashMap<>(16, 0.75f, true));
+
+    }
+
+    /**
+     * Remove files cached before a restart. Their entries were only held in memory, so they can
+     * never be hit again.
+     */
+    @PostConstruct
+    public void removeOrphanedFiles() {
+
+        if (Files.isDirectory(this.getDirectory())) {
+
+            try (Stream<Path> tempFiles = Files.list(this.getDirectory())) {
+
+                tempFiles.forEach(this::deleteQuietly);
+            }
+            catch (IOException e) {
+                getLogger().warn("Cannot clear export cache directory " + this.getDirectory(), e);
+            }
+
+        }
+
+    }
+
+    /**
+     * Answer whether I cache anything at all
+     * @return boolean
+     */
+    public boolean isEnabled() {
+
+        return this.getMaxBytes() > 0;
+    }
+
+    /**
+     * Answer the fingerprint of exporting aRequest for aLogbookId while its activities are at
+     * aVersionMarker. Only what changes the content of the file is included.
+     * @param aLogbookId Long
+     * @param aRequest ActivityExportRequest
+     * @param aVersionMarker String
+     * @return String
+     */
+    public String fingerprintOf(Long aLogbookId,
+                                ActivityExportRequest aRequest,
+                                String aVersionMarker) {
+
+        String tempKey;
+
+        tempKey = String.join(FINGERPRINT_SEPARATOR,
+                              String.valueOf(aLogbookId),
+                              String.valueOf(aRequest.getStartTimeEpoch()),
+                              String.valueOf(aRequest.getEndTimeEpoch()),
+                              String.valueOf(aRequest.getActivityType()),
+                              String.valueOf(aRequest.getCriteria()),
+                              String.valueOf(aRequest.getFormatOrDefault()),
+                              String.valueOf(aRequest.getCompression()),
+                              String.valueOf(aRequest.getCompressionLevelOrDefault()),
+                              aVersionMarker);
+
+        try {
+
+            return HexFormat.of()
+                            .formatHex(MessageDigest.getInstance(FINGERPRINT_ALGORITHM)
+                                                    .digest(tempKey.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(FINGERPRINT_ALGORITHM + " is not available", e);
+        }
+
+    }
+
+    /**
+     * Link the file cached under aFingerprint to aTargetFile, replacing it. Answer the cached export,
+     * or nothing on a miss.
+     * @param aFingerprint String
+     * @param aTargetFile File
+     * @return Optional
+     */
+    public synchronized Optional<CachedExport> linkTo(String aFingerprint, File aTargetFile) {
+
+        CachedExport tempEntry;
+
+        this.removeExpiredEntries();
+        tempEntry = this.getEntries().get(aFingerprint);
+        if (tempEntry != null) {
+
+            try {
+                this.linkOrCopy(tempEntry.getCachedFile(), aTargetFile.toPath());
+            }
+            catch (IOException e) {
+
+                getLogger().warn("Cannot reuse cached export " + tempEntry.getCachedFile(), e);
+                this.remove(aFingerprint);
+                tempEntry = null;
+
+            }
+
+        }
+
+        return Optional.ofNullable(tempEntry);
+
+    }
+
+    /**
+     * Cache anExportFile, the result of the finished anExportJob, under aFingerprint
+     * @param aFingerprint String
+     * @param anExportFile File
+     * @param anExportJob ExportJob
+     */
+    public synchronized void register(String aFingerprint, File anExportFile, ExportJob anExportJob) {
+
+        Path tempCachedFile;
+
+        if (anExportJob.getBytesWritten() <= this.getMaxBytes() && !this.getEntries().containsKey(aFingerprint)) {
+
+            tempCachedFile = this.getDirectory().resolve(aFingerprint + "-" + UUID.randomUUID());
+            try {
+
+                Files.createDirectories(this.getDirectory());
+                this.linkOrCopy(anExportFile.toPath(), tempCachedFile);
+                this.getEntries().put(aFingerprint, new CachedExport(aFingerprint, tempCachedFile, anExportJob));
+                this.setTotalBytes(this.getTotalBytes() + anExportJob.getBytesWritten());
+
+                this.removeExpiredEntries();
+                this.removeLeastRecentlyUsedEntriesOverBudget();
+
+            }
+            catch (IOException e) {
+
+                getLogger().warn("Cannot cache export file " + anExportFile, e);
+                this.deleteQuietly(tempCachedFile);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Hard link aTarget to aSource, replacing aTarget, or copy aSource if the file system cannot link them
+     * @param aSource Path
+     * @param aTarget Path
+     * @throws IOException
+     */
+    private void linkOrCopy(Path aSource, Path aTarget) throws IOException {
+
+        Files.deleteIfExists(aTarget);
+        try {
+            Files.createLink(aTarget, aSource);
+        }
+        catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(aSource, aTarget, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+    }
+
+    /**
+     * Remove entries cached longer than my time to live
+     */
+    private void removeExpiredEntries() {
+
+        Instant                                     tempCutoff;
+        Iterator<Map.Entry<String, CachedExport>>   tempIterator;
+        CachedExport                                tempEntry;
+
+        tempCutoff = Instant.now().minus(this.getTimeToLive());
+        tempIterator = this.getEntries().entrySet().iterator();
+        while (tempIterator.hasNext()) {
+
+            tempEntry = tempIterator.next().getValue();
+            if (tempEntry.isCachedBefore(tempCutoff)) {
+
+                tempIterator.remove();
+                this.discard(tempEntry);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Remove least recently used entries until I am within my disk budget
+     */
+    private void removeLeastRecentlyUsedEntriesOverBudget() {
+
+        Iterator<Map.Entry<String, CachedExport>>   tempIterator;
+        CachedExport                                tempEntry;
+
+        tempIterator = this.getEntries().entrySet().iterator();
+        while (this.getTotalBytes() > this.getMaxBytes() && tempIterator.hasNext()) {
+
+            tempEntry = tempIterator.next().getValue();
+            tempIterator.remove();
+            this.discard(tempEntry);
+
+        }
+
+    }
+
+    /**
+     * Remove the entry for aFingerprint
+     * @param aFingerprint String
+     */
+    private void remove(String aFingerprint) {
+
+        CachedExport tempEntry;
+
+        tempEntry = this.getEntries().remove(aFingerprint);
+        if (tempEntry != null) {
+            this.discard(tempEntry);
+        }
+
+    }
+
+    /**
+     * Delete the file of anEntry, which is no longer cached, and release its space
+     * @param anEntry CachedExport
+     */
+    private void discard(CachedExport anEntry) {
+
+        this.deleteQuietly(anEntry.getCachedFile());
+        this.setTotalBytes(this.getTotalBytes() - anEntry.getSizeInBytes());
+
+    }
+
+    /**
+     * Delete aFile, logging rather than failing if it cannot be
+     * @param aFile Path
+     */
+    private void deleteQuietly(Path aFile) {
+
+        try {
+            Files.deleteIfExists(aFile);
+        }
+        catch (IOException e) {
+            getLogger().warn("Cannot delete cached export file " + aFile, e);
+        }
+
+    }
+
+    /**
+     * Answer the disk budget of aProperties in megabytes, zero disabling the cache
+     * @param aProperties LogbookApplicationProperties
+     * @return int
+     */
+    private int getMaxMegabytes(LogbookApplicationProperties aProperties) {
+
+        Integer tempResult;
+
+        tempResult = aProperties.getExportCacheMaxMegabytes();
+
+        return (tempResult != null && tempResult >= 0) ? tempResult : DEFAULT_EXPORT_CACHE_MAX_MEGABYTES;
+    }
+
+    /**
+     * Answer the minutes an export stays cached according to aProperties
+     * @param aProperties LogbookApplicationProperties
+     * @return int
+     */
+    private int getTimeToLiveMinutes(LogbookApplicationProperties aProperties) {
+
+        Integer tempResult;
+
+        tempResult = aProperties.getExportCacheTtlMinutes();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : DEFAULT_EXPORT_CACHE_TTL_MINUTES;
+    }
+
+}
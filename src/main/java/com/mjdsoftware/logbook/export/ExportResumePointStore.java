@@ -0,0 +1,194 @@
+package com.mjdsoftware.logbook.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.dto.ExportResumePointDTO;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the resume point of each resumable export as a small json file, one per export job, in the
+ * export resume directory. Each file is replaced atomically, so a pod stopped mid save leaves the
+ * previous resume point rather than a torn one.
+ */
+@Component
+@Slf4j
+public class ExportResumePointStore {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ObjectMapper objectMapper;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Path directory;
+
+    //Constants
+    private static final String RESUME_POINT_SUFFIX = ".resume.json";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Answer my logger
+     *
+     * @return org.slf4j.Logger
+     */
+    private static Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Answer an instance keeping resume points in the export resume directory of aProperties
+     * @param anObjectMapper ObjectMapper
+     * @param aProperties LogbookApplicationProperties
+     */
+    @Autowired
+    public ExportResumePointStore(ObjectMapper anObjectMapper,
+                                  LogbookApplicationProperties aProperties) {
+
+        super();
+        this.setObjectMapper(anObjectMapper);
+        this.setDirectory(Paths.get(aProperties.getExportResumeDirectory()));
+
+    }
+
+    /**
+     * Save aResumePoint, replacing any earlier one for the same export job
+     * @param aResumePoint ExportResumePointDTO
+     * @throws IOException
+     */
+    public void save(ExportResumePointDTO aResumePoint) throws IOException {
+
+        Path tempFile;
+        Path tempTemporaryFile;
+
+        Files.createDirectories(this.getDirectory());
+        tempFile = this.getPathFor(aResumePoint.getExportJobId());
+        tempTemporaryFile = tempFile.resolveSibling(tempFile.getFileName() + TEMPORARY_SUFFIX);
+
+        this.getObjectMapper().writeValue(tempTemporaryFile.toFile(), aResumePoint);
+        Files.move(tempTemporaryFile,
+                   tempFile,
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+
+    }
+
+    /**
+     * Answer the resume point for anExportJobId, if there is one
+     * @param anExportJobId String
+     * @return Optional
+     */
+    public Optional<ExportResumePointDTO> find(String anExportJobId) {
+
+        return this.read(this.getPathFor(anExportJobId));
+    }
+
+    /**
+     * Answer every saved resume point
+     * @return List
+     */
+    public List<ExportResumePointDTO> findAll() {
+
+        List<ExportResumePointDTO>  tempResult = new ArrayList<>();
+
+        if (Files.isDirectory(this.getDirectory())) {
+
+            try (DirectoryStream<Path> tempFiles =
+                         Files.newDirectoryStream(this.getDirectory(), "*" + RESUME_POINT_SUFFIX)) {
+
+                for (Path p: tempFiles) {
+                    this.read(p).ifPresent(tempResult::add);
+                }
+
+            }
+            catch (IOException e) {
+                getLogger().error("Cannot list export resume points in " + this.getDirectory(), e);
+            }
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Mark the resume point for anExportJobId, if there is one, as that of a failed export, so it is no
+     * longer resumed on startup
+     * @param anExportJobId String
+     */
+    public void markFailed(String anExportJobId) {
+
+        this.find(anExportJobId).ifPresent(aResumePoint -> {
+
+            aResumePoint.setFailed(true);
+            try {
+                this.save(aResumePoint);
+            }
+            catch (IOException e) {
+                getLogger().warn("Cannot mark resume point for export job " + anExportJobId + " as failed", e);
+            }
+
+        });
+
+    }
+
+    /**
+     * Delete the resume point for anExportJobId, if there is one
+     * @param anExportJobId String
+     */
+    public void delete(String anExportJobId) {
+
+        try {
+            Files.deleteIfExists(this.getPathFor(anExportJobId));
+        }
+        catch (IOException e) {
+            getLogger().warn("Cannot delete resume point for export job " + anExportJobId, e);
+        }
+
+    }
+
+    /**
+     * Answer the resume point in aFile, or nothing if it is missing or unreadable
+     * @param aFile Path
+     * @return Optional
+     */
+    private Optional<ExportResumePointDTO> read(Path aFile) {
+
+        Optional<ExportResumePointDTO> tempResult = Optional.empty();
+
+        if (Files.exists(aFile)) {
+
+            try {
+                tempResult = Optional.of(this.getObjectMapper().readValue(aFile.toFile(), ExportResumePointDTO.class));
+            }
+            catch (IOException e) {
+                getLogger().error("Cannot read export resume point " + aFile, e);
+            }
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the path of the resume point for anExportJobId
+     * @param anExportJobId String
+     * @return Path
+     */
+    private Path getPathFor(String anExportJobId) {
+
+        //Job ids are generated UUIDs, but never let one name a file outside my directory
+        return this.getDirectory().resolve(Paths.get(anExportJobId).getFileName() + RESUME_POINT_SUFFIX);
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.mjdsoftware.logbook.export;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Admits streamed exports. A streamed export holds a database cursor, and so a connection, for as long
+ * as its response is being written, but runs on the request's async executor rather than the export
+ * executor. At most exportMaxConcurrent streams are admitted at once, the same limit the export executor
+ * has, and any more are counted as rejected exports.
+ */
+@Component
+@Slf4j
+public class StreamingExportLimiter {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Semaphore permits;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Counter rejectedCounter;
+
+    //Constants
+    private static final String EXPORT_REJECTED_METRIC = "logbook.export.rejected";
+
+    /**
+     * Answer my logger
+     *
+     * @return org.slf4j.Logger
+     */
+    private static Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Answer an instance admitting as many streams as aProperties lets exports run at once, counting
+     * rejections in aMeterRegistry
+     * @param aProperties LogbookApplicationProperties
+     * @param aMeterRegistry MeterRegistry
+     */
+    @Autowired
+    public StreamingExportLimiter(LogbookApplicationProperties aProperties, MeterRegistry aMeterRegistry) {
+
+        super();
+        this.setPermits(new Semaphore(aProperties.getExportMaxConcurrent()));
+        this.setRejectedCounter(Counter.builder(EXPORT_REJECTED_METRIC)
+                                       .description("Exports rejected because the export executor was full")
+                                       .register(aMeterRegistry));
+
+    }
+
+    /**
+     * Answer whether another stream is admitted. A stream admitted must be released once it is done.
+     * @return boolean
+     */
+    public boolean tryAdmit() {
+
+        boolean tempResult;
+
+        tempResult = this.getPermits().tryAcquire();
+        if (!tempResult) {
+
+            getLogger().warn("Streaming export limit reached, rejecting stream");
+            this.getRejectedCounter().increment();
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Release a stream admitted earlier
+     */
+    public void release() {
+
+        this.getPermits().release();
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.mjdsoftware.logbook.security;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * A JwtDecoder that verifies each bearer token once, through the decoder Spring Boot configures from
+ * the jwk set, and answers it from the VerifiedJwtCache afterwards. Its authorities are converted as
+ * it is cached, so the JwtAuthConverter finds them already there. This is deliberately not a bean, so
+ * that the configured decoder it wraps is still created.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private JwtDecoder delegate;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private VerifiedJwtCache verifiedJwtCache;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private JwtAuthConverter jwtAuthConverter;
+
+    /**
+     * Answer an instance that verifies through aDelegate, caches in aVerifiedJwtCache and converts
+     * authorities with aJwtAuthConverter
+     * @param aDelegate JwtDecoder
+     * @param aVerifiedJwtCache VerifiedJwtCache
+     * @param aJwtAuthConverter JwtAuthConverter
+     */
+    public CachingJwtDecoder(JwtDecoder aDelegate,
+                             VerifiedJwtCache aVerifiedJwtCache,
+                             JwtAuthConverter aJwtAuthConverter) {
+
+        super();
+        this.setDelegate(aDelegate);
+        this.setVerifiedJwtCache(aVerifiedJwtCache);
+        this.setJwtAuthConverter(aJwtAuthConverter);
+
+    }
+
+    /**
+     * Answer the verified jwt for aToken
+     * @param aToken the JWT value
+     * @return Jwt
+     * @throws JwtException if aToken fails verification
+     */
+    @Override
+    public Jwt decode(String aToken) throws JwtException {
+
+        return this.getVerifiedJwtCache()
+                   .get(aToken, t -> this.getJwtAuthConverter().asVerifiedJwt(this.getDelegate().decode(t)))
+                   .getJwt();
+    }
+
+}
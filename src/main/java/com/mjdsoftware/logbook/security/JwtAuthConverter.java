@@ -1,6 +1,7 @@
 package com.mjdsoftware.logbook.security;
 
 import com.mjdsoftware.logbook.config.JwtAuthConverterProperties;
+import com.mjdsoftware.logbook.security.VerifiedJwtCache.VerifiedJwt;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -31,14 +32,20 @@ public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationTo
     @Getter(value= AccessLevel.PRIVATE)  @Setter(value= AccessLevel.PRIVATE)
     private JwtAuthConverterProperties properties;
 
+    @Getter(value= AccessLevel.PRIVATE)  @Setter(value= AccessLevel.PRIVATE)
+    private VerifiedJwtCache verifiedJwtCache;
+
     /**
-     * Answer an instance on properties
+     * Answer an instance on properties, reusing the authorities held by aVerifiedJwtCache
      * @param properties JwtAuthConverterProperties
+     * @param aVerifiedJwtCache VerifiedJwtCache
      */
     @Autowired
-    public JwtAuthConverter(JwtAuthConverterProperties properties) {
+    public JwtAuthConverter(JwtAuthConverterProperties properties,
+                            VerifiedJwtCache aVerifiedJwtCache) {
 
         this.setProperties(properties);
+        this.setVerifiedJwtCache(aVerifiedJwtCache);
         this.setJwtGrantedAuthoritiesConverter(new JwtGrantedAuthoritiesConverter());
 
     }
@@ -46,18 +53,37 @@ public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationTo
     /**
      * Answer a token that contains the authorities pull from the "role" value in custom claims.
      * This code is somewhat delicate and based on the claims structure returned from Keycloak.l
+     * The authorities are normally already cached, converted when the token was verified. Only the
+     * CachingJwtDecoder caches verified tokens, so a jwt it has not verified is converted but never
+     * cached here. The token itself is created per request, since authentication sets its details.
      * @param jwt the source object to convert, which must be an instance of {@code S} (never {@code null})
      * @return AbstractAuthenticationToken
      */
     @Override
     public AbstractAuthenticationToken convert(Jwt jwt) {
 
-        Collection<GrantedAuthority> tempAuthorities =
-                Stream.concat(this.getJwtGrantedAuthoritiesConverter().convert(jwt).stream(),
-                              this.extractResourceRoles(jwt).stream()).collect(Collectors.toSet());
+        VerifiedJwt tempVerifiedJwt;
+
+        tempVerifiedJwt = this.getVerifiedJwtCache()
+                              .getIfPresent(jwt.getTokenValue())
+                              .orElseGet(() -> this.asVerifiedJwt(jwt));
 
         //Add roles to authorities, creating new JwtAuthenticationToken
-        return new JwtAuthenticationToken(jwt, tempAuthorities);
+        return new JwtAuthenticationToken(jwt, tempVerifiedJwt.getAuthorities());
+    }
+
+    /**
+     * Answer aJwt, which has been verified, with the authorities converted from its claims
+     * @param aJwt Jwt
+     * @return VerifiedJwt
+     */
+    public VerifiedJwt asVerifiedJwt(Jwt aJwt) {
+
+        Collection<GrantedAuthority> tempAuthorities =
+                Stream.concat(this.getJwtGrantedAuthoritiesConverter().convert(aJwt).stream(),
+                              this.extractResourceRoles(aJwt).stream()).collect(Collectors.toSet());
+
+        return new VerifiedJwt(aJwt, tempAuthorities);
     }
 
 
@@ -1,7 +1,5 @@
 package com.mjdsoftware.logbook.security;
 
-import com.mjdsoftware.logbook.domain.entities.Logbook;
-import com.mjdsoftware.logbook.domain.entities.User;
 import com.mjdsoftware.logbook.service.LogbookService;
 import com.mjdsoftware.logbook.service.UserService;
 import com.mjdsoftware.logbook.utils.KeyCloakUtilities;
@@ -15,6 +13,7 @@ import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
@@ -39,6 +38,7 @@ public class MethodSecurityService {
 
     //Constants
     protected static final String USER_NAME = "preferred_username";
+    private static final SimpleGrantedAuthority ADMIN_AUTHORITY = new SimpleGrantedAuthority(ROLE_APP_ADMIN);
 
 
     /**
@@ -86,7 +86,9 @@ public class MethodSecurityService {
     }
 
     /**
-     * Check for logbook access. Don't like double query TODO
+     * Check for logbook access. The owner of the logbook is answered from the ownership cache, which
+     * only on a miss reads the owner's username with a single scalar query, so no logbook is loaded
+     * and the cost does not depend on how many logbooks the user owns.
      * @param anAuthentication Authentication
      * @param aRequest HttpServletRequest
      * @param aJwt Jwt
@@ -100,7 +102,6 @@ public class MethodSecurityService {
 
         boolean tempResult;
         boolean tempIsAdminUser;
-        Logbook tempLogbook;
 
         tempResult =
                 this.isNotAnonymousAndHasUserClaim(anAuthentication,
@@ -108,18 +109,12 @@ public class MethodSecurityService {
                                                    aJwt);
         if (tempResult) {
 
-            tempIsAdminUser = anAuthentication.getAuthorities()
-                                              .stream()
-                                              .filter(ga -> ga.getAuthority().equals(ROLE_APP_ADMIN))
-                                              .findFirst()
-                                              .isPresent();
+            tempIsAdminUser = anAuthentication.getAuthorities().contains(ADMIN_AUTHORITY);
             if (!tempIsAdminUser) {
 
                 //If not admin, then the logbook needs to belong to the user taking the action
-                tempLogbook = this.getLogbookService().findLogbookById(logbookId);
-                tempResult = tempLogbook != null &&
-                                    tempLogbook.getUser() != null &&
-                                        tempLogbook.getUser().getUsername().equals(aJwt.getClaim(USER_NAME));
+                tempResult = this.getLogbookService()
+                                 .isLogbookOwnedBy(logbookId, aJwt.getClaimAsString(USER_NAME));
             }
 
         }
@@ -143,7 +138,6 @@ public class MethodSecurityService {
                                    Long userId) {
 
         boolean tempResult;
-        User    tempUser;
         boolean tempIsAdminUser;
 
         tempResult =
@@ -152,16 +146,11 @@ public class MethodSecurityService {
                                                     aJwt);
         if (tempResult) {
 
-            tempIsAdminUser = anAuthentication.getAuthorities()
-                                              .stream()
-                                              .filter(ga->ga.getAuthority().equals(ROLE_APP_ADMIN))
-                                              .findFirst()
-                                              .isPresent();
+            tempIsAdminUser = anAuthentication.getAuthorities().contains(ADMIN_AUTHORITY);
             if (!tempIsAdminUser) {
 
-                tempUser = this.getUserService().findUserById(userId);
-                tempResult = tempUser != null &&
-                                this.isUserSameAsClaimUser(tempUser, aJwt);
+                tempResult = this.getUserService()
+                                 .isUserNamed(userId, aJwt.getClaimAsString(USER_NAME));
 
             }
             else {
@@ -174,17 +163,6 @@ public class MethodSecurityService {
 
     }
 
-    /**
-     * Answer whether aUser is the same as the claim user
-     * @param aUser User
-     * @param aJwt Jwt
-     */
-    private boolean isUserSameAsClaimUser(User aUser, Jwt aJwt) {
-
-       return aUser.getUsername().equals(aJwt.getClaim(USER_NAME));
-
-    }
-
     /**
      * Answer true if aAuthentication does not represent an anonymous user and the
      * user custom claim is present
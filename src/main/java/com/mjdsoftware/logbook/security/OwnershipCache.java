@@ -0,0 +1,178 @@
+package com.mjdsoftware.logbook.security;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.utils.BoundedExpiringCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * The usernames that authorization decisions are made from: the owner of each logbook, and the name of
+ * each user. Ownership effectively never changes, so a hit answers a decision without going to the
+ * database. Entries expire after a time to live and the least recently used are evicted once a cache
+ * is full. The services that create and delete logbooks and users invalidate what they change, again
+ * once their transaction completes so that nothing read before their commit is left behind; a lookup
+ * that raced with an invalidation is answered but not cached.
+ */
+@Component
+public class OwnershipCache {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private BoundedExpiringCache<Long, String> logbookOwners;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private BoundedExpiringCache<Long, String> usernames;
+
+    //Constants
+    public static final int DEFAULT_AUTHORIZATION_CACHE_MAX_ENTRIES = 10000;
+    public static final int DEFAULT_AUTHORIZATION_CACHE_TTL_SECONDS = 300;
+    private static final String CACHE_METRIC = "logbook.authorization.cache";
+    private static final String LOGBOOK_OWNERS_CACHE = "logbookOwners";
+    private static final String USERNAMES_CACHE = "usernames";
+
+    /**
+     * Answer an instance configured by aProperties, publishing hits, misses and sizes to aMeterRegistry
+     * @param aProperties LogbookApplicationProperties
+     * @param aMeterRegistry MeterRegistry
+     */
+    @Autowired
+    public OwnershipCache(LogbookApplicationProperties aProperties,
+                          MeterRegistry aMeterRegistry) {
+
+        super();
+        this.setLogbookOwners(new BoundedExpiringCache<>(CACHE_METRIC,
+                                                         LOGBOOK_OWNERS_CACHE,
+                                                         this.getMaxEntries(aProperties),
+                                                         Duration.ofSeconds(this.getTimeToLiveSeconds(aProperties)),
+                                                         aMeterRegistry));
+        this.setUsernames(new BoundedExpiringCache<>(CACHE_METRIC,
+                                                     USERNAMES_CACHE,
+                                                     this.getMaxEntries(aProperties),
+                                                     Duration.ofSeconds(this.getTimeToLiveSeconds(aProperties)),
+                                                     aMeterRegistry));
+
+    }
+
+    /**
+     * Answer the username of the owner of the logbook for aLogbookId, or null if there is no such
+     * logbook. On a miss it is answered by aLoader.
+     * @param aLogbookId Long
+     * @param aLoader Function answering the owner of a logbook id from the database
+     * @return String
+     */
+    public String getLogbookOwner(Long aLogbookId, Function<Long, String> aLoader) {
+
+        return this.getLogbookOwners().get(aLogbookId, aLoader);
+    }
+
+    /**
+     * Answer the username of the user for aUserId, or null if there is no such user. On a miss it is
+     * answered by aLoader.
+     * @param aUserId Long
+     * @param aLoader Function answering the name of a user id from the database
+     * @return String
+     */
+    public String getUsername(Long aUserId, Function<Long, String> aLoader) {
+
+        return this.getUsernames().get(aUserId, aLoader);
+    }
+
+    /**
+     * Forget the owner of the logbook for aLogbookId
+     * @param aLogbookId Long
+     */
+    public void invalidateLogbook(Long aLogbookId) {
+
+        this.invalidateNowAndAfterCompletion(() -> this.getLogbookOwners().remove(aLogbookId));
+    }
+
+    /**
+     * Forget the user for aUserId and the owner of every logbook it owned. Its username is taken once,
+     * before either pass, because the first pass forgets it; owners cached between the passes are then
+     * still forgotten by the second.
+     * @param aUserId Long
+     */
+    public void invalidateUser(Long aUserId) {
+
+        String tempUsername;
+
+        tempUsername = this.getUsernames().remove(aUserId);
+        this.invalidateNowAndAfterCompletion(() -> this.forgetUser(aUserId, tempUsername));
+
+    }
+
+    /**
+     * Forget the user for aUserId and, if aUsername is known, the owner of every logbook it owned
+     * @param aUserId Long
+     * @param aUsername String
+     */
+    private void forgetUser(Long aUserId, String aUsername) {
+
+        this.getUsernames().remove(aUserId);
+        if (aUsername != null) {
+
+            this.getLogbookOwners().removeValue(aUsername);
+        }
+
+    }
+
+    /**
+     * Run anInvalidation now and, if a transaction is in progress, again once it has completed
+     * @param anInvalidation Runnable
+     */
+    private void invalidateNowAndAfterCompletion(Runnable anInvalidation) {
+
+        anInvalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCompletion(int aStatus) {
+
+                    anInvalidation.run();
+                }
+
+            });
+
+        }
+
+    }
+
+    /**
+     * Answer the maximum entries of each cache according to aProperties
+     * @param aProperties LogbookApplicationProperties
+     * @return int
+     */
+    private int getMaxEntries(LogbookApplicationProperties aProperties) {
+
+        Integer tempResult;
+
+        tempResult = aProperties.getAuthorizationCacheMaxEntries();
+
+        return (tempResult != null && tempResult >= 0) ? tempResult : DEFAULT_AUTHORIZATION_CACHE_MAX_ENTRIES;
+    }
+
+    /**
+     * Answer the seconds an entry stays cached according to aProperties
+     * @param aProperties LogbookApplicationProperties
+     * @return int
+     */
+    private int getTimeToLiveSeconds(LogbookApplicationProperties aProperties) {
+
+        Integer tempResult;
+
+        tempResult = aProperties.getAuthorizationCacheTtlSeconds();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : DEFAULT_AUTHORIZATION_CACHE_TTL_SECONDS;
+    }
+
+}
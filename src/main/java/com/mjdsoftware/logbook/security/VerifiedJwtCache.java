@@ -0,0 +1,243 @@
+package com.mjdsoftware.logbook.security;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.utils.BoundedExpiringCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bearer tokens that have already been verified, with the authorities converted from their claims. A
+ * client sends the same token with every request until it expires, so a hit skips both the signature
+ * check and the claim conversion. Tokens are keyed by their SHA-256 hash rather than held as keys
+ * themselves, and an entry never outlives the token's exp, nor the configured time to live. A client
+ * often sends several requests at once with a token it has just obtained; only one of them verifies
+ * it, and the others wait for and share its outcome, rejection included.
+ */
+@Component
+public class VerifiedJwtCache {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private BoundedExpiringCache<String, VerifiedJwt> verifiedJwts;
+
+    //The verifications in progress, by token hash
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ConcurrentHashMap<String, CompletableFuture<VerifiedJwt>> verifications;
+
+    //Constants
+    public static final int DEFAULT_VERIFIED_JWT_CACHE_MAX_ENTRIES = 10000;
+    public static final int DEFAULT_VERIFIED_JWT_CACHE_TTL_SECONDS = 300;
+    private static final String CACHE_METRIC = "logbook.authentication.cache";
+    private static final String VERIFIED_JWTS_CACHE = "verifiedJwts";
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * Answer an instance configured by aProperties, publishing hits, misses and size to aMeterRegistry
+     * @param aProperties LogbookApplicationProperties
+     * @param aMeterRegistry MeterRegistry
+     */
+    @Autowired
+    public VerifiedJwtCache(LogbookApplicationProperties aProperties,
+                            MeterRegistry aMeterRegistry) {
+
+        super();
+        this.setVerifiedJwts(new BoundedExpiringCache<>(CACHE_METRIC,
+                                                        VERIFIED_JWTS_CACHE,
+                                                        this.getMaxEntries(aProperties),
+                                                        Duration.ofSeconds(this.getTimeToLiveSeconds(aProperties)),
+                                                        v -> v.getJwt().getExpiresAt(),
+                                                        aMeterRegistry));
+        this.setVerifications(new ConcurrentHashMap<>());
+
+    }
+
+    /**
+     * Answer the verified jwt cached for aToken, answering and caching it from aLoader on a miss. A
+     * miss while aToken is already being verified waits for that verification rather than starting
+     * another. Whatever aLoader throws, such as a JwtException for a token that fails verification, is
+     * passed on to every caller waiting for it, and nothing is cached.
+     * @param aToken String
+     * @param aLoader Function answering the verified jwt of a token
+     * @return VerifiedJwt
+     */
+    public VerifiedJwt get(String aToken, Function<String, VerifiedJwt> aLoader) {
+
+        String                          tempHash;
+        CompletableFuture<VerifiedJwt>  tempVerification;
+        CompletableFuture<VerifiedJwt>  tempInProgress;
+        VerifiedJwt                     tempResult;
+
+        tempHash = this.hashOf(aToken);
+        tempResult = this.getVerifiedJwts().getIfPresent(tempHash).orElse(null);
+        if (tempResult == null) {
+
+            tempVerification = new CompletableFuture<>();
+            tempInProgress = this.getVerifications().putIfAbsent(tempHash, tempVerification);
+            tempResult = (tempInProgress == null)
+                            ? this.verify(aToken, tempHash, aLoader, tempVerification)
+                            : this.awaitVerification(tempInProgress);
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the verified jwt cached for aToken, if any, without verifying it on a miss
+     * @param aToken String
+     * @return Optional
+     */
+    public Optional<VerifiedJwt> getIfPresent(String aToken) {
+
+        return this.getVerifiedJwts().getIfPresent(this.hashOf(aToken));
+    }
+
+    /**
+     * Answer aToken, hashed as aHash, verified by aLoader and cached, completing aVerification with the
+     * outcome for any caller waiting on it
+     * @param aToken String
+     * @param aHash String
+     * @param aLoader Function
+     * @param aVerification CompletableFuture
+     * @return VerifiedJwt
+     */
+    private VerifiedJwt verify(String aToken,
+                               String aHash,
+                               Function<String, VerifiedJwt> aLoader,
+                               CompletableFuture<VerifiedJwt> aVerification) {
+
+        VerifiedJwt tempResult;
+
+        try {
+
+            tempResult = this.getVerifiedJwts().get(aHash, h -> aLoader.apply(aToken));
+            aVerification.complete(tempResult);
+
+        }
+        catch (RuntimeException e) {
+
+            aVerification.completeExceptionally(e);
+            throw e;
+
+        }
+        finally {
+            this.getVerifications().remove(aHash, aVerification);
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the outcome of aVerification, started by another caller, once it completes. What its
+     * loader threw is thrown as it was.
+     * @param aVerification CompletableFuture
+     * @return VerifiedJwt
+     */
+    private VerifiedJwt awaitVerification(CompletableFuture<VerifiedJwt> aVerification) {
+
+        VerifiedJwt tempResult;
+
+        try {
+            tempResult = aVerification.join();
+        }
+        catch (CompletionException e) {
+            throw (e.getCause() instanceof RuntimeException) ? (RuntimeException)e.getCause() : e;
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the hash aToken is cached under
+     * @param aToken String
+     * @return String
+     */
+    private String hashOf(String aToken) {
+
+        try {
+
+            return HexFormat.of()
+                            .formatHex(MessageDigest.getInstance(HASH_ALGORITHM)
+                                                    .digest(aToken.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+
+    }
+
+    /**
+     * Answer the maximum entries of the cache according to aProperties
+     * @param aProperties LogbookApplicationProperties
+     * @return int
+     */
+    private int getMaxEntries(LogbookApplicationProperties aProperties) {
+
+        Integer tempResult;
+
+        tempResult = aProperties.getVerifiedJwtCacheMaxEntries();
+
+        return (tempResult != null && tempResult >= 0) ? tempResult : DEFAULT_VERIFIED_JWT_CACHE_MAX_ENTRIES;
+    }
+
+    /**
+     * Answer the most seconds an entry stays cached according to aProperties
+     * @param aProperties LogbookApplicationProperties
+     * @return int
+     */
+    private int getTimeToLiveSeconds(LogbookApplicationProperties aProperties) {
+
+        Integer tempResult;
+
+        tempResult = aProperties.getVerifiedJwtCacheTtlSeconds();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : DEFAULT_VERIFIED_JWT_CACHE_TTL_SECONDS;
+    }
+
+    /**
+     * A verified jwt and the authorities converted from its claims
+     */
+    public static class VerifiedJwt {
+
+        @Getter @Setter(AccessLevel.PRIVATE)
+        private Jwt jwt;
+
+        @Getter @Setter(AccessLevel.PRIVATE)
+        private Set<GrantedAuthority> authorities;
+
+        /**
+         * Answer an instance on aJwt and its anAuthorities
+         * @param aJwt Jwt
+         * @param anAuthorities Collection
+         */
+        public VerifiedJwt(Jwt aJwt, Collection<? extends GrantedAuthority> anAuthorities) {
+
+            this.setJwt(aJwt);
+            this.setAuthorities(Set.copyOf(anAuthorities));
+
+        }
+
+    }
+
+}
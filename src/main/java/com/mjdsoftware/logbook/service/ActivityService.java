@@ -1,16 +1,20 @@
 package com.mjdsoftware.logbook.service;
 
-import com.mjdsoftware.logbook.csv.ActivityWrapper;
+import com.mjdsoftware.logbook.csv.ActivityExportKey;
+import com.mjdsoftware.logbook.csv.ActivityRowHandler;
+import com.mjdsoftware.logbook.csv.StreamingActivityExporter;
+import com.mjdsoftware.logbook.csv.ActivityExportRow;
 import com.mjdsoftware.logbook.domain.entities.Activity;
-import com.mjdsoftware.logbook.domain.entities.ActivityType;
 import com.mjdsoftware.logbook.domain.entities.Logbook;
 import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
 import com.mjdsoftware.logbook.dto.ActivityDTO;
 import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.export.ExportJob;
 import lombok.NonNull;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.util.List;
 
 public interface ActivityService {
@@ -53,34 +57,73 @@ public interface ActivityService {
 
 
     /**
-     * Find all activities between dates as wrappers
+     * Find the next chunk of activities to export, positioned after aLastKey, as export rows.
+     * A null aLastKey answers the first chunk.
      * @param aLogbookId Long
      * @param anActivityExportRequest ActivityExportRequest
-     * @param aPageNumber
+     * @param aLastKey ActivityExportKey
+     * @param aChunkSize int
      * @return List
      */
-    public List<ActivityWrapper> findAllActivitiesBetweenDatesAsWrappers(Long aLogbookId,
-                                                                         ActivityExportRequest anActivityExportRequest,
-                                                                         int aPageNumber);
+    public List<ActivityExportRow> findNextActivityRows(Long aLogbookId,
+                                                        ActivityExportRequest anActivityExportRequest,
+                                                        ActivityExportKey aLastKey,
+                                                        int aChunkSize);
 
     /**
-     * Export activities to file asynchronously
+     * Answer an exporter that streams activities described by anActivityExportRequest from a cursor,
+     * without writing a file
      * @param aLogbookId Long
      * @param anActivityExportRequest ActivityExportRequest
+     * @return StreamingActivityExporter
      */
-    public void exportActivitiesToFileAsynchronously(Long aLogbookId,
-                                                     ActivityExportRequest anActivityExportRequest);
+    public StreamingActivityExporter createStreamingExporter(Long aLogbookId,
+                                                                ActivityExportRequest anActivityExportRequest);
 
     /**
-     * Answer count of all activities that exist for aLogbookId between aStartDate and anEndDate
+     * Export activities to file asynchronously. Answer the job tracking the export.
      * @param aLogbookId Long
-     * @param aStartDateEpoch Long
-     * @param anEndDateEpoch Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return ExportJob
+     */
+    public ExportJob exportActivitiesToFileAsynchronously(Long aLogbookId,
+                                                          ActivityExportRequest anActivityExportRequest);
+
+    /**
+     * Resume the interrupted export anExportJobId of aLogbookId from its last saved chunk. Answer the job
+     * tracking the export.
+     * @param aLogbookId Long
+     * @param anExportJobId String
+     * @return ExportJob
+     */
+    public ExportJob resumeExport(Long aLogbookId,
+                                  String anExportJobId);
+
+    /**
+     * Resume every export interrupted by the application stopping, from its last saved chunk
+     */
+    public void resumeInterruptedExports();
+
+    /**
+     * Read all activities to export through a single cursor in one read only, repeatable read transaction,
+     * handing each one to aHandler until it answers false. Answer the number of rows handled.
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @param aHandler ActivityRowHandler
+     * @return long
+     * @throws IOException
+     */
+    public long exportActivitiesFromCursor(Long aLogbookId,
+                                           ActivityExportRequest anActivityExportRequest,
+                                           ActivityRowHandler aHandler) throws IOException;
+
+    /**
+     * Answer the count of activities anActivityExportRequest would export for aLogbookId
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
      * @return Long
      */
-    public Long getCountOfAllActivitiesBetweenDates(Long aLogbookId,
-                                                    Long aStartDateEpoch,
-                                                    Long anEndDateEpoch,
-                                                    ActivityType anActivityType);
+    public Long getCountOfActivitiesToExport(Long aLogbookId,
+                                             ActivityExportRequest anActivityExportRequest);
 
 }
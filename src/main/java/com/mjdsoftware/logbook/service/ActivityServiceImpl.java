@@ -1,11 +1,29 @@
 package com.mjdsoftware.logbook.service;
 
-import com.mjdsoftware.logbook.csv.ActivityWrapper;
-import com.mjdsoftware.logbook.csv.ChunkableActivityCSVFileExporter;
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.csv.ActivityExportKey;
+import com.mjdsoftware.logbook.csv.ActivityRowHandler;
+import com.mjdsoftware.logbook.csv.ActivityExportRow;
+import com.mjdsoftware.logbook.csv.ChunkableActivityFileExporter;
+import com.mjdsoftware.logbook.csv.ParallelActivityFileExporter;
+import com.mjdsoftware.logbook.csv.StreamingActivityExporter;
 import com.mjdsoftware.logbook.domain.entities.*;
+import com.mjdsoftware.logbook.domain.repositories.ActivityFilter;
 import com.mjdsoftware.logbook.domain.repositories.ActivityRepository;
 import com.mjdsoftware.logbook.domain.repositories.LogbookEntryRepository;
+import com.mjdsoftware.logbook.domain.repositories.LogbookRepository;
 import com.mjdsoftware.logbook.dto.*;
+import com.mjdsoftware.logbook.exception.ExportCapacityExceededException;
+import com.mjdsoftware.logbook.exception.ExportJobNotFoundException;
+import com.mjdsoftware.logbook.exception.ExportQuotaExceededException;
+import com.mjdsoftware.logbook.export.CachedExport;
+import com.mjdsoftware.logbook.export.ExportCheckpoint;
+import com.mjdsoftware.logbook.export.ExportFileManager;
+import com.mjdsoftware.logbook.export.ExportJob;
+import com.mjdsoftware.logbook.export.ExportJobStatus;
+import com.mjdsoftware.logbook.export.ExportResultCache;
+import com.mjdsoftware.logbook.export.ExportResumePointStore;
+import com.mjdsoftware.logbook.export.StreamingExportLimiter;
 import com.mjdsoftware.logbook.utils.FileUtilities;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -14,18 +32,28 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -37,11 +65,47 @@ public class ActivityServiceImpl extends AbstractServiceImpl implements Activity
     @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
     private ActivityRepository activityRepository;
 
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LogbookRepository logbookRepository;
+
     @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
     private FileUtilities fileUtils;
 
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LogbookApplicationProperties properties;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportJobService exportJobService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportResumePointStore exportResumePointStore;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportResultCache exportResultCache;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportFileManager exportFileManager;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private StreamingExportLimiter streamingExportLimiter;
+
+    //Exporters run on other threads and call back into me, so they are handed my transactional
+    //proxy rather than this, which would bypass @Transactional
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityService transactionalSelf;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Executor exportExecutor;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Executor exportPartitionExecutor;
+
     //Constants
-    public static final int PAGE_SIZE = 10;
+    public static final int DEFAULT_EXPORT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_EXPORT_PARTITION_MINIMUM_DAYS = 30;
+    public static final int DEFAULT_EXPORT_STREAM_FLUSH_ROWS = 500;
+    public static final int DEFAULT_EXPORT_RETRY_AFTER_SECONDS = 30;
+    public static final int DEFAULT_EXPORT_DELTA_LOOKBACK_SECONDS = 300;
 
 
     /**
@@ -57,17 +121,47 @@ public class ActivityServiceImpl extends AbstractServiceImpl implements Activity
      * Answer an instance of me on aRepository
      * @param aRepository ActivityRepository
      * @param logbookEntryRepository LogbookEntryRepository
+     * @param aLogbookRepository LogbookRepository
      * @param aFileUtils FileUtilities
+     * @param aProperties LogbookApplicationProperties
+     * @param anExportJobService ExportJobService
+     * @param anExportResumePointStore ExportResumePointStore
+     * @param anExportResultCache ExportResultCache
+     * @param anExportFileManager ExportFileManager
+     * @param aStreamingExportLimiter StreamingExportLimiter
+     * @param aTransactionalSelf ActivityService my own proxy, resolved lazily
+     * @param anExportExecutor Executor exports run on
+     * @param anExportPartitionExecutor Executor for parallel export partitions
      */
     @Autowired
     public ActivityServiceImpl(ActivityRepository aRepository,
                                LogbookEntryRepository logbookEntryRepository,
-                               FileUtilities aFileUtils) {
+                               LogbookRepository aLogbookRepository,
+                               FileUtilities aFileUtils,
+                               LogbookApplicationProperties aProperties,
+                               ExportJobService anExportJobService,
+                               ExportResumePointStore anExportResumePointStore,
+                               ExportResultCache anExportResultCache,
+                               ExportFileManager anExportFileManager,
+                               StreamingExportLimiter aStreamingExportLimiter,
+                               @Lazy ActivityService aTransactionalSelf,
+                               @Qualifier("exportExecutor") Executor anExportExecutor,
+                               @Qualifier("exportPartitionExecutor") Executor anExportPartitionExecutor) {
 
         super();
         this.setActivityRepository(aRepository);
         this.setLogbookEntryRepository(logbookEntryRepository);
+        this.setLogbookRepository(aLogbookRepository);
         this.setFileUtils(aFileUtils);
+        this.setProperties(aProperties);
+        this.setExportJobService(anExportJobService);
+        this.setExportResumePointStore(anExportResumePointStore);
+        this.setExportResultCache(anExportResultCache);
+        this.setExportFileManager(anExportFileManager);
+        this.setStreamingExportLimiter(aStreamingExportLimiter);
+        this.setTransactionalSelf(aTransactionalSelf);
+        this.setExportExecutor(anExportExecutor);
+        this.setExportPartitionExecutor(anExportPartitionExecutor);
 
     }
 
@@ -150,6 +244,8 @@ public class ActivityServiceImpl extends AbstractServiceImpl implements Activity
              "Invalid Id found when modifying Activity",
                         anActivityDTO.getId());
 
+        //The activity is loaded here rather than by the request context. It is modified in this
+        //transaction, and one loaded before it would be merged, and so read, a second time.
         tempActivity = this.getActivityRepository().findById(anActivityDTO.getId());
         if (tempActivity.isPresent()) {
 
@@ -186,68 +282,313 @@ public class ActivityServiceImpl extends AbstractServiceImpl implements Activity
     }
 
     /**
-     * Answer count of all activities that exist for aLogbookId between aStartDate and anEndDate
+     * Answer the count of activities anActivityExportRequest would export for aLogbookId. It is counted
+     * with the same filter the export reads with, so the two always agree.
      * @param aLogbookId Long
-     * @param aStartDateEpoch Long
-     * @param anEndDateEpoch Long
-     * @return List
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return Long
      */
     @Transactional
     @Override
-    public Long getCountOfAllActivitiesBetweenDates(@NonNull Long aLogbookId,
-                                                    @NonNull Long aStartDateEpoch,
-                                                    @NonNull Long anEndDateEpoch,
-                                                    ActivityType anActivityType) {
+    public Long getCountOfActivitiesToExport(@NonNull Long aLogbookId,
+                                             @NonNull ActivityExportRequest anActivityExportRequest) {
+
+        this.validateId(getLogger(), "Invalid logbook id", aLogbookId);
+
+        return this.getActivityRepository()
+                   .countActivities(this.createActivityFilter(aLogbookId, anActivityExportRequest));
+
+    }
+
+    /**
+     * Find the next chunk of activities to export, positioned after aLastKey, as export rows
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @param aLastKey ActivityExportKey null for the first chunk
+     * @param aChunkSize int
+     * @return List
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<ActivityExportRow> findNextActivityRows(@NonNull Long aLogbookId,
+                                                        @NonNull ActivityExportRequest anActivityExportRequest,
+                                                        ActivityExportKey aLastKey,
+                                                        int aChunkSize) {
 
-        Calendar        tempStartDate;
-        Calendar        tempEndDate;
-        Long            tempCount;
+        ActivityFilter      tempFilter;
+        ActivityExportKey   tempLastKey;
 
         this.validateId(getLogger(), "Invalid logbook id", aLogbookId);
+        tempFilter = this.createActivityFilter(aLogbookId, anActivityExportRequest);
+
+        //No key means we are on the first chunk
+        tempLastKey = (aLastKey != null) ? aLastKey : ActivityExportKey.startingAt(tempFilter.getStartDate());
+
+        return this.asExportRows(this.getActivityRepository()
+                                     .findActivityRowsAfterKey(tempFilter,
+                                                               tempLastKey.getActivityDate(),
+                                                               tempLastKey.getId(),
+                                                               aChunkSize));
+
+    }
+
+    /**
+     * Answer the filter selecting the activities of aLogbookId that anActivityExportRequest exports. Its
+     * activity type and its criteria must all hold, so its activity type narrows the types of its
+     * criteria rather than adding to them. Throws IllegalArgumentException if its activity type is not
+     * one of those of its criteria, as that request would export nothing.
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return ActivityFilter
+     */
+    private ActivityFilter createActivityFilter(Long aLogbookId,
+                                                ActivityExportRequest anActivityExportRequest) {
+
+        ActivityFilter          tempResult;
+        ActivitySearchCriteria  tempCriteria;
+
+        if (!anActivityExportRequest.isActivityTypeWithinCriteria()) {
+            throw new IllegalArgumentException("Export activity type is not one of its criteria activity types");
+        }
+
+        tempResult =
+                ActivityFilter.forLogbook(aLogbookId)
+                              .between(this.asCalendar(anActivityExportRequest.getStartTimeEpoch()),
+                                       this.asCalendar(anActivityExportRequest.getEndTimeEpoch()))
+                              .ofTypes(anActivityExportRequest.getExportedActivityTypes());
+
+        tempCriteria = anActivityExportRequest.getCriteria();
+        if (tempCriteria != null) {
+
+            tempResult.ofDiscriminators(tempCriteria.getActivityDiscriminators())
+                      .withDistanceBetween(tempCriteria.getMinDistance(), tempCriteria.getMaxDistance())
+                      .withDurationBetween(tempCriteria.getMinDuration(), tempCriteria.getMaxDuration());
+        }
 
-        tempStartDate = Calendar.getInstance();
-        tempStartDate.setTime(new Date(aStartDateEpoch));
-        tempEndDate = Calendar.getInstance();
-        tempEndDate.setTime(new Date(anEndDateEpoch));
+        return tempResult;
+
+    }
 
-        tempCount =
-                this.basicGetCpuntOfActivitiesBetweenDatas(aLogbookId, anActivityType, tempStartDate, tempEndDate);
 
-        return tempCount;
+    /**
+     * Delete anActivities
+     * @param anActivities List
+     */
+    @Override
+    @Transactional
+    public void delete(@NonNull List<Activity> anActivities) {
+
+        getLogger().info("Deleting {}", anActivities);
+        this.getActivityRepository().deleteAll(anActivities);
+        getLogger().info("Deleted Activities Complete");
 
     }
 
+
     /**
-     * Get count of activities for the arguments below
+     * Export activities to file asynchronously, in the export directory of the user owning aLogbookId.
+     * Answer the job tracking the export, which holds the checkpoint a later delta export can start
+     * from. Throws ExportCapacityExceededException if the export executor has no room for another
+     * export, and ExportQuotaExceededException if the export would not fit in the export space left
+     * to its user.
      * @param aLogbookId Long
-     * @param anActivityType ActivityType
-     * @param tempStartDate Calendar
-     * @param tempEndDate Calendar
-     * @return List
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return ExportJob
      */
-    private Long basicGetCpuntOfActivitiesBetweenDatas(Long aLogbookId,
-                                                       ActivityType anActivityType,
-                                                       Calendar tempStartDate,
-                                                       Calendar tempEndDate) {
+    @Override
+    @Transactional
+    public ExportJob exportActivitiesToFileAsynchronously(Long aLogbookId,
+                                                          ActivityExportRequest anActivityExportRequest) {
 
-        Long tempResult;
+        ExportJob   tempJob;
+        String      tempFingerprint;
 
-        if (anActivityType == null) {
+        this.validateCheckpointToken(anActivityExportRequest);
+        anActivityExportRequest.setExportFilename(
+                this.getExportFileManager()
+                        .resolve(this.getLogbookRepository().findUserIdById(aLogbookId),
+                                 anActivityExportRequest.getExportFilename())
+                        .toString());
+        tempJob = this.getExportJobService().createJob(aLogbookId, anActivityExportRequest);
+        tempJob.setNextCheckpointToken(this.createExportCheckpoint().asToken());
+
+        //A repeat of an export whose logbook has not changed since is answered with the earlier file
+        tempFingerprint = this.getExportFingerprint(aLogbookId, anActivityExportRequest);
+        if (!this.finishExportFromCache(tempFingerprint, anActivityExportRequest, tempJob)) {
+
+            this.cacheExportWhenDone(tempFingerprint, anActivityExportRequest, tempJob);
+            this.startExport(aLogbookId, anActivityExportRequest, tempJob);
 
-            tempResult =
-                    this.getActivityRepository()
-                        .getCountByLogbookIdAndDates(aLogbookId,
-                                                     tempStartDate,
-                                                     tempEndDate);
         }
-        else {
+
+        return tempJob;
+
+    }
+
+    /**
+     * Start exporting activities to file asynchronously, as anActivityExportRequest asks, on behalf of
+     * anExportJob
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @param anExportJob ExportJob
+     */
+    private void startExport(Long aLogbookId,
+                             ActivityExportRequest anActivityExportRequest,
+                             ExportJob anExportJob) {
+
+        List<ActivityExportRow> tempRows;
+        int                     tempChunkSize;
+
+        //Total rows are only used to estimate time remaining. Delta exports are not estimated, since
+        //counting their changes would cost as much as exporting them.
+        if (!anActivityExportRequest.isDeltaExport()) {
+
+            anExportJob.setEstimatedTotalRows(this.getCountOfActivitiesToExport(aLogbookId, anActivityExportRequest));
+        }
+        this.reserveExportSpace(aLogbookId, anActivityExportRequest, anExportJob);
+
+        try {
+
+            if (anActivityExportRequest.isCursorMode() || anActivityExportRequest.isDeltaExport()) {
+
+                this.exportActivitiesFromCursorAsynchronously(anActivityExportRequest,
+                                                              aLogbookId,
+                                                              anExportJob);
+            }
+            else if (anActivityExportRequest.isParallelMode()) {
+
+                this.exportActivitiesInPartitionsAsynchronously(anActivityExportRequest,
+                                                                aLogbookId,
+                                                                anExportJob);
+            }
+            else {
+
+                tempChunkSize = this.getExportChunkSize();
+                tempRows =
+                        this.findNextActivityRows(aLogbookId,
+                                                  anActivityExportRequest,
+                                                  null,
+                                                  tempChunkSize);
+
+                //Export file asynchronously
+                if (!tempRows.isEmpty()) {
+
+                    this.basicExportActivitiesToFileAsynchronously(anActivityExportRequest,
+                                                                   aLogbookId,
+                                                                   tempRows,
+                                                                   tempChunkSize,
+                                                                   anExportJob);
+                }
+                else {
+                    this.finishEmptyExport(aLogbookId, anExportJob);
+                }
+
+            }
+
+        }
+        catch (TaskRejectedException e) {
+
+            this.rejectExport(anActivityExportRequest, anExportJob, e);
+        }
+
+    }
+
+    /**
+     * Reserve room in the export directory for the export file of anActivityExportRequest, sized from the
+     * rows anExportJob is estimated to write, and record its actual size once anExportJob is done. Fails
+     * anExportJob and throws ExportQuotaExceededException if it would not fit.
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @param anExportJob ExportJob
+     */
+    private void reserveExportSpace(Long aLogbookId,
+                                    ActivityExportRequest anActivityExportRequest,
+                                    ExportJob anExportJob) {
+
+        Long    tempUserId;
+        Path    tempFile;
+
+        tempUserId = this.getLogbookRepository().findUserIdById(aLogbookId);
+        tempFile = Path.of(anActivityExportRequest.getExportFilename());
+        try {
+            this.getExportFileManager().reserve(tempUserId, tempFile, anExportJob.getEstimatedTotalRows());
+        }
+        catch (ExportQuotaExceededException e) {
+
+            getLogger().warn("Export quota exceeded, rejecting export job {}", anExportJob.getId());
+            anExportJob.markFailed(e);
+            throw e;
+
+        }
+
+        anExportJob.whenFinished(aJob -> this.getExportFileManager().recordWritten(tempUserId, tempFile));
+
+    }
+
+    /**
+     * Answer the fingerprint the result of exporting anActivityExportRequest for aLogbookId is cached
+     * under, or null if it is not cached. Delta exports depend on when they are asked for, so are never
+     * cached.
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return String
+     */
+    private String getExportFingerprint(Long aLogbookId, ActivityExportRequest anActivityExportRequest) {
+
+        String tempResult = null;
+
+        if (this.getExportResultCache().isEnabled() && !anActivityExportRequest.isDeltaExport()) {
 
             tempResult =
-                    this.getActivityRepository()
-                        .getCountByLogbookIdAndDates(aLogbookId,
-                                                     anActivityType.name(),
-                                                     tempStartDate,
-                                                     tempEndDate);
+                    this.getExportResultCache()
+                            .fingerprintOf(aLogbookId,
+                                           anActivityExportRequest,
+                                           this.getActivityRepository().findExportVersionMarker(aLogbookId));
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Finish anExportJob with the cached file for aFingerprint, linked to the export file of
+     * anActivityExportRequest, once export space is reserved for it. Answer false on a miss, leaving
+     * anExportJob queued. Throws ExportQuotaExceededException, removing the link, if it would not fit.
+     * @param aFingerprint String null if the export is not cached
+     * @param anActivityExportRequest ActivityExportRequest
+     * @param anExportJob ExportJob
+     * @return boolean
+     */
+    private boolean finishExportFromCache(String aFingerprint,
+                                          ActivityExportRequest anActivityExportRequest,
+                                          ExportJob anExportJob) {
+
+        boolean                 tempResult = false;
+        Optional<CachedExport>  tempCachedExport;
+
+        if (aFingerprint != null) {
+
+            tempCachedExport =
+                    this.getExportResultCache()
+                            .linkTo(aFingerprint, new File(anActivityExportRequest.getExportFilename()));
+            if (tempCachedExport.isPresent()) {
+
+                anExportJob.markRunning();
+                tempCachedExport.get().recordResultOn(anExportJob);
+                try {
+                    this.reserveExportSpace(anExportJob.getLogbookId(), anActivityExportRequest, anExportJob);
+                }
+                catch (ExportQuotaExceededException e) {
+
+                    this.getFileUtils().deleteFileAtPath(anActivityExportRequest.getExportFilename());
+                    throw e;
+
+                }
+                anExportJob.markFinished();
+                getLogger().info("Export job {} answered from the export cache", anExportJob.getId());
+                tempResult = true;
+
+            }
 
         }
 
@@ -255,230 +596,470 @@ public class ActivityServiceImpl extends AbstractServiceImpl implements Activity
 
     }
 
+    /**
+     * Cache the export file of anActivityExportRequest under aFingerprint once anExportJob is done, unless
+     * it failed, was cancelled or found nothing to export
+     * @param aFingerprint String null if the export is not cached
+     * @param anActivityExportRequest ActivityExportRequest
+     * @param anExportJob ExportJob
+     */
+    private void cacheExportWhenDone(String aFingerprint,
+                                     ActivityExportRequest anActivityExportRequest,
+                                     ExportJob anExportJob) {
+
+        if (aFingerprint != null) {
+
+            anExportJob.whenFinished(aJob -> {
+
+                if (aJob.getStatus() == ExportJobStatus.DONE && aJob.getRowsWritten() > 0) {
+
+                    this.getExportResultCache()
+                            .register(aFingerprint, new File(anActivityExportRequest.getExportFilename()), aJob);
+                }
+
+            });
+
+        }
+
+    }
 
     /**
-     * Find all activities that exist for aLogbookId between aStartDate and anEndDate
+     * Answer an exporter that streams activities described by anActivityExportRequest from a cursor,
+     * without writing a file. Throws ExportCapacityExceededException if as many streams as exports may
+     * run at once are already being written; the exporter answered is released once written.
      * @param aLogbookId Long
-     * @param aStartDateEpoch Long
-     * @param anEndDateEpoch Long
-     * @param aPageNumber int
-     * @return List
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return StreamingActivityExporter
      */
-    private List<Activity> findAllActivitiesBetweenDates(@NonNull Long aLogbookId,
-                                                        @NonNull Long aStartDateEpoch,
-                                                        @NonNull Long anEndDateEpoch,
-                                                        ActivityType anActivityType,
-                                                        int aPageNumber) {
+    @Override
+    public StreamingActivityExporter createStreamingExporter(@NonNull Long aLogbookId,
+                                                                @NonNull ActivityExportRequest anActivityExportRequest) {
 
-        Calendar        tempStartDate;
-        Calendar        tempEndDate;
-        List<Activity>  tempResults;
+        StreamingActivityExporter tempResult;
 
         this.validateId(getLogger(), "Invalid logbook id", aLogbookId);
+        this.validateCheckpointToken(anActivityExportRequest);
 
-        tempStartDate = Calendar.getInstance();
-        tempStartDate.setTime(new Date(aStartDateEpoch));
-        tempEndDate = Calendar.getInstance();
-        tempEndDate.setTime(new Date(anEndDateEpoch));
+        if (!this.getStreamingExportLimiter().tryAdmit()) {
 
-        tempResults =
-                this.basicFindActivitiesBetweenDates(aLogbookId,
-                                                     anActivityType,
-                                                     tempStartDate,
-                                                     tempEndDate,
-                                                     aPageNumber);
+            throw new ExportCapacityExceededException(
+                    this.getExportRetryAfterSeconds(),
+                    new RejectedExecutionException("Streaming export limit reached for logbook " + aLogbookId));
+        }
 
-        return tempResults;
+        try {
+            tempResult = new StreamingActivityExporter(aLogbookId,
+                                                       anActivityExportRequest,
+                                                       this.createExportCheckpoint().asToken(),
+                                                       this.getExportStreamFlushRows(),
+                                                       this.getTransactionalSelf(),
+                                                       this.getStreamingExportLimiter()::release);
+        }
+        catch (RuntimeException e) {
+
+            this.getStreamingExportLimiter().release();
+            throw e;
+
+        }
+
+        return tempResult;
 
     }
 
     /**
-     * Find all activities between dates as wrappers
+     * Asynchronously export activities to file from a single cursor, unless there is nothing to export
+     * @param anActivityExportRequest ActivityExportRequest
      * @param aLogbookId Long
+     * @param anExportJob ExportJob
+     */
+    private void exportActivitiesFromCursorAsynchronously(ActivityExportRequest anActivityExportRequest,
+                                                          Long aLogbookId,
+                                                          ExportJob anExportJob) {
+
+        File                             tempFile;
+        ChunkableActivityFileExporter tempExporter;
+
+        if (anExportJob.getEstimatedTotalRows() > 0 || anActivityExportRequest.isDeltaExport()) {
+
+            tempFile = this.createEmptyFile(anActivityExportRequest.getExportFilename());
+            tempExporter = new ChunkableActivityFileExporter(tempFile,
+                                                             aLogbookId,
+                                                             anActivityExportRequest,
+                                                             this.getExportChunkSize(),
+                                                             this.getTransactionalSelf(),
+                                                             this.getFileUtils(),
+                                                             anExportJob,
+                                                             this.getExportExecutor(),
+                                                             null);
+            tempExporter.writeFileFromCursorAsynchronously();
+
+        }
+        else {
+            this.finishEmptyExport(aLogbookId, anExportJob);
+        }
+
+    }
+
+    /**
+     * Asynchronously export activities to file in parallel date partitions, unless there is nothing to export
      * @param anActivityExportRequest ActivityExportRequest
-     * @param aPageNumber
-     * @return List
+     * @param aLogbookId Long
+     * @param anExportJob ExportJob
      */
-    @Transactional
-    @Override
-    public List<ActivityWrapper> findAllActivitiesBetweenDatesAsWrappers(Long aLogbookId,
-                                                                         ActivityExportRequest anActivityExportRequest,
-                                                                         int aPageNumber) {
+    private void exportActivitiesInPartitionsAsynchronously(ActivityExportRequest anActivityExportRequest,
+                                                            Long aLogbookId,
+                                                            ExportJob anExportJob) {
+
+        File                                tempFile;
+        ParallelActivityFileExporter        tempExporter;
+        List<ActivityExportRequest>         tempPartitions;
 
-        List<Activity>          tempActivities;
-        List<ActivityWrapper>   tempWrappers;
+        if (anExportJob.getEstimatedTotalRows() > 0) {
 
-        tempActivities =
-                this.findAllActivitiesBetweenDates(aLogbookId,
-                                                    anActivityExportRequest.getStartTimeEpoch(),
-                                                    anActivityExportRequest.getEndTimeEpoch(),
-                                                    anActivityExportRequest.getActivityType(),
-                                                    aPageNumber);
-        tempWrappers = this.asActivityWrappers(tempActivities);
+            tempPartitions =
+                    anActivityExportRequest.asDatePartitions(this.getExportPartitionThreads(),
+                                                             this.getExportPartitionMinimumMillis());
+            tempFile = this.createEmptyFile(anActivityExportRequest.getExportFilename());
+            tempExporter = new ParallelActivityFileExporter(tempFile,
+                                                            aLogbookId,
+                                                            anActivityExportRequest,
+                                                            tempPartitions,
+                                                            this.getExportChunkSize(),
+                                                            this.getTransactionalSelf(),
+                                                            this.getFileUtils(),
+                                                            anExportJob,
+                                                            this.getExportExecutor(),
+                                                            this.getExportPartitionExecutor());
+            tempExporter.writeFileAsynchronously();
 
-        return tempWrappers;
+        }
+        else {
+            this.finishEmptyExport(aLogbookId, anExportJob);
+        }
 
     }
 
     /**
-     * Find activities for the arguments below
+     * Resume the interrupted export anExportJobId of aLogbookId from its last saved chunk. Answer the job
+     * tracking the export.
      * @param aLogbookId Long
-     * @param anActivityType ActivityType
-     * @param tempStartDate Calendar
-     * @param tempEndDate Calendar
-     * @param aPageNumber int
-     * @return List
+     * @param anExportJobId String
+     * @return ExportJob
+     */
+    @Override
+    public ExportJob resumeExport(@NonNull Long aLogbookId,
+                                  @NonNull String anExportJobId) {
+
+        ExportResumePointDTO tempResumePoint;
+
+        //A resume point for another logbook is reported as not found so its existence is not leaked
+        tempResumePoint =
+                this.getExportResumePointStore()
+                        .find(anExportJobId)
+                        .filter(aResumePoint -> aLogbookId.equals(aResumePoint.getLogbookId()))
+                        .orElseThrow(() -> new ExportJobNotFoundException(anExportJobId));
+
+        return this.resumeExportFrom(tempResumePoint);
+
+    }
+
+    /**
+     * Resume every export that was queued or running when the application stopped, from its last saved
+     * chunk. Exports that failed, and those that cannot be resumed now, keep their resume point, so they
+     * can still be resumed on request.
      */
-    private List<Activity> basicFindActivitiesBetweenDates(Long aLogbookId,
-                                                           ActivityType anActivityType,
-                                                           Calendar tempStartDate,
-                                                           Calendar tempEndDate,
-                                                           int aPageNumber) {
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedExports() {
+
+        for (ExportResumePointDTO r: this.getExportResumePointStore().findAll()) {
 
-        List<Activity> tempResults;
-        Pageable       tempPageable;
+            if (!r.isFailed()) {
 
-        tempPageable = this.createPageable(aPageNumber);
-        if (anActivityType == null) {
+                try {
+                    this.resumeExportFrom(r);
+                }
+                catch (RuntimeException e) {
+                    getLogger().error("Cannot resume export job " + r.getExportJobId(), e);
+                }
+
+            }
 
-            tempResults =
-                this.getActivityRepository()
-                           .findAllActivities(tempStartDate,
-                                              tempEndDate,
-                                              aLogbookId,
-                                              tempPageable);
         }
-        else {
 
-            tempResults =
-                    this.getActivityRepository()
-                            .findAllActivities(tempStartDate,
-                                              tempEndDate,
-                                              aLogbookId,
-                                              tempPageable);
+    }
+
+    /**
+     * Resume an export from aResumePoint. Answer the job tracking the export, which is estimated, given
+     * export space and cached like that of a new export.
+     * @param aResumePoint ExportResumePointDTO
+     * @return ExportJob
+     */
+    private ExportJob resumeExportFrom(ExportResumePointDTO aResumePoint) {
+
+        File                                tempFile;
+        ExportJob                           tempJob;
+        ChunkableActivityFileExporter       tempExporter;
+        ActivityExportRequest               tempRequest;
+
+        //A file shorter than the saved offset lost chunks that were already recorded as written
+        tempFile = new File(aResumePoint.getExportFilePath());
+        if (!tempFile.exists() || tempFile.length() < aResumePoint.getByteOffset()) {
+
+            this.getExportResumePointStore().delete(aResumePoint.getExportJobId());
+            throw new IllegalStateException("Export file no longer holds the last saved chunk of export job "
+                                                + aResumePoint.getExportJobId());
+
+        }
+
+        tempRequest = aResumePoint.getExportRequest();
+        tempJob = this.getExportJobService().createResumedJob(aResumePoint.getExportJobId(),
+                                                              aResumePoint.getLogbookId(),
+                                                              tempRequest);
+        tempJob.setEstimatedTotalRows(this.getCountOfActivitiesToExport(aResumePoint.getLogbookId(), tempRequest));
+        this.reserveExportSpace(aResumePoint.getLogbookId(), tempRequest, tempJob);
+        this.cacheExportWhenDone(this.getExportFingerprint(aResumePoint.getLogbookId(), tempRequest),
+                                 tempRequest,
+                                 tempJob);
+
+        tempExporter = new ChunkableActivityFileExporter(tempFile,
+                                                         aResumePoint.getLogbookId(),
+                                                         tempRequest,
+                                                         this.getExportChunkSize(),
+                                                         this.getTransactionalSelf(),
+                                                         this.getFileUtils(),
+                                                         tempJob,
+                                                         this.getExportExecutor(),
+                                                         this.getExportResumePointStore());
+        try {
+            tempExporter.resumeFileAsynchronously(aResumePoint);
+        }
+        catch (TaskRejectedException e) {
+
+            //The resume point is kept, so the export can be resumed again later
+            tempJob.markFailed(e);
+            throw new ExportCapacityExceededException(this.getExportRetryAfterSeconds(), e);
 
         }
 
-        return tempResults;
+        getLogger().info("Resumed export job {} after {} rows", tempJob.getId(), aResumePoint.getRowsWritten());
+
+        return tempJob;
 
     }
 
+    /**
+     * Answer the store chunked progress of anActivityExportRequest is saved to, or null if it cannot be
+     * resumed. Only uncompressed files can be truncated back to a chunk boundary and appended to.
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return ExportResumePointStore
+     */
+    private ExportResumePointStore getResumePointStoreFor(ActivityExportRequest anActivityExportRequest) {
+
+        ExportResumePointStore tempResult = null;
+
+        if (anActivityExportRequest.getCompression() == null ||
+                anActivityExportRequest.getCompression() == ActivityExportCompression.NONE) {
+
+            tempResult = this.getExportResumePointStore();
+        }
+
+        return tempResult;
+
+    }
 
     /**
-     * Delete anActivities
-     * @param anActivities List
+     * Fail anExportJob, which the export executor rejected, and remove its empty export file and
+     * the resume point saved when it was queued before telling the client to retry later
+     * @param anActivityExportRequest ActivityExportRequest
+     * @param anExportJob ExportJob
+     * @param aRejection TaskRejectedException
      */
-    @Override
-    @Transactional
-    public void delete(@NonNull List<Activity> anActivities) {
+    private void rejectExport(ActivityExportRequest anActivityExportRequest,
+                              ExportJob anExportJob,
+                              TaskRejectedException aRejection) {
 
-        getLogger().info("Deleting {}", anActivities);
-        this.getActivityRepository().deleteAll(anActivities);
-        getLogger().info("Deleted Activities Complete");
+        getLogger().warn("Export executor full, rejecting export job {}", anExportJob.getId());
+        anExportJob.markFailed(aRejection);
+        this.getFileUtils().deleteFileAtPath(anActivityExportRequest.getExportFilename());
+        this.getExportResumePointStore().delete(anExportJob.getId());
+
+        throw new ExportCapacityExceededException(this.getExportRetryAfterSeconds(), aRejection);
 
     }
 
+    /**
+     * Finish anExportJob for which no activities were found
+     * @param aLogbookId Long
+     * @param anExportJob ExportJob
+     */
+    private void finishEmptyExport(Long aLogbookId, ExportJob anExportJob) {
+
+        getLogger().info("No activities encountered to export for logbookId: {}",  aLogbookId);
+        anExportJob.markRunning();
+        anExportJob.markFinished();
+
+    }
 
     /**
-     * Export activities to file asynchronously
+     * Read all activities to export through a single server side cursor, handing each one to aHandler
+     * until it answers false. Everything is read in one read only, repeatable read transaction, so rows
+     * written concurrently cannot cause duplicates or gaps. Rows are projections rather than entities,
+     * so nothing accumulates in the persistence context however many are exported. A delta export reads
+     * only activities changed since its checkpoint, followed by tombstones for those deleted since.
+     * Answer the number of rows handled.
      * @param aLogbookId Long
      * @param anActivityExportRequest ActivityExportRequest
+     * @param aHandler ActivityRowHandler
+     * @return long
+     * @throws IOException
      */
     @Override
-    @Transactional
-    public void exportActivitiesToFileAsynchronously(Long aLogbookId,
-                                                     ActivityExportRequest anActivityExportRequest) {
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long exportActivitiesFromCursor(@NonNull Long aLogbookId,
+                                           @NonNull ActivityExportRequest anActivityExportRequest,
+                                           @NonNull ActivityRowHandler aHandler) throws IOException {
+
+        Iterator<Object[]>  tempIterator;
+        Iterator<Long>      tempDeletedIds;
+        boolean             tempContinue = true;
+        long                tempRowCount = 0;
+        Long                tempChangedSinceMillis;
+        ActivityFilter      tempFilter;
+
+        this.validateId(getLogger(), "Invalid logbook id", aLogbookId);
+        tempChangedSinceMillis = this.getChangedSinceMillis(anActivityExportRequest);
 
-        List<ActivityWrapper>   tempWrappers;
-        Long                    tempNumberOfActivities;
-        int                     tempNumberOfPages;
+        tempFilter = this.createActivityFilter(aLogbookId, anActivityExportRequest)
+                         .changedSince(tempChangedSinceMillis);
+        try (Stream<Object[]> tempStream = this.getActivityRepository().streamActivityRows(tempFilter)) {
 
+            tempIterator = tempStream.iterator();
+            while (tempContinue && tempIterator.hasNext()) {
 
-        tempNumberOfActivities =
-                this.getCountOfAllActivitiesBetweenDates(aLogbookId,
-                                                         anActivityExportRequest.getStartTimeEpoch(),
-                                                         anActivityExportRequest.getEndTimeEpoch(),
-                                                         anActivityExportRequest.getActivityType());
+                tempContinue = aHandler.handle(ActivityExportRow.fromColumns(tempIterator.next()));
+                tempRowCount++;
 
-        if (tempNumberOfActivities > 0) {
+            }
+
+        }
 
-            tempNumberOfPages = this.calculateNumberOfPages(tempNumberOfActivities);
+        if (tempChangedSinceMillis != null) {
 
-            tempWrappers =
-                    this.findAllActivitiesBetweenDatesAsWrappers(aLogbookId,
-                                                                anActivityExportRequest,
-                                                   0);
+            tempDeletedIds = this.getActivityRepository().findDeletedActivityIds(tempFilter).iterator();
+            while (tempContinue && tempDeletedIds.hasNext()) {
 
-            //Export file asynchronously
-            if (!tempWrappers.isEmpty()) {
+                tempContinue = aHandler.handle(ActivityExportRow.tombstone(tempDeletedIds.next()));
+                tempRowCount++;
 
-                this.basicExportActivitiesToFileAsynchronously(anActivityExportRequest,
-                                                               aLogbookId,
-                                                               tempWrappers,
-                                                               tempNumberOfPages);
             }
 
         }
-        else {
-            getLogger().info("No activities encountered to export for logbookId: {}",  aLogbookId);
-        }
+
+        return tempRowCount;
 
     }
 
     /**
-     * Answer anActivities as wrapper objects for export
-     * @param anActivities List
-     * @return List
+     * Answer a checkpoint at the current database time
+     * @return ExportCheckpoint
      */
-    private List<ActivityWrapper> asActivityWrappers(List<Activity> anActivities) {
+    private ExportCheckpoint createExportCheckpoint() {
 
-        return anActivities.stream()
-                .map((anEntry)->this.asWrapperObject(anEntry))
-                .collect(Collectors.toList());
+        return new ExportCheckpoint(this.getActivityRepository().findDatabaseEpochMillis());
+    }
+
+    /**
+     * Validate the checkpoint token of anActivityExportRequest, if it has one, before any work is queued
+     * @param anActivityExportRequest ActivityExportRequest
+     */
+    private void validateCheckpointToken(ActivityExportRequest anActivityExportRequest) {
+
+        if (anActivityExportRequest.isDeltaExport()) {
 
+            ExportCheckpoint.fromToken(anActivityExportRequest.getCheckpointToken());
+        }
     }
 
     /**
-     * Answer anActivity as a wrapper object
-     * @param anActivity Activity
-     * @return ActivityWrapper
+     * Answer the database epoch millis from which anActivityExportRequest reads changes, or null if it
+     * is not a delta export
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return Long
      */
-    private ActivityWrapper asWrapperObject(Activity anActivity) {
+    private Long getChangedSinceMillis(ActivityExportRequest anActivityExportRequest) {
 
-        ActivityWrapper tempResult = null;
+        Long                tempResult = null;
+        ExportCheckpoint    tempCheckpoint;
 
-        if (anActivity!= null) {
+        if (anActivityExportRequest.isDeltaExport()) {
 
-            tempResult = new ActivityWrapper(anActivity);
+            tempCheckpoint = ExportCheckpoint.fromToken(anActivityExportRequest.getCheckpointToken());
+            tempResult =
+                    tempCheckpoint.getChangedSinceMillis(TimeUnit.SECONDS.toMillis(this.getExportDeltaLookbackSeconds()));
         }
 
         return tempResult;
 
     }
 
+    /**
+     * Answer anEpochMillis as a calendar
+     * @param anEpochMillis long
+     * @return Calendar
+     */
+    private Calendar asCalendar(long anEpochMillis) {
+
+        Calendar tempResult;
+
+        tempResult = Calendar.getInstance();
+        tempResult.setTime(new Date(anEpochMillis));
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer aColumns, rows of an export row query, as export rows
+     * @param aColumns List
+     * @return List
+     */
+    private List<ActivityExportRow> asExportRows(List<Object[]> aColumns) {
+
+        return aColumns.stream()
+                .map(ActivityExportRow::fromColumns)
+                .collect(Collectors.toList());
+
+    }
+
     /**
      * Asynchronously export activities to file
      * @param anActivityExportRequest ActivityExportRequest
      * @param aLogbookId Long
-     * @param aWrappers List
-     * @param aNumberOfPages int
+     * @param aRows List the first chunk
+     * @param aChunkSize int
+     * @param anExportJob ExportJob
      */
     private void basicExportActivitiesToFileAsynchronously(ActivityExportRequest anActivityExportRequest,
                                                            Long aLogbookId,
-                                                           List<ActivityWrapper> aWrappers,
-                                                           int aNumberOfPages) {
+                                                           List<ActivityExportRow> aRows,
+                                                           int aChunkSize,
+                                                           ExportJob anExportJob) {
 
         File                             tempFile;
-        ChunkableActivityCSVFileExporter tempExporter;
+        ChunkableActivityFileExporter tempExporter;
 
         tempFile = this.createEmptyFile(anActivityExportRequest.getExportFilename());
-        tempExporter = new ChunkableActivityCSVFileExporter(tempFile,
-                                                            aLogbookId,
-                                                            anActivityExportRequest,
-                                                            aNumberOfPages,
-                                               this,
-                                                            this.getFileUtils());
-        tempExporter.writeCsvFileAsynchronously(aWrappers.toArray(new ActivityWrapper[aWrappers.size()]));
+        tempExporter = new ChunkableActivityFileExporter(tempFile,
+                                                         aLogbookId,
+                                                         anActivityExportRequest,
+                                                         aChunkSize,
+                                                         this.getTransactionalSelf(),
+                                                         this.getFileUtils(),
+                                                         anExportJob,
+                                                         this.getExportExecutor(),
+                                                         this.getResumePointStoreFor(anActivityExportRequest));
+        tempExporter.writeFileAsynchronously(aRows.toArray(new ActivityExportRow[aRows.size()]));
 
     }
 
@@ -508,22 +1089,85 @@ public class ActivityServiceImpl extends AbstractServiceImpl implements Activity
 
 
     /**
-     * Calculate number of pages
-     * @param totalNumberOfActivities Long
+     * Answer the number of activities to fetch per export chunk
+     * @return int
+     */
+    private int getExportChunkSize() {
+
+        Integer tempResult;
+
+        tempResult = this.getProperties().getExportChunkSize();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : DEFAULT_EXPORT_CHUNK_SIZE;
+    }
+
+    /**
+     * Answer the number of rows a streaming export writes between flushes
      * @return int
      */
-    private int calculateNumberOfPages(Long totalNumberOfActivities) {
+    private int getExportStreamFlushRows() {
 
-        return (int)(totalNumberOfActivities / PAGE_SIZE) + 1;
+        Integer tempResult;
+
+        tempResult = this.getProperties().getExportStreamFlushRows();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : DEFAULT_EXPORT_STREAM_FLUSH_ROWS;
     }
 
     /**
-     * Create pageable for aPageNumber
-     * @param aPageNumber int
+     * Answer the seconds a delta export looks back before its checkpoint, for changes from transactions
+     * that were still open when the checkpoint was taken
+     * @return int
      */
-    private Pageable createPageable(int aPageNumber) {
+    private int getExportDeltaLookbackSeconds() {
+
+        Integer tempResult;
+
+        tempResult = this.getProperties().getExportDeltaLookbackSeconds();
+
+        return (tempResult != null && tempResult >= 0) ? tempResult : DEFAULT_EXPORT_DELTA_LOOKBACK_SECONDS;
+    }
+
+    /**
+     * Answer the seconds a client should wait before retrying a rejected export
+     * @return int
+     */
+    private int getExportRetryAfterSeconds() {
+
+        Integer tempResult;
+
+        tempResult = this.getProperties().getExportRetryAfterSeconds();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : DEFAULT_EXPORT_RETRY_AFTER_SECONDS;
+    }
+
+    /**
+     * Answer the most partitions a parallel export is split into, one per partition thread
+     * @return int
+     */
+    private int getExportPartitionThreads() {
+
+        Integer tempResult;
+
+        tempResult = this.getProperties().getExportPartitionThreads();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Answer the shortest date range worth giving its own partition, in milliseconds
+     * @return long
+     */
+    private long getExportPartitionMinimumMillis() {
+
+        Integer tempResult;
+
+        tempResult = this.getProperties().getExportPartitionMinimumDays();
+        if (tempResult == null || tempResult <= 0) {
+            tempResult = DEFAULT_EXPORT_PARTITION_MINIMUM_DAYS;
+        }
 
-        return PageRequest.of(aPageNumber, PAGE_SIZE);
+        return TimeUnit.DAYS.toMillis(tempResult);
     }
 
 }
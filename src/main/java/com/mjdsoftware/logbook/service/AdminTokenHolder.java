@@ -0,0 +1,292 @@
+package com.mjdsoftware.logbook.service;
+
+import com.mjdsoftware.logbook.dto.oauth.OauthToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The admin token used for Keycloak user administration, shared by every caller. It is obtained once
+ * and then renewed with its refresh token a margin before it expires, falling back to a new grant when
+ * it cannot be refreshed. Only one caller renews at a time: the others keep using the current token
+ * while it is still valid, or wait for the renewal and use its result. Hits, refreshes, grants and
+ * failures are counted.
+ */
+@Slf4j
+public class AdminTokenHolder {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Supplier<OauthToken> granter;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Function<String, OauthToken> refresher;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Duration refreshMargin;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private volatile HeldToken current;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ReentrantLock renewalLock;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Counter hitCounter;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Counter refreshCounter;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Counter grantCounter;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Counter failureCounter;
+
+    //Constants
+    private static final String ADMIN_TOKEN_METRIC = "logbook.keycloak.admin.token";
+
+    /**
+     * Answer an instance that obtains tokens from aGranter, refreshes them with aRefresher aRefreshMargin
+     * before they expire, and publishes its counts to aMeterRegistry
+     * @param aGranter Supplier answering a new admin token
+     * @param aRefresher Function answering the admin token for a refresh token
+     * @param aRefreshMargin Duration
+     * @param aMeterRegistry MeterRegistry
+     */
+    public AdminTokenHolder(Supplier<OauthToken> aGranter,
+                            Function<String, OauthToken> aRefresher,
+                            Duration aRefreshMargin,
+                            MeterRegistry aMeterRegistry) {
+
+        super();
+        this.setGranter(aGranter);
+        this.setRefresher(aRefresher);
+        this.setRefreshMargin(aRefreshMargin);
+        this.setRenewalLock(new ReentrantLock());
+        this.setHitCounter(this.createCounter("hit", "Admin token answered while held", aMeterRegistry));
+        this.setRefreshCounter(this.createCounter("refresh", "Admin token renewed with its refresh token", aMeterRegistry));
+        this.setGrantCounter(this.createCounter("grant", "Admin token obtained with a new grant", aMeterRegistry));
+        this.setFailureCounter(this.createCounter("failure", "Admin token renewals that failed", aMeterRegistry));
+
+    }
+
+    /**
+     * Answer my logger
+     * @return Logger
+     */
+    private static Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Answer the admin token, renewing it first if it is due
+     * @return OauthToken
+     */
+    public OauthToken getToken() {
+
+        HeldToken   tempCurrent;
+        OauthToken  tempResult;
+
+        tempCurrent = this.getCurrent();
+        if (tempCurrent != null &&
+                (!tempCurrent.isDueForRefresh() ||
+                    (!tempCurrent.isExpired() && this.getRenewalLock().isLocked()))) {
+
+            //Still fresh, or another caller is already renewing a token that has not yet expired
+            this.getHitCounter().increment();
+            tempResult = tempCurrent.getToken();
+
+        }
+        else {
+            tempResult = this.renew();
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Renew the admin token, unless another caller did so while I waited, and answer it
+     * @return OauthToken
+     */
+    private OauthToken renew() {
+
+        HeldToken   tempCurrent;
+        OauthToken  tempResult;
+
+        this.getRenewalLock().lock();
+        try {
+
+            tempCurrent = this.getCurrent();
+            if (tempCurrent != null && !tempCurrent.isDueForRefresh()) {
+
+                this.getHitCounter().increment();
+                tempResult = tempCurrent.getToken();
+
+            }
+            else {
+
+                tempResult = this.obtain(tempCurrent);
+                this.setCurrent((tempResult != null) ? new HeldToken(tempResult, this.getRefreshMargin()) : null);
+
+            }
+
+        }
+        finally {
+            this.getRenewalLock().unlock();
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer a new admin token, refreshing aCurrent if it can be refreshed and otherwise making a new
+     * grant. A failed refresh falls back to a grant; a failed grant is passed on.
+     * @param aCurrent HeldToken
+     * @return OauthToken
+     */
+    private OauthToken obtain(HeldToken aCurrent) {
+
+        OauthToken tempResult = null;
+
+        if (aCurrent != null && aCurrent.isRefreshable()) {
+
+            try {
+
+                tempResult = this.getRefresher().apply(aCurrent.getToken().getRefreshToken());
+                this.getRefreshCounter().increment();
+
+            }
+            catch (RuntimeException e) {
+
+                this.getFailureCounter().increment();
+                getLogger().warn("Admin token refresh failed, requesting a new grant: {}", e.getMessage());
+
+            }
+
+        }
+
+        if (tempResult == null) {
+
+            try {
+
+                tempResult = this.getGranter().get();
+                this.getGrantCounter().increment();
+
+            }
+            catch (RuntimeException e) {
+
+                this.getFailureCounter().increment();
+                throw e;
+
+            }
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer a counter of admin tokens answered with aResult
+     * @param aResult String
+     * @param aDescription String
+     * @param aMeterRegistry MeterRegistry
+     * @return Counter
+     */
+    private Counter createCounter(String aResult, String aDescription, MeterRegistry aMeterRegistry) {
+
+        return Counter.builder(ADMIN_TOKEN_METRIC)
+                      .description(aDescription)
+                      .tag("result", aResult)
+                      .register(aMeterRegistry);
+    }
+
+    /**
+     * A held token and when it is due for refresh, when it expires and when its refresh token expires
+     */
+    private static class HeldToken {
+
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private OauthToken token;
+
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private Instant refreshAt;
+
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private Instant expiresAt;
+
+        //Null when the refresh token does not expire
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private Instant refreshExpiresAt;
+
+        /**
+         * Answer an instance holding aToken, just obtained, due for refresh aRefreshMargin before it
+         * expires. The margin is at most half the token's lifetime, so a short lived token is not
+         * renewed on every call.
+         * @param aToken OauthToken
+         * @param aRefreshMargin Duration
+         */
+        public HeldToken(OauthToken aToken, Duration aRefreshMargin) {
+
+            Instant     tempNow;
+            Duration    tempLifetime;
+            Duration    tempMargin;
+
+            tempNow = Instant.now();
+            tempLifetime = Duration.ofSeconds(aToken.getExpiresIn());
+            tempMargin = (aRefreshMargin.compareTo(tempLifetime.dividedBy(2)) < 0)
+                            ? aRefreshMargin
+                            : tempLifetime.dividedBy(2);
+
+            this.setToken(aToken);
+            this.setExpiresAt(tempNow.plus(tempLifetime));
+            this.setRefreshAt(this.getExpiresAt().minus(tempMargin));
+            this.setRefreshExpiresAt((aToken.getRefreshExpiresIn() > 0)
+                                        ? tempNow.plusSeconds(aToken.getRefreshExpiresIn())
+                                        : null);
+
+        }
+
+        /**
+         * Answer whether I should be renewed
+         * @return boolean
+         */
+        public boolean isDueForRefresh() {
+
+            return !Instant.now().isBefore(this.getRefreshAt());
+        }
+
+        /**
+         * Answer whether I can no longer be used
+         * @return boolean
+         */
+        public boolean isExpired() {
+
+            return !Instant.now().isBefore(this.getExpiresAt());
+        }
+
+        /**
+         * Answer whether my refresh token can still be used
+         * @return boolean
+         */
+        public boolean isRefreshable() {
+
+            return this.getToken().getRefreshToken() != null &&
+                    (this.getRefreshExpiresAt() == null || Instant.now().isBefore(this.getRefreshExpiresAt()));
+        }
+
+    }
+
+}
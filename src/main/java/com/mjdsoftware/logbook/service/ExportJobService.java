@@ -0,0 +1,58 @@
+package com.mjdsoftware.logbook.service;
+
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.export.ExportJob;
+
+import java.util.List;
+
+public interface ExportJobService {
+
+    /**
+     * Create and register a queued export job for aLogbookId
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return ExportJob
+     */
+    public ExportJob createJob(Long aLogbookId,
+                               ActivityExportRequest anActivityExportRequest);
+
+    /**
+     * Create and register a queued export job that resumes the interrupted job anExportJobId, replacing
+     * it if it is still registered
+     * @param anExportJobId String
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return ExportJob
+     * @throws IllegalStateException if anExportJobId is still running
+     */
+    public ExportJob createResumedJob(String anExportJobId,
+                                      Long aLogbookId,
+                                      ActivityExportRequest anActivityExportRequest);
+
+    /**
+     * Answer the export job for anExportJobId belonging to aLogbookId
+     * @param aLogbookId Long
+     * @param anExportJobId String
+     * @return ExportJob
+     * @throws com.mjdsoftware.logbook.exception.ExportJobNotFoundException if there is no such job
+     */
+    public ExportJob findJobForLogbook(Long aLogbookId,
+                                       String anExportJobId);
+
+    /**
+     * Answer all registered export jobs for aLogbookId
+     * @param aLogbookId Long
+     * @return List
+     */
+    public List<ExportJob> findJobsForLogbook(Long aLogbookId);
+
+    /**
+     * Request cancellation of the export job for anExportJobId belonging to aLogbookId
+     * @param aLogbookId Long
+     * @param anExportJobId String
+     * @return ExportJob
+     */
+    public ExportJob cancelJob(Long aLogbookId,
+                               String anExportJobId);
+
+}
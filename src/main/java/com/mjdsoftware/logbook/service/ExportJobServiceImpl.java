@@ -0,0 +1,214 @@
+package com.mjdsoftware.logbook.service;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.exception.ExportJobNotFoundException;
+import com.mjdsoftware.logbook.export.ExportJob;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class ExportJobServiceImpl implements ExportJobService {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Map<String, ExportJob> jobs;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LogbookApplicationProperties properties;
+
+    //Constants
+    public static final int DEFAULT_EXPORT_JOB_RETENTION_MINUTES = 60;
+
+    /**
+     * Answer my logger
+     *
+     * @return org.slf4j.Logger
+     */
+    private static Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Answer an instance of me with properties
+     * @param aProperties LogbookApplicationProperties
+     */
+    @Autowired
+    public ExportJobServiceImpl(LogbookApplicationProperties aProperties) {
+
+        super();
+        this.setProperties(aProperties);
+        this.setJobs(new ConcurrentHashMap<>());
+
+    }
+
+    /**
+     * Create and register a queued export job for aLogbookId
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return ExportJob
+     */
+    @Override
+    public ExportJob createJob(@NonNull Long aLogbookId,
+                               @NonNull ActivityExportRequest anActivityExportRequest) {
+
+        ExportJob tempResult;
+
+        this.removeExpiredJobs();
+
+        tempResult = new ExportJob(aLogbookId, anActivityExportRequest);
+        this.getJobs().put(tempResult.getId(), tempResult);
+        getLogger().info("Export job {} queued for logbookId: {}", tempResult.getId(), aLogbookId);
+
+        return tempResult;
+
+    }
+
+    /**
+     * Create and register a queued export job that resumes the interrupted job anExportJobId, replacing
+     * it if it is still registered
+     * @param anExportJobId String
+     * @param aLogbookId Long
+     * @param anActivityExportRequest ActivityExportRequest
+     * @return ExportJob
+     */
+    @Override
+    public ExportJob createResumedJob(@NonNull String anExportJobId,
+                                      @NonNull Long aLogbookId,
+                                      @NonNull ActivityExportRequest anActivityExportRequest) {
+
+        ExportJob tempResult;
+
+        this.removeExpiredJobs();
+
+        tempResult = new ExportJob(anExportJobId, aLogbookId, anActivityExportRequest);
+        this.getJobs().compute(anExportJobId, (anId, anExistingJob) -> {
+
+            if (anExistingJob != null && !anExistingJob.isFinished()) {
+                throw new IllegalStateException("Export job " + anId + " is still in progress");
+            }
+            return tempResult;
+
+        });
+        getLogger().info("Export job {} queued to resume for logbookId: {}", anExportJobId, aLogbookId);
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the export job for anExportJobId belonging to aLogbookId
+     * @param aLogbookId Long
+     * @param anExportJobId String
+     * @return ExportJob
+     */
+    @Override
+    public ExportJob findJobForLogbook(@NonNull Long aLogbookId,
+                                       @NonNull String anExportJobId) {
+
+        ExportJob tempResult;
+
+        tempResult = this.getJobs().get(anExportJobId);
+
+        //A job for another logbook is reported as not found so its existence is not leaked
+        if (tempResult == null ||
+                !tempResult.getLogbookId().equals(aLogbookId)) {
+
+            throw new ExportJobNotFoundException(anExportJobId);
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer all registered export jobs for aLogbookId, most recent first
+     * @param aLogbookId Long
+     * @return List
+     */
+    @Override
+    public List<ExportJob> findJobsForLogbook(@NonNull Long aLogbookId) {
+
+        return this.getJobs().values()
+                             .stream()
+                             .filter(job -> job.getLogbookId().equals(aLogbookId))
+                             .sorted(Comparator.comparing(ExportJob::getCreatedAt).reversed())
+                             .collect(Collectors.toList());
+
+    }
+
+    /**
+     * Request cancellation of the export job for anExportJobId belonging to aLogbookId
+     * @param aLogbookId Long
+     * @param anExportJobId String
+     * @return ExportJob
+     */
+    @Override
+    public ExportJob cancelJob(@NonNull Long aLogbookId,
+                               @NonNull String anExportJobId) {
+
+        ExportJob tempResult;
+
+        tempResult = this.findJobForLogbook(aLogbookId, anExportJobId);
+        if (tempResult.requestCancel()) {
+
+            getLogger().info("Cancel requested for export job {}", anExportJobId);
+        }
+        else {
+
+            getLogger().info("Export job {} already finished. Cancel silently ignored.", anExportJobId);
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Remove finished jobs that are older than my retention period. Runs with the export file janitor,
+     * so finished jobs are released even when no new export is started.
+     */
+    @Scheduled(fixedDelayString = "${app.exportJanitorIntervalSeconds}",
+               initialDelayString = "${app.exportJanitorIntervalSeconds}",
+               timeUnit = TimeUnit.SECONDS)
+    public void removeExpiredJobs() {
+
+        Instant tempCutoff;
+
+        tempCutoff = Instant.now().minus(Duration.ofMinutes(this.getRetentionMinutes()));
+        this.getJobs().values()
+                      .removeIf(job -> job.isFinished() &&
+                                        job.getFinishedAt() != null &&
+                                            job.getFinishedAt().isBefore(tempCutoff));
+
+    }
+
+    /**
+     * Answer the number of minutes a finished job remains queryable
+     * @return int
+     */
+    private int getRetentionMinutes() {
+
+        Integer tempResult;
+
+        tempResult = this.getProperties().getExportJobRetentionMinutes();
+
+        return (tempResult != null && tempResult > 0) ? tempResult : DEFAULT_EXPORT_JOB_RETENTION_MINUTES;
+    }
+
+}
@@ -63,6 +63,13 @@ public interface LogbookEntryService {
      */
     public LogbookEntry findLogbookEntryById(Long anId);
 
+    /**
+     * Answer a logbook entry for anId with its logbook, but without its activities or comments
+     * @param anId Long
+     * @return LogbookEntry
+     */
+    public LogbookEntry findLogbookEntryWithLogbook(Long anId);
+
     /**
      * Answer logbook entries associated with aLogbook (in dto form))
      * @param aLogbook Logbook
@@ -1,5 +1,6 @@
 package com.mjdsoftware.logbook.service;
 
+import com.mjdsoftware.logbook.domain.entities.Activity;
 import com.mjdsoftware.logbook.domain.entities.Logbook;
 import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
 import com.mjdsoftware.logbook.domain.repositories.LogbookEntryRepository;
@@ -9,6 +10,7 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -17,6 +19,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -55,7 +58,7 @@ public class LogbookEntryServiceImpl extends AbstractServiceImpl implements Logb
     }
 
     /**
-     * Answer a logbook entry for anId
+     * Answer a logbook entry for anId, with its activities and all of their comments loaded
      * @param anId Long
      * @return LogbookEntry
      */
@@ -66,19 +69,36 @@ public class LogbookEntryServiceImpl extends AbstractServiceImpl implements Logb
         Optional<LogbookEntry>  tempEntry;
         LogbookEntry            tempResult = null;
 
-        tempEntry = this.getLogbookEntryRepository().findById(anId);
+        tempEntry = this.getLogbookEntryRepository().findDetailById(anId);
         if (tempEntry.isPresent()) {
 
             tempResult = tempEntry.get();
+            this.initializeComments(List.of(tempResult));
         }
 
         return tempResult;
 
     }
 
+    /**
+     * Answer a logbook entry for anId with its logbook, in a single statement. Its activities and
+     * comments are not loaded, so it suits adding to or checking the entry rather than answering it.
+     * @param anId Long
+     * @return LogbookEntry
+     */
+    @Transactional
+    @Override
+    public LogbookEntry findLogbookEntryWithLogbook(@NonNull Long anId) {
+
+        return this.getLogbookEntryRepository().findWithLogbookById(anId).orElse(null);
+    }
+
 
     /**
-     * Answer logbook entries associated with aLogbook for a given page number and size
+     * Answer logbook entries associated with aLogbook for a given page number and size, with their
+     * activities and all of their comments loaded. The page is taken over entry ids, and the entries
+     * are then fetched with their activities in one statement; comments are batch fetched, so the
+     * number of statements does not grow with the page size.
      * @param aLogbook Logbook
      * @param aPageNumber int
      * @param aPageSize int
@@ -90,20 +110,48 @@ public class LogbookEntryServiceImpl extends AbstractServiceImpl implements Logb
                                                            int aPageNumber,
                                                            int aPageSize) {
 
-        List<LogbookEntry> tempResults;
+        List<LogbookEntry> tempResults = new ArrayList<>();
+        List<Long>         tempIds;
         Sort               tempDefaultSort = Sort.by(Sort.Direction.DESC,
-                                         "activityDate");
+                                         "activityDate", "id");
         Pageable           tempPage;
 
 
         tempPage = PageRequest.of(aPageNumber, aPageSize, tempDefaultSort);
-        tempResults = this.getLogbookEntryRepository()
-                          .findByLogbook(aLogbook, tempPage);
+        tempIds = this.getLogbookEntryRepository()
+                      .findIdsByLogbook(aLogbook, tempPage);
+        if (!tempIds.isEmpty()) {
+
+            tempResults = this.getLogbookEntryRepository()
+                              .findByIdIn(tempIds, tempDefaultSort);
+            this.initializeComments(tempResults);
+
+        }
 
         return tempResults;
 
     }
 
+    /**
+     * Load the comments of anEntries and of their activities while my transaction is still open, so
+     * they can be answered as value objects once it has closed. Comments are batch fetched, so this
+     * takes one statement per comment collection however many entries there are, up to the batch size.
+     * @param anEntries List
+     */
+    private void initializeComments(List<LogbookEntry> anEntries) {
+
+        for (LogbookEntry anEntry: anEntries) {
+
+            Hibernate.initialize(anEntry.getComments());
+            for (Activity anActivity: anEntry.getActivities()) {
+
+                Hibernate.initialize(anActivity.getComments());
+            }
+
+        }
+
+    }
+
     /**
      * Create logbook entry from aLogbookEntryDTO
      * @param aLogbook Logbook
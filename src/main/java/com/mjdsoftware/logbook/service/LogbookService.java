@@ -39,6 +39,14 @@ public interface LogbookService {
      */
     public Logbook findLogbookById(Long anId);
 
+    /**
+     * Answer whether the logbook for aLogbookId belongs to the user named aUsername
+     * @param aLogbookId Long
+     * @param aUsername String
+     * @return boolean
+     */
+    public boolean isLogbookOwnedBy(Long aLogbookId, String aUsername);
+
     /**
      * Delete logbook for aLogbookId
      * @param aLogbookId Long
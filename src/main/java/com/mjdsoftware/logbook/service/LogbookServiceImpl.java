@@ -4,6 +4,7 @@ import com.mjdsoftware.logbook.domain.entities.Logbook;
 import com.mjdsoftware.logbook.domain.entities.User;
 import com.mjdsoftware.logbook.domain.repositories.LogbookRepository;
 import com.mjdsoftware.logbook.dto.LogbookDTO;
+import com.mjdsoftware.logbook.security.OwnershipCache;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -30,6 +31,9 @@ public class LogbookServiceImpl implements LogbookService {
     @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
     private UserService userService;
 
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private OwnershipCache ownershipCache;
+
     /**
      * Answer my logger
      * @return logger
@@ -43,16 +47,19 @@ public class LogbookServiceImpl implements LogbookService {
      * @param aService LogbookEntryService
      * @param aLogbookRepository LogbookRepository
      * @param aUserService UserService
+     * @param anOwnershipCache OwnershipCache
      */
     @Autowired
     public LogbookServiceImpl(LogbookEntryService aService,
                               LogbookRepository aLogbookRepository,
-                              UserService aUserService) {
+                              UserService aUserService,
+                              OwnershipCache anOwnershipCache) {
 
         super();
         this.setLogbookEntryService(aService);
         this.setLogbookRepository(aLogbookRepository);
         this.setUserService(aUserService);
+        this.setOwnershipCache(anOwnershipCache);
 
     }
 
@@ -77,6 +84,22 @@ public class LogbookServiceImpl implements LogbookService {
 
     }
 
+    /**
+     * Answer whether the logbook for aLogbookId belongs to the user named aUsername. The owner is
+     * answered from my ownership cache, so this only goes to the database on a miss.
+     * @param aLogbookId Long
+     * @param aUsername String
+     * @return boolean
+     */
+    @Override
+    public boolean isLogbookOwnedBy(@NonNull Long aLogbookId,
+                                    @NonNull String aUsername) {
+
+        return aUsername.equals(this.getOwnershipCache()
+                                    .getLogbookOwner(aLogbookId,
+                                                     this.getLogbookRepository()::findOwnerUsernameById));
+    }
+
 
     /**
      * Answer all logbooks
@@ -107,6 +130,7 @@ public class LogbookServiceImpl implements LogbookService {
         tempBook.setUser(aUser);
 
         this.getLogbookRepository().save(tempBook);
+        this.getOwnershipCache().invalidateLogbook(tempBook.getId());
 
         return tempBook;
 
@@ -142,6 +166,7 @@ public class LogbookServiceImpl implements LogbookService {
 
             //Now delete the logbook
             this.getLogbookRepository().deleteById(aLogbookId);
+            this.getOwnershipCache().invalidateLogbook(aLogbookId);
 
             getLogger().info("Logbook successfully delete for id {}", aLogbookId);
 
@@ -1,9 +1,11 @@
 package com.mjdsoftware.logbook.service;
 
 
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
 import com.mjdsoftware.logbook.dto.oauth.OauthToken;
 import com.mjdsoftware.logbook.dto.oauth.UserAuthDTO;
 import com.mjdsoftware.logbook.utils.KeyCloakUtilities;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -13,6 +15,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,19 +41,33 @@ public class OauthAccessServiceImpl implements OauthAccessService {
     @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PROTECTED) // exposed for unit tests
     private MessageSource messageSource;
 
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private AdminTokenHolder adminTokenHolder;
+
+    //Constants
+    public static final int DEFAULT_ADMIN_TOKEN_REFRESH_MARGIN_SECONDS = 30;
+
 
     /**
      * Answer an instance of me for the following arguments:
      *
      * @param aUtils KeyCloakUtilities
      * @param aSource MessageSource
+     * @param aProperties LogbookApplicationProperties
+     * @param aMeterRegistry MeterRegistry
      */
     @Autowired
     public OauthAccessServiceImpl(KeyCloakUtilities aUtils,
-                                  MessageSource aSource) {
+                                  MessageSource aSource,
+                                  LogbookApplicationProperties aProperties,
+                                  MeterRegistry aMeterRegistry) {
 
         this.setKeycloakUtilities(aUtils);
         this.setMessageSource(aSource);
+        this.setAdminTokenHolder(new AdminTokenHolder(this::grantAdminToken,
+                                                      this::refreshAdminToken,
+                                                      Duration.ofSeconds(this.getAdminTokenRefreshMarginSeconds(aProperties)),
+                                                      aMeterRegistry));
 
     }
 
@@ -103,12 +120,14 @@ public class OauthAccessServiceImpl implements OauthAccessService {
     public UserAuthDTO createUser(@NonNull String username,
                                   @NonNull String password) {
 
+        OauthToken            tempAdminToken;
         Optional<UserAuthDTO> tempUser;
         UserAuthDTO           tempResult = null;
 
-        this.getKeycloakUtilities().createUser(this.retrieveAdminToken(), username, password);
+        tempAdminToken = this.retrieveAdminToken();
+        this.getKeycloakUtilities().createUser(tempAdminToken, username, password);
         tempUser = this.getKeycloakUtilities().
-                        retrieveUser(this.retrieveAdminToken(), username)
+                        retrieveUser(tempAdminToken, username)
                        .stream()
                        .findFirst();
 
@@ -131,11 +150,20 @@ public class OauthAccessServiceImpl implements OauthAccessService {
     }
 
     /**
-     * Retrieve an admin token
+     * Retrieve the shared admin token
      * @return OauthToken
      */
     private OauthToken retrieveAdminToken() {
 
+        return this.getAdminTokenHolder().getToken();
+    }
+
+    /**
+     * Answer a new admin token from a password grant
+     * @return OauthToken
+     */
+    private OauthToken grantAdminToken() {
+
         OauthToken tempResult;
 
         tempResult = this.getKeycloakUtilities()
@@ -147,4 +175,29 @@ public class OauthAccessServiceImpl implements OauthAccessService {
 
     }
 
+    /**
+     * Answer a new admin token for aRefreshToken
+     * @param aRefreshToken String
+     * @return OauthToken
+     */
+    private OauthToken refreshAdminToken(String aRefreshToken) {
+
+        return this.getKeycloakUtilities()
+                   .refreshTokenForAdmin(aRefreshToken, this.getAuthorizationServerAdminClientId());
+    }
+
+    /**
+     * Answer the seconds before expiry the admin token is refreshed according to aProperties
+     * @param aProperties LogbookApplicationProperties
+     * @return int
+     */
+    private int getAdminTokenRefreshMarginSeconds(LogbookApplicationProperties aProperties) {
+
+        Integer tempResult;
+
+        tempResult = aProperties.getAdminTokenRefreshMarginSeconds();
+
+        return (tempResult != null && tempResult >= 0) ? tempResult : DEFAULT_ADMIN_TOKEN_REFRESH_MARGIN_SECONDS;
+    }
+
 }
@@ -30,6 +30,15 @@ public interface UserService {
      */
     User findUserByUsername(String username);
 
+    /**
+     * Answer whether the User for anId is named aUsername
+     *
+     * @param anId Long
+     * @param aUsername String
+     * @return boolean
+     */
+    boolean isUserNamed(Long anId, String aUsername);
+
     /**
      * Find all users
      *
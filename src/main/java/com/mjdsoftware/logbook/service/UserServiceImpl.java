@@ -3,6 +3,7 @@ package com.mjdsoftware.logbook.service;
 import com.mjdsoftware.logbook.domain.entities.User;
 import com.mjdsoftware.logbook.domain.repositories.UserRepository;
 import com.mjdsoftware.logbook.dto.UserDTO;
+import com.mjdsoftware.logbook.security.OwnershipCache;
 import jakarta.validation.constraints.NotNull;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -24,6 +25,9 @@ public class UserServiceImpl implements UserService {
     @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
     private UserRepository userRepository;
 
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private OwnershipCache ownershipCache;
+
     /**
      * Answer my logger
      *
@@ -36,12 +40,16 @@ public class UserServiceImpl implements UserService {
     /**
      * Answer an instance of me for aUserRepository
      * @param aUserRepository UserRepository
+     * @param anOwnershipCache OwnershipCache
      */
     @Autowired
-    public UserServiceImpl(UserRepository aUserRepository) {
+    public UserServiceImpl(UserRepository aUserRepository,
+                           OwnershipCache anOwnershipCache) {
 
         super();
         this.setUserRepository(aUserRepository);
+        this.setOwnershipCache(anOwnershipCache);
+
     }
 
     /**
@@ -57,6 +65,7 @@ public class UserServiceImpl implements UserService {
         tempUser.updateFrom(aUserDTO);
 
         this.getUserRepository().save(tempUser);
+        this.getOwnershipCache().invalidateUser(tempUser.getId());
 
         return tempUser;
 
@@ -95,6 +104,22 @@ public class UserServiceImpl implements UserService {
 
     }
 
+    /**
+     * Answer whether the User for anId is named aUsername. The name is answered from my ownership
+     * cache, so this only goes to the database on a miss.
+     * @param anId Long
+     * @param aUsername String
+     * @return boolean
+     */
+    @Override
+    public boolean isUserNamed(@NonNull Long anId,
+                               @NonNull String aUsername) {
+
+        return aUsername.equals(this.getOwnershipCache()
+                                    .getUsername(anId, this.getUserRepository()::findUsernameById));
+
+    }
+
     /**
      * Find all users
      * @return List
@@ -116,6 +141,7 @@ public class UserServiceImpl implements UserService {
     public void deleteUserById(@NotNull Long anId) {
 
         this.getUserRepository().deleteById(anId);
+        this.getOwnershipCache().invalidateUser(anId);
     }
 
 }
@@ -0,0 +1,302 @@
+package com.mjdsoftware.logbook.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * An in-process cache of values by key, least recently used first. Each value expires after a time to
+ * live, or sooner if its expiry cap says so, and the least recently used value is evicted once the cache
+ * is full. Null values are cached like any other. Values are loaded outside my lock, so a slow load never
+ * blocks hits; each removal advances my generation, and a load that started in an earlier generation is
+ * answered but not cached. Hits, misses and size are published to a MeterRegistry, tagged with my name.
+ * @param <K> key
+ * @param <V> value
+ */
+public class BoundedExpiringCache<K, V> {
+
+    //Access ordered, so iteration starts at the least recently used entry
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LinkedHashMap<K, CachedValue<V>> entries;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private int maxEntries;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Duration timeToLive;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Function<V, Instant> expiryCap;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private long generation;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Counter hitCounter;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Counter missCounter;
+
+    //Constants
+    private static final String SIZE_METRIC_SUFFIX = ".size";
+
+    /**
+     * Answer an instance named aName, holding at most aMaxEntries for aTimeToLive each, whose hits and
+     * misses are published to aMeterRegistry as aMetricName and its size as aMetricName.size. A
+     * non-positive aMaxEntries caches nothing.
+     * @param aMetricName String
+     * @param aName String
+     * @param aMaxEntries int
+     * @param aTimeToLive Duration
+     * @param aMeterRegistry MeterRegistry
+     */
+    public BoundedExpiringCache(String aMetricName,
+                                String aName,
+                                int aMaxEntries,
+                                Duration aTimeToLive,
+                                MeterRegistry aMeterRegistry) {
+
+        this(aMetricName, aName, aMaxEntries, aTimeToLive, v -> null, aMeterRegistry);
+    }
+
+    /**
+     * Answer an instance as above, whose values also expire no later than the Instant anExpiryCap
+     * answers for them, if any
+     * @param aMetricName String
+     * @param aName String
+     * @param aMaxEntries int
+     * @param aTimeToLive Duration
+     * @param anExpiryCap Function
+     * @param aMeterRegistry MeterRegistry
+     */
+    public BoundedExpiringCache(String aMetricName,
+                                String aName,
+                                int aMaxEntries,
+                                Duration aTimeToLive,
+                                Function<V, Instant> anExpiryCap,
+                                MeterRegistry aMeterRegistry) {
+
+        super();
+        this.setEntries(new LinkedHashMap<>(16, 0.75f, true));
+        this.setMaxEntries(aMaxEntries);
+        this.setTimeToLive(aTimeToLive);
+        this.setExpiryCap(anExpiryCap);
+        this.setHitCounter(Counter.builder(aMetricName)
+                                  .description("Lookups answered from the cache")
+                                  .tag("cache", aName)
+                                  .tag("result", "hit")
+                                  .register(aMeterRegistry));
+        this.setMissCounter(Counter.builder(aMetricName)
+                                   .description("Lookups that had to be loaded")
+                                   .tag("cache", aName)
+                                   .tag("result", "miss")
+                                   .register(aMeterRegistry));
+        Gauge.builder(aMetricName + SIZE_METRIC_SUFFIX, this, BoundedExpiringCache::size)
+             .description("Entries held by the cache")
+             .tag("cache", aName)
+             .register(aMeterRegistry);
+
+    }
+
+    /**
+     * Answer the value cached for aKey, answering and caching it from aLoader on a miss. Whatever
+     * aLoader throws is passed on and nothing is cached.
+     * @param aKey K
+     * @param aLoader Function
+     * @return V
+     */
+    public V get(K aKey, Function<K, V> aLoader) {
+
+        CachedValue<V>  tempCached;
+        long            tempGeneration;
+        V               tempResult;
+
+        synchronized (this) {
+
+            tempCached = this.findUnexpired(aKey);
+            tempGeneration = this.getGeneration();
+
+        }
+
+        if (tempCached != null) {
+
+            this.getHitCounter().increment();
+            tempResult = tempCached.getValue();
+
+        }
+        else {
+
+            this.getMissCounter().increment();
+            tempResult = aLoader.apply(aKey);
+            this.put(aKey, tempResult, tempGeneration);
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the value cached for aKey, if any, without loading it on a miss. A hit is counted, but a
+     * miss is not, as nothing is loaded. A key cached with a null value answers empty, as does a key
+     * that is not cached.
+     * @param aKey K
+     * @return Optional
+     */
+    public Optional<V> getIfPresent(K aKey) {
+
+        CachedValue<V>  tempCached;
+        Optional<V>     tempResult = Optional.empty();
+
+        tempCached = this.findUnexpired(aKey);
+        if (tempCached != null) {
+
+            this.getHitCounter().increment();
+            tempResult = Optional.ofNullable(tempCached.getValue());
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the entry cached for aKey, or null if there is none or it has expired, in which case it
+     * is forgotten
+     * @param aKey K
+     * @return CachedValue
+     */
+    private synchronized CachedValue<V> findUnexpired(K aKey) {
+
+        CachedValue<V> tempResult;
+
+        tempResult = this.getEntries().get(aKey);
+        if (tempResult != null && tempResult.isExpired()) {
+
+            this.getEntries().remove(aKey);
+            tempResult = null;
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Cache aValue for aKey, unless I have been removed from since aGeneration or aValue has already
+     * expired
+     * @param aKey K
+     * @param aValue V
+     * @param aGeneration long
+     */
+    private synchronized void put(K aKey, V aValue, long aGeneration) {
+
+        Instant                         tempExpiresAt;
+        Instant                         tempCap;
+        Map.Entry<K, CachedValue<V>>    tempEldest;
+
+        tempExpiresAt = Instant.now().plus(this.getTimeToLive());
+        tempCap = this.getExpiryCap().apply(aValue);
+        if (tempCap != null && tempCap.isBefore(tempExpiresAt)) {
+            tempExpiresAt = tempCap;
+        }
+
+        if (this.getMaxEntries() > 0 &&
+                aGeneration == this.getGeneration() &&
+                    tempExpiresAt.isAfter(Instant.now())) {
+
+            this.getEntries().put(aKey, new CachedValue<>(aValue, tempExpiresAt));
+            if (this.getEntries().size() > this.getMaxEntries()) {
+
+                tempEldest = this.getEntries().entrySet().iterator().next();
+                this.getEntries().remove(tempEldest.getKey());
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Forget aKey. Answer the value it was cached with, if any.
+     * @param aKey K
+     * @return V
+     */
+    public synchronized V remove(K aKey) {
+
+        CachedValue<V> tempRemoved;
+
+        this.setGeneration(this.getGeneration() + 1);
+        tempRemoved = this.getEntries().remove(aKey);
+
+        return (tempRemoved != null) ? tempRemoved.getValue() : null;
+
+    }
+
+    /**
+     * Forget every key cached with aValue
+     * @param aValue V
+     */
+    public synchronized void removeValue(V aValue) {
+
+        this.setGeneration(this.getGeneration() + 1);
+        this.getEntries().values().removeIf(c -> Objects.equals(c.getValue(), aValue));
+
+    }
+
+    /**
+     * Answer the number of entries I hold
+     * @return int
+     */
+    public synchronized int size() {
+
+        return this.getEntries().size();
+    }
+
+    /**
+     * A cached value and when it expires
+     * @param <V> value
+     */
+    private static class CachedValue<V> {
+
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private V value;
+
+        @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+        private Instant expiresAt;
+
+        /**
+         * Answer an instance caching aValue until anExpiresAt
+         * @param aValue V
+         * @param anExpiresAt Instant
+         */
+        public CachedValue(V aValue, Instant anExpiresAt) {
+
+            this.setValue(aValue);
+            this.setExpiresAt(anExpiresAt);
+
+        }
+
+        /**
+         * Answer whether I have expired
+         * @return boolean
+         */
+        public boolean isExpired() {
+
+            return Instant.now().isAfter(this.getExpiresAt());
+        }
+
+    }
+
+}
@@ -340,6 +340,40 @@ public class KeyCloakUtilities {
     }
 
 
+    /**
+     * Refresh an admin token, obtained with retrieveTokenForAdmin, and return a new one
+     * @param aRefreshToken String
+     * @param aClientId String
+     * @return OauthToken
+     */
+    public OauthToken refreshTokenForAdmin(@NonNull String aRefreshToken,
+                                           String aClientId) {
+
+        aClientId = this.parseClientIdAndAnswerDefaultIfNotDefined(aClientId);
+
+        String tempUrl = this.formulateAdminTokenUrl();
+        try {
+            HttpEntity<MultiValueMap<String, Object>> formData =
+                    createFormDataForAdminRefreshTokenInvocation(aRefreshToken,
+                                                                 REFRESH_GRANT_TYPE,
+                                                                 aClientId);
+            ResponseEntity<OauthToken> tempResult =
+                    getRestUtils().postForEntity(new RestTemplate(),
+                                                tempUrl,
+                                                formData,
+                                                OauthToken.class);
+
+            return this.diagnoseAndReturnResult(tempResult);
+        }
+        catch (Exception exc) {
+
+            String msg = "Refresh of admin token failed from KeyCloak: " + exc.getMessage();
+
+            throw new IllegalStateException(msg, exc);
+        }
+
+    }
+
     /**
      * Diagnose and return result
      * @param anEntity ResponseEntity
@@ -602,6 +636,31 @@ public class KeyCloakUtilities {
     }
 
 
+    /**
+     * Create form data for refresh of an admin token
+     * @param aRefreshTokenValue String
+     * @param aGrantType String
+     * @param aClientId String
+     * @return HttpEntity
+     */
+    private HttpEntity<MultiValueMap<String, Object>> createFormDataForAdminRefreshTokenInvocation(String aRefreshTokenValue,
+                                                                                                   String aGrantType,
+                                                                                                   String aClientId) {
+
+        MultiValueMap<String, Object>     tempParams = new LinkedMultiValueMap<>();
+        HttpHeaders                       tempHeaders = new HttpHeaders();
+
+        tempHeaders.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        tempParams.add(REFRESH_TOKEN, aRefreshTokenValue);
+        tempParams.add(GRANT_TYPE, aGrantType);
+        tempParams.add(CLIENT_ID, aClientId);
+
+        return new HttpEntity<>(tempParams, tempHeaders);
+
+
+    }
+
+
     /**
      * Answer headers with the token
      * @param aToken String
@@ -0,0 +1,69 @@
+/*
+ * Carry the logbook and date of each activity's entry on the activity itself, so activity range
+ * queries and counts scan a single index instead of joining through logbook_entries
+ */
+
+ALTER TABLE activities ADD COLUMN IF NOT EXISTS logbook_id bigint;
+ALTER TABLE activities ADD COLUMN IF NOT EXISTS activity_date timestamp without time zone;
+
+UPDATE activities act
+    SET logbook_id = lgbkent.logbook_id,
+        activity_date = lgbkent.activity_date
+    FROM logbook_entries lgbkent
+    WHERE lgbkent.id = act.log_entry_id;
+
+ALTER TABLE activities ALTER COLUMN logbook_id SET NOT NULL;
+ALTER TABLE activities ALTER COLUMN activity_date SET NOT NULL;
+
+ALTER TABLE activities
+    ADD CONSTRAINT activities_to_logbooks_fk FOREIGN KEY (logbook_id)
+    REFERENCES logbooks (id) MATCH SIMPLE
+    ON UPDATE NO ACTION
+    ON DELETE NO ACTION;
+
+CREATE INDEX IF NOT EXISTS activities_logbook_date_id_idx ON activities (logbook_id, activity_date, id);
+
+--
+-- Maintained by the database so every writer, not just the application, keeps them in step with the
+-- entry. Runs before the not null checks, so inserts need not supply them.
+--
+CREATE OR REPLACE FUNCTION activities_set_logbook_and_date() RETURNS trigger AS $$
+BEGIN
+    SELECT lgbkent.logbook_id, lgbkent.activity_date
+        INTO NEW.logbook_id, NEW.activity_date
+        FROM logbook_entries lgbkent
+        WHERE lgbkent.id = NEW.log_entry_id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER activities_logbook_and_date_trg
+    BEFORE INSERT OR UPDATE OF log_entry_id, logbook_id, activity_date ON activities
+    FOR EACH ROW EXECUTE FUNCTION activities_set_logbook_and_date();
+
+CREATE OR REPLACE FUNCTION logbook_entries_sync_activities() RETURNS trigger AS $$
+BEGIN
+    UPDATE activities
+        SET logbook_id = NEW.logbook_id,
+            activity_date = NEW.activity_date
+        WHERE log_entry_id = NEW.id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER logbook_entries_sync_activities_trg
+    AFTER UPDATE OF logbook_id, activity_date ON logbook_entries
+    FOR EACH ROW
+    WHEN (OLD.logbook_id IS DISTINCT FROM NEW.logbook_id OR OLD.activity_date IS DISTINCT FROM NEW.activity_date)
+    EXECUTE FUNCTION logbook_entries_sync_activities();
+
+--
+-- Tombstones can now be recorded from the activity alone
+--
+CREATE OR REPLACE FUNCTION activities_record_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO activity_tombstones (activity_id, logbook_id, activity_type, activity_date, deleted_at)
+        VALUES (OLD.id, OLD.logbook_id, OLD.activity_type, OLD.activity_date, now());
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
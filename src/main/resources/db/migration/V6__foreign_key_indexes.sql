@@ -0,0 +1,27 @@
+/*
+ * Index every foreign key and join table column. Postgres does not index the referencing side of a
+ * foreign key, so without these every collection load, cascade and delete on the parent scans the
+ * whole child table.
+ */
+
+--
+-- Entries are read per logbook, newest first, and counted and deleted per logbook
+--
+CREATE INDEX IF NOT EXISTS logbook_entries_logbook_date_idx ON logbook_entries (logbook_id, activity_date);
+
+CREATE INDEX IF NOT EXISTS logbooks_user_id_idx ON logbooks (user_id);
+
+--
+-- Activities are loaded per entry. activities (logbook_id, activity_date, id) from V5 covers logbook_id.
+--
+CREATE INDEX IF NOT EXISTS activities_log_entry_id_idx ON activities (log_entry_id);
+CREATE INDEX IF NOT EXISTS activities_activity_details_id_idx ON activities (activity_details_id);
+
+--
+-- Join tables are read from the owning side and cleaned up from the comment side
+--
+CREATE INDEX IF NOT EXISTS activity_comments_activity_comment_idx ON activity_comments (activity_id, comment_id);
+CREATE INDEX IF NOT EXISTS activity_comments_comment_id_idx ON activity_comments (comment_id);
+
+CREATE INDEX IF NOT EXISTS log_entry_comments_entry_comment_idx ON log_entry_comments (log_entry_id, comment_id);
+CREATE INDEX IF NOT EXISTS log_entry_comments_comment_id_idx ON log_entry_comments (comment_id);
@@ -0,0 +1,592 @@
+package com.mjdsoftware.logbook.api;
+
+import com.mjdsoftware.logbook.csv.ActivityExportRow;
+import com.mjdsoftware.logbook.csv.ActivityRowHandler;
+import com.mjdsoftware.logbook.csv.StreamingActivityExporter;
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import com.mjdsoftware.logbook.domain.entities.DistanceUnits;
+import com.mjdsoftware.logbook.domain.entities.DurationUnits;
+import com.mjdsoftware.logbook.dto.ActivityExportFormat;
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.exception.ExceptionTranslator;
+import com.mjdsoftware.logbook.exception.ExportCapacityExceededException;
+import com.mjdsoftware.logbook.exception.ExportQuotaExceededException;
+import com.mjdsoftware.logbook.export.ExportJob;
+import com.mjdsoftware.logbook.service.ActivityService;
+import com.mjdsoftware.logbook.service.ExportJobService;
+import com.mjdsoftware.logbook.service.LogbookEntryService;
+import com.mjdsoftware.logbook.service.LogbookService;
+import com.mjdsoftware.logbook.service.UserService;
+import com.mjdsoftware.logbook.utils.LocalizationUtils;
+import jakarta.servlet.ServletException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class LogbookControllerExportTests {
+
+    @TempDir
+    Path directory;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ActivityService activityService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportJobService exportJobService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private MockMvc mockMvc;
+
+    //Constants
+    private static final long LOGBOOK_ID = 1L;
+    private static final int FLUSH_ROWS = 2;
+    private static final String NEXT_CHECKPOINT = "next-checkpoint";
+    private static final String STREAM_URL = "/api/logbook/{logbookId}/activities/export";
+    private static final String EXPORT_URL = "/api/logbook/{logbookId}/activities";
+    private static final String DOWNLOAD_URL = "/api/logbook/{logbookId}/activities/exports/{exportJobId}/file";
+    private static final String EXPORT_JOB_ID = "export-job";
+    private static final int RETRY_AFTER_SECONDS = 30;
+    private static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final long END_TIME = System.currentTimeMillis();
+    private static final long START_TIME = END_TIME - TimeUnit.DAYS.toMillis(7);
+    private static final String EXPECTED_CSV =
+            "id,activityType,duration,durationUnits,activityDetails,distance,distanceUnits," +
+                    "averageWatts,totalCalories,averageHeartRate\r\n" +
+            "1,ROWING,1.0,HOURS,First activity,116000.0,METERS,0.0,0.0,0.0\r\n" +
+            "2,ROWING,1.0,HOURS,Second activity,116000.0,METERS,0.0,0.0,0.0\r\n" +
+            "3,ROWING,1.0,HOURS,Third activity,116000.0,METERS,0.0,0.0,0.0\r\n";
+
+    /**
+     * Create a controller over mock services, streaming three rows from the cursor
+     * @throws IOException never, the cursor is mocked
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+
+        this.setActivityService(Mockito.mock(ActivityService.class));
+        this.setExportJobService(Mockito.mock(ExportJobService.class));
+
+        Mockito.when(this.getActivityService().createStreamingExporter(Mockito.anyLong(),
+                                                                       Mockito.any(ActivityExportRequest.class)))
+               .thenAnswer(anInvocation -> new StreamingActivityExporter(anInvocation.getArgument(0),
+                                                                         anInvocation.getArgument(1),
+                                                                         NEXT_CHECKPOINT,
+                                                                         FLUSH_ROWS,
+                                                                         this.getActivityService()));
+        Mockito.when(this.getActivityService().exportActivitiesFromCursor(Mockito.anyLong(),
+                                                                          Mockito.any(ActivityExportRequest.class),
+                                                                          Mockito.any(ActivityRowHandler.class)))
+               .thenAnswer(anInvocation -> this.handleTestData(anInvocation.getArgument(2)));
+
+        this.setMockMvc(MockMvcBuilders.standaloneSetup(this.createController())
+                                       .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                                       .build());
+
+    }
+
+    /**
+     * Streaming without a format answers csv as an attachment, with the checkpoint for the next delta
+     * export and without a content length
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testStreamCsvByDefault() throws Exception {
+
+        MvcResult tempResult;
+
+        tempResult = this.getMockMvc()
+                         .perform(get(STREAM_URL, LOGBOOK_ID)
+                                      .param("startTimeEpoch", String.valueOf(START_TIME))
+                                      .param("endTimeEpoch", String.valueOf(END_TIME)))
+                         .andExpect(request().asyncStarted())
+                         .andReturn();
+
+        this.getMockMvc()
+            .perform(asyncDispatch(tempResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("text/csv"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"activities.csv\""))
+            .andExpect(header().string(LogbookController.EXPORT_CHECKPOINT_HEADER, NEXT_CHECKPOINT))
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_LENGTH))
+            .andExpect(content().string(EXPECTED_CSV));
+
+    }
+
+    /**
+     * The type, checkpoint, format and search criteria of a stream are all passed on in the export request
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testStreamPassesRequestOn() throws Exception {
+
+        MvcResult                               tempResult;
+        ArgumentCaptor<ActivityExportRequest>   tempRequest;
+
+        tempResult = this.getMockMvc()
+                         .perform(get(STREAM_URL, LOGBOOK_ID)
+                                      .param("startTimeEpoch", String.valueOf(START_TIME))
+                                      .param("endTimeEpoch", String.valueOf(END_TIME))
+                                      .param("activityType", ActivityType.ROWING.name())
+                                      .param("checkpoint", "previous-checkpoint")
+                                      .param("format", ActivityExportFormat.NDJSON.name())
+                                      .param("activityTypes", ActivityType.ROWING.name(), ActivityType.SWIM.name())
+                                      .param("minDistance", "1000.0"))
+                         .andExpect(request().asyncStarted())
+                         .andReturn();
+
+        this.getMockMvc()
+            .perform(asyncDispatch(tempResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"activities.ndjson\""));
+
+        tempRequest = ArgumentCaptor.forClass(ActivityExportRequest.class);
+        Mockito.verify(this.getActivityService()).createStreamingExporter(Mockito.eq(LOGBOOK_ID), tempRequest.capture());
+        Assertions.assertEquals(START_TIME, tempRequest.getValue().getStartTimeEpoch());
+        Assertions.assertEquals(END_TIME, tempRequest.getValue().getEndTimeEpoch());
+        Assertions.assertEquals(ActivityType.ROWING, tempRequest.getValue().getActivityType());
+        Assertions.assertEquals("previous-checkpoint", tempRequest.getValue().getCheckpointToken());
+        Assertions.assertEquals(ActivityExportFormat.NDJSON, tempRequest.getValue().getFormat());
+        Assertions.assertEquals(List.of(ActivityType.ROWING, ActivityType.SWIM),
+                                tempRequest.getValue().getCriteria().getActivityTypes());
+        Assertions.assertEquals(1000.0, tempRequest.getValue().getCriteria().getMinDistance());
+
+    }
+
+    /**
+     * A stream whose end precedes its start is rejected before anything is read
+     */
+    @Test
+    public void testStreamRejectsInvalidDates() {
+
+        Assertions.assertThrows(ServletException.class,
+                                () -> this.getMockMvc()
+                                          .perform(get(STREAM_URL, LOGBOOK_ID)
+                                                       .param("startTimeEpoch", String.valueOf(END_TIME))
+                                                       .param("endTimeEpoch", String.valueOf(START_TIME))));
+        Mockito.verify(this.getActivityService(), Mockito.never())
+               .createStreamingExporter(Mockito.anyLong(), Mockito.any(ActivityExportRequest.class));
+
+    }
+
+    /**
+     * A stream is released once it has been written, and only once
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testStreamIsReleasedOnceWritten() throws Exception {
+
+        AtomicInteger   tempReleases = new AtomicInteger();
+        MvcResult       tempResult;
+
+        Mockito.when(this.getActivityService().createStreamingExporter(Mockito.anyLong(),
+                                                                       Mockito.any(ActivityExportRequest.class)))
+               .thenAnswer(anInvocation -> new StreamingActivityExporter(anInvocation.getArgument(0),
+                                                                         anInvocation.getArgument(1),
+                                                                         NEXT_CHECKPOINT,
+                                                                         FLUSH_ROWS,
+                                                                         this.getActivityService(),
+                                                                         tempReleases::incrementAndGet));
+
+        tempResult = this.getMockMvc()
+                         .perform(get(STREAM_URL, LOGBOOK_ID)
+                                      .param("startTimeEpoch", String.valueOf(START_TIME))
+                                      .param("endTimeEpoch", String.valueOf(END_TIME)))
+                         .andExpect(request().asyncStarted())
+                         .andReturn();
+
+        this.getMockMvc()
+            .perform(asyncDispatch(tempResult))
+            .andExpect(status().isOk())
+            .andExpect(content().string(EXPECTED_CSV));
+        Assertions.assertEquals(1, tempReleases.get());
+
+    }
+
+    /**
+     * A stream that is not admitted because as many exports as may run at once are running is
+     * rejected as too many requests, telling the client when to retry
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testStreamOverCapacityIsTooManyRequests() throws Exception {
+
+        Mockito.when(this.getActivityService().createStreamingExporter(Mockito.anyLong(),
+                                                                       Mockito.any(ActivityExportRequest.class)))
+               .thenThrow(new ExportCapacityExceededException(RETRY_AFTER_SECONDS,
+                                                              new RejectedExecutionException("Streaming export limit reached")));
+
+        this.createTranslatingMockMvc("Export capacity exceeded")
+            .perform(get(STREAM_URL, LOGBOOK_ID)
+                         .param("startTimeEpoch", String.valueOf(START_TIME))
+                         .param("endTimeEpoch", String.valueOf(END_TIME)))
+            .andExpect(request().asyncNotStarted())
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS)));
+
+    }
+
+    /**
+     * An export that would not fit in the export space left to its user is rejected as insufficient
+     * storage
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testExportOverQuotaIsInsufficientStorage() throws Exception {
+
+        Mockito.when(this.getActivityService().exportActivitiesToFileAsynchronously(Mockito.eq(LOGBOOK_ID),
+                                                                                   Mockito.any(ActivityExportRequest.class)))
+               .thenThrow(new ExportQuotaExceededException(2048L, 1024L));
+
+        this.createTranslatingMockMvc("Export quota exceeded")
+            .perform(post(EXPORT_URL, LOGBOOK_ID)
+                         .contentType(MediaType.APPLICATION_JSON)
+                         .content("{\"startTimeEpoch\":" + START_TIME +
+                                          ",\"endTimeEpoch\":" + END_TIME +
+                                          ",\"exportFilename\":\"activities.csv\"}"))
+            .andExpect(status().isInsufficientStorage());
+
+    }
+
+    /**
+     * Answer a MockMvc over my controller whose exceptions are translated, with every message
+     * localized as aMessage
+     * @param aMessage String
+     * @return MockMvc
+     */
+    private MockMvc createTranslatingMockMvc(String aMessage) {
+
+        ExceptionTranslator tempTranslator;
+        LocalizationUtils   tempLocalizationUtils;
+
+        tempLocalizationUtils = Mockito.mock(LocalizationUtils.class);
+        Mockito.when(tempLocalizationUtils.getLocalizedMessage(Mockito.anyString(),
+                                                               Mockito.any(Object[].class),
+                                                               Mockito.any(Locale.class)))
+               .thenReturn(aMessage);
+        tempTranslator = new ExceptionTranslator();
+        ReflectionTestUtils.setField(tempTranslator, "localizationUtils", tempLocalizationUtils);
+
+        return MockMvcBuilders.standaloneSetup(this.createController())
+                              .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                              .setControllerAdvice(tempTranslator)
+                              .build();
+
+    }
+
+    /**
+     * Downloading without a range answers the whole file, saying ranges are accepted
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testDownloadWholeFile() throws Exception {
+
+        ExportJob tempJob;
+        MvcResult tempResult;
+
+        tempJob = this.createFinishedJob();
+        tempResult = this.getMockMvc()
+                         .perform(get(DOWNLOAD_URL, LOGBOOK_ID, EXPORT_JOB_ID))
+                         .andExpect(request().asyncStarted())
+                         .andReturn();
+
+        this.getMockMvc()
+            .perform(asyncDispatch(tempResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("text/csv"))
+            .andExpect(header().string(HttpHeaders.ETAG, this.eTagOf(tempJob)))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, this.getExpectedLength()))
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"export.csv\""))
+            .andExpect(content().string(EXPECTED_CSV));
+
+    }
+
+    /**
+     * A single range, unconditionally or under an If-Range holding the current ETag, answers just
+     * those bytes
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testDownloadSingleRange() throws Exception {
+
+        ExportJob tempJob;
+
+        tempJob = this.createFinishedJob();
+
+        this.assertPartialContent(this.getMockMvc()
+                                      .perform(get(DOWNLOAD_URL, LOGBOOK_ID, EXPORT_JOB_ID)
+                                                   .header(HttpHeaders.RANGE, "bytes=10-19"))
+                                      .andExpect(request().asyncStarted())
+                                      .andReturn());
+        this.assertPartialContent(this.getMockMvc()
+                                      .perform(get(DOWNLOAD_URL, LOGBOOK_ID, EXPORT_JOB_ID)
+                                                   .header(HttpHeaders.RANGE, "bytes=10-19")
+                                                   .header(HttpHeaders.IF_RANGE, this.eTagOf(tempJob)))
+                                      .andExpect(request().asyncStarted())
+                                      .andReturn());
+
+    }
+
+    /**
+     * A range under an If-Range that no longer matches the file answers the whole file instead
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testDownloadIgnoresRangeForStaleIfRange() throws Exception {
+
+        MvcResult tempResult;
+
+        this.createFinishedJob();
+        tempResult = this.getMockMvc()
+                         .perform(get(DOWNLOAD_URL, LOGBOOK_ID, EXPORT_JOB_ID)
+                                      .header(HttpHeaders.RANGE, "bytes=10-19")
+                                      .header(HttpHeaders.IF_RANGE, "\"an-earlier-export\""))
+                         .andExpect(request().asyncStarted())
+                         .andReturn();
+
+        this.getMockMvc()
+            .perform(asyncDispatch(tempResult))
+            .andExpect(status().isOk())
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, this.getExpectedLength()))
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+            .andExpect(content().string(EXPECTED_CSV));
+
+    }
+
+    /**
+     * A range starting past the end of the file is not satisfiable, and says how long the file is
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testDownloadRangeNotSatisfiable() throws Exception {
+
+        this.createFinishedJob();
+
+        this.getMockMvc()
+            .perform(get(DOWNLOAD_URL, LOGBOOK_ID, EXPORT_JOB_ID)
+                         .header(HttpHeaders.RANGE, "bytes=" + this.getExpectedLength() + "-"))
+            .andExpect(request().asyncNotStarted())
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + this.getExpectedLength()))
+            .andExpect(content().string(""));
+
+    }
+
+    /**
+     * A download whose If-None-Match holds the current ETag, or any, is not modified and has no body
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testDownloadNotModified() throws Exception {
+
+        ExportJob tempJob;
+
+        tempJob = this.createFinishedJob();
+
+        for (String anIfNoneMatch: List.of(this.eTagOf(tempJob), "*")) {
+
+            this.getMockMvc()
+                .perform(get(DOWNLOAD_URL, LOGBOOK_ID, EXPORT_JOB_ID)
+                             .header(HttpHeaders.IF_NONE_MATCH, anIfNoneMatch)
+                             .header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, this.eTagOf(tempJob)))
+                .andExpect(content().string(""));
+        }
+
+    }
+
+    /**
+     * A container that supports sendfile is handed the file and the range to send, with an exclusive
+     * end, and no body is written
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void testDownloadHandsRangeToSendfile() throws Exception {
+
+        ExportJob tempJob;
+
+        tempJob = this.createFinishedJob();
+
+        this.getMockMvc()
+            .perform(get(DOWNLOAD_URL, LOGBOOK_ID, EXPORT_JOB_ID)
+                         .requestAttr(SENDFILE_SUPPORTED_ATTRIBUTE, Boolean.TRUE)
+                         .header(HttpHeaders.RANGE, "bytes=10-19"))
+            .andExpect(request().asyncNotStarted())
+            .andExpect(status().isPartialContent())
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10L))
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + this.getExpectedLength()))
+            .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", tempJob.getExportFilename()))
+            .andExpect(request().attribute("org.apache.tomcat.sendfile.start", 10L))
+            .andExpect(request().attribute("org.apache.tomcat.sendfile.end", 20L))
+            .andExpect(content().string(""));
+
+        this.getMockMvc()
+            .perform(get(DOWNLOAD_URL, LOGBOOK_ID, EXPORT_JOB_ID)
+                         .requestAttr(SENDFILE_SUPPORTED_ATTRIBUTE, Boolean.TRUE))
+            .andExpect(request().asyncNotStarted())
+            .andExpect(status().isOk())
+            .andExpect(request().attribute("org.apache.tomcat.sendfile.start", 0L))
+            .andExpect(request().attribute("org.apache.tomcat.sendfile.end", this.getExpectedLength()));
+
+    }
+
+    /**
+     * Assert that the asynchronous download aResult answers bytes 10 through 19 of my test file
+     * @param aResult MvcResult
+     * @throws Exception if the dispatch fails
+     */
+    private void assertPartialContent(MvcResult aResult) throws Exception {
+
+        this.getMockMvc()
+            .perform(asyncDispatch(aResult))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10L))
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + this.getExpectedLength()))
+            .andExpect(content().string(EXPECTED_CSV.substring(10, 20)));
+
+    }
+
+    /**
+     * Answer a finished export job whose file holds EXPECTED_CSV, as my export job service finds it
+     * @return ExportJob
+     * @throws IOException if the file cannot be written
+     */
+    private ExportJob createFinishedJob() throws IOException {
+
+        Path        tempFile;
+        ExportJob   tempResult;
+
+        tempFile = this.directory.resolve("export.csv");
+        Files.writeString(tempFile, EXPECTED_CSV);
+
+        tempResult = new ExportJob(EXPORT_JOB_ID,
+                                   LOGBOOK_ID,
+                                   new ActivityExportRequest(START_TIME,
+                                                             END_TIME,
+                                                             null,
+                                                             tempFile.toAbsolutePath().toString()));
+        tempResult.markRunning();
+        tempResult.recordBytesWritten(this.getExpectedLength(), this.getExpectedLength());
+        tempResult.markFinished();
+
+        Mockito.when(this.getExportJobService().findJobForLogbook(LOGBOOK_ID, EXPORT_JOB_ID))
+               .thenReturn(tempResult);
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the strong ETag a download of anExportJob is identified by
+     * @param anExportJob ExportJob
+     * @return String
+     */
+    private String eTagOf(ExportJob anExportJob) {
+
+        return "\"" + anExportJob.getId() +
+                "-" + anExportJob.getFinishedAt().toEpochMilli() +
+                "-" + anExportJob.getBytesWritten() + "\"";
+    }
+
+    /**
+     * Answer the length of my test file
+     * @return long
+     */
+    private long getExpectedLength() {
+
+        return EXPECTED_CSV.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Answer the controller under test, over my mock services
+     * @return LogbookController
+     */
+    private LogbookController createController() {
+
+        return new LogbookController(Mockito.mock(LogbookService.class),
+                                     Mockito.mock(LogbookEntryService.class),
+                                     this.getActivityService(),
+                                     Mockito.mock(UserService.class),
+                                     this.getExportJobService(),
+                                     Mockito.mock(LogbookRequestContext.class));
+    }
+
+    /**
+     * Hand my test data to aHandler, as the cursor would, and answer the number of rows handled
+     * @param aHandler ActivityRowHandler
+     * @return long
+     * @throws IOException if aHandler cannot write a row
+     */
+    private long handleTestData(ActivityRowHandler aHandler) throws IOException {
+
+        long tempResult = 0;
+
+        for (String aDetail: List.of("First activity", "Second activity", "Third activity")) {
+
+            tempResult++;
+            aHandler.handle(this.createRow(tempResult, aDetail));
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer a rowing row for anId with aDetail
+     * @param anId long
+     * @param aDetail String
+     * @return ActivityExportRow
+     */
+    private ActivityExportRow createRow(long anId, String aDetail) {
+
+        return new ActivityExportRow(anId,
+                                     ActivityType.ROWING.name(),
+                                     1.0,
+                                     DurationUnits.HOURS.name(),
+                                     aDetail,
+                                     116000.0,
+                                     DistanceUnits.METERS.name(),
+                                     0.0,
+                                     0.0,
+                                     0.0,
+                                     Calendar.getInstance());
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.mjdsoftware.logbook.api;
+
+import com.mjdsoftware.logbook.domain.entities.Logbook;
+import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
+import com.mjdsoftware.logbook.service.LogbookEntryService;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class LogbookRequestContextTest {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LogbookEntryService logbookEntryService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LogbookRequestContext logbookRequestContext;
+
+    //Constants
+    private static final Long LOGBOOK_ID = 1L;
+    private static final Long OTHER_LOGBOOK_ID = 2L;
+    private static final Long ENTRY_ID = 10L;
+    private static final Long MISSING_ENTRY_ID = 11L;
+
+    /**
+     * Create a context over a mocked entry service holding one entry of LOGBOOK_ID
+     */
+    @BeforeEach
+    public void setup() {
+
+        Logbook         tempLogbook;
+        LogbookEntry    tempEntry;
+
+        tempLogbook = Mockito.mock(Logbook.class);
+        Mockito.when(tempLogbook.getId()).thenReturn(LOGBOOK_ID);
+        tempEntry = Mockito.mock(LogbookEntry.class);
+        Mockito.when(tempEntry.getLogbook()).thenReturn(tempLogbook);
+
+        this.setLogbookEntryService(Mockito.mock(LogbookEntryService.class));
+        Mockito.when(this.getLogbookEntryService().findLogbookEntryWithLogbook(ENTRY_ID)).thenReturn(tempEntry);
+        this.setLogbookRequestContext(new LogbookRequestContext(this.getLogbookEntryService()));
+
+    }
+
+    /**
+     * An entry is loaded once per request however often it is asked for
+     */
+    @Test
+    public void testEntryIsLoadedOnce() {
+
+        LogbookEntry tempFirst;
+        LogbookEntry tempSecond;
+
+        tempFirst = this.getLogbookRequestContext().findLogbookEntry(LOGBOOK_ID, ENTRY_ID);
+        tempSecond = this.getLogbookRequestContext().findLogbookEntry(LOGBOOK_ID, ENTRY_ID);
+
+        Assertions.assertNotNull(tempFirst);
+        Assertions.assertSame(tempFirst, tempSecond);
+        Mockito.verify(this.getLogbookEntryService(), Mockito.times(1)).findLogbookEntryWithLogbook(ENTRY_ID);
+
+    }
+
+    /**
+     * A missing entry is answered as null, and not looked for again
+     */
+    @Test
+    public void testMissingEntryIsLoadedOnce() {
+
+        Assertions.assertNull(this.getLogbookRequestContext().findLogbookEntry(LOGBOOK_ID, MISSING_ENTRY_ID));
+        Assertions.assertNull(this.getLogbookRequestContext().findLogbookEntry(LOGBOOK_ID, MISSING_ENTRY_ID));
+        Mockito.verify(this.getLogbookEntryService(), Mockito.times(1)).findLogbookEntryWithLogbook(MISSING_ENTRY_ID);
+
+    }
+
+    /**
+     * An entry of another logbook than the one in the request path is refused, whether it was already
+     * loaded or not
+     */
+    @Test
+    public void testEntryOfOtherLogbookIsRefused() {
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                                () -> this.getLogbookRequestContext().findLogbookEntry(OTHER_LOGBOOK_ID, ENTRY_ID));
+        Assertions.assertNotNull(this.getLogbookRequestContext().findLogbookEntry(LOGBOOK_ID, ENTRY_ID));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                                () -> this.getLogbookRequestContext().findLogbookEntry(OTHER_LOGBOOK_ID, ENTRY_ID));
+
+    }
+
+}
@@ -0,0 +1,610 @@
+package com.mjdsoftware.logbook.csv;
+
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import com.mjdsoftware.logbook.domain.entities.DistanceUnits;
+import com.mjdsoftware.logbook.domain.entities.DurationUnits;
+import com.mjdsoftware.logbook.dto.ActivityExportCompression;
+import com.mjdsoftware.logbook.dto.ActivityExportFormat;
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.dto.ExportResumePointDTO;
+import com.mjdsoftware.logbook.export.ExportJob;
+import com.mjdsoftware.logbook.export.ExportJobStatus;
+import com.mjdsoftware.logbook.service.ActivityService;
+import com.mjdsoftware.logbook.utils.FileUtilities;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class ChunkableActivityFileExporterTests {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExecutorService exportExecutor;
+
+    //Constants
+    private static final int CHUNK_SIZE = 1000;
+    private static final String FULL_DEVICE = "/dev/full";
+    private static final long EXPORT_TIMEOUT_SECONDS = 10;
+    private static final String EXPECTED_CSV =
+            "id,activityType,duration,durationUnits,activityDetails,distance,distanceUnits," +
+                    "averageWatts,totalCalories,averageHeartRate\r\n" +
+            "1,ROWING,1.0,HOURS,This is a new activity,116000.0,METERS,0.0,0.0,0.0\r\n";
+    private static final String EXPECTED_NDJSON =
+            "{\"id\":1,\"activityType\":\"ROWING\",\"duration\":1.0,\"durationUnits\":\"HOURS\"," +
+                    "\"activityDetails\":\"This is a new activity\",\"distance\":116000.0," +
+                    "\"distanceUnits\":\"METERS\",\"averageWatts\":0.0,\"totalCalories\":0.0," +
+                    "\"averageHeartRate\":0.0}\n";
+    private static final String SECOND_CSV_ROW =
+            "2,ROWING,1.0,HOURS,Second activity,116000.0,METERS,0.0,0.0,0.0\r\n";
+
+    /**
+     * Create the executor exports run on
+     */
+    @BeforeEach
+    public void setup() {
+
+        this.setExportExecutor(Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * Stop the executor exports run on
+     */
+    @AfterEach
+    public void tearDown() {
+
+        this.getExportExecutor().shutdownNow();
+    }
+
+    /**
+     * Perform main test
+     */
+    @Test
+    public void testWriteFileAsynchronously() {
+
+        File tempFile;
+
+        ActivityExportRequest tempRequest =
+                new ActivityExportRequest((new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7))).getTime(),
+                        (new Date()).getTime(),
+                        ActivityType.ROWING,
+                        "test.csv");
+
+        ChunkableActivityFileExporter tempObjectToTest;
+        ExportJob                        tempJob;
+
+        tempFile = this.createTemporaryFile();
+        tempJob = new ExportJob(1L, tempRequest);
+        tempObjectToTest = new ChunkableActivityFileExporter(tempFile,
+                1L,
+                tempRequest,
+                CHUNK_SIZE,
+                this.createMockService(),
+                new FileUtilities(),
+                tempJob,
+                this.getExportExecutor(),
+                null);
+
+
+        tempObjectToTest.writeFileAsynchronously(this.createTestData());
+        this.awaitFinished(tempJob);
+
+        Assertions.assertTrue(tempFile.exists() && tempFile.length() > 0);
+        Assertions.assertEquals(ExportJobStatus.DONE, tempJob.getStatus());
+        Assertions.assertEquals(1L, tempJob.getRowsWritten());
+        Assertions.assertEquals(EXPECTED_CSV, this.readFile(tempFile));
+
+
+    }
+
+    /**
+     * Test exporting as newline delimited json
+     */
+    @Test
+    public void testWriteNdjsonFileAsynchronously() {
+
+        File        tempFile;
+        ExportJob   tempJob;
+
+        tempFile = this.createTemporaryFile();
+        tempJob = this.exportTestDataTo(tempFile, ActivityExportFormat.NDJSON);
+
+        Assertions.assertEquals(ExportJobStatus.DONE, tempJob.getStatus());
+        Assertions.assertEquals(EXPECTED_NDJSON, this.readFile(tempFile));
+
+    }
+
+    /**
+     * Test exporting as columnar binary, reading the header and the single row group back
+     */
+    @Test
+    public void testWriteColumnarFileAsynchronously() throws IOException {
+
+        File        tempFile;
+        ExportJob   tempJob;
+        byte[]      tempMagic = new byte[ActivityColumnarRowWriter.MAGIC.length];
+        int         tempColumnCount;
+
+        tempFile = this.createTemporaryFile();
+        tempJob = this.exportTestDataTo(tempFile, ActivityExportFormat.COLUMNAR);
+        Assertions.assertEquals(ExportJobStatus.DONE, tempJob.getStatus());
+
+        try (DataInputStream tempIn = new DataInputStream(new FileInputStream(tempFile))) {
+
+            tempIn.readFully(tempMagic);
+            Assertions.assertArrayEquals(ActivityColumnarRowWriter.MAGIC, tempMagic);
+            Assertions.assertEquals(ActivityColumnarRowWriter.FORMAT_VERSION, tempIn.readByte());
+            Assertions.assertEquals(0, tempIn.readByte());
+
+            tempColumnCount = tempIn.readUnsignedByte();
+            Assertions.assertEquals(ActivityExportColumns.NAMES.length, tempColumnCount);
+            for (int i = 0; i < tempColumnCount; i++) {
+
+                Assertions.assertEquals(ActivityExportColumns.NAMES[i], tempIn.readUTF());
+                tempIn.readByte();
+
+            }
+            this.skipDictionary(tempIn, ActivityType.values().length);
+            this.skipDictionary(tempIn, DurationUnits.values().length);
+            this.skipDictionary(tempIn, DistanceUnits.values().length);
+
+            Assertions.assertEquals(1, tempIn.readInt());
+            Assertions.assertEquals(1L, tempIn.readLong());
+            Assertions.assertEquals(ActivityType.ROWING.ordinal(), tempIn.readByte());
+            Assertions.assertEquals(1.0, tempIn.readDouble());
+            Assertions.assertEquals(DurationUnits.HOURS.ordinal(), tempIn.readByte());
+
+        }
+
+    }
+
+    /**
+     * Test exporting gzip compressed, checking the compressed and uncompressed byte counts recorded on
+     * the job
+     */
+    @Test
+    public void testWriteGzipFileAsynchronously() throws IOException {
+
+        File        tempFile;
+        ExportJob   tempJob;
+
+        tempFile = this.createTemporaryFile();
+        tempJob = this.exportTestDataTo(tempFile, ActivityExportFormat.CSV, ActivityExportCompression.GZIP);
+
+        Assertions.assertEquals(ExportJobStatus.DONE, tempJob.getStatus());
+        Assertions.assertEquals(tempFile.length(), tempJob.getBytesWritten());
+        Assertions.assertEquals(EXPECTED_CSV.getBytes(StandardCharsets.UTF_8).length,
+                                tempJob.getUncompressedBytesWritten());
+        try (InputStream tempIn = new GZIPInputStream(new FileInputStream(tempFile))) {
+
+            Assertions.assertEquals(EXPECTED_CSV, new String(tempIn.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+    }
+
+    /**
+     * Test exporting deflate compressed, checking the compressed and uncompressed byte counts recorded on
+     * the job
+     */
+    @Test
+    public void testWriteDeflateFileAsynchronously() throws IOException {
+
+        File        tempFile;
+        ExportJob   tempJob;
+
+        tempFile = this.createTemporaryFile();
+        tempJob = this.exportTestDataTo(tempFile, ActivityExportFormat.NDJSON, ActivityExportCompression.DEFLATE);
+
+        Assertions.assertEquals(ExportJobStatus.DONE, tempJob.getStatus());
+        Assertions.assertEquals(tempFile.length(), tempJob.getBytesWritten());
+        Assertions.assertEquals(EXPECTED_NDJSON.getBytes(StandardCharsets.UTF_8).length,
+                                tempJob.getUncompressedBytesWritten());
+        try (InputStream tempIn = new InflaterInputStream(new FileInputStream(tempFile))) {
+
+            Assertions.assertEquals(EXPECTED_NDJSON, new String(tempIn.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+    }
+
+    /**
+     * Test that an uncompressed export records the same compressed and uncompressed byte counts
+     */
+    @Test
+    public void testUncompressedByteCountsMatch() {
+
+        File        tempFile;
+        ExportJob   tempJob;
+
+        tempFile = this.createTemporaryFile();
+        tempJob = this.exportTestDataTo(tempFile, ActivityExportFormat.CSV);
+
+        Assertions.assertEquals(tempFile.length(), tempJob.getBytesWritten());
+        Assertions.assertEquals(tempJob.getBytesWritten(), tempJob.getUncompressedBytesWritten());
+
+    }
+
+    /**
+     * Resuming truncates the file back to the offset of the last saved chunk, dropping what was
+     * written after it, and appends the rows after the last one saved without repeating the header
+     * @throws IOException if the file cannot be prepared
+     */
+    @Test
+    public void testResumeTruncatesAndAppends() throws IOException {
+
+        File                    tempFile;
+        ExportJob               tempJob;
+        ExportResumePointDTO    tempResumePoint;
+
+        tempFile = this.createTemporaryFile();
+        Files.writeString(tempFile.toPath(), EXPECTED_CSV + "2,ROWING,1.0,HOU");
+        tempResumePoint = this.createResumePoint(tempFile,
+                                                 this.createTestData()[0],
+                                                 EXPECTED_CSV.length(),
+                                                 1L);
+
+        tempJob = this.resumeExport(tempFile, tempResumePoint, this.createRow(2L, "Second activity"));
+
+        Assertions.assertEquals(ExportJobStatus.DONE, tempJob.getStatus());
+        Assertions.assertEquals(2L, tempJob.getRowsWritten());
+        Assertions.assertEquals(tempFile.length(), tempJob.getBytesWritten());
+        Assertions.assertEquals(EXPECTED_CSV + SECOND_CSV_ROW, this.readFile(tempFile));
+
+    }
+
+    /**
+     * Resuming an export interrupted while it was still queued writes it from the start, header first
+     * @throws IOException if the file cannot be prepared
+     */
+    @Test
+    public void testResumeQueuedExportWritesHeader() throws IOException {
+
+        File                    tempFile;
+        ExportJob               tempJob;
+        ExportResumePointDTO    tempResumePoint;
+
+        tempFile = this.createTemporaryFile();
+        Files.writeString(tempFile.toPath(), "id,activ");
+        tempResumePoint = this.createResumePoint(tempFile, null, 0L, 0L);
+
+        tempJob = this.resumeExport(tempFile, tempResumePoint, this.createTestData()[0]);
+
+        Assertions.assertEquals(ExportJobStatus.DONE, tempJob.getStatus());
+        Assertions.assertEquals(1L, tempJob.getRowsWritten());
+        Assertions.assertEquals(EXPECTED_CSV, this.readFile(tempFile));
+
+    }
+
+    /**
+     * Resume the export of aFile from aResumePoint, reading aRemainingRow after it, and wait for it
+     * @param aFile File
+     * @param aResumePoint ExportResumePointDTO
+     * @param aRemainingRow ActivityExportRow
+     * @return ExportJob
+     */
+    private ExportJob resumeExport(File aFile,
+                                   ExportResumePointDTO aResumePoint,
+                                   ActivityExportRow aRemainingRow) {
+
+        ActivityService                     tempService;
+        ChunkableActivityFileExporter       tempObjectToTest;
+        ExportJob                           tempJob;
+
+        tempService = Mockito.mock(ActivityService.class);
+        Mockito.when(tempService.findNextActivityRows(Mockito.anyLong(),
+                                                      Mockito.any(ActivityExportRequest.class),
+                                                      Mockito.nullable(ActivityExportKey.class),
+                                                      Mockito.anyInt()))
+               .thenReturn(List.of(aRemainingRow));
+
+        tempJob = new ExportJob(aResumePoint.getExportJobId(), 1L, aResumePoint.getExportRequest());
+        tempObjectToTest = new ChunkableActivityFileExporter(aFile,
+                1L,
+                aResumePoint.getExportRequest(),
+                CHUNK_SIZE,
+                tempService,
+                new FileUtilities(),
+                tempJob,
+                this.getExportExecutor(),
+                null);
+
+        tempObjectToTest.resumeFileAsynchronously(aResumePoint);
+        this.awaitFinished(tempJob);
+
+        return tempJob;
+
+    }
+
+    /**
+     * Answer a resume point for aFile saved after aLastRow, or before any row if it is null, at
+     * aByteOffset with aRowsWritten rows written
+     * @param aFile File
+     * @param aLastRow ActivityExportRow
+     * @param aByteOffset long
+     * @param aRowsWritten long
+     * @return ExportResumePointDTO
+     */
+    private ExportResumePointDTO createResumePoint(File aFile,
+                                                   ActivityExportRow aLastRow,
+                                                   long aByteOffset,
+                                                   long aRowsWritten) {
+
+        ActivityExportRequest tempRequest;
+
+        tempRequest = new ActivityExportRequest((new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7))).getTime(),
+                                                (new Date()).getTime(),
+                                                ActivityType.ROWING,
+                                                aFile.getAbsolutePath());
+
+        return new ExportResumePointDTO("resumed-job",
+                                        1L,
+                                        aFile.getAbsolutePath(),
+                                        tempRequest,
+                                        (aLastRow != null) ? aLastRow.getActivityDate().getTimeInMillis() : 0L,
+                                        (aLastRow != null) ? aLastRow.getId() : null,
+                                        aByteOffset,
+                                        aRowsWritten,
+                                        false);
+    }
+
+    /**
+     * Read past a dictionary of aSize entries from anInput
+     * @param anInput DataInputStream
+     * @param aSize int
+     * @throws IOException
+     */
+    private void skipDictionary(DataInputStream anInput, int aSize) throws IOException {
+
+        Assertions.assertEquals(aSize, anInput.readUnsignedByte());
+        for (int i = 0; i < aSize; i++) {
+            anInput.readUTF();
+        }
+
+    }
+
+    /**
+     * A partition whose last rows cannot be written out when its writer closes, as when the disk is
+     * full, fails the export rather than being merged short
+     * @throws IOException if the full segment cannot be set up
+     */
+    @Test
+    public void testPartitionFailingOnCloseFailsExport() throws IOException {
+
+        File                            tempFile;
+        File                            tempSegment;
+        ActivityExportRequest           tempRequest;
+        ActivityService                 tempService;
+        ExportJob                       tempJob;
+        ExecutorService                 tempPartitionExecutor;
+
+        //Writes to /dev/full are accepted into the output buffer and fail once it is flushed
+        Assumptions.assumeTrue(Files.isWritable(Paths.get(FULL_DEVICE)));
+        tempFile = this.createTemporaryFile();
+        tempSegment = new File(tempFile.getAbsolutePath() + ".part0");
+        Files.createSymbolicLink(tempSegment.toPath(), Paths.get(FULL_DEVICE));
+
+        tempRequest = new ActivityExportRequest((new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7))).getTime(),
+                                                (new Date()).getTime(),
+                                                ActivityType.ROWING,
+                                                tempFile.getName());
+        tempService = this.createMockService();
+        Mockito.when(tempService.findNextActivityRows(Mockito.anyLong(),
+                                                      Mockito.any(ActivityExportRequest.class),
+                                                      Mockito.isNull(),
+                                                      Mockito.anyInt()))
+               .thenReturn(Arrays.asList(this.createTestData()));
+        tempJob = new ExportJob(1L, tempRequest);
+        tempPartitionExecutor = Executors.newSingleThreadExecutor();
+
+        try {
+
+            new ParallelActivityFileExporter(tempFile,
+                                             1L,
+                                             tempRequest,
+                                             List.of(tempRequest),
+                                             CHUNK_SIZE,
+                                             tempService,
+                                             new FileUtilities(),
+                                             tempJob,
+                                             this.getExportExecutor(),
+                                             tempPartitionExecutor).writeFileAsynchronously();
+            this.awaitFinished(tempJob);
+
+        }
+        finally {
+
+            tempPartitionExecutor.shutdownNow();
+            Files.deleteIfExists(tempSegment.toPath());
+
+        }
+
+        Assertions.assertEquals(ExportJobStatus.FAILED, tempJob.getStatus());
+
+    }
+
+    /**
+     * Export my test data to aFile in aFormat and wait for it
+     * @param aFile File
+     * @param aFormat ActivityExportFormat
+     * @return ExportJob
+     */
+    private ExportJob exportTestDataTo(File aFile, ActivityExportFormat aFormat) {
+
+        return this.exportTestDataTo(aFile, aFormat, ActivityExportCompression.NONE);
+    }
+
+    /**
+     * Export my test data to aFile in aFormat with aCompression and wait for it
+     * @param aFile File
+     * @param aFormat ActivityExportFormat
+     * @param aCompression ActivityExportCompression
+     * @return ExportJob
+     */
+    private ExportJob exportTestDataTo(File aFile,
+                                       ActivityExportFormat aFormat,
+                                       ActivityExportCompression aCompression) {
+
+        ActivityExportRequest               tempRequest;
+        ChunkableActivityFileExporter       tempObjectToTest;
+        ExportJob                           tempJob;
+
+        tempRequest = new ActivityExportRequest((new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7))).getTime(),
+                                                (new Date()).getTime(),
+                                                ActivityType.ROWING,
+                                                aFile.getName());
+        tempRequest.setFormat(aFormat);
+        tempRequest.setCompression(aCompression);
+        tempJob = new ExportJob(1L, tempRequest);
+        tempObjectToTest = new ChunkableActivityFileExporter(aFile,
+                1L,
+                tempRequest,
+                CHUNK_SIZE,
+                this.createMockService(),
+                new FileUtilities(),
+                tempJob,
+                this.getExportExecutor(),
+                null);
+
+        tempObjectToTest.writeFileAsynchronously(this.createTestData());
+        this.awaitFinished(tempJob);
+
+        return tempJob;
+
+    }
+
+    /**
+     * Create test data
+     * @return ActivityExportRow[]
+     */
+    private ActivityExportRow[] createTestData() {
+
+        ActivityExportRow[] tempRows = new ActivityExportRow[1];
+
+        tempRows[0] = this.createRow(1L, "This is a new activity");
+
+        return tempRows;
+
+    }
+
+    /**
+     * Answer a rowing row for anId with aDetail
+     * @param anId long
+     * @param aDetail String
+     * @return ActivityExportRow
+     */
+    private ActivityExportRow createRow(long anId, String aDetail) {
+
+        return new ActivityExportRow(anId,
+                                     ActivityType.ROWING.name(),
+                                     1.0,
+                                     DurationUnits.HOURS.name(),
+                                     aDetail,
+                                     116000.0,
+                                     DistanceUnits.METERS.name(),
+                                     0.0,
+                                     0.0,
+                                     0.0,
+                                     Calendar.getInstance());
+    }
+
+
+    /**
+     * Answer my mock service that will return no data when asked for activities
+     * @return ActivityService
+     */
+    private ActivityService createMockService() {
+
+        ActivityService tempResult = Mockito.mock(ActivityService.class);
+
+        Mockito.when(tempResult.findNextActivityRows(Mockito.anyLong(),
+                        Mockito.any(ActivityExportRequest.class),
+                        Mockito.any(ActivityExportKey.class),
+                        Mockito.anyInt()))
+                .thenReturn(Arrays.asList(new ActivityExportRow[0]));
+
+        return tempResult;
+
+    }
+
+
+    private File createTemporaryFile() {
+
+        File tempResult = null;
+
+        try {
+
+            tempResult = File.createTempFile("test", ".csv", new File("/tmp"));
+
+        }
+        catch (IOException e) {
+
+            e.printStackTrace();
+            Assertions.fail("Unable to create temporary file");
+
+        }
+
+        return tempResult;
+    }
+
+    private String readFile(File aFile) {
+
+        String tempResult = null;
+
+        try {
+
+            tempResult = Files.readString(aFile.toPath());
+
+        }
+        catch (IOException e) {
+
+            e.printStackTrace();
+            Assertions.fail("Unable to read exported file");
+
+        }
+
+        return tempResult;
+    }
+
+    /**
+     * Wait for anExportJob to finish, failing if it takes longer than EXPORT_TIMEOUT_SECONDS
+     * @param anExportJob ExportJob
+     */
+    private void awaitFinished(ExportJob anExportJob) {
+
+        CompletableFuture<ExportJob> tempFinished = new CompletableFuture<>();
+
+        anExportJob.whenFinished(tempFinished::complete);
+        try {
+            tempFinished.get(EXPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException | ExecutionException | TimeoutException e) {
+            Assertions.fail("Export job did not finish: " + e);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,254 @@
+package com.mjdsoftware.logbook.domain.repositories;
+
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the predicates ActivityFilters render, the values they bind and the statements
+ * ActivityRepositoryCustomImpl builds around them, without a database
+ */
+public class ActivityFilterTest {
+
+    //Constants
+    private static final Long LOGBOOK_ID = 7L;
+    private static final long START = 1_700_000_000_000L;
+    private static final long END = START + 86_400_000L;
+    private static final Long CHANGED_SINCE = START - 1000L;
+    private static final String COMBINED_PREDICATES =
+            "act.logbook_id = :logbookId and " +
+            "act.activity_date >= :startDate and " +
+            "act.activity_date <= :endDate and " +
+            "act.activity_type in (:activityTypes) and " +
+            "act.activity_discriminator in (:discriminators) and " +
+            "act.distance >= :minDistance and " +
+            "act.duration <= :maxDuration";
+
+    /**
+     * A filter on a logbook alone renders and binds nothing else
+     */
+    @Test
+    public void testUnsetCriteriaAreLeftOut() {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        String              tempPredicates;
+
+        tempPredicates = ActivityFilter.forLogbook(LOGBOOK_ID)
+                                       .between(null, null)
+                                       .ofTypes(null)
+                                       .ofDiscriminators(List.of())
+                                       .withDistanceBetween(null, null)
+                                       .asActivityPredicates(tempParameters);
+
+        Assertions.assertEquals("act.logbook_id = :logbookId", tempPredicates);
+        Assertions.assertEquals(Map.of("logbookId", LOGBOOK_ID), tempParameters);
+
+    }
+
+    /**
+     * Type, date and criteria predicates are all anded, in index order, each binding its own value
+     */
+    @Test
+    public void testCombinedCriteriaAreAnded() {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        String              tempPredicates;
+
+        tempPredicates = this.createCombinedFilter().asActivityPredicates(tempParameters);
+
+        Assertions.assertEquals(COMBINED_PREDICATES, tempPredicates);
+        Assertions.assertEquals(this.getCombinedParameters(), tempParameters);
+
+    }
+
+    /**
+     * Null types are ignored, several types are bound as one list in declaration order, and an
+     * unknown discriminator is refused
+     */
+    @Test
+    public void testTypesAndDiscriminators() {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        String              tempPredicates;
+        ActivityFilter      tempFilter;
+
+        tempFilter = ActivityFilter.forLogbook(LOGBOOK_ID);
+        tempPredicates = tempFilter.ofTypes(Arrays.asList(ActivityType.WALK, null, ActivityType.STRENGTH_TRAINING))
+                                   .asActivityPredicates(tempParameters);
+
+        Assertions.assertEquals("act.logbook_id = :logbookId and act.activity_type in (:activityTypes)", tempPredicates);
+        Assertions.assertEquals(List.of("STRENGTH_TRAINING", "WALK"), tempParameters.get("activityTypes"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                                () -> tempFilter.ofDiscriminators(List.of("SWIMMING")));
+
+    }
+
+    /**
+     * Tombstones are only filtered by logbook, date, type and deletion time, and only once a change
+     * time is given
+     */
+    @Test
+    public void testTombstonePredicates() {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        Map<String, Object> tempExpected;
+        ActivityFilter      tempFilter;
+
+        tempFilter = this.createCombinedFilter();
+        Assertions.assertThrows(IllegalStateException.class,
+                                () -> tempFilter.asTombstonePredicates(new HashMap<>()));
+
+        tempFilter.changedSince(CHANGED_SINCE);
+        Assertions.assertEquals("tomb.logbook_id = :logbookId and " +
+                                "tomb.activity_date >= :startDate and " +
+                                "tomb.activity_date <= :endDate and " +
+                                "tomb.activity_type in (:activityTypes) and " +
+                                "tomb.deleted_at >= to_timestamp(:changedSinceMillis / 1000.0)",
+                                tempFilter.asTombstonePredicates(tempParameters));
+
+        tempExpected = new HashMap<>();
+        tempExpected.put("logbookId", LOGBOOK_ID);
+        tempExpected.put("startDate", this.asCalendar(START));
+        tempExpected.put("endDate", this.asCalendar(END));
+        tempExpected.put("activityTypes", List.of("ROWING"));
+        tempExpected.put("changedSinceMillis", CHANGED_SINCE);
+        Assertions.assertEquals(tempExpected, tempParameters);
+
+    }
+
+    /**
+     * Counts and cursors select by exactly the filter's predicates, and cursors keep export row order
+     */
+    @Test
+    public void testCountAndRowsStatements() {
+
+        Map<String, Object> tempCountParameters = new HashMap<>();
+        Map<String, Object> tempRowsParameters = new HashMap<>();
+
+        Assertions.assertEquals("select count(*) from activities act where " + COMBINED_PREDICATES,
+                                ActivityRepositoryCustomImpl.countSql(this.createCombinedFilter(), tempCountParameters));
+        Assertions.assertEquals(this.getCombinedParameters(), tempCountParameters);
+
+        Assertions.assertEquals("select " + ActivityRepository.EXPORT_ROW_COLUMNS +
+                                "from " + ActivityRepository.EXPORT_ROW_TABLES +
+                                "where " + COMBINED_PREDICATES + " " +
+                                "order by act.activity_date asc, act.id asc ",
+                                ActivityRepositoryCustomImpl.rowsSql(this.createCombinedFilter(), tempRowsParameters));
+        Assertions.assertEquals(this.getCombinedParameters(), tempRowsParameters);
+
+    }
+
+    /**
+     * A chunk is the filter's predicates positioned after the keyset, binding the keyset and chunk size
+     * alongside the filter's values
+     */
+    @Test
+    public void testRowsAfterKeyStatement() {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        Map<String, Object> tempExpected;
+        String              tempSql;
+
+        tempSql = ActivityRepositoryCustomImpl.rowsAfterKeySql(this.createCombinedFilter(),
+                                                               this.asCalendar(START),
+                                                               42L,
+                                                               500,
+                                                               tempParameters);
+
+        Assertions.assertEquals("select " + ActivityRepository.EXPORT_ROW_COLUMNS +
+                                "from " + ActivityRepository.EXPORT_ROW_TABLES +
+                                "where " + COMBINED_PREDICATES + " and " +
+                                "(act.activity_date > :lastActivityDate or " +
+                                "(act.activity_date = :lastActivityDate and act.id > :lastId)) " +
+                                "order by act.activity_date asc, act.id asc " +
+                                "limit :chunkSize",
+                                tempSql);
+
+        tempExpected = this.getCombinedParameters();
+        tempExpected.put("lastActivityDate", this.asCalendar(START));
+        tempExpected.put("lastId", 42L);
+        tempExpected.put("chunkSize", 500);
+        Assertions.assertEquals(tempExpected, tempParameters);
+
+    }
+
+    /**
+     * Deleted ids are selected from tombstones by the tombstone predicates alone
+     */
+    @Test
+    public void testDeletedIdsStatement() {
+
+        Map<String, Object> tempParameters = new HashMap<>();
+        String              tempSql;
+
+        tempSql = ActivityRepositoryCustomImpl.deletedIdsSql(ActivityFilter.forLogbook(LOGBOOK_ID)
+                                                                           .changedSince(CHANGED_SINCE),
+                                                             tempParameters);
+
+        Assertions.assertEquals("select tomb.activity_id from activity_tombstones tomb " +
+                                "where tomb.logbook_id = :logbookId and " +
+                                "tomb.deleted_at >= to_timestamp(:changedSinceMillis / 1000.0) " +
+                                "order by tomb.activity_id asc",
+                                tempSql);
+        Assertions.assertEquals(Map.of("logbookId", LOGBOOK_ID, "changedSinceMillis", CHANGED_SINCE), tempParameters);
+
+    }
+
+    /**
+     * Answer a filter combining a date range, a type and criteria, leaving the distance and duration
+     * ranges each half open
+     * @return ActivityFilter
+     */
+    private ActivityFilter createCombinedFilter() {
+
+        return ActivityFilter.forLogbook(LOGBOOK_ID)
+                             .between(this.asCalendar(START), this.asCalendar(END))
+                             .ofTypes(List.of(ActivityType.ROWING))
+                             .ofDiscriminators(List.of("MON_AEROBIC"))
+                             .withDistanceBetween(1.5, null)
+                             .withDurationBetween(null, 60.0);
+    }
+
+    /**
+     * Answer the values the combined filter binds
+     * @return Map
+     */
+    private Map<String, Object> getCombinedParameters() {
+
+        Map<String, Object> tempResult = new HashMap<>();
+
+        tempResult.put("logbookId", LOGBOOK_ID);
+        tempResult.put("startDate", this.asCalendar(START));
+        tempResult.put("endDate", this.asCalendar(END));
+        tempResult.put("activityTypes", List.of("ROWING"));
+        tempResult.put("discriminators", List.of("MON_AEROBIC"));
+        tempResult.put("minDistance", 1.5);
+        tempResult.put("maxDuration", 60.0);
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer anEpochMillis as a calendar
+     * @param anEpochMillis long
+     * @return Calendar
+     */
+    private Calendar asCalendar(long anEpochMillis) {
+
+        Calendar tempResult;
+
+        tempResult = Calendar.getInstance();
+        tempResult.setTimeInMillis(anEpochMillis);
+
+        return tempResult;
+
+    }
+
+}
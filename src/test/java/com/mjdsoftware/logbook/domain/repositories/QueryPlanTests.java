@@ -0,0 +1,255 @@
+package com.mjdsoftware.logbook.domain.repositories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mjdsoftware.logbook.LogbookApplication;
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs EXPLAIN (FORMAT JSON) on the repository queries against the test database and fails if any of
+ * them would read one of the large tables with a sequential scan. The test tables are tiny, so sequential
+ * scans are disabled for each test; the planner then only falls back to one when no index can serve the
+ * query, which is exactly the regression we want to catch.
+ */
+@SpringBootTest(classes = LogbookApplication.class)
+@ActiveProfiles("test")
+@Transactional
+public class QueryPlanTests {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    //Constants
+    private static final Long LOGBOOK_ID = 1L;
+    private static final Set<String> LARGE_TABLES = Set.of("activities",
+                                                           "logbook_entries",
+                                                           "activity_tombstones",
+                                                           "activity_comments",
+                                                           "log_entry_comments",
+                                                           "comments",
+                                                           "activity_details",
+                                                           "logbooks",
+                                                           "users");
+
+    /**
+     * Leave the planner no choice but an index wherever one can serve the query
+     */
+    @BeforeEach
+    public void disableSequentialScans() {
+
+        this.getJdbcTemplate().getJdbcOperations().execute("SET LOCAL enable_seqscan = off");
+    }
+
+    /**
+     * The statements rendered from an ActivityFilter for counts, chunks, cursors and tombstones
+     */
+    @Test
+    public void testActivityFilterQueriesUseIndexes() {
+
+        Map<String, Object> tempParameters;
+        Calendar            tempStart;
+        Calendar            tempEnd;
+
+        tempStart = Calendar.getInstance();
+        tempStart.add(Calendar.YEAR, -1);
+        tempEnd = Calendar.getInstance();
+
+        tempParameters = new HashMap<>();
+        this.assertNoSequentialScan(ActivityRepositoryCustomImpl.countSql(this.createFilter(tempStart, tempEnd),
+                                                                          tempParameters),
+                                    tempParameters);
+
+        tempParameters = new HashMap<>();
+        this.assertNoSequentialScan(ActivityRepositoryCustomImpl.rowsAfterKeySql(this.createFilter(tempStart, tempEnd),
+                                                                                 tempStart,
+                                                                                 0L,
+                                                                                 1000,
+                                                                                 tempParameters),
+                                    tempParameters);
+
+        tempParameters = new HashMap<>();
+        this.assertNoSequentialScan(ActivityRepositoryCustomImpl.rowsSql(this.createFilter(tempStart, tempEnd)
+                                                                             .changedSince(0L),
+                                                                         tempParameters),
+                                    tempParameters);
+
+        tempParameters = new HashMap<>();
+        this.assertNoSequentialScan(ActivityRepositoryCustomImpl.deletedIdsSql(this.createFilter(tempStart, tempEnd)
+                                                                                   .changedSince(0L),
+                                                                               tempParameters),
+                                    tempParameters);
+
+    }
+
+    /**
+     * The native queries declared on the repositories
+     * @throws NoSuchMethodException
+     */
+    @Test
+    public void testNativeRepositoryQueriesUseIndexes() throws NoSuchMethodException {
+
+        this.assertNoSequentialScan(this.nativeQueryOf(ActivityRepository.class, "findExportVersionMarker", Long.class),
+                                    Map.of("logbookId", LOGBOOK_ID));
+        this.assertNoSequentialScan(this.nativeQueryOf(LogbookEntryRepository.class, "getCountByLogbookId", Long.class),
+                                    Map.of("p1", LOGBOOK_ID));
+        this.assertNoSequentialScan(this.nativeQueryOf(LogbookRepository.class, "findOwnerUsernameById", Long.class),
+                                    Map.of("logbookId", LOGBOOK_ID));
+
+    }
+
+    /**
+     * The SQL Hibernate issues for derived queries and collection loads along each foreign key
+     */
+    @Test
+    public void testForeignKeyLoadsUseIndexes() {
+
+        this.assertNoSequentialScan("select * from activities where log_entry_id = :id", Map.of("id", 1L));
+        this.assertNoSequentialScan("select * from activities where activity_details_id = :id", Map.of("id", 1L));
+        this.assertNoSequentialScan("select id, activity_date, version from logbook_entries " +
+                                    "where logbook_id = :id order by activity_date desc limit 20",
+                                    Map.of("id", LOGBOOK_ID));
+        this.assertNoSequentialScan("delete from logbook_entries where logbook_id = :id", Map.of("id", LOGBOOK_ID));
+        this.assertNoSequentialScan("select * from logbooks where user_id = :id", Map.of("id", 1L));
+        this.assertNoSequentialScan("select c.* from activity_comments ac join comments c on c.id = ac.comment_id " +
+                                    "where ac.activity_id = :id", Map.of("id", 1L));
+        this.assertNoSequentialScan("select c.* from log_entry_comments lc join comments c on c.id = lc.comment_id " +
+                                    "where lc.log_entry_id = :id", Map.of("id", 1L));
+        this.assertNoSequentialScan("delete from activity_comments where comment_id = :id", Map.of("id", 1L));
+        this.assertNoSequentialScan("delete from log_entry_comments where comment_id = :id", Map.of("id", 1L));
+
+    }
+
+    /**
+     * Answer a filter on the test logbook between aStart and anEnd using every kind of criterion
+     * @param aStart Calendar
+     * @param anEnd Calendar
+     * @return ActivityFilter
+     */
+    private ActivityFilter createFilter(Calendar aStart, Calendar anEnd) {
+
+        return ActivityFilter.forLogbook(LOGBOOK_ID)
+                             .between(aStart, anEnd)
+                             .ofTypes(List.of(ActivityType.ROWING))
+                             .ofDiscriminators(List.of("MON_AEROBIC"))
+                             .withDistanceBetween(0.0, 100000.0)
+                             .withDurationBetween(0.0, 10.0);
+    }
+
+    /**
+     * Answer the native SQL declared on aMethodName of aRepository, with positional parameters renamed
+     * p1, p2 and so on
+     * @param aRepository Class
+     * @param aMethodName String
+     * @param aParameterTypes Class[]
+     * @return String
+     * @throws NoSuchMethodException
+     */
+    private String nativeQueryOf(Class<?> aRepository,
+                                 String aMethodName,
+                                 Class<?>... aParameterTypes) throws NoSuchMethodException {
+
+        return aRepository.getMethod(aMethodName, aParameterTypes)
+                          .getAnnotation(Query.class)
+                          .value()
+                          .replaceAll("\\?(\\d+)", ":p$1");
+    }
+
+    /**
+     * Fail if the plan of aSql, with aParameters bound, reads a large table sequentially
+     * @param aSql String
+     * @param aParameters Map
+     */
+    private void assertNoSequentialScan(String aSql, Map<String, Object> aParameters) {
+
+        String          tempPlan;
+        List<String>    tempScanned = new ArrayList<>();
+
+        tempPlan = this.getJdbcTemplate().queryForObject("EXPLAIN (FORMAT JSON) " + aSql,
+                                                         this.asJdbcParameters(aParameters),
+                                                         String.class);
+        try {
+            this.collectSequentialScans(this.getObjectMapper().readTree(tempPlan).get(0).get("Plan"), tempScanned);
+        }
+        catch (IOException e) {
+            Assertions.fail("Unreadable plan for " + aSql, e);
+        }
+
+        Assertions.assertTrue(tempScanned.isEmpty(),
+                              "Sequential scan of " + tempScanned + " in plan for " + aSql + "\n" + tempPlan);
+
+    }
+
+    /**
+     * Add the large tables aPlan, or any plan beneath it, scans sequentially to aScanned
+     * @param aPlan JsonNode
+     * @param aScanned List
+     */
+    private void collectSequentialScans(JsonNode aPlan, List<String> aScanned) {
+
+        String tempRelation;
+
+        if ("Seq Scan".equals(aPlan.path("Node Type").asText())) {
+
+            tempRelation = aPlan.path("Relation Name").asText();
+            if (LARGE_TABLES.contains(tempRelation)) {
+                aScanned.add(tempRelation);
+            }
+
+        }
+
+        for (JsonNode p : aPlan.path("Plans")) {
+            this.collectSequentialScans(p, aScanned);
+        }
+
+    }
+
+    /**
+     * Answer aParameters with calendars converted to timestamps, which the jdbc driver binds directly
+     * @param aParameters Map
+     * @return Map
+     */
+    private Map<String, Object> asJdbcParameters(Map<String, Object> aParameters) {
+
+        Map<String, Object> tempResult = new HashMap<>();
+
+        aParameters.forEach((aName, aValue) -> {
+
+            if (aValue instanceof Calendar) {
+                tempResult.put(aName, new Timestamp(((Calendar)aValue).getTimeInMillis()));
+            }
+            else {
+                tempResult.put(aName, aValue);
+            }
+
+        });
+
+        return tempResult;
+
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.mjdsoftware.logbook.dto;
+
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ActivityExportRequestTest {
+
+    //Constants
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long START = 1_700_000_000_000L;
+
+    /**
+     * A long range is split into the requested number of contiguous, non overlapping partitions that
+     * cover it exactly
+     */
+    @Test
+    public void testPartitionsAreContiguous() {
+
+        ActivityExportRequest       tempRequest;
+        List<ActivityExportRequest> tempPartitions;
+
+        tempRequest = this.createRequest(START, START + (100 * DAY_MILLIS) + 12345);
+        tempPartitions = tempRequest.asDatePartitions(7, DAY_MILLIS);
+
+        Assertions.assertEquals(7, tempPartitions.size());
+        this.assertCovers(tempRequest, tempPartitions);
+
+    }
+
+    /**
+     * A range shorter than the minimum partition is answered whole
+     */
+    @Test
+    public void testSingleDayIsOnePartition() {
+
+        ActivityExportRequest       tempRequest;
+        List<ActivityExportRequest> tempPartitions;
+
+        tempRequest = this.createRequest(START, START + DAY_MILLIS - 1);
+        tempPartitions = tempRequest.asDatePartitions(4, DAY_MILLIS);
+
+        Assertions.assertEquals(1, tempPartitions.size());
+        this.assertCovers(tempRequest, tempPartitions);
+
+    }
+
+    /**
+     * Asking for more partitions than there are minimum partitions in the range answers one per
+     * minimum partition, never one shorter than that
+     */
+    @Test
+    public void testMorePartitionsThanDays() {
+
+        ActivityExportRequest       tempRequest;
+        List<ActivityExportRequest> tempPartitions;
+
+        tempRequest = this.createRequest(START, START + (3 * DAY_MILLIS));
+        tempPartitions = tempRequest.asDatePartitions(10, DAY_MILLIS);
+
+        Assertions.assertEquals(3, tempPartitions.size());
+        this.assertCovers(tempRequest, tempPartitions);
+        for (ActivityExportRequest aPartition: tempPartitions) {
+
+            Assertions.assertTrue(aPartition.getEndTimeEpoch() - aPartition.getStartTimeEpoch() + 1 >= DAY_MILLIS);
+        }
+
+    }
+
+    /**
+     * A request's activity type narrows the types of its criteria rather than adding to them
+     */
+    @Test
+    public void testActivityTypeNarrowsCriteriaTypes() {
+
+        ActivityExportRequest tempRequest;
+
+        tempRequest = this.createRequest(START, START + DAY_MILLIS);
+        Assertions.assertTrue(tempRequest.isActivityTypeWithinCriteria());
+        Assertions.assertEquals(List.of(ActivityType.ROWING), tempRequest.getExportedActivityTypes());
+
+        tempRequest.setCriteria(this.createCriteria(ActivityType.ROWING, ActivityType.WALK));
+        Assertions.assertTrue(tempRequest.isActivityTypeWithinCriteria());
+        Assertions.assertEquals(List.of(ActivityType.ROWING), tempRequest.getExportedActivityTypes());
+
+        tempRequest.setCriteria(this.createCriteria(ActivityType.WALK, ActivityType.HIKE));
+        Assertions.assertFalse(tempRequest.isActivityTypeWithinCriteria());
+
+        tempRequest.setActivityType(null);
+        Assertions.assertTrue(tempRequest.isActivityTypeWithinCriteria());
+        Assertions.assertEquals(List.of(ActivityType.WALK, ActivityType.HIKE), tempRequest.getExportedActivityTypes());
+
+        tempRequest.setCriteria(this.createCriteria());
+        Assertions.assertTrue(tempRequest.getExportedActivityTypes().isEmpty());
+
+    }
+
+    /**
+     * Assert that aPartitions cover the date range of aRequest, in order, without gaps or overlaps,
+     * and otherwise copy it
+     * @param aRequest ActivityExportRequest
+     * @param aPartitions List
+     */
+    private void assertCovers(ActivityExportRequest aRequest, List<ActivityExportRequest> aPartitions) {
+
+        ActivityExportRequest tempPrevious = null;
+
+        Assertions.assertEquals(aRequest.getStartTimeEpoch(), aPartitions.get(0).getStartTimeEpoch());
+        Assertions.assertEquals(aRequest.getEndTimeEpoch(), aPartitions.get(aPartitions.size() - 1).getEndTimeEpoch());
+        for (ActivityExportRequest aPartition: aPartitions) {
+
+            Assertions.assertTrue(aPartition.getStartTimeEpoch() <= aPartition.getEndTimeEpoch());
+            Assertions.assertEquals(aRequest.getActivityType(), aPartition.getActivityType());
+            Assertions.assertEquals(aRequest.getExportFilename(), aPartition.getExportFilename());
+            if (tempPrevious != null) {
+
+                Assertions.assertEquals(tempPrevious.getEndTimeEpoch() + 1, aPartition.getStartTimeEpoch());
+            }
+            tempPrevious = aPartition;
+
+        }
+
+    }
+
+    /**
+     * Answer criteria limited to anActivityTypes alone
+     * @param anActivityTypes ActivityType[]
+     * @return ActivitySearchCriteria
+     */
+    private ActivitySearchCriteria createCriteria(ActivityType... anActivityTypes) {
+
+        return new ActivitySearchCriteria(List.of(anActivityTypes), null, null, null, null, null);
+    }
+
+    /**
+     * Answer a request for aStartTimeEpoch through anEndTimeEpoch
+     * @param aStartTimeEpoch long
+     * @param anEndTimeEpoch long
+     * @return ActivityExportRequest
+     */
+    private ActivityExportRequest createRequest(long aStartTimeEpoch, long anEndTimeEpoch) {
+
+        return new ActivityExportRequest(aStartTimeEpoch,
+                                         anEndTimeEpoch,
+                                         ActivityType.ROWING,
+                                         "partitions.csv");
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.mjdsoftware.logbook.export;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.exception.ExportQuotaExceededException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+public class ExportFileManagerTest {
+
+    @TempDir
+    Path directory;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportFileManager manager;
+
+    //Constants - a row is projected at a kilobyte, so a user may reserve 1024 rows and everyone 2048
+    private static final long FIRST_USER_ID = 1L;
+    private static final long SECOND_USER_ID = 2L;
+    private static final long THIRD_USER_ID = 3L;
+    private static final int BYTES_PER_ROW = 1024;
+    private static final long MOST_OF_A_USER_QUOTA_ROWS = 600;
+    private static final int FILE_TTL_MINUTES = 60;
+    private static final int QUOTA_MEGABYTES = 2;
+    private static final int USER_QUOTA_MEGABYTES = 1;
+    private static final double MOST_OF_THE_DISK = 0.6;
+
+    /**
+     * Create a manager over an empty export directory
+     * @throws IOException if the directory cannot be created
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+
+        this.setManager(this.createManager(QUOTA_MEGABYTES, USER_QUOTA_MEGABYTES));
+    }
+
+    /**
+     * Each user's exports are resolved within a directory of their own, which no name can leave
+     */
+    @Test
+    public void testResolveKeepsUsersApart() {
+
+        Path tempFirst;
+        Path tempSecond;
+
+        tempFirst = this.getManager().resolve(FIRST_USER_ID, "activities.csv");
+        tempSecond = this.getManager().resolve(SECOND_USER_ID, "activities.csv");
+
+        Assertions.assertNotEquals(tempFirst, tempSecond);
+        Assertions.assertTrue(Files.isDirectory(tempFirst.getParent()));
+        Assertions.assertEquals(tempFirst, this.getManager().resolve(FIRST_USER_ID, tempFirst.toString()));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                                () -> this.getManager().resolve(FIRST_USER_ID, tempSecond.toString()));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                                () -> this.getManager().resolve(FIRST_USER_ID,
+                                                                "../" + tempSecond.getParent().getFileName() +
+                                                                        "/activities.csv"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                                () -> this.getManager().resolve(null, "../resume/activities.csv"));
+
+    }
+
+    /**
+     * An export is refused once its projected size would take its user, or everyone, over quota
+     */
+    @Test
+    public void testReserveWithinQuotas() {
+
+        this.getManager().reserve(FIRST_USER_ID, this.fileOf(FIRST_USER_ID, "first.csv"), MOST_OF_A_USER_QUOTA_ROWS);
+        Assertions.assertThrows(ExportQuotaExceededException.class,
+                                () -> this.getManager().reserve(FIRST_USER_ID,
+                                                                this.fileOf(FIRST_USER_ID, "second.csv"),
+                                                                MOST_OF_A_USER_QUOTA_ROWS));
+
+        this.getManager().reserve(SECOND_USER_ID, this.fileOf(SECOND_USER_ID, "first.csv"), MOST_OF_A_USER_QUOTA_ROWS);
+        Assertions.assertThrows(ExportQuotaExceededException.class,
+                                () -> this.getManager().reserve(THIRD_USER_ID,
+                                                                this.fileOf(THIRD_USER_ID, "first.csv"),
+                                                                MOST_OF_A_USER_QUOTA_ROWS + 300));
+
+    }
+
+    /**
+     * Reserving a file again does not count it twice, and a refused reservation leaves the earlier one
+     * in place
+     */
+    @Test
+    public void testRefusedReservationKeepsEarlierOne() {
+
+        Path tempFile;
+
+        tempFile = this.fileOf(FIRST_USER_ID, "first.csv");
+        this.getManager().reserve(FIRST_USER_ID, tempFile, MOST_OF_A_USER_QUOTA_ROWS);
+        this.getManager().reserve(FIRST_USER_ID, tempFile, MOST_OF_A_USER_QUOTA_ROWS + 300);
+        Assertions.assertThrows(ExportQuotaExceededException.class,
+                                () -> this.getManager().reserve(FIRST_USER_ID, tempFile, 2000));
+
+        Assertions.assertThrows(ExportQuotaExceededException.class,
+                                () -> this.getManager().reserve(FIRST_USER_ID,
+                                                                this.fileOf(FIRST_USER_ID, "second.csv"),
+                                                                MOST_OF_A_USER_QUOTA_ROWS));
+
+    }
+
+    /**
+     * The janitor keeps reservations for files not yet written, until they are recorded
+     */
+    @Test
+    public void testJanitorKeepsReservations() {
+
+        Path tempQueued;
+        Path tempSecond;
+
+        tempQueued = this.fileOf(FIRST_USER_ID, "queued.csv");
+        tempSecond = this.fileOf(FIRST_USER_ID, "second.csv");
+        this.getManager().reserve(FIRST_USER_ID, tempQueued, MOST_OF_A_USER_QUOTA_ROWS);
+
+        this.getManager().removeExpiredFiles();
+        Assertions.assertThrows(ExportQuotaExceededException.class,
+                                () -> this.getManager().reserve(FIRST_USER_ID, tempSecond, MOST_OF_A_USER_QUOTA_ROWS));
+
+        //A failed export never wrote its file, so recording it releases its reservation
+        this.getManager().recordWritten(FIRST_USER_ID, tempQueued);
+        this.getManager().reserve(FIRST_USER_ID, tempSecond, MOST_OF_A_USER_QUOTA_ROWS);
+
+    }
+
+    /**
+     * The janitor deletes written files past their time to live, but not one reserved for an export
+     * resumed after it was last written, and forgets written files that are gone
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public void testJanitorExpiresWrittenFiles() throws IOException {
+
+        Path tempExpired;
+        Path tempResumed;
+        Path tempDeleted;
+
+        tempExpired = this.writeFile(FIRST_USER_ID, "expired.csv", 1, FILE_TTL_MINUTES * 2);
+        this.getManager().recordWritten(FIRST_USER_ID, tempExpired);
+        tempResumed = this.writeFile(FIRST_USER_ID, "resumed.csv", 1, FILE_TTL_MINUTES * 2);
+        this.getManager().reserve(FIRST_USER_ID, tempResumed, 1);
+        tempDeleted = this.writeFile(SECOND_USER_ID, "deleted.csv", MOST_OF_A_USER_QUOTA_ROWS, 0);
+        this.getManager().recordWritten(SECOND_USER_ID, tempDeleted);
+        Assertions.assertThrows(ExportQuotaExceededException.class,
+                                () -> this.getManager().reserve(SECOND_USER_ID,
+                                                                this.fileOf(SECOND_USER_ID, "next.csv"),
+                                                                MOST_OF_A_USER_QUOTA_ROWS));
+        Files.delete(tempDeleted);
+
+        this.getManager().removeExpiredFiles();
+
+        Assertions.assertFalse(Files.exists(tempExpired));
+        Assertions.assertTrue(Files.exists(tempResumed));
+        this.getManager().reserve(SECOND_USER_ID, this.fileOf(SECOND_USER_ID, "next.csv"), MOST_OF_A_USER_QUOTA_ROWS);
+
+    }
+
+    /**
+     * Files found in a user's directory after a restart count against that user's quota, and only theirs
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public void testRestartIndexesFilesForTheirUser() throws IOException {
+
+        this.writeFile(FIRST_USER_ID, "before-restart.csv", MOST_OF_A_USER_QUOTA_ROWS, 0);
+
+        this.setManager(this.createManager(QUOTA_MEGABYTES, USER_QUOTA_MEGABYTES));
+
+        Assertions.assertThrows(ExportQuotaExceededException.class,
+                                () -> this.getManager().reserve(FIRST_USER_ID,
+                                                                this.fileOf(FIRST_USER_ID, "after-restart.csv"),
+                                                                MOST_OF_A_USER_QUOTA_ROWS));
+        this.getManager().reserve(SECOND_USER_ID, this.fileOf(SECOND_USER_ID, "after-restart.csv"), MOST_OF_A_USER_QUOTA_ROWS);
+
+    }
+
+    /**
+     * Space reserved for exports not yet written is not free disk space, so exports that each fit on
+     * the disk are refused once together they would not
+     * @throws IOException if the disk cannot be read
+     */
+    @Test
+    public void testReservationsAreTakenOffFreeDiskSpace() throws IOException {
+
+        long tempRows;
+
+        //Quotas far beyond any disk, so only the disk limits what is reserved
+        this.setManager(this.createManager(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        tempRows = (long)(Files.getFileStore(this.directory).getUsableSpace() * MOST_OF_THE_DISK) / BYTES_PER_ROW;
+
+        this.getManager().reserve(FIRST_USER_ID, this.fileOf(FIRST_USER_ID, "first.csv"), tempRows);
+        Assertions.assertThrows(ExportQuotaExceededException.class,
+                                () -> this.getManager().reserve(SECOND_USER_ID,
+                                                                this.fileOf(SECOND_USER_ID, "first.csv"),
+                                                                tempRows));
+
+        //Reserving the same file again replaces its reservation rather than adding to it
+        this.getManager().reserve(FIRST_USER_ID, this.fileOf(FIRST_USER_ID, "first.csv"), tempRows);
+
+    }
+
+    /**
+     * Answer a manager over my export directory, indexing what is already in it, with a quota of
+     * aQuotaMegabytes for everyone and aUserQuotaMegabytes for each user
+     * @param aQuotaMegabytes int
+     * @param aUserQuotaMegabytes int
+     * @return ExportFileManager
+     * @throws IOException if the directory cannot be created
+     */
+    private ExportFileManager createManager(int aQuotaMegabytes, int aUserQuotaMegabytes) throws IOException {
+
+        LogbookApplicationProperties    tempProperties;
+        ExportFileManager               tempResult;
+
+        tempProperties = new LogbookApplicationProperties();
+        tempProperties.setExportDirectory(this.directory.resolve("exports").toString());
+        tempProperties.setExportResumeDirectory(this.directory.resolve("exports").resolve("resume").toString());
+        tempProperties.setExportQuotaMegabytes(aQuotaMegabytes);
+        tempProperties.setExportUserQuotaMegabytes(aUserQuotaMegabytes);
+        tempProperties.setExportFileTtlMinutes(FILE_TTL_MINUTES);
+        tempProperties.setExportEstimatedBytesPerRow(BYTES_PER_ROW);
+
+        tempResult = new ExportFileManager(tempProperties);
+        tempResult.indexExistingFiles();
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the export file aFilename of aUserId
+     * @param aUserId Long
+     * @param aFilename String
+     * @return Path
+     */
+    private Path fileOf(Long aUserId, String aFilename) {
+
+        return this.getManager().resolve(aUserId, aFilename);
+    }
+
+    /**
+     * Answer the export file aFilename of aUserId, written with aRows rows anAgeMinutes ago
+     * @param aUserId Long
+     * @param aFilename String
+     * @param aRows long
+     * @param anAgeMinutes int
+     * @return Path
+     * @throws IOException if it cannot be written
+     */
+    private Path writeFile(Long aUserId, String aFilename, long aRows, int anAgeMinutes) throws IOException {
+
+        Path tempResult;
+
+        tempResult = this.fileOf(aUserId, aFilename);
+        Files.write(tempResult, new byte[(int)(aRows * BYTES_PER_ROW)]);
+        Files.setLastModifiedTime(tempResult,
+                                  FileTime.from(Instant.now().minus(Duration.ofMinutes(anAgeMinutes))));
+
+        return tempResult;
+
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.mjdsoftware.logbook.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.dto.ExportResumePointDTO;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ExportResumePointStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private ExportResumePointStore store;
+
+    //Constants
+    private static final String FIRST_JOB_ID = "first-job";
+    private static final String SECOND_JOB_ID = "second-job";
+    private static final long START = 1_700_000_000_000L;
+
+    /**
+     * Create a store over an empty directory that does not exist yet
+     */
+    @BeforeEach
+    public void setup() {
+
+        LogbookApplicationProperties tempProperties;
+
+        tempProperties = new LogbookApplicationProperties();
+        tempProperties.setExportResumeDirectory(this.directory.resolve("resume").toString());
+        this.setStore(new ExportResumePointStore(new ObjectMapper(), tempProperties));
+
+    }
+
+    /**
+     * A saved resume point is found again whole, request included
+     * @throws IOException if it cannot be saved
+     */
+    @Test
+    public void testSavedPointIsFound() throws IOException {
+
+        ExportResumePointDTO tempFound;
+
+        this.getStore().save(this.createResumePoint(FIRST_JOB_ID, 7L, 100L));
+        tempFound = this.getStore().find(FIRST_JOB_ID).orElseThrow();
+
+        Assertions.assertEquals(this.createResumePoint(FIRST_JOB_ID, 7L, 100L), tempFound);
+        Assertions.assertEquals(ActivityType.ROWING, tempFound.getExportRequest().getActivityType());
+        Assertions.assertTrue(this.getStore().find(SECOND_JOB_ID).isEmpty());
+
+    }
+
+    /**
+     * Saving again replaces the earlier point, atomically, without leaving a temporary file behind
+     * @throws IOException if it cannot be saved
+     */
+    @Test
+    public void testSaveReplacesEarlierPoint() throws IOException {
+
+        this.getStore().save(this.createResumePoint(FIRST_JOB_ID, 7L, 100L));
+        this.getStore().save(this.createResumePoint(FIRST_JOB_ID, 9L, 250L));
+
+        Assertions.assertEquals(250L, this.getStore().find(FIRST_JOB_ID).orElseThrow().getByteOffset());
+        Assertions.assertEquals(List.of(FIRST_JOB_ID + ".resume.json"), this.listResumeDirectory());
+
+    }
+
+    /**
+     * Every saved point is found, and a deleted one no longer is
+     * @throws IOException if one cannot be saved
+     */
+    @Test
+    public void testFindAllAndDelete() throws IOException {
+
+        this.getStore().save(this.createResumePoint(FIRST_JOB_ID, 7L, 100L));
+        this.getStore().save(this.createResumePoint(SECOND_JOB_ID, null, 0L));
+
+        Assertions.assertEquals(List.of(FIRST_JOB_ID, SECOND_JOB_ID), this.findAllJobIds());
+
+        this.getStore().delete(FIRST_JOB_ID);
+        this.getStore().delete("missing-job");
+        Assertions.assertEquals(List.of(SECOND_JOB_ID), this.findAllJobIds());
+
+    }
+
+    /**
+     * Marking a point failed keeps it, flagged, and marking a missing one saves nothing
+     * @throws IOException if it cannot be saved
+     */
+    @Test
+    public void testMarkFailed() throws IOException {
+
+        this.getStore().save(this.createResumePoint(FIRST_JOB_ID, 7L, 100L));
+        Assertions.assertFalse(this.getStore().find(FIRST_JOB_ID).orElseThrow().isFailed());
+
+        this.getStore().markFailed(FIRST_JOB_ID);
+        this.getStore().markFailed(SECOND_JOB_ID);
+
+        Assertions.assertTrue(this.getStore().find(FIRST_JOB_ID).orElseThrow().isFailed());
+        Assertions.assertTrue(this.getStore().find(SECOND_JOB_ID).isEmpty());
+
+    }
+
+    /**
+     * An unreadable point is skipped rather than failing the others, and no directory answers none
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public void testUnreadablePointIsSkipped() throws IOException {
+
+        Assertions.assertTrue(this.getStore().findAll().isEmpty());
+
+        this.getStore().save(this.createResumePoint(FIRST_JOB_ID, 7L, 100L));
+        Files.writeString(this.directory.resolve("resume").resolve(SECOND_JOB_ID + ".resume.json"), "{torn");
+
+        Assertions.assertEquals(List.of(FIRST_JOB_ID), this.findAllJobIds());
+        Assertions.assertTrue(this.getStore().find(SECOND_JOB_ID).isEmpty());
+
+    }
+
+    /**
+     * Answer the job ids of every saved point, sorted
+     * @return List
+     */
+    private List<String> findAllJobIds() {
+
+        return this.getStore()
+                   .findAll()
+                   .stream()
+                   .map(ExportResumePointDTO::getExportJobId)
+                   .sorted()
+                   .toList();
+    }
+
+    /**
+     * Answer the names of the files in the resume directory, sorted
+     * @return List
+     * @throws IOException if it cannot be listed
+     */
+    private List<String> listResumeDirectory() throws IOException {
+
+        List<String> tempResult;
+
+        try (Stream<Path> tempFiles = Files.list(this.directory.resolve("resume"))) {
+
+            tempResult = tempFiles.map(p -> p.getFileName().toString())
+                                  .sorted(Comparator.naturalOrder())
+                                  .toList();
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer a resume point for anExportJobId after aLastId, at aByteOffset
+     * @param anExportJobId String
+     * @param aLastId Long
+     * @param aByteOffset long
+     * @return ExportResumePointDTO
+     */
+    private ExportResumePointDTO createResumePoint(String anExportJobId, Long aLastId, long aByteOffset) {
+
+        return new ExportResumePointDTO(anExportJobId,
+                                        1L,
+                                        "/tmp/" + anExportJobId + ".csv",
+                                        new ActivityExportRequest(START,
+                                                                  START + 1000L,
+                                                                  ActivityType.ROWING,
+                                                                  "/tmp/" + anExportJobId + ".csv"),
+                                        START,
+                                        aLastId,
+                                        aByteOffset,
+                                        (aLastId != null) ? 1L : 0L,
+                                        false);
+    }
+
+}
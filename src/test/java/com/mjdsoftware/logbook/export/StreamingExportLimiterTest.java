@@ -0,0 +1,59 @@
+package com.mjdsoftware.logbook.export;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StreamingExportLimiterTest {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private SimpleMeterRegistry meterRegistry;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private StreamingExportLimiter limiter;
+
+    //Constants
+    private static final int MAX_CONCURRENT = 2;
+
+    /**
+     * Create a limiter admitting MAX_CONCURRENT streams
+     */
+    @BeforeEach
+    public void setup() {
+
+        LogbookApplicationProperties tempProperties;
+
+        tempProperties = new LogbookApplicationProperties();
+        tempProperties.setExportMaxConcurrent(MAX_CONCURRENT);
+
+        this.setMeterRegistry(new SimpleMeterRegistry());
+        this.setLimiter(new StreamingExportLimiter(tempProperties, this.getMeterRegistry()));
+
+    }
+
+    /**
+     * Streams beyond the export limit are rejected and counted as rejected exports, until a stream
+     * admitted earlier is released
+     */
+    @Test
+    public void testStreamsBeyondLimitAreRejectedUntilReleased() {
+
+        for (int i = 0; i < MAX_CONCURRENT; i++) {
+
+            Assertions.assertTrue(this.getLimiter().tryAdmit());
+        }
+        Assertions.assertFalse(this.getLimiter().tryAdmit());
+        Assertions.assertEquals(1.0, this.getMeterRegistry().get("logbook.export.rejected").counter().count());
+
+        this.getLimiter().release();
+        Assertions.assertTrue(this.getLimiter().tryAdmit());
+        Assertions.assertEquals(1.0, this.getMeterRegistry().get("logbook.export.rejected").counter().count());
+
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.mjdsoftware.logbook.security;
+
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class OwnershipCacheTest {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private OwnershipCache ownershipCache;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private AtomicInteger loads;
+
+    //Constants
+    private static final Long LOGBOOK_ID = 1L;
+    private static final Long USER_ID = 7L;
+    private static final String OWNER = "athelete";
+    private static final String NEW_OWNER = "coach";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Create a cache
+     */
+    @BeforeEach
+    public void setup() {
+
+        LogbookApplicationProperties tempProperties;
+
+        tempProperties = new LogbookApplicationProperties();
+        tempProperties.setAuthorizationCacheMaxEntries(10);
+        tempProperties.setAuthorizationCacheTtlSeconds(60);
+
+        this.setOwnershipCache(new OwnershipCache(tempProperties, new SimpleMeterRegistry()));
+        this.setLoads(new AtomicInteger());
+
+    }
+
+    /**
+     * Leave no transaction synchronization behind for other tests on this thread
+     */
+    @AfterEach
+    public void tearDown() {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+    }
+
+    /**
+     * A lookup that read the old owner, and was overtaken by an invalidation before it could cache it, is
+     * answered but not cached, so the next lookup sees the new owner
+     * @throws Exception if the racing lookup fails
+     */
+    @Test
+    public void testLookupRacingInvalidationIsNotCached() throws Exception {
+
+        CountDownLatch              tempLoading = new CountDownLatch(1);
+        CountDownLatch              tempInvalidated = new CountDownLatch(1);
+        CompletableFuture<String>   tempRacingLookup;
+
+        tempRacingLookup = CompletableFuture.supplyAsync(
+                () -> this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, id -> {
+
+                    this.getLoads().incrementAndGet();
+                    tempLoading.countDown();
+                    this.await(tempInvalidated);
+                    return OWNER;
+
+                }));
+
+        this.await(tempLoading);
+        this.getOwnershipCache().invalidateLogbook(LOGBOOK_ID);
+        tempInvalidated.countDown();
+
+        Assertions.assertEquals(OWNER, tempRacingLookup.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assertions.assertEquals(NEW_OWNER, this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, this.loaderOf(NEW_OWNER)));
+        Assertions.assertEquals(NEW_OWNER, this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, this.loaderOf(OWNER)));
+        Assertions.assertEquals(2, this.getLoads().get());
+
+    }
+
+    /**
+     * Owners cached by another request between the invalidation of a user and the completion of its
+     * transaction are forgotten once it completes, although the first pass already forgot the username
+     */
+    @Test
+    public void testOwnersCachedBetweenPassesAreForgotten() {
+
+        this.getOwnershipCache().getUsername(USER_ID, this.loaderOf(OWNER));
+        this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, this.loaderOf(OWNER));
+
+        TransactionSynchronizationManager.initSynchronization();
+        this.getOwnershipCache().invalidateUser(USER_ID);
+
+        //Read before the invalidating transaction commits, so this is what its second pass is for
+        this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, this.loaderOf(OWNER));
+        Assertions.assertEquals(OWNER, this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, this.loaderOf(NEW_OWNER)));
+        Assertions.assertEquals(3, this.getLoads().get());
+
+        this.completeTransaction();
+
+        Assertions.assertEquals(NEW_OWNER, this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, this.loaderOf(NEW_OWNER)));
+        Assertions.assertEquals(4, this.getLoads().get());
+
+    }
+
+    /**
+     * A logbook owner cached between the invalidation of its logbook and the completion of the
+     * transaction is forgotten once it completes
+     */
+    @Test
+    public void testLogbookCachedBetweenPassesIsForgotten() {
+
+        TransactionSynchronizationManager.initSynchronization();
+        this.getOwnershipCache().invalidateLogbook(LOGBOOK_ID);
+        this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, this.loaderOf(OWNER));
+
+        this.completeTransaction();
+
+        Assertions.assertEquals(NEW_OWNER, this.getOwnershipCache().getLogbookOwner(LOGBOOK_ID, this.loaderOf(NEW_OWNER)));
+        Assertions.assertEquals(2, this.getLoads().get());
+
+    }
+
+    /**
+     * Complete the transaction synchronized on this thread, running what was registered to follow it
+     */
+    private void completeTransaction() {
+
+        for (TransactionSynchronization s: TransactionSynchronizationManager.getSynchronizations()) {
+            s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+    }
+
+    /**
+     * Answer a loader that counts its loads and answers aUsername for every id
+     * @param aUsername String
+     * @return Function
+     */
+    private Function<Long, String> loaderOf(String aUsername) {
+
+        return id -> {
+
+            this.getLoads().incrementAndGet();
+            return aUsername;
+
+        };
+
+    }
+
+    /**
+     * Wait for aLatch, failing if it is not counted down in time
+     * @param aLatch CountDownLatch
+     */
+    private void await(CountDownLatch aLatch) {
+
+        try {
+            Assertions.assertTrue(aLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+
+        }
+
+    }
+
+}
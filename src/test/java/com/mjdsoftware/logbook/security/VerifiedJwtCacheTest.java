@@ -0,0 +1,265 @@
+package com.mjdsoftware.logbook.security;
+
+import com.mjdsoftware.logbook.config.JwtAuthConverterProperties;
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.security.VerifiedJwtCache.VerifiedJwt;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class VerifiedJwtCacheTest {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private VerifiedJwtCache verifiedJwtCache;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private AtomicInteger loads;
+
+    //Constants
+    private static final String TOKEN = "header.payload.signature";
+    private static final int CONCURRENT_REQUESTS = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Create a cache
+     */
+    @BeforeEach
+    public void setup() {
+
+        LogbookApplicationProperties tempProperties;
+
+        tempProperties = new LogbookApplicationProperties();
+        tempProperties.setVerifiedJwtCacheMaxEntries(10);
+        tempProperties.setVerifiedJwtCacheTtlSeconds(60);
+
+        this.setVerifiedJwtCache(new VerifiedJwtCache(tempProperties, new SimpleMeterRegistry()));
+        this.setLoads(new AtomicInteger());
+
+    }
+
+    /**
+     * Requests that arrive with a token while it is being verified wait for that verification and share
+     * its result, rather than each verifying the token again
+     * @throws Exception if a request fails
+     */
+    @Test
+    public void testConcurrentRequestsVerifyOnce() throws Exception {
+
+        CountDownLatch                          tempRelease = new CountDownLatch(1);
+        List<CompletableFuture<VerifiedJwt>>    tempRequests;
+        VerifiedJwt                             tempVerified;
+
+        tempRequests = this.getConcurrently(this.blockingLoader(tempRelease, this.countingLoader()));
+        tempRelease.countDown();
+
+        tempVerified = tempRequests.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        for (CompletableFuture<VerifiedJwt> aRequest: tempRequests) {
+
+            Assertions.assertSame(tempVerified, aRequest.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1, this.getLoads().get());
+        Assertions.assertSame(tempVerified, this.getVerifiedJwtCache().getIfPresent(TOKEN).orElseThrow());
+
+    }
+
+    /**
+     * A rejection is shared by every request waiting on the verification, and is not cached, so the
+     * token is verified again by the next request
+     * @throws Exception if waiting for a request fails
+     */
+    @Test
+    public void testConcurrentRequestsShareRejection() throws Exception {
+
+        CountDownLatch                          tempRelease = new CountDownLatch(1);
+        List<CompletableFuture<VerifiedJwt>>    tempRequests;
+        Function<String, VerifiedJwt>           tempRejectingLoader;
+        ExecutionException                      tempRejection;
+
+        tempRejectingLoader = t -> {
+
+            this.getLoads().incrementAndGet();
+            throw new BadJwtException("Invalid signature");
+
+        };
+        tempRequests = this.getConcurrently(this.blockingLoader(tempRelease, tempRejectingLoader));
+        tempRelease.countDown();
+
+        for (CompletableFuture<VerifiedJwt> aRequest: tempRequests) {
+
+            tempRejection = Assertions.assertThrows(ExecutionException.class,
+                                                    () -> aRequest.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(BadJwtException.class, tempRejection.getCause());
+
+        }
+        Assertions.assertEquals(1, this.getLoads().get());
+        Assertions.assertTrue(this.getVerifiedJwtCache().getIfPresent(TOKEN).isEmpty());
+
+        this.getVerifiedJwtCache().get(TOKEN, this.countingLoader());
+        Assertions.assertEquals(2, this.getLoads().get());
+
+    }
+
+    /**
+     * The converter only reuses what the decoder verified, and never caches a jwt it was handed
+     */
+    @Test
+    public void testOnlyDecoderCachesVerifiedTokens() {
+
+        JwtAuthConverterProperties  tempProperties;
+        JwtAuthConverter            tempConverter;
+        JwtDecoder                  tempDelegate;
+        CachingJwtDecoder           tempDecoder;
+        Jwt                         tempJwt;
+
+        tempProperties = new JwtAuthConverterProperties();
+        tempProperties.setResourceId("role");
+        tempConverter = new JwtAuthConverter(tempProperties, this.getVerifiedJwtCache());
+        tempJwt = this.createJwt(TOKEN);
+
+        Assertions.assertTrue(tempConverter.convert(tempJwt)
+                                           .getAuthorities()
+                                           .contains(new SimpleGrantedAuthority("ROLE_app_admin")));
+        Assertions.assertTrue(this.getVerifiedJwtCache().getIfPresent(TOKEN).isEmpty());
+
+        tempDelegate = Mockito.mock(JwtDecoder.class);
+        Mockito.when(tempDelegate.decode(TOKEN)).thenReturn(tempJwt);
+        tempDecoder = new CachingJwtDecoder(tempDelegate, this.getVerifiedJwtCache(), tempConverter);
+
+        Assertions.assertSame(tempJwt, tempDecoder.decode(TOKEN));
+        Assertions.assertSame(tempJwt, tempDecoder.decode(TOKEN));
+        Mockito.verify(tempDelegate, Mockito.times(1)).decode(TOKEN);
+        Assertions.assertEquals(this.getVerifiedJwtCache().getIfPresent(TOKEN).orElseThrow().getAuthorities(),
+                                tempConverter.convert(tempJwt).getAuthorities());
+
+    }
+
+    /**
+     * Start CONCURRENT_REQUESTS requests for TOKEN verified by aLoader. Answer them once the first is
+     * verifying and every other is waiting, so none of them can have found the token cached.
+     * @param aLoader Function that blocks until released
+     * @return List
+     */
+    private List<CompletableFuture<VerifiedJwt>> getConcurrently(Function<String, VerifiedJwt> aLoader) {
+
+        ExecutorService                         tempExecutor;
+        List<CompletableFuture<VerifiedJwt>>    tempResult = new ArrayList<>();
+        List<Thread>                            tempThreads = new ArrayList<>();
+
+        tempExecutor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS, r -> {
+
+            Thread tempThread = new Thread(r);
+            tempThreads.add(tempThread);
+            return tempThread;
+
+        });
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+
+            tempResult.add(CompletableFuture.supplyAsync(() -> this.getVerifiedJwtCache().get(TOKEN, aLoader),
+                                                         tempExecutor));
+        }
+        tempExecutor.shutdown();
+        this.awaitAllWaiting(tempThreads);
+
+        return tempResult;
+
+    }
+
+    /**
+     * Wait until every one of aThreads is blocked, failing if they are not in time
+     * @param aThreads List
+     */
+    private void awaitAllWaiting(List<Thread> aThreads) {
+
+        long tempDeadline;
+
+        tempDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (aThreads.size() < CONCURRENT_REQUESTS ||
+                !aThreads.stream().allMatch(t -> t.getState() == Thread.State.WAITING ||
+                                                  t.getState() == Thread.State.TIMED_WAITING)) {
+
+            Assertions.assertTrue(System.nanoTime() < tempDeadline, "Requests did not all block in time");
+            Thread.onSpinWait();
+
+        }
+
+    }
+
+    /**
+     * Answer a loader that waits for aRelease and then answers as aLoader does
+     * @param aRelease CountDownLatch
+     * @param aLoader Function
+     * @return Function
+     */
+    private Function<String, VerifiedJwt> blockingLoader(CountDownLatch aRelease,
+                                                         Function<String, VerifiedJwt> aLoader) {
+
+        return t -> {
+
+            try {
+                Assertions.assertTrue(aRelease.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+            catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+
+            }
+            return aLoader.apply(t);
+
+        };
+
+    }
+
+    /**
+     * Answer a loader that counts its loads and answers an admin jwt
+     * @return Function
+     */
+    private Function<String, VerifiedJwt> countingLoader() {
+
+        return t -> {
+
+            this.getLoads().incrementAndGet();
+            return new VerifiedJwt(this.createJwt(t), List.of(new SimpleGrantedAuthority("ROLE_app_admin")));
+
+        };
+
+    }
+
+    /**
+     * Answer an admin jwt for aToken that expires in an hour
+     * @param aToken String
+     * @return Jwt
+     */
+    private Jwt createJwt(String aToken) {
+
+        return Jwt.withTokenValue(aToken)
+                  .header("alg", "RS256")
+                  .claim("preferred_username", "logbook-administrator")
+                  .claim("role", List.of("app_admin"))
+                  .issuedAt(Instant.now())
+                  .expiresAt(Instant.now().plusSeconds(3600))
+                  .build();
+    }
+
+}
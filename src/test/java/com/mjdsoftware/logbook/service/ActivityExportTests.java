@@ -0,0 +1,681 @@
+package com.mjdsoftware.logbook.service;
+
+import com.mjdsoftware.logbook.LogbookApplication;
+import com.mjdsoftware.logbook.config.LogbookApplicationProperties;
+import com.mjdsoftware.logbook.domain.entities.Activity;
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import com.mjdsoftware.logbook.domain.entities.DistanceUnits;
+import com.mjdsoftware.logbook.domain.entities.DurationUnits;
+import com.mjdsoftware.logbook.domain.entities.Logbook;
+import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
+import com.mjdsoftware.logbook.domain.entities.User;
+import com.mjdsoftware.logbook.domain.repositories.ActivityRepository;
+import com.mjdsoftware.logbook.csv.ActivityExportRow;
+import com.mjdsoftware.logbook.dto.ActivityExportRequest;
+import com.mjdsoftware.logbook.dto.ExportResumePointDTO;
+import com.mjdsoftware.logbook.dto.LogbookDTO;
+import com.mjdsoftware.logbook.dto.LogbookEntryDTO;
+import com.mjdsoftware.logbook.dto.UnMonitoredAerobicActivityDTO;
+import com.mjdsoftware.logbook.dto.UserDTO;
+import com.mjdsoftware.logbook.export.ExportCheckpoint;
+import com.mjdsoftware.logbook.export.ExportJob;
+import com.mjdsoftware.logbook.export.ExportJobStatus;
+import com.mjdsoftware.logbook.exception.ExportJobNotFoundException;
+import com.mjdsoftware.logbook.export.ExportResultCache;
+import com.mjdsoftware.logbook.export.ExportResumePointStore;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Exports activities of a logbook through the service, against the migrated schema, and checks what
+ * ends up in the export files. The database triggers that stamp changes and record deletions are part
+ * of what is tested.
+ */
+@SpringBootTest(classes = LogbookApplication.class)
+@ActiveProfiles("test")
+public class ActivityExportTests {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private UserService userService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private LogbookService logbookService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private LogbookEntryService logbookEntryService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private ActivityService activityService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private ExportResultCache exportResultCache;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private LogbookApplicationProperties applicationProperties;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private ExportResumePointStore exportResumePointStore;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private ExportJobService exportJobService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private User user;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Logbook logbook;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private LogbookEntry entry;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private List<Activity> activities;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private List<Path> exportFiles;
+
+    //Constants
+    private static final int ACTIVITY_COUNT = 3;
+    private static final long EXPORT_TIMEOUT_SECONDS = 10;
+    private static final long CACHE_POLL_MILLIS = 10;
+    private static final String CHANGED_DETAILS = "Changed after the first export";
+    private static final double CHANGED_DURATION = 45.0d;
+    private static final String DELTA_HEADER_SUFFIX = ",deleted";
+
+    /**
+     * Create a logbook with one entry of ACTIVITY_COUNT activities
+     */
+    @BeforeEach
+    public void setup() {
+
+        UserDTO         tempUserDTO;
+        LogbookDTO      tempLogbookDTO;
+
+        tempUserDTO = new UserDTO("exportuser" + (new Date()).getTime());
+        this.setUser(this.getUserService().createUser(tempUserDTO));
+
+        tempLogbookDTO = new LogbookDTO();
+        tempLogbookDTO.setName("ExportLogbook" + (new Date()).getTime());
+        this.setLogbook(this.getLogbookService().createLogbook(this.getUser(), tempLogbookDTO));
+        this.setEntry(this.getLogbookEntryService().createLogbookEntry(this.getLogbook(), new LogbookEntryDTO()));
+
+        this.setActivities(new ArrayList<>());
+        for (int i = 0; i < ACTIVITY_COUNT; i++) {
+
+            this.getActivities().add(this.getActivityService().createActivity(this.getLogbook(),
+                                                                              this.getEntry(),
+                                                                              this.createActivityDTO(i)));
+        }
+        this.setExportFiles(new ArrayList<>());
+
+    }
+
+    /**
+     * Remove everything setup and the exports created
+     * @throws IOException if an export file cannot be deleted
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+
+        for (Path aFile: this.getExportFiles()) {
+
+            Files.deleteIfExists(aFile);
+        }
+        this.getLogbookEntryService().deleteLogbookEntry(this.getEntry().getId());
+        this.getLogbookService().deleteLogbook(this.getLogbook().getId());
+        this.getUserService().deleteUserById(this.getUser().getId());
+
+    }
+
+    /**
+     * The version marker of a logbook changes when one of its activities is changed or deleted
+     */
+    @Test
+    public void testVersionMarkerFollowsChanges() {
+
+        String tempCreated;
+        String tempChanged;
+        String tempDeleted;
+
+        tempCreated = this.findVersionMarker();
+        this.changeActivity(this.getActivities().get(0));
+        tempChanged = this.findVersionMarker();
+        this.getActivityService().delete(List.of(this.getActivities().get(1)));
+        tempDeleted = this.findVersionMarker();
+
+        Assertions.assertNotEquals(tempCreated, tempChanged);
+        Assertions.assertNotEquals(tempChanged, tempDeleted);
+
+    }
+
+    /**
+     * Repeating an export of an unchanged logbook is answered at once with a link to the earlier file
+     * @throws IOException if the export files cannot be read
+     */
+    @Test
+    public void testRepeatedExportIsAnsweredFromCache() throws IOException {
+
+        ExportJob tempFirst;
+        ExportJob tempSecond;
+
+        tempFirst = this.awaitFinished(this.export("cache-first.csv"));
+        this.awaitCached();
+        tempSecond = this.export("cache-second.csv");
+
+        //A hit finishes the job before it is answered
+        Assertions.assertEquals(ExportJobStatus.DONE, tempSecond.getStatus());
+        Assertions.assertEquals(tempFirst.getRowsWritten(), tempSecond.getRowsWritten());
+        Assertions.assertEquals(tempFirst.getBytesWritten(), tempSecond.getBytesWritten());
+        Assertions.assertTrue(Files.isSameFile(this.exportFileOf(tempFirst), this.exportFileOf(tempSecond)));
+
+    }
+
+    /**
+     * Changing an activity after an export makes a repeat of it miss the cache and see the change
+     * @throws IOException if the export files cannot be read
+     */
+    @Test
+    public void testChangedActivityMissesCache() throws IOException {
+
+        ExportJob tempFirst;
+        ExportJob tempSecond;
+
+        tempFirst = this.awaitFinished(this.export("changed-first.csv"));
+        this.awaitCached();
+        this.changeActivity(this.getActivities().get(0));
+        tempSecond = this.awaitFinished(this.export("changed-second.csv"));
+
+        Assertions.assertEquals(ExportJobStatus.DONE, tempSecond.getStatus());
+        Assertions.assertFalse(Files.isSameFile(this.exportFileOf(tempFirst), this.exportFileOf(tempSecond)));
+        Assertions.assertFalse(Files.readString(this.exportFileOf(tempFirst)).contains(CHANGED_DETAILS));
+        Assertions.assertTrue(Files.readString(this.exportFileOf(tempSecond)).contains(CHANGED_DETAILS));
+
+    }
+
+    /**
+     * Deleting an activity after an export makes a repeat of it miss the cache and leave it out
+     * @throws IOException if the export files cannot be read
+     */
+    @Test
+    public void testDeletedActivityMissesCache() throws IOException {
+
+        ExportJob tempFirst;
+        ExportJob tempSecond;
+
+        tempFirst = this.awaitFinished(this.export("deleted-first.csv"));
+        this.awaitCached();
+        this.getActivityService().delete(List.of(this.getActivities().get(0)));
+        tempSecond = this.awaitFinished(this.export("deleted-second.csv"));
+
+        Assertions.assertEquals(ACTIVITY_COUNT, tempFirst.getRowsWritten());
+        Assertions.assertEquals(ACTIVITY_COUNT - 1, tempSecond.getRowsWritten());
+        Assertions.assertFalse(Files.isSameFile(this.exportFileOf(tempFirst), this.exportFileOf(tempSecond)));
+
+    }
+
+    /**
+     * A delta export answers only what changed after its checkpoint: an activity updated, an activity
+     * whose details alone were updated, and a tombstone for an activity deleted
+     * @throws IOException if the export file cannot be read
+     */
+    @Test
+    public void testDeltaExportAnswersChanges() throws IOException {
+
+        String          tempCheckpoint;
+        ExportJob       tempJob;
+        List<String>    tempLines;
+        Activity        tempUpdated;
+        Activity        tempDetailsChanged;
+        Activity        tempDeleted;
+
+        tempUpdated = this.getActivities().get(0);
+        tempDetailsChanged = this.getActivities().get(1);
+        tempDeleted = this.getActivities().get(2);
+
+        tempCheckpoint = this.createCheckpointAfterSetup();
+        this.changeDuration(tempUpdated);
+        this.changeDetailsOnly(tempDetailsChanged);
+        this.getActivityService().delete(List.of(tempDeleted));
+        tempJob = this.awaitFinished(this.exportChangesSince(tempCheckpoint, "delta.csv"));
+
+        Assertions.assertEquals(ExportJobStatus.DONE, tempJob.getStatus());
+        Assertions.assertEquals(3, tempJob.getRowsWritten());
+        tempLines = Files.readAllLines(this.exportFileOf(tempJob));
+        Assertions.assertEquals(4, tempLines.size());
+        Assertions.assertTrue(tempLines.get(0).endsWith(DELTA_HEADER_SUFFIX));
+
+        Assertions.assertTrue(this.lineFor(tempLines, tempUpdated).contains("," + CHANGED_DURATION + ","));
+        Assertions.assertTrue(this.lineFor(tempLines, tempUpdated).endsWith(",false"));
+        Assertions.assertTrue(this.lineFor(tempLines, tempDetailsChanged).contains(CHANGED_DETAILS));
+        Assertions.assertTrue(this.lineFor(tempLines, tempDetailsChanged).endsWith(",false"));
+        Assertions.assertTrue(this.lineFor(tempLines, tempDeleted).endsWith(",true"));
+
+    }
+
+    /**
+     * A delta export reaches back the lookback window before its checkpoint, so activities written
+     * just before the checkpoint was taken are answered again rather than lost, while a checkpoint a
+     * whole window after them answers nothing
+     * @throws IOException if the export file cannot be read
+     */
+    @Test
+    public void testDeltaExportLooksBackBeforeCheckpoint() throws IOException {
+
+        ExportJob   tempFull;
+        ExportJob   tempWithinWindow;
+        ExportJob   tempAfterWindow;
+        long        tempCheckpointMillis;
+
+        tempFull = this.awaitFinished(this.export("lookback-full.csv"));
+        tempWithinWindow = this.awaitFinished(this.exportChangesSince(tempFull.getNextCheckpointToken(),
+                                                                      "lookback-within.csv"));
+
+        tempCheckpointMillis = ExportCheckpoint.fromToken(tempFull.getNextCheckpointToken()).getEpochMillis();
+        tempAfterWindow =
+                this.awaitFinished(this.exportChangesSince(this.createCheckpointAfterWindow(tempCheckpointMillis),
+                                                           "lookback-after.csv"));
+
+        Assertions.assertEquals(ACTIVITY_COUNT, tempWithinWindow.getRowsWritten());
+        Assertions.assertEquals(0, tempAfterWindow.getRowsWritten());
+        Assertions.assertEquals(1, Files.readAllLines(this.exportFileOf(tempAfterWindow)).size());
+
+    }
+
+    /**
+     * On startup an export interrupted after its first row is resumed from its saved point, dropping what
+     * was written after it, estimated and finished like a new export, while a failed one is left alone
+     * @throws IOException if the export file cannot be prepared or read
+     */
+    @Test
+    public void testStartupResumesInterruptedExportsOnly() throws IOException {
+
+        ExportJob               tempFull;
+        String                  tempContent;
+        ActivityExportRequest   tempRequest;
+        ActivityExportRow       tempFirstRow;
+        int                     tempFirstRowEnd;
+        ExportResumePointDTO    tempInterrupted;
+        ExportResumePointDTO    tempFailed;
+        ExportJob               tempResumed;
+
+        tempFull = this.awaitFinished(this.export("resume-full.csv"));
+        tempContent = Files.readString(this.exportFileOf(tempFull));
+        tempRequest = this.createRequest(this.exportFileOf(tempFull).toString());
+        tempFirstRow = this.getActivityService()
+                           .findNextActivityRows(this.getLogbook().getId(), tempRequest, null, 1)
+                           .get(0);
+
+        //Keep the header and first row, then a torn second row as a pod stopped mid chunk would
+        tempFirstRowEnd = tempContent.indexOf("\r\n", tempContent.indexOf("\r\n") + 2) + 2;
+        Files.writeString(this.exportFileOf(tempFull),
+                          tempContent.substring(0, tempFirstRowEnd) + "torn,row",
+                          StandardOpenOption.TRUNCATE_EXISTING);
+
+        tempInterrupted = this.createResumePoint(tempRequest,
+                                                 tempFirstRow,
+                                                 tempContent.substring(0, tempFirstRowEnd)
+                                                            .getBytes(StandardCharsets.UTF_8).length,
+                                                 false);
+        tempFailed = this.createResumePoint(tempRequest, tempFirstRow, 0L, true);
+        this.getExportResumePointStore().save(tempInterrupted);
+        this.getExportResumePointStore().save(tempFailed);
+
+        try {
+
+            this.getActivityService().resumeInterruptedExports();
+            tempResumed = this.awaitFinished(this.getExportJobService()
+                                                 .findJobForLogbook(this.getLogbook().getId(),
+                                                                    tempInterrupted.getExportJobId()));
+
+            Assertions.assertEquals(ExportJobStatus.DONE, tempResumed.getStatus());
+            Assertions.assertEquals(ACTIVITY_COUNT, tempResumed.getRowsWritten());
+            Assertions.assertEquals(ACTIVITY_COUNT, tempResumed.getEstimatedTotalRows());
+            Assertions.assertEquals(tempContent, Files.readString(this.exportFileOf(tempFull)));
+            Assertions.assertTrue(this.getExportResumePointStore().find(tempInterrupted.getExportJobId()).isEmpty());
+
+            Assertions.assertTrue(this.getExportResumePointStore().find(tempFailed.getExportJobId()).isPresent());
+            Assertions.assertThrows(ExportJobNotFoundException.class,
+                                    () -> this.getExportJobService()
+                                              .findJobForLogbook(this.getLogbook().getId(),
+                                                                 tempFailed.getExportJobId()));
+
+        }
+        finally {
+
+            this.getExportResumePointStore().delete(tempInterrupted.getExportJobId());
+            this.getExportResumePointStore().delete(tempFailed.getExportJobId());
+
+        }
+
+    }
+
+    /**
+     * Answer a resume point for a new job of my logbook exporting aRequest, saved after aLastRow at
+     * aByteOffset, that failed if aFailed
+     * @param aRequest ActivityExportRequest
+     * @param aLastRow ActivityExportRow
+     * @param aByteOffset long
+     * @param aFailed boolean
+     * @return ExportResumePointDTO
+     */
+    private ExportResumePointDTO createResumePoint(ActivityExportRequest aRequest,
+                                                   ActivityExportRow aLastRow,
+                                                   long aByteOffset,
+                                                   boolean aFailed) {
+
+        return new ExportResumePointDTO(UUID.randomUUID().toString(),
+                                        this.getLogbook().getId(),
+                                        aRequest.getExportFilename(),
+                                        aRequest,
+                                        aLastRow.getActivityDate().getTimeInMillis(),
+                                        aLastRow.getId(),
+                                        aByteOffset,
+                                        1L,
+                                        aFailed);
+    }
+
+    /**
+     * Answer the version marker of my logbook
+     * @return String
+     */
+    private String findVersionMarker() {
+
+        return this.getActivityRepository().findExportVersionMarker(this.getLogbook().getId());
+    }
+
+    /**
+     * Change the details of anActivity
+     * @param anActivity Activity
+     */
+    private void changeActivity(Activity anActivity) {
+
+        UnMonitoredAerobicActivityDTO tempActivity;
+
+        tempActivity = (UnMonitoredAerobicActivityDTO)anActivity.asValueObject();
+        tempActivity.setActivityDetails(CHANGED_DETAILS);
+        this.getActivityService().modifyActivity(this.getLogbook(), this.getEntry(), tempActivity);
+
+    }
+
+    /**
+     * Change the duration of anActivity, which updates its own row
+     * @param anActivity Activity
+     */
+    private void changeDuration(Activity anActivity) {
+
+        UnMonitoredAerobicActivityDTO tempActivity;
+
+        tempActivity = (UnMonitoredAerobicActivityDTO)anActivity.asValueObject();
+        tempActivity.setDuration(CHANGED_DURATION);
+        this.getActivityService().modifyActivity(this.getLogbook(), this.getEntry(), tempActivity);
+
+    }
+
+    /**
+     * Change the details of anActivity in place, without touching its own row, as another writer of the
+     * database might
+     * @param anActivity Activity
+     */
+    private void changeDetailsOnly(Activity anActivity) {
+
+        this.getJdbcTemplate()
+            .update("update activity_details set details = ? " +
+                            "where id = (select act.activity_details_id from activities act where act.id = ?)",
+                    CHANGED_DETAILS,
+                    anActivity.getId());
+    }
+
+    /**
+     * Answer the line of aLines holding the row of anActivity
+     * @param aLines List
+     * @param anActivity Activity
+     * @return String
+     */
+    private String lineFor(List<String> aLines, Activity anActivity) {
+
+        return aLines.stream()
+                     .filter(aLine -> aLine.startsWith(anActivity.getId() + ","))
+                     .findFirst()
+                     .orElseThrow(() -> new AssertionError("No row for activity " + anActivity.getId()));
+    }
+
+    /**
+     * Answer a checkpoint token from which changes are read strictly after everything setup wrote, and
+     * wait until the database clock has passed it so that later changes are read. The checkpoint is
+     * placed a lookback window ahead, since a delta export reads from that far before its checkpoint.
+     * @return String
+     */
+    private String createCheckpointAfterSetup() {
+
+        long tempChangedSinceMillis;
+
+        tempChangedSinceMillis = this.getActivityRepository().findDatabaseEpochMillis() + 1;
+        while (this.getActivityRepository().findDatabaseEpochMillis() <= tempChangedSinceMillis) {
+
+            Thread.onSpinWait();
+        }
+
+        return this.createCheckpointAfterWindow(tempChangedSinceMillis - 1);
+
+    }
+
+    /**
+     * Answer a checkpoint token whose lookback window starts just after anEpochMillis
+     * @param anEpochMillis long
+     * @return String
+     */
+    private String createCheckpointAfterWindow(long anEpochMillis) {
+
+        return new ExportCheckpoint(anEpochMillis + 1 + this.getLookbackMillis()).asToken();
+    }
+
+    /**
+     * Answer the delta export lookback window in millis
+     * @return long
+     */
+    private long getLookbackMillis() {
+
+        return TimeUnit.SECONDS.toMillis(this.getApplicationProperties().getExportDeltaLookbackSeconds());
+    }
+
+    /**
+     * Export the activities of my logbook from the last week changed since aCheckpointToken to a file
+     * named aFilename, without waiting for it
+     * @param aCheckpointToken String
+     * @param aFilename String
+     * @return ExportJob
+     */
+    private ExportJob exportChangesSince(String aCheckpointToken, String aFilename) {
+
+        ActivityExportRequest   tempRequest;
+        ExportJob               tempResult;
+
+        tempRequest = this.createRequest(aFilename);
+        tempRequest.setCheckpointToken(aCheckpointToken);
+        tempResult = this.getActivityService().exportActivitiesToFileAsynchronously(this.getLogbook().getId(),
+                                                                                   tempRequest);
+        this.getExportFiles().add(this.exportFileOf(tempResult));
+
+        return tempResult;
+
+    }
+
+    /**
+     * Export all activities of my logbook from the last week to a file named aFilename, without waiting
+     * for it
+     * @param aFilename String
+     * @return ExportJob
+     */
+    private ExportJob export(String aFilename) {
+
+        ExportJob tempResult;
+
+        tempResult = this.getActivityService().exportActivitiesToFileAsynchronously(this.getLogbook().getId(),
+                                                                                   this.createRequest(aFilename));
+        this.getExportFiles().add(this.exportFileOf(tempResult));
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer a request for activities of the last week, written to aFilename
+     * @param aFilename String
+     * @return ActivityExportRequest
+     */
+    private ActivityExportRequest createRequest(String aFilename) {
+
+        return new ActivityExportRequest(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7),
+                                         System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1),
+                                         null,
+                                         aFilename);
+    }
+
+    /**
+     * Answer the export file of anExportJob
+     * @param anExportJob ExportJob
+     * @return Path
+     */
+    private Path exportFileOf(ExportJob anExportJob) {
+
+        return Path.of(anExportJob.getExportFilename());
+    }
+
+    /**
+     * Wait for anExportJob to finish, failing if it takes longer than EXPORT_TIMEOUT_SECONDS, and answer it
+     * @param anExportJob ExportJob
+     * @return ExportJob
+     */
+    private ExportJob awaitFinished(ExportJob anExportJob) {
+
+        CompletableFuture<ExportJob> tempFinished = new CompletableFuture<>();
+
+        anExportJob.whenFinished(tempFinished::complete);
+        try {
+            tempFinished.get(EXPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException | ExecutionException | TimeoutException e) {
+            Assertions.fail("Export job did not finish: " + e);
+        }
+
+        return anExportJob;
+
+    }
+
+    /**
+     * Wait for the export of my logbook at its current version to be cached. The cache registers an
+     * export on the same completion as the job finishing, so it may lag the job being seen as done.
+     */
+    private void awaitCached() {
+
+        String  tempFingerprint;
+        long    tempDeadline;
+
+        tempFingerprint = this.getExportResultCache().fingerprintOf(this.getLogbook().getId(),
+                                                                    this.createRequest("any.csv"),
+                                                                    this.findVersionMarker());
+        tempDeadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(EXPORT_TIMEOUT_SECONDS);
+        while (!this.isCached(tempFingerprint) && System.currentTimeMillis() < tempDeadline) {
+
+            try {
+                Thread.sleep(CACHE_POLL_MILLIS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+        }
+        Assertions.assertTrue(this.isCached(tempFingerprint), "Export was not cached");
+
+    }
+
+    /**
+     * Answer whether a file is cached under aFingerprint
+     * @param aFingerprint String
+     * @return boolean
+     */
+    private boolean isCached(String aFingerprint) {
+
+        Path    tempDirectory;
+        boolean tempResult = false;
+
+        tempDirectory = Paths.get(this.getApplicationProperties().getExportCacheDirectory());
+        if (Files.isDirectory(tempDirectory)) {
+
+            try (Stream<Path> tempFiles = Files.list(tempDirectory)) {
+
+                tempResult = tempFiles.anyMatch(aFile -> aFile.getFileName().toString().startsWith(aFingerprint));
+            }
+            catch (IOException e) {
+                Assertions.fail("Unable to list export cache directory: " + e);
+            }
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer an activity dto numbered anIndex
+     * @param anIndex int
+     * @return UnMonitoredAerobicActivityDTO
+     */
+    private UnMonitoredAerobicActivityDTO createActivityDTO(int anIndex) {
+
+        UnMonitoredAerobicActivityDTO tempActivity;
+
+        tempActivity = new UnMonitoredAerobicActivityDTO();
+        tempActivity.setActivityType(ActivityType.ROWING);
+        tempActivity.setActivityDetails("Export activity " + anIndex);
+        tempActivity.setDuration(30.0d);
+        tempActivity.setDurationUnits(DurationUnits.MINUTES);
+        tempActivity.setDistance(10);
+        tempActivity.setDistanceUnits(DistanceUnits.KILOMETERS);
+
+        return tempActivity;
+
+    }
+
+}
@@ -0,0 +1,345 @@
+package com.mjdsoftware.logbook.service;
+
+import com.mjdsoftware.logbook.dto.oauth.OauthToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class AdminTokenHolderTest {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private SimpleMeterRegistry meterRegistry;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private AtomicInteger grants;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private AtomicInteger refreshes;
+
+    //Constants
+    private static final Duration REFRESH_MARGIN = Duration.ofSeconds(30);
+    private static final int LONG_LIVED_SECONDS = 300;
+    private static final int SHORT_LIVED_SECONDS = 2;
+    private static final int CONCURRENT_CALLERS = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Reset the counts
+     */
+    @BeforeEach
+    public void setup() {
+
+        this.setMeterRegistry(new SimpleMeterRegistry());
+        this.setGrants(new AtomicInteger());
+        this.setRefreshes(new AtomicInteger());
+
+    }
+
+    /**
+     * Callers that find the token expired while it is being refreshed wait for that refresh and use its
+     * token, rather than each refreshing it again
+     * @throws Exception if a caller fails
+     */
+    @Test
+    public void testExpiredTokenIsRefreshedOnceUnderContention() throws Exception {
+
+        CountDownLatch                          tempRelease = new CountDownLatch(1);
+        AdminTokenHolder                        tempHolder;
+        List<CompletableFuture<OauthToken>>     tempCallers;
+
+        //A token without lifetime has expired as soon as it is held
+        tempHolder = new AdminTokenHolder(() -> this.grant(0),
+                                          this.blocking(tempRelease, r -> this.refresh(LONG_LIVED_SECONDS)),
+                                          REFRESH_MARGIN,
+                                          this.getMeterRegistry());
+        tempHolder.getToken();
+
+        tempCallers = this.getConcurrently(tempHolder);
+        tempRelease.countDown();
+
+        this.assertAllAnsweredSameToken(tempCallers);
+        Assertions.assertEquals(1, this.getGrants().get());
+        Assertions.assertEquals(1, this.getRefreshes().get());
+        Assertions.assertEquals(CONCURRENT_CALLERS - 1, this.countOf("hit"));
+
+    }
+
+    /**
+     * A refresh that fails falls back to the password grant, once, and every caller waiting on it uses
+     * the granted token
+     * @throws Exception if a caller fails
+     */
+    @Test
+    public void testFailedRefreshFallsBackToGrantUnderContention() throws Exception {
+
+        CountDownLatch                          tempRelease = new CountDownLatch(1);
+        AtomicInteger                           tempRefreshAttempts = new AtomicInteger();
+        AdminTokenHolder                        tempHolder;
+        List<CompletableFuture<OauthToken>>     tempCallers;
+
+        tempHolder = new AdminTokenHolder(() -> this.grant((this.getGrants().get() == 0) ? 0 : LONG_LIVED_SECONDS),
+                                          this.blocking(tempRelease, r -> {
+
+                                              tempRefreshAttempts.incrementAndGet();
+                                              throw new IllegalStateException("Refresh token revoked");
+
+                                          }),
+                                          REFRESH_MARGIN,
+                                          this.getMeterRegistry());
+        tempHolder.getToken();
+
+        tempCallers = this.getConcurrently(tempHolder);
+        tempRelease.countDown();
+
+        this.assertAllAnsweredSameToken(tempCallers);
+        Assertions.assertEquals(1, tempRefreshAttempts.get());
+        Assertions.assertEquals(2, this.getGrants().get());
+        Assertions.assertEquals(1.0, this.countOf("failure"));
+        Assertions.assertEquals(0.0, this.countOf("refresh"));
+        Assertions.assertEquals(2.0, this.countOf("grant"));
+
+    }
+
+    /**
+     * A token without a refresh token is renewed with a new grant, without trying to refresh it, and a
+     * grant that fails is passed on and tried again by the next caller
+     */
+    @Test
+    public void testUnrefreshableTokenIsGrantedAgain() {
+
+        AtomicInteger           tempFailures = new AtomicInteger(1);
+        AdminTokenHolder        tempHolder;
+        Supplier<OauthToken>    tempGranter;
+
+        tempGranter = () -> {
+
+            OauthToken tempToken;
+
+            if (this.getGrants().get() == 1 && tempFailures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Keycloak unavailable");
+            }
+            tempToken = this.grant(0);
+            tempToken.setRefreshToken(null);
+            return tempToken;
+
+        };
+        tempHolder = new AdminTokenHolder(tempGranter,
+                                          r -> { throw new AssertionError("Refreshed without a refresh token"); },
+                                          REFRESH_MARGIN,
+                                          this.getMeterRegistry());
+
+        tempHolder.getToken();
+        Assertions.assertThrows(IllegalStateException.class, tempHolder::getToken);
+        tempHolder.getToken();
+
+        Assertions.assertEquals(2, this.getGrants().get());
+        Assertions.assertEquals(1.0, this.countOf("failure"));
+
+    }
+
+    /**
+     * While a token that is due but not yet expired is being refreshed, other callers keep using it
+     * rather than waiting
+     * @throws Exception if the refreshing caller fails
+     */
+    @Test
+    public void testDueTokenIsUsedWhileRefreshed() throws Exception {
+
+        CountDownLatch                  tempRefreshing = new CountDownLatch(1);
+        CountDownLatch                  tempRelease = new CountDownLatch(1);
+        AdminTokenHolder                tempHolder;
+        OauthToken                      tempDue;
+        CompletableFuture<OauthToken>   tempRefresher;
+
+        //The margin is capped at half the lifetime, so the token is due after a second and expires after two
+        tempHolder = new AdminTokenHolder(() -> this.grant(SHORT_LIVED_SECONDS),
+                                          this.blocking(tempRelease,
+                                                        r -> this.refresh(LONG_LIVED_SECONDS),
+                                                        tempRefreshing),
+                                          REFRESH_MARGIN,
+                                          this.getMeterRegistry());
+        tempDue = tempHolder.getToken();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(SHORT_LIVED_SECONDS) / 2 + 100);
+
+        tempRefresher = CompletableFuture.supplyAsync(tempHolder::getToken);
+        Assertions.assertTrue(tempRefreshing.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assertions.assertSame(tempDue, tempHolder.getToken());
+        tempRelease.countDown();
+
+        Assertions.assertNotSame(tempDue, tempRefresher.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assertions.assertSame(tempRefresher.get(), tempHolder.getToken());
+        Assertions.assertEquals(1, this.getRefreshes().get());
+
+    }
+
+    /**
+     * Start CONCURRENT_CALLERS callers for the token of aHolder. Answer them once one is renewing and
+     * every other is waiting for it, so none of them can have found a renewed token.
+     * @param aHolder AdminTokenHolder
+     * @return List
+     */
+    private List<CompletableFuture<OauthToken>> getConcurrently(AdminTokenHolder aHolder) {
+
+        ExecutorService                         tempExecutor;
+        List<CompletableFuture<OauthToken>>     tempResult = new ArrayList<>();
+        List<Thread>                            tempThreads = new ArrayList<>();
+        long                                    tempDeadline;
+
+        tempExecutor = Executors.newFixedThreadPool(CONCURRENT_CALLERS, r -> {
+
+            Thread tempThread = new Thread(r);
+            tempThreads.add(tempThread);
+            return tempThread;
+
+        });
+        for (int i = 0; i < CONCURRENT_CALLERS; i++) {
+
+            tempResult.add(CompletableFuture.supplyAsync(aHolder::getToken, tempExecutor));
+        }
+        tempExecutor.shutdown();
+
+        tempDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!tempThreads.stream().allMatch(t -> t.getState() == Thread.State.WAITING ||
+                                                    t.getState() == Thread.State.TIMED_WAITING)) {
+
+            Assertions.assertTrue(System.nanoTime() < tempDeadline, "Callers did not all block in time");
+            Thread.onSpinWait();
+
+        }
+
+        return tempResult;
+
+    }
+
+    /**
+     * Assert that every one of aCallers answered the same token
+     * @param aCallers List
+     * @throws Exception if a caller failed
+     */
+    private void assertAllAnsweredSameToken(List<CompletableFuture<OauthToken>> aCallers) throws Exception {
+
+        OauthToken tempToken;
+
+        tempToken = aCallers.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        for (CompletableFuture<OauthToken> aCaller: aCallers) {
+
+            Assertions.assertSame(tempToken, aCaller.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+    }
+
+    /**
+     * Answer a refresher that waits for aRelease and then refreshes as aRefresher does
+     * @param aRelease CountDownLatch
+     * @param aRefresher Function
+     * @return Function
+     */
+    private Function<String, OauthToken> blocking(CountDownLatch aRelease, Function<String, OauthToken> aRefresher) {
+
+        return this.blocking(aRelease, aRefresher, new CountDownLatch(1));
+    }
+
+    /**
+     * Answer a refresher that counts down aRefreshing, waits for aRelease and then refreshes as
+     * aRefresher does
+     * @param aRelease CountDownLatch
+     * @param aRefresher Function
+     * @param aRefreshing CountDownLatch
+     * @return Function
+     */
+    private Function<String, OauthToken> blocking(CountDownLatch aRelease,
+                                                  Function<String, OauthToken> aRefresher,
+                                                  CountDownLatch aRefreshing) {
+
+        return r -> {
+
+            aRefreshing.countDown();
+            try {
+                Assertions.assertTrue(aRelease.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+            catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+
+            }
+            return aRefresher.apply(r);
+
+        };
+
+    }
+
+    /**
+     * Answer a granted token that lives for aLifetimeSeconds
+     * @param aLifetimeSeconds int
+     * @return OauthToken
+     */
+    private OauthToken grant(int aLifetimeSeconds) {
+
+        this.getGrants().incrementAndGet();
+
+        return this.createToken(aLifetimeSeconds);
+    }
+
+    /**
+     * Answer a refreshed token that lives for aLifetimeSeconds
+     * @param aLifetimeSeconds int
+     * @return OauthToken
+     */
+    private OauthToken refresh(int aLifetimeSeconds) {
+
+        this.getRefreshes().incrementAndGet();
+
+        return this.createToken(aLifetimeSeconds);
+    }
+
+    /**
+     * Answer a token that lives for aLifetimeSeconds and can be refreshed for longer
+     * @param aLifetimeSeconds int
+     * @return OauthToken
+     */
+    private OauthToken createToken(int aLifetimeSeconds) {
+
+        OauthToken tempResult;
+
+        tempResult = new OauthToken();
+        tempResult.setAccessToken("access" + System.nanoTime());
+        tempResult.setRefreshToken("refresh" + System.nanoTime());
+        tempResult.setExpiresIn(aLifetimeSeconds);
+        tempResult.setRefreshExpiresIn(LONG_LIVED_SECONDS * 6);
+
+        return tempResult;
+
+    }
+
+    /**
+     * Answer the count of admin tokens answered with aResult
+     * @param aResult String
+     * @return double
+     */
+    private double countOf(String aResult) {
+
+        return this.getMeterRegistry()
+                   .get("logbook.keycloak.admin.token")
+                   .tag("result", aResult)
+                   .counter()
+                   .count();
+    }
+
+}
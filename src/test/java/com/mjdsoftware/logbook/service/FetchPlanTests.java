@@ -0,0 +1,334 @@
+package com.mjdsoftware.logbook.service;
+
+import com.mjdsoftware.logbook.LogbookApplication;
+import com.mjdsoftware.logbook.domain.entities.Activity;
+import com.mjdsoftware.logbook.domain.entities.ActivityType;
+import com.mjdsoftware.logbook.domain.entities.DistanceUnits;
+import com.mjdsoftware.logbook.domain.entities.DurationUnits;
+import com.mjdsoftware.logbook.domain.entities.Logbook;
+import com.mjdsoftware.logbook.domain.entities.LogbookEntry;
+import com.mjdsoftware.logbook.domain.entities.User;
+import com.mjdsoftware.logbook.dto.CommentDTO;
+import com.mjdsoftware.logbook.dto.LogbookDTO;
+import com.mjdsoftware.logbook.dto.LogbookEntryDTO;
+import com.mjdsoftware.logbook.dto.UnMonitoredAerobicActivityDTO;
+import com.mjdsoftware.logbook.dto.UserDTO;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the SQL statements each read path runs, using Hibernate statistics. The counts must stay
+ * within a small fixed bound and must not grow with the number of entries, activities or comments
+ * read, which is how an N+1 regression in a fetch plan shows up. The services are called outside of
+ * any test transaction, as the controllers call them, so their answers must also be fully loaded.
+ */
+@SpringBootTest(classes = LogbookApplication.class)
+@ActiveProfiles("test")
+public class FetchPlanTests {
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private UserService userService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private LogbookService logbookService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private LogbookEntryService logbookEntryService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private ActivityService activityService;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private User user;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private Logbook logbook;
+
+    @Getter(AccessLevel.PRIVATE) @Setter(AccessLevel.PRIVATE)
+    private List<LogbookEntry> entries;
+
+    //Constants
+    private static final int ENTRY_COUNT = 8;
+    private static final int COMMENT_COUNT = 3;
+    private static final long MAX_PAGE_STATEMENTS = 8;
+    private static final long MAX_DETAIL_STATEMENTS = 7;
+    private static final long MAX_ACTIVITY_LIST_STATEMENTS = 5;
+    private static final long MAX_USER_STATEMENTS = 2;
+
+    /**
+     * Create a logbook whose entries have from one to ENTRY_COUNT activities each, all with comments
+     */
+    @BeforeEach
+    public void setup() {
+
+        UserDTO         tempUserDTO;
+        LogbookDTO      tempLogbookDTO;
+        LogbookEntry    tempEntry;
+
+        tempUserDTO = new UserDTO("fetchplanuser" + (new Date()).getTime());
+        this.setUser(this.getUserService().createUser(tempUserDTO));
+
+        tempLogbookDTO = new LogbookDTO();
+        tempLogbookDTO.setName("FetchPlanLogbook" + (new Date()).getTime());
+        this.setLogbook(this.getLogbookService().createLogbook(this.getUser(), tempLogbookDTO));
+
+        this.setEntries(new ArrayList<>());
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+
+            tempEntry = this.getLogbookEntryService().createLogbookEntry(this.getLogbook(),
+                                                                         this.createLogbookEntryDTO());
+            for (int j = 0; j < i; j++) {
+
+                this.getActivityService().createActivity(this.getLogbook(),
+                                                         tempEntry,
+                                                         this.createActivityDTO());
+            }
+            this.getEntries().add(tempEntry);
+
+        }
+
+    }
+
+    /**
+     * Remove everything setup created
+     */
+    @AfterEach
+    public void tearDown() {
+
+        for (LogbookEntry anEntry: this.getEntries()) {
+
+            this.getLogbookEntryService().deleteLogbookEntry(anEntry.getId());
+        }
+        this.getLogbookService().deleteLogbook(this.getLogbook().getId());
+        this.getUserService().deleteUserById(this.getUser().getId());
+
+    }
+
+    /**
+     * A page of entries costs the same whether it holds a few small entries or many large ones
+     */
+    @Test
+    public void testEntryPageStatementCountIsFixed() {
+
+        long tempSmallPageCount;
+        long tempLargePageCount;
+
+        tempSmallPageCount = this.countStatements(() -> this.findEntryPage(2));
+        tempLargePageCount = this.countStatements(() -> this.findEntryPage(ENTRY_COUNT));
+
+        Assertions.assertEquals(tempSmallPageCount, tempLargePageCount,
+                                "Entry page statements grow with the page");
+        Assertions.assertTrue(tempLargePageCount <= MAX_PAGE_STATEMENTS,
+                              "Entry page ran " + tempLargePageCount + " statements");
+
+    }
+
+    /**
+     * An entry costs the same whether it has one activity or many
+     */
+    @Test
+    public void testEntryDetailStatementCountIsFixed() {
+
+        long tempSmallEntryCount;
+        long tempLargeEntryCount;
+
+        tempSmallEntryCount = this.countStatements(() -> this.findEntryDetail(this.getEntries().get(0)));
+        tempLargeEntryCount = this.countStatements(() -> this.findEntryDetail(this.getEntries().get(ENTRY_COUNT - 1)));
+
+        Assertions.assertEquals(tempSmallEntryCount, tempLargeEntryCount,
+                                "Entry detail statements grow with the activities");
+        Assertions.assertTrue(tempLargeEntryCount <= MAX_DETAIL_STATEMENTS,
+                              "Entry detail ran " + tempLargeEntryCount + " statements");
+
+    }
+
+    /**
+     * The activities of an entry cost the same however many there are
+     */
+    @Test
+    public void testActivityListStatementCountIsFixed() {
+
+        long tempSmallListCount;
+        long tempLargeListCount;
+
+        tempSmallListCount = this.countStatements(() -> this.findActivityList(this.getEntries().get(0)));
+        tempLargeListCount = this.countStatements(() -> this.findActivityList(this.getEntries().get(ENTRY_COUNT - 1)));
+
+        Assertions.assertEquals(tempSmallListCount, tempLargeListCount,
+                                "Activity list statements grow with the activities");
+        Assertions.assertTrue(tempLargeListCount <= MAX_ACTIVITY_LIST_STATEMENTS,
+                              "Activity list ran " + tempLargeListCount + " statements");
+
+    }
+
+    /**
+     * A user is answered with its logbooks in a fixed number of statements
+     */
+    @Test
+    public void testUserStatementCountIsFixed() {
+
+        long tempCount;
+
+        tempCount = this.countStatements(() ->
+                this.getUserService().findUserById(this.getUser().getId()).asValueObject());
+
+        Assertions.assertTrue(tempCount <= MAX_USER_STATEMENTS,
+                              "User lookup ran " + tempCount + " statements");
+
+    }
+
+    /**
+     * An activity created on an entry resolved with only its logbook, as the activity endpoints resolve
+     * it, leaves the entry's activities unloaded and is among them when they are next read
+     */
+    @Test
+    public void testActivityIsAddedToEntryWithoutLoadingItsActivities() {
+
+        LogbookEntry    tempEntry;
+        Activity        tempActivity;
+
+        tempEntry = this.getLogbookEntryService().findLogbookEntryWithLogbook(this.getEntries().get(0).getId());
+        Assertions.assertFalse(Hibernate.isInitialized(tempEntry.getActivities()));
+
+        tempActivity = this.getActivityService().createActivity(tempEntry.getLogbook(),
+                                                                tempEntry,
+                                                                this.createActivityDTO());
+
+        Assertions.assertFalse(Hibernate.isInitialized(tempEntry.getActivities()));
+        Assertions.assertSame(tempEntry, tempActivity.getLogbookEntry());
+        Assertions.assertTrue(this.getLogbookEntryService()
+                                  .findLogbookEntryById(tempEntry.getId())
+                                  .getActivities()
+                                  .stream()
+                                  .anyMatch(a -> a.getId().equals(tempActivity.getId())));
+        Assertions.assertEquals(2, this.getActivityService().findActivitiesForLogbookEntry(tempEntry).size());
+
+    }
+
+    /**
+     * Read the first page of aPageSize entries, as the entry page endpoint answers it
+     * @param aPageSize int
+     */
+    private void findEntryPage(int aPageSize) {
+
+        List<LogbookEntryDTO> tempResults;
+
+        tempResults = this.getLogbookEntryService()
+                          .findLogbookEntriesForLogbook(this.getLogbook(), 0, aPageSize)
+                          .stream()
+                          .map(LogbookEntry::asValueObject)
+                          .collect(Collectors.toList());
+        Assertions.assertEquals(aPageSize, tempResults.size());
+
+    }
+
+    /**
+     * Read anEntry, as the entry detail endpoint answers it
+     * @param anEntry LogbookEntry
+     */
+    private void findEntryDetail(LogbookEntry anEntry) {
+
+        this.getLogbookEntryService().findLogbookEntryById(anEntry.getId()).asValueObject();
+    }
+
+    /**
+     * Read the activities of anEntry, as the activity list endpoint answers them
+     * @param anEntry LogbookEntry
+     */
+    private void findActivityList(LogbookEntry anEntry) {
+
+        this.getActivityService()
+            .findActivitiesForLogbookEntry(anEntry)
+            .stream()
+            .map(Activity::asValueObject)
+            .collect(Collectors.toList());
+
+    }
+
+    /**
+     * Answer the number of SQL statements aRunnable prepares
+     * @param aRunnable Runnable
+     * @return long
+     */
+    private long countStatements(Runnable aRunnable) {
+
+        Statistics tempStatistics;
+
+        tempStatistics = this.getEntityManagerFactory()
+                             .unwrap(SessionFactory.class)
+                             .getStatistics();
+        tempStatistics.clear();
+        aRunnable.run();
+
+        return tempStatistics.getPrepareStatementCount();
+
+    }
+
+    /**
+     * Answer a logbook entry dto with comments
+     * @return LogbookEntryDTO
+     */
+    private LogbookEntryDTO createLogbookEntryDTO() {
+
+        LogbookEntryDTO tempEntry;
+
+        tempEntry = new LogbookEntryDTO();
+        for (int i = 0; i < COMMENT_COUNT; i++) {
+
+            tempEntry.addComment(new CommentDTO(null, "Entry comment " + i, 0, null));
+        }
+
+        return tempEntry;
+
+    }
+
+    /**
+     * Answer an activity dto with comments
+     * @return UnMonitoredAerobicActivityDTO
+     */
+    private UnMonitoredAerobicActivityDTO createActivityDTO() {
+
+        UnMonitoredAerobicActivityDTO tempActivity;
+
+        tempActivity = new UnMonitoredAerobicActivityDTO();
+        tempActivity.setActivityType(ActivityType.ROWING);
+        tempActivity.setActivityDetails("Steady state");
+        tempActivity.setDuration(30.0d);
+        tempActivity.setDurationUnits(DurationUnits.MINUTES);
+        tempActivity.setDistance(10);
+        tempActivity.setDistanceUnits(DistanceUnits.KILOMETERS);
+        for (int i = 0; i < COMMENT_COUNT; i++) {
+
+            tempActivity.addComment(new CommentDTO(null, "Activity comment " + i, 0, null));
+        }
+
+        return tempActivity;
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Track when activities change and when they are deleted, so exports can answer only
+ * what changed since a checkpoint
+ */
+
+ALTER TABLE activities ADD COLUMN IF NOT EXISTS updated_at timestamp with time zone NOT NULL DEFAULT now();
+
+CREATE INDEX IF NOT EXISTS activities_updated_at_idx ON activities (updated_at);
+
+CREATE TABLE IF NOT EXISTS activity_tombstones
+(
+    id bigserial NOT NULL,
+    activity_id bigint NOT NULL,
+    logbook_id bigint NOT NULL,
+    activity_type varchar(40) NOT NULL,
+    activity_date timestamp without time zone NOT NULL,
+    deleted_at timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT activity_tombstones_pkey PRIMARY KEY (id)
+    );
+
+CREATE INDEX IF NOT EXISTS activity_tombstones_logbook_deleted_idx ON activity_tombstones (logbook_id, deleted_at);
+
+--
+-- Maintained by the database so every writer, not just the application, keeps it current
+--
+CREATE OR REPLACE FUNCTION activities_set_updated_at() RETURNS trigger AS $$
+BEGIN
+    NEW.updated_at := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER activities_updated_at_trg
+    BEFORE INSERT OR UPDATE ON activities
+    FOR EACH ROW EXECUTE FUNCTION activities_set_updated_at();
+
+--
+-- Activity details are exported with their activity, so changing them changes the activity
+--
+CREATE OR REPLACE FUNCTION activity_details_touch_activity() RETURNS trigger AS $$
+BEGIN
+    UPDATE activities SET updated_at = now() WHERE activity_details_id = NEW.id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER activity_details_touch_activity_trg
+    AFTER UPDATE ON activity_details
+    FOR EACH ROW EXECUTE FUNCTION activity_details_touch_activity();
+
+CREATE OR REPLACE FUNCTION activities_record_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO activity_tombstones (activity_id, logbook_id, activity_type, activity_date, deleted_at)
+        SELECT OLD.id, lgbkent.logbook_id, OLD.activity_type, lgbkent.activity_date, now()
+        FROM logbook_entries lgbkent
+        WHERE lgbkent.id = OLD.log_entry_id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER activities_tombstone_trg
+    AFTER DELETE ON activities
+    FOR EACH ROW EXECUTE FUNCTION activities_record_tombstone();
@@ -0,0 +1,17 @@
+/*
+ * Cover the logbook ownership lookup, which reads the owner's username by logbook id on every protected
+ * logbook request that misses the ownership cache. Both sides of the logbooks to users join can then be
+ * answered from an index alone.
+ */
+
+--
+-- logbooks_pkey finds the logbook but not its owner, and logbooks_user_id_idx from V6 is keyed the
+-- wrong way round, so without this every lookup visits the logbook row for user_id
+--
+CREATE INDEX IF NOT EXISTS logbooks_id_user_id_idx ON logbooks (id, user_id);
+
+--
+-- The join reads users by id. users_pkey finds the user but not its name, and users_username_unique
+-- is keyed by name, so it serves lookups by username but not this one.
+--
+CREATE INDEX IF NOT EXISTS users_id_user_name_idx ON users (id, user_name);